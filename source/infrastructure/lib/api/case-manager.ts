@@ -11,6 +11,7 @@ import * as s3 from 'aws-cdk-lib/aws-s3';
 import {
     COMMERCIAL_REGION_LAMBDA_NODE_RUNTIME,
     LAMBDA_TIMEOUT_MINS,
+    S3_DRAFT_PREFIX,
     S3_REDACTED_PREFIX,
     S3_UPLOAD_PREFIX
 } from '../utils/constants';
@@ -185,7 +186,8 @@ export class CaseManager extends Construct {
                 environment: {
                     DDB_GSI_USER_ID: userIdIndexProps.indexName,
                     DDB_GSI_USER_DOC_ID: userDocIdIndexProps.indexName,
-                    S3_REDACTED_PREFIX: S3_REDACTED_PREFIX
+                    S3_REDACTED_PREFIX: S3_REDACTED_PREFIX,
+                    S3_DRAFT_PREFIX: S3_DRAFT_PREFIX
                 }
             },
             tablePermissions: 'Read',
@@ -233,7 +235,8 @@ export class CaseManager extends Construct {
                 effect: iam.Effect.ALLOW,
                 resources: [
                     `${props.bucketToUpload.bucketArn}/${this.s3UploadPrefix}/*`,
-                    `${props.bucketToUpload.bucketArn}/${S3_REDACTED_PREFIX}/*`
+                    `${props.bucketToUpload.bucketArn}/${S3_REDACTED_PREFIX}/*`,
+                    `${props.bucketToUpload.bucketArn}/${S3_DRAFT_PREFIX}/*`
                 ],
                 actions: ['s3:GetObject*']
             })
@@ -244,7 +247,10 @@ export class CaseManager extends Construct {
 
         this.fetchRecordLambdaFunction.addToRolePolicy(
             new iam.PolicyStatement({
-                resources: [`${props.bucketToUpload.bucketArn}/${S3_REDACTED_PREFIX}/*`],
+                resources: [
+                    `${props.bucketToUpload.bucketArn}/${S3_REDACTED_PREFIX}/*`,
+                    `${props.bucketToUpload.bucketArn}/${S3_DRAFT_PREFIX}/*`
+                ],
                 actions: ['s3:GetObject', 's3:GetObjectAttributes'],
                 effect: iam.Effect.ALLOW
             })
@@ -337,8 +343,11 @@ export class CaseManager extends Construct {
                 },
                 {
                     id: 'AwsSolutions-IAM5',
-                    reason: 'The lambda requires access to the bucket containing redacted document, with prefix redacted',
-                    appliesTo: [`Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/redacted/*`]
+                    reason: 'The lambda requires access to the bucket containing redacted document, with prefix redacted, and its draft, with prefix draft',
+                    appliesTo: [
+                        `Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/redacted/*`,
+                        `Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/draft/*`
+                    ]
                 },
                 {
                     id: 'AwsSolutions-IAM5',
@@ -364,7 +373,8 @@ export class CaseManager extends Construct {
                     reason: 'Providing a key prefix to further restrict access within the bucket',
                     appliesTo: [
                         `Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/${this.s3UploadPrefix}/*`,
-                        `Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/${S3_REDACTED_PREFIX}/*`
+                        `Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/${S3_REDACTED_PREFIX}/*`,
+                        `Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/${S3_DRAFT_PREFIX}/*`
                     ]
                 }
             ],
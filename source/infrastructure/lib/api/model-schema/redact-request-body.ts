@@ -62,6 +62,18 @@ export const redactRequestBodySchema: JsonSchema = {
                     }
                 }
             }
+        },
+        mode: {
+            type: JsonSchemaType.STRING,
+            description:
+                "'final' (default) applies the redactions permanently. 'draft' marks the redactions of a pdf file with redaction annotations on the original file, to review them before applying them",
+            enum: ['final', 'draft']
+        },
+        quality: {
+            type: JsonSchemaType.STRING,
+            description:
+                "Rendering profile of the redacted pdf pages. 'fast' renders gray low resolution pages for triage, 'standard' matches the default settings and 'archival' renders full color pages at print resolution. If omitted, the settings of the deployment are used",
+            enum: ['fast', 'standard', 'archival']
         }
     }
 };
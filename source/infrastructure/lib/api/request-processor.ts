@@ -19,6 +19,7 @@ import {
     EventSources,
     JAVA_LAMBDA_MEMORY,
     LAMBDA_TIMEOUT_MINS,
+    S3_DRAFT_PREFIX,
     S3_REDACTED_PREFIX,
     S3_UPLOAD_PREFIX,
     WorkflowEventDetailTypes
@@ -174,7 +175,10 @@ export class RequestProcessor extends Construct {
                         s3.HttpMethods.DELETE
                     ],
                     allowedOrigins: ['*'],
-                    allowedHeaders: ['*']
+                    allowedHeaders: ['*'],
+                    // lets the pdf viewer read the responses to range requests, to display
+                    // the first page of linearized documents before they are fully downloaded
+                    exposedHeaders: ['Accept-Ranges', 'Content-Range', 'Content-Length']
                 }
             ]
         });
@@ -220,6 +224,7 @@ export class RequestProcessor extends Construct {
                 DOCUMENT_BUCKET_NAME: uploadBucket.bucketName,
                 S3_UPLOAD_PREFIX: S3_UPLOAD_PREFIX,
                 S3_REDACTED_PREFIX: S3_REDACTED_PREFIX,
+                S3_DRAFT_PREFIX: S3_DRAFT_PREFIX,
                 UUID: props.genUUID
             }
         });
@@ -402,10 +407,12 @@ export class RequestProcessor extends Construct {
             })
         );
 
-        // must read from inferences and uploaded files buckets, be able to upload to redacted prefix in upload bucket
+        // must read from inferences and uploaded files buckets, be able to upload to redacted and draft prefixes in
+        // upload bucket. Drafts keep the unredacted content, so they have their own prefix
         inferenceBucket.grantRead(apiRedactionLambdaFunction);
         uploadBucket.grantRead(apiRedactionLambdaFunction, `${S3_UPLOAD_PREFIX}/*`);
         uploadBucket.grantPut(apiRedactionLambdaFunction, `${S3_REDACTED_PREFIX}/*`);
+        uploadBucket.grantPut(apiRedactionLambdaFunction, `${S3_DRAFT_PREFIX}/*`);
         uploadBucket.grantRead(this.workflowOrchestratorFunc, `${S3_UPLOAD_PREFIX}/*`);
 
         this.docUploadBucket = [uploadBucket, props.s3LoggingBucket];
@@ -539,9 +546,10 @@ export class RequestProcessor extends Construct {
                 },
                 {
                     id: 'AwsSolutions-IAM5',
-                    reason: 'Providing permission to upload to the upload bucket under the redaction prefix',
+                    reason: 'Providing permission to upload to the upload bucket under the redaction and draft prefixes',
                     appliesTo: [
                         `Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/${S3_REDACTED_PREFIX}/*`,
+                        `Resource::<RequestProcessorDocumentRepo94D336AB.Arn>/${S3_DRAFT_PREFIX}/*`,
                         'Action::s3:Put*'
                     ]
                 },
@@ -5,7 +5,7 @@ import { CfnDocumentationPart, CfnDocumentationPartProps, CfnDocumentationVersio
 import { Construct } from 'constructs';
 import { caseResource, createCaseBody, createCaseMethod } from './case';
 import { casesResource } from './cases';
-import { downloadDocQueryParam, getDocQueryParam } from './document';
+import { downloadDocQueryParam, getDocQueryParam, getDraftDocQueryParam } from './document';
 import { redactMethod, redactSuccessResponse } from './redact';
 import { getInferenceByTypeMethod, listInferencesMethod } from './inferences';
 import { apiRootDocumentationPart, authTokenHeader, caseIdPathParam, docIdPathParam } from './root';
@@ -67,6 +67,9 @@ export class ApiDocumentation extends Construct {
         documentationVersion.addDependency(
             new CfnDocumentationPart(this, 'GetDocQueryParam', this.createDocumentationPart(getDocQueryParam))
         );
+        documentationVersion.addDependency(
+            new CfnDocumentationPart(this, 'GetDraftDocQueryParam', this.createDocumentationPart(getDraftDocQueryParam))
+        );
         documentationVersion.addDependency(
             new CfnDocumentationPart(this, 'DownloadDocQueryParam', this.createDocumentationPart(downloadDocQueryParam))
         );
@@ -16,6 +16,19 @@ export const getDocQueryParam: Partial<CfnDocumentationPartProps> = {
     })
 };
 
+export const getDraftDocQueryParam: Partial<CfnDocumentationPartProps> = {
+    location: {
+        type: 'QUERY_PARAMETER',
+        path: '/document/{caseId}/{documentId}',
+        method: 'GET',
+        name: 'draft'
+    },
+    properties: JSON.stringify({
+        description:
+            'Boolean value to return the draft of a document, where redactions are only marked. Drafts hold the unredacted content, so only the owner of the document can fetch them.'
+    })
+};
+
 export const downloadDocQueryParam: Partial<CfnDocumentationPartProps> = {
     location: {
         type: 'QUERY_PARAMETER',
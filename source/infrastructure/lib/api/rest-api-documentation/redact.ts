@@ -14,7 +14,9 @@ export const redactMethod: Partial<CfnDocumentationPartProps> = {
             `This endpoint is used to redact specific entities from a document.
             The request body describes the requried structure. A successful request will 
             redact a document with a given ID, store it in the S3 bucket, and update the case records. `,
-            'To download a redacted document, send a request to `GET:/document/{caseId}/{documentId}?redacted=true`'
+            'To download a redacted document, send a request to `GET:/document/{caseId}/{documentId}?redacted=true`. ',
+            'A draft is stored apart from the redacted documents, as it keeps the unredacted content. ',
+            'Only the owner of the document can download it, with `GET:/document/{caseId}/{documentId}?draft=true`'
         ].join('')
     })
 };
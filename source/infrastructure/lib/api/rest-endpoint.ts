@@ -437,6 +437,7 @@ export class RestEndpoint extends Construct {
             requestValidator: requestValidator,
             requestParameters: {
                 'method.request.querystring.redacted': false,
+                'method.request.querystring.draft': false,
                 'method.request.header.Authorization': true
             },
             methodResponses: [
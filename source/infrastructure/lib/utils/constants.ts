@@ -115,6 +115,7 @@ export const GOV_CLOUD_REGION_LAMBDA_JAVA_RUNTIME: lambda.Runtime = lambda.Runti
 
 export const S3_UPLOAD_PREFIX = 'initial';
 export const S3_REDACTED_PREFIX = 'redacted';
+export const S3_DRAFT_PREFIX = 'draft';
 export const S3_MULTI_PAGE_PDF_PREFIX = 'multi-page-pdf';
 export const JAVA_LAMBDA_MEMORY = 1024;
 
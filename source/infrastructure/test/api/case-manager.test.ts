@@ -195,17 +195,30 @@ describe('When CaseManager construct is created', () => {
                     {
                         Action: ['s3:GetObject', 's3:GetObjectAttributes'],
                         Effect: 'Allow',
-                        Resource: {
-                            'Fn::Join': [
-                                '',
-                                [
-                                    {
-                                        'Fn::GetAtt': [s3UploadBucketCapture, 'Arn']
-                                    },
-                                    '/redacted/*'
+                        Resource: [
+                            {
+                                'Fn::Join': [
+                                    '',
+                                    [
+                                        {
+                                            'Fn::GetAtt': [s3UploadBucketCapture, 'Arn']
+                                        },
+                                        '/redacted/*'
+                                    ]
                                 ]
-                            ]
-                        }
+                            },
+                            {
+                                'Fn::Join': [
+                                    '',
+                                    [
+                                        {
+                                            'Fn::GetAtt': [s3UploadBucketCapture, 'Arn']
+                                        },
+                                        '/draft/*'
+                                    ]
+                                ]
+                            }
+                        ]
                     }
                 ]
             },
@@ -258,6 +271,18 @@ describe('When CaseManager construct is created', () => {
                                         '/redacted/*'
                                     ]
                                 ]
+                            },
+                            {
+                                'Fn::Join': [
+                                    '',
+
+                                    [
+                                        {
+                                            'Fn::GetAtt': [s3UploadBucketCapture, 'Arn']
+                                        },
+                                        '/draft/*'
+                                    ]
+                                ]
                             }
                         ]
                     }
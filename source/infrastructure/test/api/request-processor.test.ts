@@ -12,6 +12,7 @@ import {
     COMMERCIAL_REGION_LAMBDA_JAVA_RUNTIME,
     COMMERCIAL_REGION_LAMBDA_NODE_RUNTIME,
     EventSources,
+    S3_DRAFT_PREFIX,
     S3_REDACTED_PREFIX,
     S3_UPLOAD_PREFIX,
     WorkflowEventDetailTypes
@@ -86,7 +87,8 @@ describe('When RequestProcessor construct is created', () => {
                     {
                         AllowedHeaders: ['*'],
                         AllowedMethods: ['GET', 'POST', 'PUT', 'DELETE'],
-                        AllowedOrigins: ['*']
+                        AllowedOrigins: ['*'],
+                        ExposedHeaders: ['Accept-Ranges', 'Content-Range', 'Content-Length']
                     }
                 ]
             },
@@ -478,6 +480,7 @@ describe('When RequestProcessor construct is created', () => {
                     },
                     S3_UPLOAD_PREFIX: S3_UPLOAD_PREFIX,
                     S3_REDACTED_PREFIX: S3_REDACTED_PREFIX,
+                    S3_DRAFT_PREFIX: S3_DRAFT_PREFIX,
                     UUID: { 'Fn::GetAtt': [Match.anyValue(), 'UUID'] }
                 }
             }
@@ -546,6 +549,28 @@ describe('When RequestProcessor construct is created', () => {
                                 ]
                             ]
                         }
+                    },
+                    {
+                        'Action': [
+                            's3:PutObject',
+                            's3:PutObjectLegalHold',
+                            's3:PutObjectRetention',
+                            's3:PutObjectTagging',
+                            's3:PutObjectVersionTagging',
+                            's3:Abort*'
+                        ],
+                        'Effect': 'Allow',
+                        'Resource': {
+                            'Fn::Join': [
+                                '',
+                                [
+                                    {
+                                        'Fn::GetAtt': [uploadBucketCapture.asString(), 'Arn']
+                                    },
+                                    '/draft/*'
+                                ]
+                            ]
+                        }
                     }
                 ],
                 'Version': '2012-10-17'
@@ -21,7 +21,7 @@ describe('When CaseManager construct is created', () => {
     });
 
     it('Should create the required number of DocumentationParts', () => {
-        template.resourceCountIs('AWS::ApiGateway::DocumentationPart', 18);
+        template.resourceCountIs('AWS::ApiGateway::DocumentationPart', 19);
     });
 
     it('Should create a DocumentationVersion', () => {
@@ -14,10 +14,14 @@ const DocFetcher = require('./utils/fetch-document');
  * - /GET/document/{caseId}/{documentId}
  * - /GET/document/{caseId}/{documentId}?redacted=false
  * - /GET/document/{caseId}/{documentId}?redacted=true
+ * - /GET/document/{caseId}/{documentId}?draft=true
  *
  * Note: the above endpoint optionally accepts queryStringParameters: redacted=true/false
  * By default the endpoint returns details for a redacted document. To fetch the unredacted
- * document, the queryStringParameters must be passed as redacted=false.
+ * document, the queryStringParameters must be passed as redacted=false. To fetch the draft
+ * of a document, where redactions are only marked, the queryStringParameters must be passed
+ * as draft=true. Drafts hold the unredacted content, so like unredacted documents they are
+ * only served to the user who owns the document.
  *
  *
  * It also validates if all required environment variables are declared.
@@ -67,6 +71,9 @@ exports.handler = async (event) => {
             } else if (event.queryStringParameters.redacted === 'false') {
                 getDocPrefixParams.redacted = false;
             }
+            if (event.queryStringParameters && event.queryStringParameters.draft === 'true') {
+                getDocPrefixParams.draft = true;
+            }
 
             // prettier-ignore
             const response = await DocFetcher.getDocumentPrefix(getDocPrefixParams); // NOSONAR - underlying calls are async
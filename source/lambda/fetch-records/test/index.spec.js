@@ -89,6 +89,7 @@ describe('When invoking lambda endpoints', () => {
         process.env.CASE_DDB_TABLE_NAME = 'testTable';
         process.env.S3_UPLOAD_PREFIX = 'initial';
         process.env.S3_REDACTED_PREFIX = 'redacted';
+        process.env.S3_DRAFT_PREFIX = 'draft';
 
         jest.spyOn(SharedLib, 'getUserIdFromEvent').mockImplementation((event) => {
             expect(event.headers.Authorization).toEqual('fake-token');
@@ -312,6 +313,33 @@ describe('When invoking lambda endpoints', () => {
                 FileName: 'fake-file-name'
             })
         );
+
+        const eventDraftTrue = {
+            httpMethod: 'GET',
+            resource: '/document/{caseId}/{documentId}',
+            pathParameters: {
+                caseId: 'fake-user-id:fake-case-id',
+                documentId: 'fake-document-id'
+            },
+            queryStringParameters: {
+                draft: 'true'
+            },
+            headers: {
+                Authorization: 'fake-token'
+            },
+            requestContext: { authorizer: { claims: { 'cognito:username': 'fake-user-id' } } }
+        };
+
+        const responseDraftDoc = await lambda.handler(eventDraftTrue);
+
+        expect(responseDraftDoc).toEqual(
+            SharedLib.formatResponse({
+                DocId: 'fake-document-id',
+                Bucket: 'fake-bucket-name',
+                key: 'draft/fake-userid:fake-case-id/fake-document-id-draft.jpg',
+                FileName: 'fake-file-name'
+            })
+        );
     });
 
     it('should return an error if user is not associated with the case when the /case/{caseId} and /document/{caseId}/{documentId} endpoints are invoked', async () => {
@@ -377,6 +405,7 @@ describe('When invoking lambda endpoints', () => {
         delete process.env.DDB_GSI_USER_DOC_ID;
         delete process.env.S3_UPLOAD_PREFIX;
         delete process.env.S3_REDACTED_PREFIX;
+        delete process.env.S3_DRAFT_PREFIX;
 
         AWSMock.restore('DynamoDB');
         jest.resetAllMocks();
@@ -63,6 +63,82 @@ describe('AccessCheckers: redactedDocAccessChecker', () => {
     });
 });
 
+describe('AccessCheckers: draftDocAccessChecker', () => {
+    let unmarshalledDdbRecord;
+    beforeEach(() => {
+        process.env.AWS_REGION = 'us-east-1';
+        process.env.AWS_SDK_USER_AGENT = '{ "customUserAgent": "AwsSolution/SO0999/v9.9.9" }';
+        process.env.S3_DRAFT_PREFIX = 'draft';
+
+        unmarshalledDdbRecord = {
+            BUCKET_NAME: 'fake-bucket',
+            S3_KEY: 'fake-s3-key.pdf',
+            UPLOADED_FILE_EXTENSION: '.pdf',
+            UPLOADED_FILE_NAME: 'simple-document',
+            DOCUMENT_ID: 'doc-fake-id',
+            CASE_ID: 'fake-userid:fake-case-id',
+            DOCUMENT_TYPE: 'passport',
+            USER_ID: 'fake-userid'
+        };
+    });
+
+    it('should return true if the user owns the document and the draft exists', async () => {
+        jest.spyOn(SharedLib, 'getCognitoEntityFromAuthToken').mockImplementation((authToken) => {
+            expect(authToken).toEqual('fake-token');
+            return {
+                'cognito:username': 'fake-userid'
+            };
+        });
+        AWSMock.mock('S3', 'headObject', async (params) => {
+            expect(params.Bucket).toEqual('fake-bucket');
+            expect(params.Key).toEqual('draft/fake-userid:fake-case-id/doc-fake-id-draft.pdf');
+            return 'mocked-object-metadata';
+        });
+        const result = await AccessCheckers.draftDocAccessChecker(unmarshalledDdbRecord, 'fake-token');
+        expect(result).toBeTruthy();
+    });
+
+    it('should return false if the user does not own the document', async () => {
+        jest.spyOn(SharedLib, 'getCognitoEntityFromAuthToken').mockImplementation(() => {
+            return {
+                'cognito:username': 'other-userid'
+            };
+        });
+        AWSMock.mock('S3', 'headObject', async () => {
+            throw new Error('The draft must not be looked up for another user');
+        });
+        const result = await AccessCheckers.draftDocAccessChecker(unmarshalledDdbRecord, 'fake-token');
+        expect(result).toBeFalsy();
+    });
+
+    it('should return false if the draft does not exist', async () => {
+        jest.spyOn(SharedLib, 'getCognitoEntityFromAuthToken').mockImplementation(() => {
+            return {
+                'cognito:username': 'fake-userid'
+            };
+        });
+        AWSMock.mock('S3', 'headObject', async () => {
+            throw new Error('S3 object not found');
+        });
+        const result = await AccessCheckers.draftDocAccessChecker(unmarshalledDdbRecord, 'fake-token');
+        expect(result).toBeFalsy();
+    });
+
+    it('should throw error if access token is not provided', async () => {
+        await expect(AccessCheckers.draftDocAccessChecker(unmarshalledDdbRecord)).rejects.toThrow(
+            'No authentication token provided'
+        );
+    });
+
+    afterEach(() => {
+        AWSMock.restore('S3');
+        jest.restoreAllMocks();
+        delete process.env.AWS_REGION;
+        delete process.env.AWS_SDK_USER_AGENT;
+        delete process.env.S3_DRAFT_PREFIX;
+    });
+});
+
 describe('AccessCheckers: unredactedDocAccessChecker', () => {
     let unmarshalledDdbRecord;
     beforeEach(() => {
@@ -76,6 +76,27 @@ describe('Check Redacted doc s3 prefix name environment', () => {
     });
 });
 
+describe('Check draft doc s3 prefix name environment', () => {
+    beforeEach(() => {
+        process.env.S3_DRAFT_PREFIX = 'draft-docs';
+    });
+
+    it('succeeds when env is set correctly', () => {
+        expect(envSetupChecker.checkDraftPrefixEnvSetup()).toBe();
+    });
+
+    it('fails when env is not set correctly', () => {
+        delete process.env.S3_DRAFT_PREFIX;
+        expect(() => {
+            envSetupChecker.checkDraftPrefixEnvSetup();
+        }).toThrow();
+    });
+
+    afterAll(() => {
+        delete process.env.S3_DRAFT_PREFIX;
+    });
+});
+
 describe('Checks all environments', () => {
     beforeEach(() => {
         process.env.CASE_DDB_TABLE_NAME = 'fake_table';
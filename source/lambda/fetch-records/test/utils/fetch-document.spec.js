@@ -42,6 +42,7 @@ describe('When loading workflow config, if TableName is available', () => {
         process.env.AWS_SDK_USER_AGENT = '{ "customUserAgent": "AwsSolution/SO0999/v9.9.9" }';
         process.env.CASE_DDB_TABLE_NAME = 'fake-workflow-config-table';
         process.env.S3_REDACTED_PREFIX = 'redacted';
+        process.env.S3_DRAFT_PREFIX = 'draft';
         AWSMock.mock('DynamoDB', 'getItem', async (params) => {
             expect(params.TableName == process.env.CASE_DDB_TABLE_NAME);
             expect(params.Key.CASE_ID === 'fake-userid:fake-case-id');
@@ -102,6 +103,34 @@ describe('When loading workflow config, if TableName is available', () => {
         }
     });
 
+    it('should get the draft doc info under the draft prefix', async () => {
+        const params = {
+            caseId: 'fake-userid:fake-case-id',
+            documentId: 'fake-document-id'
+        };
+        const response = await DocFetcher.getDraftDocInfo(params, () => {
+            return true;
+        });
+        expect(response).toEqual({
+            DocId: MOCK_DDB_RESPONSE.Item.DOCUMENT_ID.S,
+            Bucket: MOCK_DDB_RESPONSE.Item.BUCKET_NAME.S,
+            key: 'draft/fake-userid:fake-case-id/doc-fake-id-draft.jpg',
+            FileName: MOCK_DDB_RESPONSE.Item.UPLOADED_FILE_NAME.S
+        });
+    });
+
+    it('should throw an error if the draft checker callback returns false', async () => {
+        const params = {
+            caseId: 'fake-userid:fake-case-id',
+            documentId: 'fake-document-id'
+        };
+        await expect(
+            DocFetcher.getDraftDocInfo(params, () => {
+                return false;
+            })
+        ).rejects.toThrow('User does not have access to this document');
+    });
+
     it('should get the unredacted doc info', async () => {
         const params = {
             caseId: 'fake-userid:fake-case-id',
@@ -162,6 +191,21 @@ describe('When loading workflow config, if TableName is available', () => {
         });
     });
 
+    it('should return an object containing file id, key and bucket, for draft doc', async () => {
+        const params = {
+            caseId: 'fake-userid:fake-case-id',
+            documentId: 'doc-fake-id',
+            draft: true,
+            authToken: 'fake-auth-token'
+        };
+        expect(await DocFetcher.getDocumentPrefix(params)).toEqual({
+            DocId: MOCK_DDB_RESPONSE.Item.DOCUMENT_ID.S,
+            Bucket: MOCK_DDB_RESPONSE.Item.BUCKET_NAME.S,
+            key: 'draft/fake-userid:fake-case-id/doc-fake-id-draft.jpg',
+            FileName: MOCK_DDB_RESPONSE.Item.UPLOADED_FILE_NAME.S
+        });
+    });
+
     //should throw an error if the caseId is missing
     it('should throw an error if documentId is missing from request params', async () => {
         const params = {
@@ -175,5 +219,6 @@ describe('When loading workflow config, if TableName is available', () => {
         delete process.env.AWS_SDK_USER_AGENT;
         delete process.env.CASE_DDB_TABLE_NAME;
         delete process.env.S3_REDACTED_PREFIX;
+        delete process.env.S3_DRAFT_PREFIX;
     });
 });
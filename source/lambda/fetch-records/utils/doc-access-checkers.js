@@ -20,6 +20,47 @@ const CustomConfig = require('aws-node-user-agent-config');
  * @returns
  */
 exports.redactedDocAccessChecker = async (ddbDocRecord, authToken) => {
+    const redactedDocKey =
+        `${process.env.S3_REDACTED_PREFIX}/` +
+        `${ddbDocRecord.CASE_ID}/` +
+        `${ddbDocRecord.DOCUMENT_ID}` +
+        `${SharedLib.RedactionDefaults.REDACTED_FILE_SUFFIX}` +
+        `${ddbDocRecord.UPLOADED_FILE_EXTENSION}`;
+    return ownedDocExists(ddbDocRecord, authToken, redactedDocKey);
+};
+
+/**
+ * This function is meant to be used as a callback function by the `getDraftDocInfo`
+ * function, to check if the draft is accessible to the user and available for download.
+ *
+ * A draft only marks the redactions on the original document, so it holds the same
+ * content as the unredacted document. It is stored under its own prefix, apart from the
+ * redacted documents, and only the user who owns the document can fetch it.
+ *
+ * @param {Object} ddbDocRecord Unmarshalled document record from the casemanager database
+ * @param {String} authToken Cognito authentication token
+ * @returns
+ */
+exports.draftDocAccessChecker = async (ddbDocRecord, authToken) => {
+    const draftDocKey =
+        `${process.env.S3_DRAFT_PREFIX}/` +
+        `${ddbDocRecord.CASE_ID}/` +
+        `${ddbDocRecord.DOCUMENT_ID}` +
+        `${SharedLib.RedactionDefaults.DRAFT_FILE_SUFFIX}` +
+        `${ddbDocRecord.UPLOADED_FILE_EXTENSION}`;
+    return ownedDocExists(ddbDocRecord, authToken, draftDocKey);
+};
+
+/**
+ * Checks that the user of the authentication token owns the document, and that the
+ * object derived from it exists in S3.
+ *
+ * @param {Object} ddbDocRecord Unmarshalled document record from the casemanager database
+ * @param {String} authToken Cognito authentication token
+ * @param {String} docKey S3 key of the object derived from the document
+ * @returns
+ */
+async function ownedDocExists(ddbDocRecord, authToken, docKey) {
     const awsCustomConfig = CustomConfig.customAwsConfig();
     const s3 = new AWS.S3(awsCustomConfig);
 
@@ -28,31 +69,25 @@ exports.redactedDocAccessChecker = async (ddbDocRecord, authToken) => {
     }
 
     const congnitoEntity = SharedLib.getCognitoEntityFromAuthToken(authToken);
-    
+
     const userId = congnitoEntity['cognito:username'];
     if (userId !== ddbDocRecord.USER_ID) {
         return false;
     }
 
-    const redactedDocKey =
-        `${process.env.S3_REDACTED_PREFIX}/` +
-        `${ddbDocRecord.CASE_ID}/` +
-        `${ddbDocRecord.DOCUMENT_ID}` +
-        `${SharedLib.RedactionDefaults.REDACTED_FILE_SUFFIX}` +
-        `${ddbDocRecord.UPLOADED_FILE_EXTENSION}`;
     const s3Params = {
         Bucket: ddbDocRecord.BUCKET_NAME,
-        Key: redactedDocKey
+        Key: docKey
     };
     console.debug('s3Params', s3Params);
     try {
         await s3.headObject(s3Params).promise();
     } catch (err) {
-        console.error(`Redacted document not found in S3. s3.headObject error response: ${err}`);
+        console.error(`Document not found in S3. s3.headObject error response: ${err}`);
         return false;
     }
     return true;
-};
+}
 
 /**
  * This function is meant to be used as a callback function by the `getUnredactedDocInfo`
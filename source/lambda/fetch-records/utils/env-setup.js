@@ -7,6 +7,7 @@ let CASE_DDB_TABLE_NAME;
 let DDB_GSI_USER_ID;
 let DDB_GSI_USER_DOC_ID;
 let S3_REDACTED_PREFIX;
+let S3_DRAFT_PREFIX;
 
 function checkDdbEnvSetup() {
     if (process.env.CASE_DDB_TABLE_NAME) {
@@ -28,6 +29,17 @@ function checkRedactionPrefixEnvSetup() {
     }
 }
 
+function checkDraftPrefixEnvSetup() {
+    if (process.env.S3_DRAFT_PREFIX) {
+        S3_DRAFT_PREFIX = process.env.S3_DRAFT_PREFIX;
+        console.debug(`S3_DRAFT_PREFIX is: ${S3_DRAFT_PREFIX}`);
+    } else {
+        throw new Error(
+            'S3_DRAFT_PREFIX Lambda Environment variable not set, likely as Redaction workflow was not deployed'
+        );
+    }
+}
+
 function checkDdbGsiNameEnvSetup() {
     if (process.env.DDB_GSI_USER_ID) {
         DDB_GSI_USER_ID = process.env.DDB_GSI_USER_ID;
@@ -49,4 +61,10 @@ function checkAllEnvSetup() {
     checkDdbGsiNameEnvSetup();
 }
 
-module.exports = { checkAllEnvSetup, checkDdbEnvSetup, checkDdbGsiNameEnvSetup, checkRedactionPrefixEnvSetup };
+module.exports = {
+    checkAllEnvSetup,
+    checkDdbEnvSetup,
+    checkDdbGsiNameEnvSetup,
+    checkRedactionPrefixEnvSetup,
+    checkDraftPrefixEnvSetup
+};
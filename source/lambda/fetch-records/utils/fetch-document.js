@@ -5,8 +5,12 @@
 const AWS = require('aws-sdk');
 const CustomConfig = require('aws-node-user-agent-config');
 const SharedLib = require('common-node-lib');
-const { redactedDocAccessChecker, unredactedDocAccessChecker } = require('./doc-access-checkers');
-const { checkRedactionPrefixEnvSetup } = require('./env-setup');
+const {
+    redactedDocAccessChecker,
+    unredactedDocAccessChecker,
+    draftDocAccessChecker
+} = require('./doc-access-checkers');
+const { checkRedactionPrefixEnvSetup, checkDraftPrefixEnvSetup } = require('./env-setup');
 
 /**
  * This function is used to fetch the unredacted document's s3 storage location from DynamoDB.
@@ -75,6 +79,47 @@ exports.getRedactedDocInfo = async (params, docAccessChecker) => {
     };
 };
 
+/**
+ * This function is used to fetch the s3 storage location of the draft of a document, where
+ * the redactions are only marked. Drafts keep the content under the marked redactions, so
+ * they are stored under their own prefix rather than with the redacted documents.
+ * It uses the callback function `docAccessChecker` to check access to the document.
+ *
+ * The callback function should return true if the user/group has access to the document,
+ * and false if not.
+ *
+ * @param {String} params.caseId Case ID
+ * @param {String} params.documentId Document ID
+ * @param {Function} docAccessChecker
+ * @throws Error when user does not have access to document
+ *
+ * @returns {Object} response of the form { DocId, Bucket, key, FileName }
+ */
+exports.getDraftDocInfo = async (params, docAccessChecker) => {
+    // Note: This env check is not in the `checkAllEnvSetup` as redaction workflow is optional
+    checkDraftPrefixEnvSetup();
+
+    const ddbDocRecord = await this.getDdbRecord(params);
+
+    if (docAccessChecker && !(await docAccessChecker(ddbDocRecord, params.authToken))) {
+        throw Error('User does not have access to this document');
+    }
+
+    const draftDocKey =
+        `${process.env.S3_DRAFT_PREFIX}/` +
+        `${ddbDocRecord.CASE_ID}/` +
+        `${ddbDocRecord.DOCUMENT_ID}` +
+        `${SharedLib.RedactionDefaults.DRAFT_FILE_SUFFIX}` +
+        `${ddbDocRecord.UPLOADED_FILE_EXTENSION}`;
+
+    return {
+        DocId: ddbDocRecord.DOCUMENT_ID,
+        Bucket: ddbDocRecord.BUCKET_NAME,
+        key: draftDocKey,
+        FileName: ddbDocRecord.UPLOADED_FILE_NAME
+    };
+};
+
 /**
  * Used to retrieve the document's metadata from the case manager table in DynamoDB.
  * @param {String} params.caseId Case ID
@@ -103,6 +148,7 @@ exports.getDdbRecord = async (params) => {
  * @param {String} params.documentId Document ID
  * @param {String} params.authToken Authentication token received from event
  * @param {String} params.redacted Whether to fetch the redacted or unredacted document
+ * @param {String} params.draft Whether to fetch the draft of the document, which takes precedence
  * @returns {Object} response of the form { DocId, Bucket, key, FileName }
  */
 exports.getDocumentPrefix = async (params) => {
@@ -111,7 +157,10 @@ exports.getDocumentPrefix = async (params) => {
             throw Error('Missing caseId or documentId');
         }
 
-        if (params.redacted) {
+        if (params.draft) {
+            // prettier-ignore
+            return await this.getDraftDocInfo(params, draftDocAccessChecker); // NOSONAR - underlying function is async
+        } else if (params.redacted) {
             // prettier-ignore
             return await this.getRedactedDocInfo(params, redactedDocAccessChecker); // NOSONAR - underlying function is async
         } else {
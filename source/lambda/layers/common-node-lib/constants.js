@@ -139,5 +139,6 @@ exports.WorkflowOrchestratorDefaults = {
 exports.DEFAULT_DOC_PROCESSING_TYPE = 'sync';
 
 exports.RedactionDefaults = {
-    REDACTED_FILE_SUFFIX: '-redacted'
+    REDACTED_FILE_SUFFIX: '-redacted',
+    DRAFT_FILE_SUFFIX: '-draft'
 };
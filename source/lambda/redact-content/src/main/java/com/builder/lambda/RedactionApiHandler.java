@@ -19,6 +19,7 @@ import com.builder.lambda.utils.CloudWatchMetrics;
 import com.builder.lambda.utils.Constants;
 import com.builder.lambda.utils.DependencyFactory;
 import com.builder.lambda.utils.LambdaContextParser;
+import com.builder.lambda.utils.PdfRenderingWarmUp;
 import com.builder.lambda.utils.S3Storage;
 
 import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
@@ -41,6 +42,8 @@ public class RedactionApiHandler implements RequestHandler<APIGatewayV2HTTPEvent
         // This constructor is run on each cold start.
         s3Client = DependencyFactory.s3Client();
         cloudWatchClient = DependencyFactory.cloudWatchClient();
+        // Loading fonts and initializing rendering are also done once per cold start.
+        PdfRenderingWarmUp.warmUp();
     }
 
     @Logging
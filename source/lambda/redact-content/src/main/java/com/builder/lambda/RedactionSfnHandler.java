@@ -9,6 +9,7 @@ import com.amazonaws.services.lambda.runtime.events.SQSEvent;
 import com.builder.lambda.utils.CloudWatchMetrics;
 import com.builder.lambda.utils.DependencyFactory;
 import com.builder.lambda.utils.LambdaContextParser;
+import com.builder.lambda.utils.PdfRenderingWarmUp;
 import com.builder.lambda.utils.S3Storage;
 import com.builder.lambda.utils.SfnRequestProcessor;
 import com.builder.lambda.utils.StepFunctionConnector;
@@ -33,6 +34,8 @@ public class RedactionSfnHandler implements RequestHandler<SQSEvent, Void> {
         s3Client = DependencyFactory.s3Client();
         sfnClient = DependencyFactory.sfnClient();
         cwClient = DependencyFactory.cloudWatchClient();
+        // Loading fonts and initializing rendering are also done once per cold start.
+        PdfRenderingWarmUp.warmUp();
     }
 
     @Logging
@@ -7,17 +7,23 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Class representing the body of the API Gateway request for redaction. This
  * body is composed of 2 main sections: First the "entities" field contains a
  * nested structure describing the entities to be redacted, and second is the
  * "phrases" field which contains an array of objects indicating specific
- * phrases to be redacted.
+ * phrases to be redacted. The optional "mode" field selects between applying
+ * the redactions, the default, and a draft to review them first. The optional
+ * "quality" field selects a {@link RedactionQuality} profile, the settings of
+ * the deployment being used without it.
  */
 public class ApiRequestBody {
     private Map<String, Map<String, Map<String, List<Integer>>>> entities;
     private ArrayList<PhraseRedaction> phrases;
+    private RedactionMode mode;
+    private RedactionQuality quality;
 
     public Map<String, Map<String, Map<String, List<Integer>>>> getEntities() {
         if (entities == null) {
@@ -33,6 +39,17 @@ public class ApiRequestBody {
         return phrases;
     }
 
+    public RedactionMode getMode() {
+        if (mode == null) {
+            mode = RedactionMode.FINAL;
+        }
+        return mode;
+    }
+
+    public RedactionQuality getQuality() {
+        return quality;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) {
@@ -44,11 +61,12 @@ public class ApiRequestBody {
         }
 
         final ApiRequestBody other = (ApiRequestBody) obj;
-        return phrases.equals(other.phrases) && entities.equals(other.entities);
+        return phrases.equals(other.phrases) && entities.equals(other.entities) && getMode() == other.getMode()
+                && quality == other.quality;
     }
 
     @Override
     public int hashCode() {
-        return phrases.hashCode() + entities.hashCode();
+        return phrases.hashCode() + entities.hashCode() + getMode().hashCode() + Objects.hashCode(quality);
     }
 }
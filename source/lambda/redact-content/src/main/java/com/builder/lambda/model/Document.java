@@ -18,6 +18,7 @@ public class Document {
     public final FileType fileType;
     public final String caseId;
     public final String docId;
+    public final long contentLength;
 
     /**
      * Populate all relevant data for a single file
@@ -28,10 +29,24 @@ public class Document {
      */
     public Document(InputStream fileInputStream, FileType fileType, String caseId, String docId)
             throws FileNotFoundException {
+        this(fileInputStream, fileType, caseId, docId, -1);
+    }
+
+    /**
+     * Populate all relevant data for a single file of a known size
+     *
+     * @param fileInputStream file as InputStream
+     * @param fileType        type of the file
+     * @param contentLength   size of the file in bytes, or -1 if it isn't known
+     * @throws FileNotFoundException if the proved file or filetype is not found
+     */
+    public Document(InputStream fileInputStream, FileType fileType, String caseId, String docId,
+            long contentLength) throws FileNotFoundException {
         this.fileInputStream = fileInputStream;
         this.fileType = fileType;
         this.caseId = caseId;
         this.docId = docId;
+        this.contentLength = contentLength;
 
         this.validateDocument();
     }
@@ -5,15 +5,18 @@ package com.builder.lambda.model;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Data class representing the input field from the parsed json received via the
- * "body" field in the SQS payload.
+ * "body" field in the SQS payload. The optional "quality" field selects a
+ * {@link RedactionQuality} profile for the redaction of the document.
  */
 public class EventDataInput {
     private String stage;
     private EventDataDocument document;
     private HashMap<String, String> inferences;
+    private RedactionQuality quality;
 
     // getters
     public String getStage() {
@@ -28,6 +31,10 @@ public class EventDataInput {
         return inferences;
     }
 
+    public RedactionQuality getQuality() {
+        return quality;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) {
@@ -39,7 +46,8 @@ public class EventDataInput {
         }
 
         final EventDataInput other = (EventDataInput) obj;
-        return stage.equals(other.stage) && document.equals(other.document) && inferences.equals(other.inferences);
+        return stage.equals(other.stage) && document.equals(other.document) && inferences.equals(other.inferences)
+                && quality == other.quality;
     }
 
     /**
@@ -51,6 +59,7 @@ public class EventDataInput {
         hash = 31 * hash + stage.hashCode();
         hash = 31 * hash + document.hashCode();
         hash = 31 * hash + inferences.hashCode();
+        hash = 31 * hash + Objects.hashCode(quality);
         return hash;
     }
 }
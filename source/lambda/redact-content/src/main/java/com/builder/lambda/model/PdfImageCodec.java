@@ -0,0 +1,15 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.model;
+
+/**
+ * This enum file defines how rendered pdf pages are compressed. LOSSLESS uses
+ * flate, JPEG uses DCT, and AUTO picks DCT for photographic pages and flate for
+ * everything else.
+ */
+public enum PdfImageCodec {
+    LOSSLESS,
+    JPEG,
+    AUTO;
+}
@@ -0,0 +1,14 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.model;
+
+/**
+ * This enum file defines the ways a pdf file can be redacted. RASTER replaces
+ * every page with an image of it, VECTOR removes the redacted text and image
+ * pixels from the page content and keeps the rest of the page as is.
+ */
+public enum PdfRedactionEngine {
+    RASTER,
+    VECTOR;
+}
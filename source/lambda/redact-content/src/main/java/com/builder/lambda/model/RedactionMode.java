@@ -0,0 +1,18 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * This enum file defines what a redaction request produces. FINAL applies the
+ * redactions permanently, and DRAFT marks them on the original pdf file with
+ * redaction annotations so they can be reviewed before being applied.
+ */
+public enum RedactionMode {
+    @SerializedName("final")
+    FINAL,
+    @SerializedName("draft")
+    DRAFT;
+}
@@ -0,0 +1,89 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.model;
+
+import org.apache.pdfbox.rendering.ImageType;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * This enum file defines the quality profiles a redaction request can select.
+ * Each profile bundles how the pages of a pdf file are rendered and stored.
+ * FAST suits triage, with gray low resolution pages rendered without
+ * antialiasing, STANDARD matches the default settings of a deployment that
+ * sets none (100 dpi color pages stored losslessly, the renderer's own hints
+ * and one page rendered at a time), and ARCHIVAL keeps full color pages at
+ * print resolution. Requests without a profile use the settings of the
+ * deployment.
+ */
+public enum RedactionQuality {
+    @SerializedName("fast")
+    FAST(72, ImageType.GRAY, PdfImageCodec.AUTO, false, true, true),
+    @SerializedName("standard")
+    STANDARD(100, ImageType.RGB, PdfImageCodec.LOSSLESS, true, false, false),
+    @SerializedName("archival")
+    ARCHIVAL(300, ImageType.RGB, PdfImageCodec.LOSSLESS, true, false, false);
+
+    private final int dpi;
+    private final ImageType imageType;
+    private final PdfImageCodec imageCodec;
+    private final boolean antialiasing;
+    private final boolean subsamplingAllowed;
+    private final boolean parallelRendering;
+
+    RedactionQuality(int dpi, ImageType imageType, PdfImageCodec imageCodec, boolean antialiasing,
+            boolean subsamplingAllowed, boolean parallelRendering) {
+        this.dpi = dpi;
+        this.imageType = imageType;
+        this.imageCodec = imageCodec;
+        this.antialiasing = antialiasing;
+        this.subsamplingAllowed = subsamplingAllowed;
+        this.parallelRendering = parallelRendering;
+    }
+
+    /**
+     * @return - the resolution pages are rendered at
+     */
+    public int getDpi() {
+        return dpi;
+    }
+
+    /**
+     * @return - the color model pages are rendered with
+     */
+    public ImageType getImageType() {
+        return imageType;
+    }
+
+    /**
+     * @return - the compression of the rendered pages
+     */
+    public PdfImageCodec getImageCodec() {
+        return imageCodec;
+    }
+
+    /**
+     * @return - whether text and shapes are rendered with the renderer's default
+     *         hints, which antialias them, rather than with the fastest hints
+     */
+    public boolean isAntialiasing() {
+        return antialiasing;
+    }
+
+    /**
+     * @return - whether images larger than the rendered page are subsampled
+     *         while being decoded
+     */
+    public boolean isSubsamplingAllowed() {
+        return subsamplingAllowed;
+    }
+
+    /**
+     * @return - whether the pages of a file are rendered on all the processors,
+     *         rather than one at a time to bound the memory used
+     */
+    public boolean isParallelRendering() {
+        return parallelRendering;
+    }
+}
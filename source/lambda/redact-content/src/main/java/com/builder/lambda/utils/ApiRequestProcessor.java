@@ -7,7 +7,6 @@ import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.Tag;
 import software.amazon.lambda.powertools.logging.Logging;
 
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,21 +23,34 @@ import com.builder.lambda.model.Document;
 import com.builder.lambda.model.EntityDetails;
 import com.builder.lambda.model.FileType;
 import com.builder.lambda.model.PhraseRedaction;
+import com.builder.lambda.model.RedactionMode;
 import com.builder.lambda.model.TextractDetectText;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 
 public class ApiRequestProcessor extends RequestProcessor<APIGatewayV2HTTPEvent> {
+    private DraftPdfRedactor draftPdfRedactor = null;
+
+    /**
+     * Prefix drafts are uploaded under. Drafts keep the original content of the
+     * file, so they are kept apart from the redacted files.
+     */
+    protected final String s3DraftPrefix;
 
     public ApiRequestProcessor(S3Storage s3Storage) {
         super(s3Storage);
+        s3DraftPrefix = System.getenv("S3_DRAFT_PREFIX");
     }
 
     /**
      * Lambda handler calls this method and passes in the API gateway Event which
      * triggered it.
-     * This method parses the request and performs redaction as specified.
+     * This method parses the request and performs redaction as specified. In
+     * draft mode, the redactions of a pdf file are only marked on it, and the
+     * result is uploaded under the draft prefix with a draft suffix. Drafts keep
+     * the content under the marked redactions, so they are never stored under the
+     * redacted prefix. Other file types are always redacted.
      *
      * @param apiGatewayEvent
      * @throws IllegalArgumentException if we fail to handle the request due to
@@ -60,26 +72,49 @@ public class ApiRequestProcessor extends RequestProcessor<APIGatewayV2HTTPEvent>
         String s3Key = getInputDocumentKey(caseId, documentId);
         String extension = FileUtils.getFileExtension(s3Key);
 
-        // Load the document from S3
         FileType fileType = FileUtils.getFileType(s3Key); // will throw for unsupported file type
+        Map<String, List<BoundingBox>> bboxesToRedact = getBoundingBoxesByPage(parsedBody, caseId,
+                documentId);
+        boolean draft = parsedBody.getMode() == RedactionMode.DRAFT && fileType == FileType.PDF;
+        if (draft && s3DraftPrefix == null) {
+            throw new IllegalStateException(
+                    "The environment variable 'S3_DRAFT_PREFIX' is not set, and is required for drafts.");
+        }
+        String outputKey = draft
+                ? String.format("%s/%s/%s-draft.%s", s3DraftPrefix, caseId, documentId, extension)
+                : String.format("%s/%s/%s-redacted.%s", s3OutputPrefix, caseId, documentId, extension);
+        if (copyIfNothingToRedact(bboxesToRedact, s3Key, outputKey)) {
+            return;
+        }
+
+        // Load the document from S3
         InputStream inputFile = s3.getFile(s3InputBucketName, s3Key);
         // get object tags for the object
         List<Tag> tags = s3.getObjectTags(s3InputBucketName, s3Key);
-        Document document = new Document(inputFile, fileType, caseId, documentId);
+        Document document = new Document(inputFile, fileType, caseId, documentId,
+                S3Storage.getContentLength(inputFile));
 
         // redact the file as requested
-        Map<String, List<BoundingBox>> bboxesToRedact = getBoundingBoxesByPage(parsedBody, caseId,
-                documentId);
-        Redactor redactor = this.getRedactor(fileType);
-        ByteArrayOutputStream redactedDoc = redactor.processDocument(document, bboxesToRedact);
+        Redactor redactor = draft ? getDraftRedactor() : this.getRedactor(fileType, parsedBody.getQuality());
 
         // upload the redacted file to s3
-        String outputKey = String.format("%s/%s/%s-redacted.%s", s3OutputPrefix, caseId, documentId, extension);
-
-        s3.putFile(s3InputBucketName, outputKey, redactedDoc);
+        redactAndUpload(redactor, document, bboxesToRedact, outputKey);
         s3.setObjectTags(s3InputBucketName, outputKey, tags);
     }
 
+    /**
+     * Creates/returns the redactor marking the redactions of draft requests on pdf
+     * files
+     *
+     * @return DraftPdfRedactor
+     */
+    private DraftPdfRedactor getDraftRedactor() {
+        if (draftPdfRedactor == null) {
+            draftPdfRedactor = new DraftPdfRedactor();
+        }
+        return draftPdfRedactor;
+    }
+
     /**
      * Parses the JSON body of the incoming API Gateway event, performing validation
      * on the params.
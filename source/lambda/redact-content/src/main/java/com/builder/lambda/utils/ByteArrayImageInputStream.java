@@ -0,0 +1,82 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * This class lets ImageIO read an image file held in a byte array. The image
+ * readers read and seek the array directly, where the streams ImageIO creates
+ * for an {@link java.io.InputStream} keep their own copy of what they read,
+ * in memory or in a temporary file.
+ */
+public class ByteArrayImageInputStream extends ImageInputStreamImpl {
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+
+    /**
+     * @param data the image file
+     */
+    public ByteArrayImageInputStream(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    /**
+     * @param data   array holding the image file
+     * @param offset position of the image file in the array
+     * @param length size of the image file
+     */
+    public ByteArrayImageInputStream(byte[] data, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, data.length);
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return data[offset + (int) streamPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int bufferOffset, int count) throws IOException {
+        checkClosed();
+        Objects.checkFromIndexSize(bufferOffset, count, buffer.length);
+        bitOffset = 0;
+        if (count == 0) {
+            return 0;
+        }
+        if (streamPos >= length) {
+            return -1;
+        }
+        int read = (int) Math.min(count, length - streamPos);
+        System.arraycopy(data, offset + (int) streamPos, buffer, bufferOffset, read);
+        streamPos += read;
+        return read;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public boolean isCached() {
+        return true;
+    }
+
+    @Override
+    public boolean isCachedMemory() {
+        return true;
+    }
+}
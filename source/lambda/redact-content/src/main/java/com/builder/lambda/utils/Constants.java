@@ -5,6 +5,9 @@ package com.builder.lambda.utils;
 
 import org.apache.pdfbox.rendering.ImageType;
 
+import com.builder.lambda.model.PdfImageCodec;
+import com.builder.lambda.model.PdfRedactionEngine;
+
 public final class Constants {
     /**
      * Default image rendering quality for pdf redaction, the value represents the
@@ -17,6 +20,95 @@ public final class Constants {
      */
     public static final ImageType DEFAULT_IMAGE_TYPE = ImageType.RGB;
 
+    /**
+     * Default amount of pdf stream data, in MB, kept in heap per document when
+     * streaming pdf redaction is enabled. Anything beyond it is spilled to
+     * {@link #PDF_SCRATCH_DIRECTORY}.
+     */
+    public static final long DEFAULT_PDF_MAX_MAIN_MEMORY_MB = 64;
+
+    /**
+     * Directory used by pdfbox for scratch files. This is the only writable
+     * location in the lambda environment.
+     */
+    public static final String PDF_SCRATCH_DIRECTORY = "/tmp";
+
+    public static final long BYTES_PER_MB = 1024L * 1024L;
+
+    /**
+     * Default number of threads rendering pages of a single pdf file. A value of
+     * 1 renders the pages sequentially on the calling thread.
+     */
+    public static final int DEFAULT_PDF_RENDER_WORKERS = 1;
+
+    /**
+     * Default engine used for pdf redaction.
+     */
+    public static final PdfRedactionEngine DEFAULT_PDF_REDACTION_ENGINE = PdfRedactionEngine.RASTER;
+
+    /**
+     * Default highest resolution pdf pages are rendered at when the resolution
+     * follows the content of each page.
+     */
+    public static final int DEFAULT_PDF_MAX_DPI = 300;
+
+    /**
+     * Default size limits of the in-memory and scratch directory tiers of the
+     * rendered page cache.
+     */
+    public static final long DEFAULT_PDF_PAGE_CACHE_MEMORY_MB = 64;
+    public static final long DEFAULT_PDF_PAGE_CACHE_DISK_MB = 256;
+
+    /**
+     * Directory holding the scratch directory tier of the rendered page cache.
+     */
+    public static final String PDF_PAGE_CACHE_DIRECTORY = PDF_SCRATCH_DIRECTORY + "/redacted-page-cache";
+
+    /**
+     * Default compression of rendered pdf pages.
+     */
+    public static final PdfImageCodec DEFAULT_PDF_IMAGE_CODEC = PdfImageCodec.LOSSLESS;
+
+    /**
+     * Default jpeg quality, on [0,1], of rendered pdf pages compressed with DCT.
+     */
+    public static final float DEFAULT_PDF_JPEG_QUALITY = 0.85f;
+
+    /**
+     * Number of pages, or page tiles, each stage of the pdf redaction pipeline
+     * can get ahead of the next stage.
+     */
+    public static final int PDF_PIPELINE_QUEUE_CAPACITY = 2;
+
+    /**
+     * Default size limit of the pool of page raster buffers. The pool is disabled
+     * when 0.
+     */
+    public static final long DEFAULT_PDF_RASTER_POOL_MB = 0;
+
+    /**
+     * Share of the maximum heap size available to the pages rendered at the same
+     * time.
+     */
+    public static final double PDF_RENDER_HEAP_FRACTION = 0.5;
+
+    /**
+     * Heap used per pixel of a rendered page: the 4 bytes of its raster, and the
+     * copies made while encoding it.
+     */
+    public static final int RENDERED_PAGE_BYTES_PER_PIXEL = 8;
+
+    /**
+     * Default number of threads compressing lossless page images and PNG files.
+     * A value of 1 leaves the compression to pdfbox and ImageIO.
+     */
+    public static final int DEFAULT_DEFLATE_THREADS = 1;
+
+    /**
+     * Name of the font cache file PDFBox keeps in its font cache directory.
+     */
+    public static final String PDF_FONT_CACHE_FILE_NAME = ".pdfbox.cache";
+
     /**
      * The inference containing the textract detectText
      */
@@ -0,0 +1,168 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDAppearanceContentStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationMarkup;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+
+import com.builder.lambda.model.BoundingBox;
+import com.builder.lambda.model.Document;
+
+import software.amazon.lambda.powertools.logging.Logging;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class marks the areas to be redacted on a pdf file with redaction
+ * annotations, so that the redactions can be reviewed before being applied.
+ * The content of the pdf file is left untouched: the annotations are appended
+ * to the original file with an incremental save, so nothing is rendered or
+ * rewritten. Applying the redactions is done by redacting the original file
+ * with one of the other pdf redactors.
+ */
+public class DraftPdfRedactor implements Redactor {
+    private static final String SUB_TYPE_REDACT = "Redact";
+
+    /**
+     * Outline of the areas to be redacted
+     */
+    private static final PDColor OUTLINE_COLOR = new PDColor(new float[] { 1, 0, 0 }, PDDeviceRGB.INSTANCE);
+
+    /**
+     * Color the areas are filled with once the redactions are applied
+     */
+    private static final PDColor INTERIOR_COLOR = new PDColor(new float[] { 0, 0, 0 }, PDDeviceRGB.INSTANCE);
+
+    /**
+     * Opacity of the fill of the areas to be redacted, which keeps the content
+     * underneath readable for review
+     */
+    private static final float FILL_OPACITY = 0.3f;
+
+    private static final float OUTLINE_WIDTH = 1;
+
+    Logger log = LogManager.getLogger(DraftPdfRedactor.class);
+
+    /**
+     * This method marks the bounding boxes to be redacted on a pdf file
+     *
+     * @param document            - contains input pdf file
+     * @param boundingBoxesByPage - the bounding boxes to be redacted
+     * @param outputStream        - where the annotated pdf file is written to
+     * @throws IOException if it is unable to load or save the pdf file
+     */
+    @Override
+    @Logging
+    public void processDocument(Document document, Map<String, List<BoundingBox>> boundingBoxesByPage,
+            OutputStream outputStream) throws IOException {
+        PDDocument pddDoc;
+        try {
+            pddDoc = PDDocument.load(document.fileInputStream);
+        } catch (IOException ioException) {
+            log.error("Unable to load pdf file");
+            throw ioException;
+        }
+
+        try {
+            // only the annotated pages are written by the incremental save
+            Set<COSDictionary> annotatedPages = new HashSet<>();
+            int annotations = 0;
+            for (int pageIndex = 0; pageIndex < pddDoc.getNumberOfPages(); pageIndex++) {
+                List<BoundingBox> pageBoxes = boundingBoxesByPage.get(String.valueOf(pageIndex + 1));
+                if (pageBoxes == null) {
+                    continue;
+                }
+                PDPage page = pddDoc.getPage(pageIndex);
+                List<PDAnnotation> pageAnnotations = page.getAnnotations();
+                for (BoundingBox boundingBox : pageBoxes) {
+                    if (boundingBox != null) {
+                        pageAnnotations.add(createRedactAnnotation(pddDoc, page,
+                                PdfRedactor.toPdfRectangle(boundingBox, page.getMediaBox())));
+                        annotations++;
+                    }
+                }
+                // the annotations array may be an object of its own, which the incremental
+                // save wouldn't write, so it is set back as a direct array of the page
+                page.setAnnotations(pageAnnotations);
+                annotatedPages.add(page.getCOSObject());
+            }
+            log.info("Marked {} redactions on {} pages", annotations, annotatedPages.size());
+            pddDoc.saveIncremental(outputStream, annotatedPages);
+        } catch (IOException ioException) {
+            log.error("Unable to mark redactions on pdf file");
+            throw ioException;
+        } finally {
+            pddDoc.close();
+        }
+    }
+
+    /**
+     * Creates a redaction annotation covering an area of a page. Viewers which
+     * support redaction annotations can apply it, and the others display its
+     * appearance, a red outline over a translucent fill.
+     *
+     * @param pddDoc    - the pdf file the annotation is added to
+     * @param page      - the page the annotation is added to
+     * @param rectangle - the area to be redacted in pdf space
+     * @return - the annotation
+     * @throws IOException if the appearance of the annotation can't be created
+     */
+    private PDAnnotationMarkup createRedactAnnotation(PDDocument pddDoc, PDPage page, Rectangle2D rectangle)
+            throws IOException {
+        PDAnnotationMarkup annotation = new PDAnnotationMarkup();
+        annotation.getCOSObject().setName(COSName.SUBTYPE, SUB_TYPE_REDACT);
+        PDRectangle area = new PDRectangle((float) rectangle.getX(), (float) rectangle.getY(),
+                (float) rectangle.getWidth(), (float) rectangle.getHeight());
+        annotation.setRectangle(area);
+        annotation.setColor(OUTLINE_COLOR);
+        annotation.setInteriorColor(INTERIOR_COLOR);
+        annotation.setPage(page);
+        annotation.setPrinted(true);
+
+        PDAppearanceStream appearanceStream = new PDAppearanceStream(pddDoc);
+        appearanceStream.setBBox(area);
+        appearanceStream.setResources(new PDResources());
+        PDExtendedGraphicsState fillState = new PDExtendedGraphicsState();
+        fillState.setNonStrokingAlphaConstant(FILL_OPACITY);
+        try (PDAppearanceContentStream contentStream = new PDAppearanceContentStream(appearanceStream)) {
+            contentStream.saveGraphicsState();
+            contentStream.setGraphicsStateParameters(fillState);
+            contentStream.setNonStrokingColor(INTERIOR_COLOR);
+            contentStream.addRect(area.getLowerLeftX(), area.getLowerLeftY(), area.getWidth(), area.getHeight());
+            contentStream.fill();
+            contentStream.restoreGraphicsState();
+            // the outline is drawn inside the area, where it isn't clipped
+            float inset = OUTLINE_WIDTH / 2;
+            contentStream.setStrokingColor(OUTLINE_COLOR);
+            contentStream.setLineWidth(OUTLINE_WIDTH);
+            contentStream.addRect(area.getLowerLeftX() + inset, area.getLowerLeftY() + inset,
+                    area.getWidth() - OUTLINE_WIDTH, area.getHeight() - OUTLINE_WIDTH);
+            contentStream.stroke();
+        }
+        PDAppearanceDictionary appearance = new PDAppearanceDictionary();
+        appearance.setNormalAppearance(appearanceStream);
+        annotation.setAppearance(appearance);
+        return annotation;
+    }
+}
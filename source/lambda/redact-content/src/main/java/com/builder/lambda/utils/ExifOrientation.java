@@ -0,0 +1,252 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class turns an image stored as oriented by the camera sensor into the
+ * image to display, following its EXIF orientation. The flips and the 90, 180
+ * and 270 degree rotations move the pixels of the raster to their new position
+ * without interpolation, so the image is unchanged apart from its orientation,
+ * and keeps its type.
+ */
+public final class ExifOrientation {
+
+    /**
+     * Size of the square blocks of pixels moved at a time, so that the rows of
+     * the source and the columns of the rotated image stay in cache
+     */
+    private static final int BLOCK_SIZE = 64;
+
+    /**
+     * Number of pixels from which an image is oriented on several threads
+     */
+    private static final long PARALLEL_MIN_PIXELS = 4L * 1024 * 1024;
+
+    /**
+     * Private constructor to hide default public constructor for utility class
+     */
+    private ExifOrientation() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Orients an image as the EXIF orientation tag says it should be displayed:
+     * 2 flips it horizontally, 3 rotates it by 180 degrees, 4 flips it
+     * vertically, 5 transposes it, 6 rotates it 90 degrees clockwise, 7
+     * transverses it and 8 rotates it 90 degrees counter-clockwise.
+     *
+     * @param image       - the image as stored
+     * @param orientation - the EXIF orientation of the image
+     * @return - the oriented image, of the same type, or the image itself when
+     *         the orientation is 1 or unknown
+     */
+    public static BufferedImage apply(BufferedImage image, int orientation) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // position of the pixel (x, y) in the oriented image, as x' = x0 + xx * x + xy * y
+        // and y' = y0 + yx * x + yy * y
+        int[] mapping;
+        switch (orientation) {
+            case 2:
+                mapping = new int[] { width - 1, -1, 0, 0, 0, 1 };
+                break;
+            case 3:
+                mapping = new int[] { width - 1, -1, 0, height - 1, 0, -1 };
+                break;
+            case 4:
+                mapping = new int[] { 0, 1, 0, height - 1, 0, -1 };
+                break;
+            case 5:
+                mapping = new int[] { 0, 0, 1, 0, 1, 0 };
+                break;
+            case 6:
+                mapping = new int[] { height - 1, 0, -1, 0, 1, 0 };
+                break;
+            case 7:
+                mapping = new int[] { height - 1, 0, -1, width - 1, -1, 0 };
+                break;
+            case 8:
+                mapping = new int[] { 0, 0, 1, width - 1, -1, 0 };
+                break;
+            default:
+                return image;
+        }
+        boolean swapsSides = orientation >= 5;
+        WritableRaster source = image.getRaster();
+        // same sample model as the source, so the pixels keep their layout and the image its type
+        WritableRaster target = source.createCompatibleWritableRaster(swapsSides ? height : width,
+                swapsSides ? width : height);
+
+        int threads = (long) width * height >= PARALLEL_MIN_PIXELS
+                ? Math.min(Runtime.getRuntime().availableProcessors(), (height + BLOCK_SIZE - 1) / BLOCK_SIZE)
+                : 1;
+        if (threads <= 1) {
+            movePixels(source, target, mapping, 0, height);
+        } else {
+            movePixelsInParallel(source, target, mapping, threads);
+        }
+        return new BufferedImage(image.getColorModel(), target, image.isAlphaPremultiplied(), null);
+    }
+
+    private static void movePixelsInParallel(Raster source, WritableRaster target, int[] mapping, int threads) {
+        int height = source.getHeight();
+        // bands of whole blocks, so that no block is split between threads
+        int blocksPerBand = (height + BLOCK_SIZE - 1) / BLOCK_SIZE / threads + 1;
+        int bandHeight = blocksPerBand * BLOCK_SIZE;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int fromRow = 0; fromRow < height; fromRow += bandHeight) {
+                int bandFromRow = fromRow;
+                int bandToRow = Math.min(height, fromRow + bandHeight);
+                futures.add(executor.submit(() -> movePixels(source, target, mapping, bandFromRow, bandToRow)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while orienting the image", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to orient the image", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Moves the pixels of a band of rows of the source to their position in the
+     * target, copying the array elements of each pixel directly when the
+     * rasters store each pixel as consecutive bytes or ints.
+     */
+    private static void movePixels(Raster source, WritableRaster target, int[] mapping, int fromRow, int toRow) {
+        int pixelElements = getPixelElements(source.getSampleModel());
+        DataBuffer sourceBuffer = source.getDataBuffer();
+        DataBuffer targetBuffer = target.getDataBuffer();
+        if (pixelElements == 0 || sourceBuffer.getNumBanks() != 1
+                || (sourceBuffer.getDataType() != DataBuffer.TYPE_BYTE && sourceBuffer.getDataType() != DataBuffer.TYPE_INT)) {
+            moveDataElements(source, target, mapping, fromRow, toRow);
+            return;
+        }
+        int sourceStride = getScanlineStride(source.getSampleModel());
+        int sourceOffset = sourceBuffer.getOffset()
+                + (source.getMinY() - source.getSampleModelTranslateY()) * sourceStride
+                + (source.getMinX() - source.getSampleModelTranslateX()) * pixelElements;
+        int targetStride = getScanlineStride(target.getSampleModel());
+        int targetOffset = targetBuffer.getOffset() + mapping[3] * targetStride + mapping[0] * pixelElements;
+        int targetStepX = mapping[4] * targetStride + mapping[1] * pixelElements;
+        int targetStepY = mapping[5] * targetStride + mapping[2] * pixelElements;
+
+        Object sourceData = sourceBuffer.getDataType() == DataBuffer.TYPE_BYTE
+                ? ((DataBufferByte) sourceBuffer).getData()
+                : ((DataBufferInt) sourceBuffer).getData();
+        Object targetData = targetBuffer.getDataType() == DataBuffer.TYPE_BYTE
+                ? ((DataBufferByte) targetBuffer).getData()
+                : ((DataBufferInt) targetBuffer).getData();
+        int width = source.getWidth();
+        for (int blockY = fromRow; blockY < toRow; blockY += BLOCK_SIZE) {
+            int blockToRow = Math.min(toRow, blockY + BLOCK_SIZE);
+            for (int blockX = 0; blockX < width; blockX += BLOCK_SIZE) {
+                int blockToColumn = Math.min(width, blockX + BLOCK_SIZE);
+                for (int y = blockY; y < blockToRow; y++) {
+                    int sourceIndex = sourceOffset + y * sourceStride + blockX * pixelElements;
+                    int targetIndex = targetOffset + y * targetStepY + blockX * targetStepX;
+                    if (sourceData instanceof byte[]) {
+                        copyRow((byte[]) sourceData, sourceIndex, (byte[]) targetData, targetIndex, targetStepX,
+                                blockToColumn - blockX, pixelElements);
+                    } else {
+                        copyRow((int[]) sourceData, sourceIndex, (int[]) targetData, targetIndex, targetStepX,
+                                blockToColumn - blockX, pixelElements);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void copyRow(byte[] source, int sourceIndex, byte[] target, int targetIndex, int targetStep,
+            int pixels, int pixelElements) {
+        for (int pixel = 0; pixel < pixels; pixel++) {
+            for (int element = 0; element < pixelElements; element++) {
+                target[targetIndex + element] = source[sourceIndex + element];
+            }
+            sourceIndex += pixelElements;
+            targetIndex += targetStep;
+        }
+    }
+
+    private static void copyRow(int[] source, int sourceIndex, int[] target, int targetIndex, int targetStep,
+            int pixels, int pixelElements) {
+        for (int pixel = 0; pixel < pixels; pixel++) {
+            for (int element = 0; element < pixelElements; element++) {
+                target[targetIndex + element] = source[sourceIndex + element];
+            }
+            sourceIndex += pixelElements;
+            targetIndex += targetStep;
+        }
+    }
+
+    /**
+     * Moves the pixels one at a time through the rasters, for layouts such as
+     * packed bits or separate bands which can't be copied element by element
+     */
+    private static void moveDataElements(Raster source, WritableRaster target, int[] mapping, int fromRow,
+            int toRow) {
+        Object pixel = null;
+        for (int y = fromRow; y < toRow; y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                pixel = source.getDataElements(source.getMinX() + x, source.getMinY() + y, pixel);
+                target.setDataElements(mapping[0] + mapping[1] * x + mapping[2] * y,
+                        mapping[3] + mapping[4] * x + mapping[5] * y, pixel);
+            }
+        }
+    }
+
+    /**
+     * @return - the number of consecutive array elements holding each pixel, or 0
+     *         when the samples of a pixel aren't stored next to each other
+     */
+    private static int getPixelElements(SampleModel sampleModel) {
+        if (sampleModel instanceof SinglePixelPackedSampleModel) {
+            return 1;
+        }
+        if (sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel componentSampleModel = (ComponentSampleModel) sampleModel;
+            int pixelStride = componentSampleModel.getPixelStride();
+            for (int bandOffset : componentSampleModel.getBandOffsets()) {
+                if (bandOffset >= pixelStride) {
+                    return 0;
+                }
+            }
+            for (int bankIndex : componentSampleModel.getBankIndices()) {
+                if (bankIndex != 0) {
+                    return 0;
+                }
+            }
+            return pixelStride;
+        }
+        return 0;
+    }
+
+    private static int getScanlineStride(SampleModel sampleModel) {
+        return sampleModel instanceof SinglePixelPackedSampleModel
+                ? ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride()
+                : ((ComponentSampleModel) sampleModel).getScanlineStride();
+    }
+}
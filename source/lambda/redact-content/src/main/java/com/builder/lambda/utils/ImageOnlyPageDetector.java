@@ -0,0 +1,195 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDTransparencyGroup;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+/**
+ * Detects pages whose only content is a single image xobject covering the
+ * whole media box, as produced by scanners. Any text, including the invisible
+ * text layer added by OCR tools, vector graphics, form xobjects or non-link
+ * annotations make the page a regular page.
+ */
+public class ImageOnlyPageDetector extends PDFGraphicsStreamEngine {
+    /**
+     * Distance, in pdf units, by which the image may fall short of the media
+     * box edges
+     */
+    private static final float EDGE_TOLERANCE = 1;
+
+    private final Point2D currentPoint = new Point2D.Float();
+    private COSName xObjectName = null;
+    private COSName imageName = null;
+    private PDImageXObject image = null;
+    private Matrix imageMatrix = null;
+    private boolean imageOnly = true;
+
+    /**
+     * @param page page to check
+     */
+    public ImageOnlyPageDetector(PDPage page) {
+        super(page);
+    }
+
+    /**
+     * @return true if the page only draws a single image covering its media box
+     * @throws IOException if the page content can't be parsed
+     */
+    public boolean detect() throws IOException {
+        for (PDAnnotation annotation : getPage().getAnnotations()) {
+            if (!(annotation instanceof PDAnnotationLink)) {
+                return false;
+            }
+        }
+        processPage(getPage());
+        if (!imageOnly || image == null) {
+            return false;
+        }
+
+        Rectangle2D imageBounds = imageMatrix.createAffineTransform()
+                .createTransformedShape(new Rectangle2D.Float(0, 0, 1, 1))
+                .getBounds2D();
+        PDRectangle mediaBox = getPage().getMediaBox();
+        return imageBounds.getMinX() <= mediaBox.getLowerLeftX() + EDGE_TOLERANCE
+                && imageBounds.getMinY() <= mediaBox.getLowerLeftY() + EDGE_TOLERANCE
+                && imageBounds.getMaxX() >= mediaBox.getUpperRightX() - EDGE_TOLERANCE
+                && imageBounds.getMaxY() >= mediaBox.getUpperRightY() - EDGE_TOLERANCE;
+    }
+
+    /**
+     * @return the name of the image in the page resources
+     */
+    public COSName getImageName() {
+        return imageName;
+    }
+
+    /**
+     * @return the image covering the page
+     */
+    public PDImageXObject getImage() {
+        return image;
+    }
+
+    /**
+     * @return the transformation matrix the image is drawn with
+     */
+    public Matrix getImageMatrix() {
+        return imageMatrix;
+    }
+
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        if (OperatorName.DRAW_OBJECT.equals(operator.getName()) && !operands.isEmpty()
+                && operands.get(0) instanceof COSName) {
+            xObjectName = (COSName) operands.get(0);
+        }
+        super.processOperator(operator, operands);
+    }
+
+    @Override
+    public void showForm(PDFormXObject form) {
+        imageOnly = false;
+    }
+
+    @Override
+    public void showTransparencyGroup(PDTransparencyGroup form) {
+        imageOnly = false;
+    }
+
+    @Override
+    protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) {
+        imageOnly = false;
+    }
+
+    @Override
+    public void drawImage(PDImage pdImage) {
+        if (image != null || !(pdImage instanceof PDImageXObject) || pdImage.isStencil()) {
+            imageOnly = false;
+            return;
+        }
+        image = (PDImageXObject) pdImage;
+        imageName = xObjectName;
+        imageMatrix = getGraphicsState().getCurrentTransformationMatrix().clone();
+    }
+
+    @Override
+    public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+        currentPoint.setLocation(p0);
+    }
+
+    @Override
+    public void clip(int windingRule) {
+        // scanners commonly clip to the page before drawing the image
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        currentPoint.setLocation(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        currentPoint.setLocation(x, y);
+    }
+
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        currentPoint.setLocation(x3, y3);
+    }
+
+    @Override
+    public Point2D getCurrentPoint() {
+        return currentPoint;
+    }
+
+    @Override
+    public void closePath() {
+        // building a path doesn't draw anything
+    }
+
+    @Override
+    public void endPath() {
+        // ending a path without painting it doesn't draw anything
+    }
+
+    @Override
+    public void strokePath() {
+        imageOnly = false;
+    }
+
+    @Override
+    public void fillPath(int windingRule) {
+        imageOnly = false;
+    }
+
+    @Override
+    public void fillAndStrokePath(int windingRule) {
+        imageOnly = false;
+    }
+
+    @Override
+    public void shadingFill(COSName shadingName) {
+        imageOnly = false;
+    }
+}
@@ -5,8 +5,11 @@ package com.builder.lambda.utils;
 
 import com.builder.lambda.model.BoundingBox;
 import com.builder.lambda.model.Document;
+import com.builder.lambda.model.FileType;
 import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.ImageProcessingException;
 import com.drew.metadata.Metadata;
+import com.drew.metadata.MetadataException;
 import com.drew.metadata.exif.ExifDirectoryBase;
 import com.drew.metadata.exif.ExifIFD0Directory;
 
@@ -18,14 +21,14 @@ import software.amazon.lambda.powertools.logging.Logging;
 import javax.imageio.ImageIO;
 import java.awt.Graphics2D;
 import java.awt.Color;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -35,32 +38,90 @@ import java.util.Map;
  */
 public class ImageRedactor implements Redactor {
 
+    /**
+     * Size of the buffer PNG files are read through when they are redacted as
+     * they are read
+     */
+    private static final int PNG_STREAM_BUFFER_BYTES = 64 * 1024;
+
     Logger log = LogManager.getLogger(ImageRedactor.class);
 
+    private int deflateThreads = Constants.DEFAULT_DEFLATE_THREADS;
+    private boolean jpegBlockRedaction = false;
+    private boolean pngStreaming = false;
+    private final PngImageWriter pngImageWriter;
+    private final JpegBlockRedactor jpegBlockRedactor;
+    private final PngStreamRedactor pngStreamRedactor;
+
+    public ImageRedactor() {
+        checkEnvSetup();
+        // images are read from and written to memory, a disk cache would only add copies
+        ImageIO.setUseCache(false);
+        pngImageWriter = deflateThreads > 1
+                ? new PngImageWriter(ScanlineDeflater.getSharedDeflater(deflateThreads))
+                : null;
+        jpegBlockRedactor = jpegBlockRedaction ? new JpegBlockRedactor() : null;
+        pngStreamRedactor = pngStreaming ? new PngStreamRedactor() : null;
+    }
+
+    /**
+     * Checks the Lambda environment variables for the number of threads
+     * compressing PNG files, for redacting the coded blocks of JPEG files and for
+     * redacting PNG files a scanline at a time. If found, then it replaces the
+     * default values
+     */
+    private void checkEnvSetup() {
+        if (System.getenv("DEFLATE_THREADS") != null) {
+            deflateThreads = Integer.parseInt(System.getenv("DEFLATE_THREADS"));
+            log.info("DEFLATE_THREADS is: {}", deflateThreads);
+        }
+        if (System.getenv("JPEG_BLOCK_REDACTION") != null) {
+            jpegBlockRedaction = Boolean.parseBoolean(System.getenv("JPEG_BLOCK_REDACTION"));
+            log.info("JPEG_BLOCK_REDACTION is: {}", jpegBlockRedaction);
+        }
+        if (System.getenv("PNG_STREAMING") != null) {
+            pngStreaming = Boolean.parseBoolean(System.getenv("PNG_STREAMING"));
+            log.info("PNG_STREAMING is: {}", pngStreaming);
+        }
+    }
+
     /**
      * This method applies redaction on an image file using bounding-box
      * information.
      *
-     * @param document   - contains input image file
-     * @param redactData - the bounding boxes to be redacted
-     * @return - redacted image file
+     * @param document     - contains input image file
+     * @param redactData   - the bounding boxes to be redacted
+     * @param outputStream - where the redacted image file is written to
      * @throws IOException if it is unable to process the document to redact
      */
     @Override
     @Logging
-    public ByteArrayOutputStream processDocument(
-            Document document, Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException {
+    public void processDocument(Document document, Map<String, List<BoundingBox>> boundingBoxesByPage,
+            OutputStream outputStream) throws IOException {
         Graphics2D graphics = null;
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+        try {
+            List<BoundingBox> currentPageBoxes = boundingBoxesByPage.get("1"); // Image can only be a single page
+
+            InputStream fileInputStream = document.fileInputStream;
+            if (pngStreamRedactor != null && document.fileType == FileType.PNG) {
+                // PNG files are redacted as they are read when possible, so the image is never held in memory
+                fileInputStream = new BufferedInputStream(fileInputStream, PNG_STREAM_BUFFER_BYTES);
+                if (pngStreamRedactor.redact(fileInputStream, currentPageBoxes, outputStream)) {
+                    return;
+                }
+            }
+            byte[] encodedImage = readEncodedImage(fileInputStream, document.contentLength);
+
+            if (redactJpegBlocks(document, encodedImage, currentPageBoxes, outputStream)) {
+                return;
+            }
 
             // attempting to rotate image based on metadata
-            BufferedImage image = loadImageWithCorrection(document);
+            BufferedImage image = loadImageWithCorrection(encodedImage);
 
             graphics = image.createGraphics();
             graphics.setColor(Color.BLACK);
 
-            List<BoundingBox> currentPageBoxes = boundingBoxesByPage.get("1"); // Image can only be a single page
-
             log.info("Redacting image with {} bounding boxes", currentPageBoxes.size());
 
             for (BoundingBox boundingBox : currentPageBoxes) {
@@ -73,8 +134,11 @@ public class ImageRedactor implements Redactor {
                 }
             }
 
-            ImageIO.write(image, document.fileType.name(), outputStream);
-            return outputStream;
+            if (pngImageWriter != null && document.fileType == FileType.PNG && PngImageWriter.supports(image)) {
+                pngImageWriter.write(image, outputStream);
+            } else {
+                ImageIO.write(image, document.fileType.name(), outputStream);
+            }
         } catch (IOException ioException) {
             log.error("Unable to load image file");
             throw ioException;
@@ -89,6 +153,35 @@ public class ImageRedactor implements Redactor {
         }
     }
 
+    /**
+     * Redacts a JPEG file stored as displayed by replacing its coded blocks, so
+     * its pixels are neither decoded nor encoded again.
+     *
+     * @param document      - contains input image file
+     * @param encodedImage  - the image file
+     * @param boundingBoxes - the bounding boxes to be redacted
+     * @param outputStream  - where the redacted image file is written to
+     * @return - true if the file was redacted, false if the image must be
+     *         decoded to be redacted
+     * @throws IOException if the redacted file can't be written
+     */
+    private boolean redactJpegBlocks(Document document, byte[] encodedImage, List<BoundingBox> boundingBoxes,
+            OutputStream outputStream) throws IOException {
+        if (jpegBlockRedactor == null || (document.fileType != FileType.JPG && document.fileType != FileType.JPEG)) {
+            return false;
+        }
+        try {
+            // the bounding boxes are relative to the oriented image, which only the decoded image can be
+            if (readOrientation(encodedImage) != 1) {
+                return false;
+            }
+        } catch (ImageProcessingException | MetadataException e) {
+            log.warn("Unable to read the orientation of the image: {}", e.getMessage());
+            return false;
+        }
+        return jpegBlockRedactor.redact(encodedImage, boundingBoxes, outputStream);
+    }
+
     /**
      * Loads the image document and applies transformations in order to ensure our
      * output is correctly oriented.
@@ -106,76 +199,19 @@ public class ImageRedactor implements Redactor {
      * @throws IOException if loading the image fails
      */
     public BufferedImage loadImageWithCorrection(Document document) throws IOException {
-        // duplicate the input stream to allow for the image and metadata to be read
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        document.fileInputStream.transferTo(baos);
-        InputStream imageStream = new ByteArrayInputStream(baos.toByteArray());
+        // the image and its metadata are both read from a single copy of the file
+        return loadImageWithCorrection(readEncodedImage(document));
+    }
 
-        BufferedImage image = ImageIO.read(imageStream);
-        int width = image.getWidth();
-        int height = image.getHeight();
+    private BufferedImage loadImageWithCorrection(byte[] encodedImage) throws IOException {
+        // the stream holds no resources, and ImageIO closes it once the image is read
+        BufferedImage image = ImageIO.read(new ByteArrayImageInputStream(encodedImage));
 
         try {
-            InputStream metadataStream = new ByteArrayInputStream(baos.toByteArray());
-            Metadata metadata = ImageMetadataReader.readMetadata(metadataStream);
-
-            int orientation = 1;
-            ExifIFD0Directory exifIFD0Directory = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
-
-            orientation = exifIFD0Directory.getInt(ExifDirectoryBase.TAG_ORIENTATION);
-
-            // Defining the suitable image transformation
-            AffineTransform affineTransform = new AffineTransform();
-            switch (orientation) {
-                case 1: // Do nothing
-                    break;
-                case 2: // Flip horizontally
-                    affineTransform.scale(-1.0, 1.0);
-                    affineTransform.translate(-width, 0);
-                    break;
-                case 3: // 180 degree rotation
-                    affineTransform.translate(width, height);
-                    affineTransform.rotate(Math.PI);
-                    break;
-                case 4: // Flip vertically
-                    affineTransform.scale(1.0, -1.0);
-                    affineTransform.translate(0, -height);
-                    break;
-                case 5: // 90 degree clockwise rotation, and flip horizontally
-                    affineTransform.rotate(-Math.PI / 2);
-                    affineTransform.scale(-1.0, 1.0);
-                    break;
-                case 6: // 90 degree clockwise rotation
-                    affineTransform.translate(height, 0);
-                    affineTransform.rotate(Math.PI / 2);
-                    break;
-                case 7: // 90 degree clockwise rotation, and flip vertically
-                    affineTransform.scale(-1.0, 1.0);
-                    affineTransform.translate(-height, 0);
-                    affineTransform.translate(0, width);
-                    affineTransform.rotate(3 * Math.PI / 2);
-                    break;
-                case 8: // 90 degree counter-clockwise rotation
-                    affineTransform.translate(0, width);
-                    affineTransform.rotate(3 * Math.PI / 2);
-                    break;
-                default:
-                    break;
-            }
+            int orientation = readOrientation(encodedImage);
 
-            // output dimensions will be flipped in cases where we rotated by 90 degrees
-            if (orientation >= 5 && orientation <= 8) {
-                int tmp = width;
-                width = height;
-                height = tmp;
-            }
-
-            AffineTransformOp affineTransformOp = new AffineTransformOp(affineTransform,
-                    AffineTransformOp.TYPE_BILINEAR);
-            BufferedImage destinationImage = new BufferedImage(width, height,
-                    image.getType());
-
-            image = affineTransformOp.filter(image, destinationImage);
+            // the pixels are moved to their oriented position, without being interpolated
+            image = ExifOrientation.apply(image, orientation);
             // CHECKSTYLE:OFF
         } catch (Exception e) {
             log.warn(String
@@ -187,4 +223,52 @@ public class ImageRedactor implements Redactor {
         // if changing orientation failed, we will simply be returning the original
         return image;
     }
+
+    /**
+     * Reads the EXIF orientation of an image file
+     *
+     * @param encodedImage - the image file
+     * @return - the orientation, 1 when the file has none
+     * @throws ImageProcessingException if the metadata of the file can't be read
+     * @throws IOException              if the metadata of the file can't be read
+     * @throws MetadataException        if the orientation isn't a number
+     */
+    private static int readOrientation(byte[] encodedImage)
+            throws ImageProcessingException, IOException, MetadataException {
+        Metadata metadata = ImageMetadataReader.readMetadata(new ByteArrayInputStream(encodedImage),
+                encodedImage.length);
+        ExifIFD0Directory exifIFD0Directory = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+        if (exifIFD0Directory == null || !exifIFD0Directory.containsTag(ExifDirectoryBase.TAG_ORIENTATION)) {
+            return 1;
+        }
+        return exifIFD0Directory.getInt(ExifDirectoryBase.TAG_ORIENTATION);
+    }
+
+    /**
+     * Reads an image file into a single buffer, sized from the content length of
+     * the document when it is known so the buffer is neither grown nor trimmed.
+     *
+     * @param document - contains input image file
+     * @return - the image file
+     * @throws IOException if the file can't be read or is shorter than its
+     *                     content length
+     */
+    static byte[] readEncodedImage(Document document) throws IOException {
+        return readEncodedImage(document.fileInputStream, document.contentLength);
+    }
+
+    private static byte[] readEncodedImage(InputStream fileInputStream, long contentLength) throws IOException {
+        if (contentLength < 0) {
+            return fileInputStream.readAllBytes();
+        }
+        if (contentLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("Image file of " + contentLength + " bytes is too large");
+        }
+        byte[] encodedImage = new byte[(int) contentLength];
+        int read = fileInputStream.readNBytes(encodedImage, 0, encodedImage.length);
+        if (read < encodedImage.length) {
+            throw new EOFException("Image file ended after " + read + " of " + encodedImage.length + " bytes");
+        }
+        return encodedImage;
+    }
 }
@@ -0,0 +1,950 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import com.builder.lambda.model.BoundingBox;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This class redacts JPEG files without decoding their pixels, in the way
+ * lossless JPEG tools transform them. It reads the Huffman coded DCT
+ * coefficients of the image, replaces every block of the MCUs intersecting a
+ * redaction box with a solid black block, and codes the other blocks back
+ * unchanged, so the image loses no quality outside of the redacted areas.
+ * Restart intervals holding no redacted MCU are copied byte for byte.
+ *
+ * The redacted areas are extended to the MCU grid, 8 or 16 pixels wide.
+ * Only baseline and extended sequential Huffman coded files of 8 bit gray,
+ * YCbCr or RGB samples coded in a single scan are redacted, the others are left
+ * to be decoded and encoded again.
+ *
+ * Metadata which could hold the unredacted image, such as EXIF and its
+ * thumbnail, is not written to the redacted file, as when the image is encoded
+ * again.
+ */
+public class JpegBlockRedactor {
+    private static final int SOF0 = 0xC0;
+    private static final int SOF1 = 0xC1;
+    private static final int DHT = 0xC4;
+    private static final int DAC = 0xCC;
+    private static final int RST0 = 0xD0;
+    private static final int SOI = 0xD8;
+    private static final int EOI = 0xD9;
+    private static final int SOS = 0xDA;
+    private static final int DQT = 0xDB;
+    private static final int DRI = 0xDD;
+    private static final int APP0 = 0xE0;
+    private static final int APP2 = 0xE2;
+    private static final int APP14 = 0xEE;
+
+    /**
+     * Size of the JFIF header, without thumbnail, following the APP0 length
+     */
+    private static final int JFIF_HEADER_LENGTH = 14;
+
+    /**
+     * Number of Huffman tables of each class, DC tables being numbered 0 to 3
+     * and AC tables 4 to 7
+     */
+    private static final int TABLES_PER_CLASS = 4;
+
+    /**
+     * Level shifted DC coefficient of a block of zero samples
+     */
+    private static final int BLACK_DC = -1024;
+
+    Logger log = LogManager.getLogger(JpegBlockRedactor.class);
+
+    /**
+     * Redacts a JPEG file by replacing the coded blocks of the redacted areas.
+     * Nothing is written when the file can't be redacted this way.
+     *
+     * @param jpeg          - the JPEG file
+     * @param boundingBoxes - the areas to redact, relative to the size of the
+     *                      image as stored
+     * @param outputStream  - where the redacted JPEG file is written to
+     * @return - true if the file was redacted, false if it should be decoded
+     *         and redacted instead
+     * @throws IOException if the redacted file can't be written
+     */
+    public boolean redact(byte[] jpeg, List<BoundingBox> boundingBoxes, OutputStream outputStream)
+            throws IOException {
+        CodedImage image;
+        try {
+            image = CodedImage.parse(jpeg);
+            image.markRedactedMcus(boundingBoxes);
+            image.analyze();
+        } catch (IOException | IndexOutOfBoundsException e) {
+            log.info("Unable to redact the coded blocks of the JPEG file: {}", e.getMessage());
+            return false;
+        }
+        log.info("Redacting {} of {} MCUs, {} Huffman tables", image.redactedMcus.cardinality(),
+                image.getMcuCount(), image.optimizedTables != null ? "with new" : "keeping the");
+
+        OutputStream bufferedStream = new BufferedOutputStream(outputStream, 1 << 16);
+        image.write(bufferedStream);
+        bufferedStream.flush();
+        return true;
+    }
+
+    /**
+     * Builds a Huffman table giving the shortest codes to the most frequent
+     * symbols, as in section K.2 of the JPEG specification, with codes of at
+     * most 16 bits and no code made of only 1 bits.
+     *
+     * @param frequencies - the number of times each of the 256 symbols is coded
+     * @return - the table
+     * @throws IOException if no symbol is coded
+     */
+    static HuffmanTable createOptimalTable(long[] frequencies) throws IOException {
+        long[] frequency = Arrays.copyOf(frequencies, 257);
+        // reserved symbol, so that no code is made of only 1 bits
+        frequency[256] = 1;
+        int[] codeSize = new int[257];
+        int[] others = new int[257];
+        Arrays.fill(others, -1);
+        while (true) {
+            int first = -1;
+            int second = -1;
+            for (int symbol = 0; symbol <= 256; symbol++) {
+                if (frequency[symbol] == 0) {
+                    continue;
+                }
+                if (first < 0 || frequency[symbol] <= frequency[first]) {
+                    second = first;
+                    first = symbol;
+                } else if (second < 0 || frequency[symbol] <= frequency[second]) {
+                    second = symbol;
+                }
+            }
+            if (second < 0) {
+                break;
+            }
+            // merges the two least frequent trees, making the codes of their symbols one bit longer
+            frequency[first] += frequency[second];
+            frequency[second] = 0;
+            codeSize[first]++;
+            while (others[first] >= 0) {
+                first = others[first];
+                codeSize[first]++;
+            }
+            others[first] = second;
+            codeSize[second]++;
+            while (others[second] >= 0) {
+                second = others[second];
+                codeSize[second]++;
+            }
+        }
+
+        int[] bits = new int[258];
+        for (int size : codeSize) {
+            bits[size]++;
+        }
+        bits[0] = 0;
+        // shortens the codes longer than 16 bits, moving pairs of them under a shorter prefix
+        for (int size = bits.length - 1; size > 16; size--) {
+            while (bits[size] > 0) {
+                int shorter = size - 2;
+                while (bits[shorter] == 0) {
+                    shorter--;
+                }
+                bits[size] -= 2;
+                bits[size - 1]++;
+                bits[shorter + 1] += 2;
+                bits[shorter]--;
+            }
+        }
+        int longest = 16;
+        while (longest > 0 && bits[longest] == 0) {
+            longest--;
+        }
+        if (longest == 0 || codeSize[256] == 0) {
+            throw new IOException("No symbol to code");
+        }
+        // removes the reserved symbol, which has one of the longest codes
+        bits[longest]--;
+
+        int[] counts = Arrays.copyOf(bits, 17);
+        int[] values = new int[Arrays.stream(counts).sum()];
+        int index = 0;
+        for (int size = 1; size < bits.length && index < values.length; size++) {
+            for (int symbol = 0; symbol < 256; symbol++) {
+                if (codeSize[symbol] == size) {
+                    values[index++] = symbol;
+                }
+            }
+        }
+        return new HuffmanTable(counts, values);
+    }
+
+    /**
+     * The coding of a JPEG file and the MCUs of its scan to redact
+     */
+    private static final class CodedImage {
+        private final byte[] data;
+        private final List<int[]> segments = new ArrayList<>();
+        private final HuffmanTable[] tables = new HuffmanTable[2 * TABLES_PER_CLASS];
+        private final int[][] quantizationTables = new int[4][];
+        private Component[] components;
+        private Component[] scanComponents;
+        private int width;
+        private int height;
+        private int restartInterval;
+        private int adobeTransform = -1;
+        private int scanHeaderStart;
+        private int scanStart;
+        private int mcuWidth;
+        private int mcuHeight;
+        private int mcusPerLine;
+        private int mcuRows;
+        private final BitSet redactedMcus = new BitSet();
+        private int[] intervalStarts;
+        private int[] intervalEnds;
+        private HuffmanTable[] optimizedTables;
+
+        private CodedImage(byte[] data) {
+            this.data = data;
+        }
+
+        /**
+         * Reads the markers of the file up to the start of its scan
+         */
+        static CodedImage parse(byte[] data) throws IOException {
+            CodedImage image = new CodedImage(data);
+            if (image.readByte(0) != 0xFF || image.readByte(1) != SOI) {
+                throw new IOException("Not a JPEG file");
+            }
+            int position = 2;
+            while (true) {
+                if (image.readByte(position) != 0xFF) {
+                    throw new IOException("Marker expected at offset " + position);
+                }
+                // fill bytes may precede a marker
+                while (image.readByte(position + 1) == 0xFF) {
+                    position++;
+                }
+                int marker = image.readByte(position + 1);
+                int payload = position + 4;
+                int end = position + 2 + image.readShort(position + 2);
+                if (end > data.length || end < payload) {
+                    throw new EOFException("Marker segment at offset " + position + " is truncated");
+                }
+                if (marker == SOS) {
+                    image.parseScanHeader(payload);
+                    image.scanHeaderStart = position;
+                    image.scanStart = end;
+                    return image;
+                }
+                if (image.parseSegment(marker, payload, end)) {
+                    image.segments.add(new int[] { marker, position, end });
+                }
+                position = end;
+            }
+        }
+
+        /**
+         * @return - true if the segment is written to the redacted file
+         */
+        private boolean parseSegment(int marker, int payload, int end) throws IOException {
+            switch (marker) {
+                case SOF0:
+                case SOF1:
+                    parseFrameHeader(payload);
+                    return true;
+                case DHT:
+                    parseHuffmanTables(payload, end);
+                    return true;
+                case DQT:
+                    parseQuantizationTables(payload, end);
+                    return true;
+                case DRI:
+                    restartInterval = readShort(payload);
+                    return true;
+                case APP0:
+                    // the JFIF header is kept without its thumbnail, extensions are dropped
+                    return end - payload >= JFIF_HEADER_LENGTH && startsWith(payload, "JFIF\0");
+                case APP2:
+                    return startsWith(payload, "ICC_PROFILE\0");
+                case APP14:
+                    if (end - payload >= 12 && startsWith(payload, "Adobe")) {
+                        adobeTransform = readByte(payload + 11);
+                        return true;
+                    }
+                    return false;
+                default:
+                    if (marker >= 0xE0 && marker <= 0xEF || marker == 0xFE) {
+                        // other application segments and comments
+                        return false;
+                    }
+                    if (marker >= 0xC0 && marker <= 0xCF && marker != DAC) {
+                        throw new IOException(String.format("Frame type 0x%X is not sequential Huffman coding", marker));
+                    }
+                    throw new IOException(String.format("Unsupported marker 0x%X", marker));
+            }
+        }
+
+        private void parseFrameHeader(int payload) throws IOException {
+            if (components != null) {
+                throw new IOException("Several frames");
+            }
+            if (readByte(payload) != 8) {
+                throw new IOException("Sample precision of " + readByte(payload) + " bits");
+            }
+            height = readShort(payload + 1);
+            width = readShort(payload + 3);
+            int count = readByte(payload + 5);
+            if (height == 0 || width == 0 || (count != 1 && count != 3)) {
+                throw new IOException("Frame of " + width + "x" + height + " pixels with " + count + " components");
+            }
+            components = new Component[count];
+            for (int index = 0; index < count; index++) {
+                int offset = payload + 6 + 3 * index;
+                int sampling = readByte(offset + 1);
+                components[index] = new Component(readByte(offset), sampling >> 4, sampling & 0xF,
+                        readByte(offset + 2) & 3);
+                if (components[index].horizontalSampling < 1 || components[index].horizontalSampling > 4
+                        || components[index].verticalSampling < 1 || components[index].verticalSampling > 4) {
+                    throw new IOException("Invalid sampling factors");
+                }
+            }
+        }
+
+        private void parseHuffmanTables(int position, int end) throws IOException {
+            while (position < end) {
+                int tableClass = readByte(position) >> 4;
+                int tableId = readByte(position) & 0xF;
+                if (tableClass > 1 || tableId >= TABLES_PER_CLASS) {
+                    throw new IOException("Invalid Huffman table " + readByte(position));
+                }
+                int[] counts = new int[17];
+                int total = 0;
+                for (int length = 1; length <= 16; length++) {
+                    counts[length] = readByte(position + length);
+                    total += counts[length];
+                }
+                position += 17;
+                if (total > 256 || position + total > end) {
+                    throw new IOException("Invalid Huffman table");
+                }
+                int[] values = new int[total];
+                for (int index = 0; index < total; index++) {
+                    values[index] = readByte(position + index);
+                }
+                position += total;
+                tables[tableClass * TABLES_PER_CLASS + tableId] = new HuffmanTable(counts, values);
+            }
+        }
+
+        private void parseQuantizationTables(int position, int end) throws IOException {
+            while (position < end) {
+                int precision = readByte(position) >> 4;
+                int tableId = readByte(position) & 0xF;
+                if (precision > 1 || tableId > 3) {
+                    throw new IOException("Invalid quantization table " + readByte(position));
+                }
+                int[] table = new int[64];
+                for (int index = 0; index < 64; index++) {
+                    table[index] = precision == 0
+                            ? readByte(position + 1 + index)
+                            : readShort(position + 1 + 2 * index);
+                }
+                quantizationTables[tableId] = table;
+                position += 1 + 64 * (precision + 1);
+            }
+        }
+
+        private void parseScanHeader(int payload) throws IOException {
+            if (components == null) {
+                throw new IOException("Scan without frame");
+            }
+            int count = readByte(payload);
+            if (count != components.length) {
+                throw new IOException("Scan of " + count + " of the " + components.length + " components");
+            }
+            scanComponents = new Component[count];
+            for (int index = 0; index < count; index++) {
+                int id = readByte(payload + 1 + 2 * index);
+                int tables = readByte(payload + 2 + 2 * index);
+                Component component = Arrays.stream(components).filter(c -> c.id == id).findFirst()
+                        .orElseThrow(() -> new IOException("Scan of unknown component " + id));
+                component.dcTable = tables >> 4;
+                component.acTable = TABLES_PER_CLASS + (tables & 0xF);
+                if (component.dcTable >= TABLES_PER_CLASS || component.acTable >= 2 * TABLES_PER_CLASS
+                        || this.tables[component.dcTable] == null || this.tables[component.acTable] == null
+                        || quantizationTables[component.quantizationTable] == null) {
+                    throw new IOException("Component " + id + " uses an undefined table");
+                }
+                scanComponents[index] = component;
+            }
+            int offset = payload + 1 + 2 * count;
+            if (readByte(offset) != 0 || readByte(offset + 1) != 63 || readByte(offset + 2) != 0) {
+                throw new IOException("Scan is not sequential");
+            }
+
+            boolean rgb = adobeTransform == 0 || (components.length == 3 && components[0].id == 'R'
+                    && components[1].id == 'G' && components[2].id == 'B');
+            int maxHorizontalSampling = 1;
+            int maxVerticalSampling = 1;
+            for (int index = 0; index < components.length; index++) {
+                Component component = components[index];
+                // black has zero chroma, at the middle of the range of Cb and Cr
+                int blackDc = index == 0 || rgb ? BLACK_DC : 0;
+                component.solidDc = Math.round(blackDc / (float) quantizationTables[component.quantizationTable][0]);
+                maxHorizontalSampling = Math.max(maxHorizontalSampling, component.horizontalSampling);
+                maxVerticalSampling = Math.max(maxVerticalSampling, component.verticalSampling);
+            }
+            if (components.length == 1) {
+                // a scan of a single component codes one block per MCU
+                components[0].horizontalSampling = 1;
+                components[0].verticalSampling = 1;
+                maxHorizontalSampling = 1;
+                maxVerticalSampling = 1;
+            }
+            mcuWidth = 8 * maxHorizontalSampling;
+            mcuHeight = 8 * maxVerticalSampling;
+            mcusPerLine = (width + mcuWidth - 1) / mcuWidth;
+            mcuRows = (height + mcuHeight - 1) / mcuHeight;
+        }
+
+        int getMcuCount() {
+            return mcusPerLine * mcuRows;
+        }
+
+        /**
+         * Marks the MCUs holding pixels of the bounding boxes
+         */
+        void markRedactedMcus(List<BoundingBox> boundingBoxes) {
+            for (BoundingBox boundingBox : boundingBoxes) {
+                if (boundingBox == null) {
+                    continue;
+                }
+                int left = clamp((int) Math.floor(boundingBox.getLeft() * width), width);
+                int right = clamp((int) Math.ceil((boundingBox.getLeft() + boundingBox.getWidth()) * width), width);
+                int top = clamp((int) Math.floor(boundingBox.getTop() * height), height);
+                int bottom = clamp((int) Math.ceil((boundingBox.getTop() + boundingBox.getHeight()) * height), height);
+                if (left >= right || top >= bottom) {
+                    continue;
+                }
+                for (int row = top / mcuHeight; row <= (bottom - 1) / mcuHeight; row++) {
+                    redactedMcus.set(row * mcusPerLine + left / mcuWidth, row * mcusPerLine + (right - 1) / mcuWidth + 1);
+                }
+            }
+        }
+
+        private static int clamp(int value, int max) {
+            return Math.max(0, Math.min(max, value));
+        }
+
+        /**
+         * Decodes the scan once to find its restart intervals and check that the
+         * redacted blocks can be coded with its Huffman tables, building new
+         * tables from the coded symbols when they can't.
+         */
+        void analyze() throws IOException {
+            int intervalLength = getIntervalLength();
+            int intervals = (getMcuCount() + intervalLength - 1) / intervalLength;
+            intervalStarts = new int[intervals];
+            intervalEnds = new int[intervals];
+            SymbolCounter counter = new SymbolCounter(tables);
+            EntropyDecoder decoder = new EntropyDecoder(data);
+            int position = scanStart;
+            for (int interval = 0; interval < intervals; interval++) {
+                int firstMcu = interval * intervalLength;
+                int lastMcu = Math.min(getMcuCount(), firstMcu + intervalLength);
+                // only the intervals which are coded again must be coded with the tables of the file
+                counter.checkingTables = isRedacted(firstMcu, lastMcu);
+                intervalStarts[interval] = position;
+                decoder.reset(position);
+                codeInterval(decoder, counter, firstMcu, lastMcu);
+                position = decoder.finish();
+                intervalEnds[interval] = position;
+                int expectedMarker = interval < intervals - 1 ? RST0 + (interval & 7) : EOI;
+                if (readByte(position + 1) != expectedMarker) {
+                    throw new IOException(String.format("Marker 0x%X instead of 0x%X at offset %d",
+                            readByte(position + 1), expectedMarker, position));
+                }
+                position += 2;
+            }
+            if (counter.missingSymbol) {
+                optimizedTables = new HuffmanTable[tables.length];
+                for (Component component : scanComponents) {
+                    optimizedTables[component.dcTable] = createOptimalTable(counter.frequencies[component.dcTable]);
+                    optimizedTables[component.acTable] = createOptimalTable(counter.frequencies[component.acTable]);
+                }
+            }
+        }
+
+        private int getIntervalLength() {
+            return restartInterval > 0 ? restartInterval : getMcuCount();
+        }
+
+        private boolean isRedacted(int firstMcu, int lastMcu) {
+            int redactedMcu = redactedMcus.nextSetBit(firstMcu);
+            return redactedMcu >= 0 && redactedMcu < lastMcu;
+        }
+
+        /**
+         * Writes the redacted file, with the segments kept from the file and its
+         * scan coded again where it is redacted
+         */
+        void write(OutputStream outputStream) throws IOException {
+            outputStream.write(0xFF);
+            outputStream.write(SOI);
+            for (int[] segment : segments) {
+                if (segment[0] == DHT && optimizedTables != null) {
+                    continue;
+                }
+                if (segment[0] == APP0) {
+                    writeJfifHeader(outputStream, segment[1]);
+                } else {
+                    outputStream.write(data, segment[1], segment[2] - segment[1]);
+                }
+            }
+            if (optimizedTables != null) {
+                writeHuffmanTables(outputStream);
+            }
+            outputStream.write(data, scanHeaderStart, scanStart - scanHeaderStart);
+
+            int intervalLength = getIntervalLength();
+            EntropyDecoder decoder = new EntropyDecoder(data);
+            for (int interval = 0; interval < intervalStarts.length; interval++) {
+                int firstMcu = interval * intervalLength;
+                int lastMcu = Math.min(getMcuCount(), firstMcu + intervalLength);
+                if (optimizedTables == null && !isRedacted(firstMcu, lastMcu)) {
+                    outputStream.write(data, intervalStarts[interval], intervalEnds[interval] - intervalStarts[interval]);
+                } else {
+                    HuffmanWriter writer = new HuffmanWriter(outputStream,
+                            optimizedTables != null ? optimizedTables : tables);
+                    decoder.reset(intervalStarts[interval]);
+                    codeInterval(decoder, writer, firstMcu, lastMcu);
+                    decoder.finish();
+                    writer.flush();
+                }
+                if (interval < intervalStarts.length - 1) {
+                    outputStream.write(0xFF);
+                    outputStream.write(RST0 + (interval & 7));
+                }
+            }
+            outputStream.write(0xFF);
+            outputStream.write(EOI);
+        }
+
+        private void writeJfifHeader(OutputStream outputStream, int position) throws IOException {
+            outputStream.write(data, position, 2);
+            outputStream.write(0);
+            outputStream.write(2 + JFIF_HEADER_LENGTH);
+            outputStream.write(data, position + 4, JFIF_HEADER_LENGTH - 2);
+            // no thumbnail
+            outputStream.write(0);
+            outputStream.write(0);
+        }
+
+        private void writeHuffmanTables(OutputStream outputStream) throws IOException {
+            int length = 2;
+            for (HuffmanTable table : optimizedTables) {
+                if (table != null) {
+                    length += 17 + table.values.length;
+                }
+            }
+            outputStream.write(0xFF);
+            outputStream.write(DHT);
+            outputStream.write(length >> 8);
+            outputStream.write(length & 0xFF);
+            for (int slot = 0; slot < optimizedTables.length; slot++) {
+                HuffmanTable table = optimizedTables[slot];
+                if (table != null) {
+                    outputStream.write((slot / TABLES_PER_CLASS) << 4 | (slot % TABLES_PER_CLASS));
+                    for (int size = 1; size <= 16; size++) {
+                        outputStream.write(table.counts[size]);
+                    }
+                    for (int value : table.values) {
+                        outputStream.write(value);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Decodes the blocks of a restart interval and codes them again,
+         * replacing the blocks of the redacted MCUs with solid blocks
+         */
+        private void codeInterval(EntropyDecoder decoder, SymbolWriter writer, int firstMcu, int lastMcu)
+                throws IOException {
+            // the DC coefficients are coded as differences from the previous block of their component
+            int[] decodedPredictions = new int[scanComponents.length];
+            int[] codedPredictions = new int[scanComponents.length];
+            int[] block = new int[64];
+            for (int mcu = firstMcu; mcu < lastMcu; mcu++) {
+                boolean redacted = redactedMcus.get(mcu);
+                for (int index = 0; index < scanComponents.length; index++) {
+                    Component component = scanComponents[index];
+                    int blocks = component.horizontalSampling * component.verticalSampling;
+                    for (int count = 0; count < blocks; count++) {
+                        int dc = decodedPredictions[index]
+                                + decoder.decodeBlock(block, tables[component.dcTable], tables[component.acTable]);
+                        decodedPredictions[index] = dc;
+                        if (redacted) {
+                            dc = component.solidDc;
+                            Arrays.fill(block, 0);
+                        }
+                        writeBlock(writer, block, dc - codedPredictions[index], component);
+                        codedPredictions[index] = dc;
+                    }
+                }
+            }
+        }
+
+        private static void writeBlock(SymbolWriter writer, int[] block, int dcDifference, Component component)
+                throws IOException {
+            int size = getBitLength(dcDifference);
+            writer.writeSymbol(component.dcTable, size);
+            writer.writeBits(dcDifference, size);
+            int zeroRun = 0;
+            for (int index = 1; index < 64; index++) {
+                int coefficient = block[index];
+                if (coefficient == 0) {
+                    zeroRun++;
+                    continue;
+                }
+                while (zeroRun > 15) {
+                    // run of 16 zeros
+                    writer.writeSymbol(component.acTable, 0xF0);
+                    zeroRun -= 16;
+                }
+                size = getBitLength(coefficient);
+                writer.writeSymbol(component.acTable, zeroRun << 4 | size);
+                writer.writeBits(coefficient, size);
+                zeroRun = 0;
+            }
+            if (zeroRun > 0) {
+                // end of block
+                writer.writeSymbol(component.acTable, 0);
+            }
+        }
+
+        private static int getBitLength(int value) {
+            return 32 - Integer.numberOfLeadingZeros(Math.abs(value));
+        }
+
+        private boolean startsWith(int position, String prefix) {
+            byte[] bytes = prefix.getBytes(StandardCharsets.US_ASCII);
+            return position + bytes.length <= data.length
+                    && Arrays.equals(data, position, position + bytes.length, bytes, 0, bytes.length);
+        }
+
+        private int readByte(int position) throws EOFException {
+            if (position >= data.length) {
+                throw new EOFException("JPEG file is truncated");
+            }
+            return data[position] & 0xFF;
+        }
+
+        private int readShort(int position) throws EOFException {
+            return readByte(position) << 8 | readByte(position + 1);
+        }
+    }
+
+    private static final class Component {
+        private final int id;
+        private int horizontalSampling;
+        private int verticalSampling;
+        private final int quantizationTable;
+        private int dcTable;
+        private int acTable;
+        private int solidDc;
+
+        Component(int id, int horizontalSampling, int verticalSampling, int quantizationTable) {
+            this.id = id;
+            this.horizontalSampling = horizontalSampling;
+            this.verticalSampling = verticalSampling;
+            this.quantizationTable = quantizationTable;
+        }
+    }
+
+    /**
+     * A Huffman table, with the codes of its symbols and the lookups to decode
+     * them
+     */
+    static final class HuffmanTable {
+        /**
+         * Number of codes of each length from 1 to 16
+         */
+        final int[] counts;
+        /**
+         * Symbols ordered by code
+         */
+        final int[] values;
+        final int[] codes = new int[256];
+        /**
+         * Length of the code of each symbol, 0 for the symbols without code
+         */
+        final int[] codeSizes = new int[256];
+        /**
+         * Length and symbol of the codes of at most 8 bits, indexed by the next 8
+         * bits of the data
+         */
+        private final int[] lookup = new int[256];
+        private final int[] maxCodes = new int[17];
+        private final int[] valueOffsets = new int[17];
+
+        HuffmanTable(int[] counts, int[] values) throws IOException {
+            this.counts = counts;
+            this.values = values;
+            int code = 0;
+            int index = 0;
+            for (int length = 1; length <= 16; length++) {
+                valueOffsets[length] = index - code;
+                for (int count = 0; count < counts[length]; count++) {
+                    int symbol = values[index++];
+                    codes[symbol] = code;
+                    codeSizes[symbol] = length;
+                    if (length <= 8) {
+                        int first = code << (8 - length);
+                        Arrays.fill(lookup, first, first + (1 << (8 - length)), length << 8 | symbol);
+                    }
+                    code++;
+                }
+                maxCodes[length] = counts[length] > 0 ? code - 1 : -1;
+                if (code > 1 << length) {
+                    throw new IOException("Huffman table has too many codes");
+                }
+                code <<= 1;
+            }
+        }
+    }
+
+    /**
+     * Receives the symbols and the additional bits of the coded blocks
+     */
+    private interface SymbolWriter {
+        void writeSymbol(int table, int symbol) throws IOException;
+
+        void writeBits(int value, int size) throws IOException;
+    }
+
+    /**
+     * Counts the coded symbols, and finds whether the tables of the file code
+     * them all
+     */
+    private static final class SymbolCounter implements SymbolWriter {
+        private final HuffmanTable[] tables;
+        private final long[][] frequencies = new long[2 * TABLES_PER_CLASS][256];
+        private boolean checkingTables;
+        private boolean missingSymbol;
+
+        SymbolCounter(HuffmanTable[] tables) {
+            this.tables = tables;
+        }
+
+        @Override
+        public void writeSymbol(int table, int symbol) {
+            frequencies[table][symbol]++;
+            if (checkingTables && tables[table].codeSizes[symbol] == 0) {
+                missingSymbol = true;
+            }
+        }
+
+        @Override
+        public void writeBits(int value, int size) {
+            // only the symbols are counted
+        }
+    }
+
+    /**
+     * Writes the Huffman codes of the symbols and their additional bits,
+     * stuffing a zero byte after each 0xFF byte
+     */
+    private static final class HuffmanWriter implements SymbolWriter {
+        private final OutputStream outputStream;
+        private final HuffmanTable[] tables;
+        private long bits;
+        private int bitCount;
+
+        HuffmanWriter(OutputStream outputStream, HuffmanTable[] tables) {
+            this.outputStream = outputStream;
+            this.tables = tables;
+        }
+
+        @Override
+        public void writeSymbol(int table, int symbol) throws IOException {
+            writeBits(tables[table].codes[symbol], tables[table].codeSizes[symbol]);
+        }
+
+        @Override
+        public void writeBits(int value, int size) throws IOException {
+            if (size == 0) {
+                return;
+            }
+            // negative values are coded as their ones' complement
+            if (value < 0) {
+                value--;
+            }
+            bits = bits << size | (value & ((1 << size) - 1));
+            bitCount += size;
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                int octet = (int) (bits >>> bitCount) & 0xFF;
+                outputStream.write(octet);
+                if (octet == 0xFF) {
+                    outputStream.write(0);
+                }
+            }
+        }
+
+        /**
+         * Pads the last byte with 1 bits
+         */
+        void flush() throws IOException {
+            if (bitCount > 0) {
+                writeBits((1 << (8 - bitCount)) - 1, 8 - bitCount);
+            }
+        }
+    }
+
+    /**
+     * Reads the Huffman coded blocks of a restart interval, up to the marker
+     * ending it
+     */
+    private static final class EntropyDecoder {
+        private final byte[] data;
+        private int position;
+        private long bits;
+        private int bitCount;
+        private boolean markerReached;
+        /**
+         * Number of zero bits added to the buffer past the marker
+         */
+        private int paddingBits;
+
+        EntropyDecoder(byte[] data) {
+            this.data = data;
+        }
+
+        void reset(int position) {
+            this.position = position;
+            bits = 0;
+            bitCount = 0;
+            markerReached = false;
+            paddingBits = 0;
+        }
+
+        /**
+         * Checks that the coded data ends with the blocks read
+         *
+         * @return - the position of the marker following the data
+         */
+        int finish() throws IOException {
+            // reads up to the marker, when the last blocks were decoded from the buffered bits
+            fill();
+            int remainingBits = bitCount - paddingBits;
+            if (!markerReached || remainingBits < 0 || remainingBits >= 8) {
+                throw new IOException("Coded data doesn't end at a marker");
+            }
+            return position;
+        }
+
+        /**
+         * Decodes a block into its 64 coefficients in zigzag order
+         *
+         * @return - the difference of the DC coefficient from the previous block
+         */
+        int decodeBlock(int[] block, HuffmanTable dcTable, HuffmanTable acTable) throws IOException {
+            Arrays.fill(block, 0);
+            int size = decodeSymbol(dcTable);
+            if (size > 11) {
+                throw new IOException("Invalid DC coefficient");
+            }
+            int dcDifference = readValue(size);
+            for (int index = 1; index < 64; index++) {
+                int symbol = decodeSymbol(acTable);
+                size = symbol & 0xF;
+                if (size == 0) {
+                    if (symbol != 0xF0) {
+                        // end of block
+                        break;
+                    }
+                    index += 15;
+                    continue;
+                }
+                index += symbol >> 4;
+                if (index > 63 || size > 10) {
+                    throw new IOException("Invalid AC coefficient");
+                }
+                block[index] = readValue(size);
+            }
+            return dcDifference;
+        }
+
+        private int decodeSymbol(HuffmanTable table) throws IOException {
+            if (bitCount < 16) {
+                fill();
+            }
+            int peek = (int) (bits >>> (bitCount - 16)) & 0xFFFF;
+            int entry = table.lookup[peek >>> 8];
+            if (entry != 0) {
+                bitCount -= entry >> 8;
+                return entry & 0xFF;
+            }
+            for (int length = 9; length <= 16; length++) {
+                int code = peek >>> (16 - length);
+                if (code <= table.maxCodes[length]) {
+                    bitCount -= length;
+                    return table.values[table.valueOffsets[length] + code];
+                }
+            }
+            throw new IOException("Invalid Huffman code");
+        }
+
+        private int readValue(int size) {
+            if (size == 0) {
+                return 0;
+            }
+            if (bitCount < size) {
+                fill();
+            }
+            bitCount -= size;
+            int value = (int) (bits >>> bitCount) & ((1 << size) - 1);
+            // values with a leading 0 bit are negative
+            return value < 1 << (size - 1) ? value - (1 << size) + 1 : value;
+        }
+
+        private void fill() {
+            while (bitCount <= 48) {
+                int octet = 0;
+                if (markerReached) {
+                    paddingBits += 8;
+                } else if (position >= data.length) {
+                    markerReached = true;
+                    continue;
+                } else {
+                    octet = data[position] & 0xFF;
+                    if (octet == 0xFF) {
+                        if (position + 1 < data.length && data[position + 1] == 0) {
+                            position += 2;
+                        } else {
+                            markerReached = true;
+                            continue;
+                        }
+                    } else {
+                        position++;
+                    }
+                }
+                bits = bits << 8 | octet;
+                bitCount += 8;
+            }
+        }
+    }
+}
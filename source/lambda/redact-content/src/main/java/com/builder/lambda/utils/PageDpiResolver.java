@@ -0,0 +1,166 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.util.Matrix;
+
+/**
+ * This class picks the resolution a pdf page is rendered at. Pages mostly
+ * covered by a single image, such as scans, are rendered at the native
+ * resolution of that image, so they are neither upsampled nor downsampled.
+ * Other pages are rendered at the default resolution.
+ */
+public class PageDpiResolver {
+
+    /**
+     * Share of the page an image must cover for its resolution to be used
+     */
+    private static final double MIN_IMAGE_COVERAGE = 0.5;
+
+    /**
+     * Lowest resolution a page is rendered at, below which text on scans stops
+     * being legible
+     */
+    private static final int MIN_DPI = 72;
+
+    private static final float POINTS_PER_INCH = 72;
+
+    private final int defaultDpi;
+    private final int maxDpi;
+
+    /**
+     * @param defaultDpi resolution of pages which aren't mostly an image
+     * @param maxDpi     highest resolution a page is rendered at
+     */
+    public PageDpiResolver(int defaultDpi, int maxDpi) {
+        this.defaultDpi = defaultDpi;
+        this.maxDpi = maxDpi;
+    }
+
+    /**
+     * @param page - the page to render
+     * @return - the resolution to render the page at
+     * @throws IOException if the page content can't be parsed
+     */
+    public int resolve(PDPage page) throws IOException {
+        ImageCollector imageCollector = new ImageCollector(page);
+        imageCollector.processPage(page);
+
+        PDRectangle cropBox = page.getCropBox();
+        double pageArea = (double) cropBox.getWidth() * cropBox.getHeight();
+        if (imageCollector.largestImageArea < pageArea * MIN_IMAGE_COVERAGE) {
+            return Math.min(defaultDpi, maxDpi);
+        }
+        int imageDpi = (int) Math.round(imageCollector.largestImageDpi);
+        return Math.min(Math.max(imageDpi, MIN_DPI), maxDpi);
+    }
+
+    /**
+     * Finds the largest image drawn on a page and its resolution. Text is
+     * skipped so that fonts don't need to be loaded.
+     */
+    private static class ImageCollector extends PDFGraphicsStreamEngine {
+        private final Point2D currentPoint = new Point2D.Float();
+        private double largestImageArea = 0;
+        private double largestImageDpi = 0;
+
+        ImageCollector(PDPage page) {
+            super(page);
+        }
+
+        @Override
+        public void drawImage(PDImage pdImage) {
+            Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+            double width = Math.hypot(ctm.getScaleX(), ctm.getShearY());
+            double height = Math.hypot(ctm.getShearX(), ctm.getScaleY());
+            double area = Math.abs(ctm.getScaleX() * ctm.getScaleY() - ctm.getShearX() * ctm.getShearY());
+            if (area <= largestImageArea || width == 0 || height == 0) {
+                return;
+            }
+            largestImageArea = area;
+            largestImageDpi = Math.max(
+                    pdImage.getWidth() * POINTS_PER_INCH / width,
+                    pdImage.getHeight() * POINTS_PER_INCH / height);
+        }
+
+        @Override
+        public void showTextString(byte[] string) {
+            // text doesn't tell anything about the resolution of the page
+        }
+
+        @Override
+        public void showTextStrings(COSArray array) {
+            // text doesn't tell anything about the resolution of the page
+        }
+
+        @Override
+        public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+            currentPoint.setLocation(p0);
+        }
+
+        @Override
+        public void clip(int windingRule) {
+            // only images are collected
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            currentPoint.setLocation(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            currentPoint.setLocation(x, y);
+        }
+
+        @Override
+        public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            currentPoint.setLocation(x3, y3);
+        }
+
+        @Override
+        public Point2D getCurrentPoint() {
+            return currentPoint;
+        }
+
+        @Override
+        public void closePath() {
+            // only images are collected
+        }
+
+        @Override
+        public void endPath() {
+            // only images are collected
+        }
+
+        @Override
+        public void strokePath() {
+            // only images are collected
+        }
+
+        @Override
+        public void fillPath(int windingRule) {
+            // only images are collected
+        }
+
+        @Override
+        public void fillAndStrokePath(int windingRule) {
+            // only images are collected
+        }
+
+        @Override
+        public void shadingFill(COSName shadingName) {
+            // only images are collected
+        }
+    }
+}
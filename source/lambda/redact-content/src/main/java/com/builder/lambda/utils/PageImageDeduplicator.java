@@ -0,0 +1,107 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * This class encodes each distinct rendered page of a redacted document once.
+ * Rendered pages are identified by a hash of their pixels, and a page identical
+ * to an earlier one, such as a blank or boilerplate page of a scanned file,
+ * reuses the image xobject of the earlier page instead of being encoded and
+ * stored again. An instance covers a single redacted document, and can be
+ * shared by the threads rendering its pages.
+ */
+public class PageImageDeduplicator {
+    private Logger log = LogManager.getLogger(PageImageDeduplicator.class);
+
+    private final Map<String, PDImageXObject> images = new ConcurrentHashMap<>();
+    private final AtomicInteger reusedImages = new AtomicInteger();
+
+    /**
+     * Returns the image of an identical page encoded earlier, or encodes the page.
+     *
+     * @param image   - the rendered page or tile
+     * @param encoder - encodes the image when no identical image was encoded yet
+     * @return - the encoded image
+     * @throws IOException if the image can't be encoded
+     */
+    public PDImageXObject encode(BufferedImage image, PageTileRenderer.TileEncoder encoder) throws IOException {
+        String key = hash(image);
+        PDImageXObject encodedImage = images.get(key);
+        if (encodedImage != null) {
+            reusedImages.incrementAndGet();
+            log.info("Reusing the image of an identical page of {}x{} pixels", image.getWidth(), image.getHeight());
+            return encodedImage;
+        }
+        // pages rendered at the same time by different threads may both get encoded,
+        // the first one stored is kept
+        encodedImage = encoder.encode(image);
+        PDImageXObject storedImage = images.putIfAbsent(key, encodedImage);
+        return storedImage == null ? encodedImage : storedImage;
+    }
+
+    /**
+     * @return - the number of images reused instead of being encoded again
+     */
+    public int getReusedImages() {
+        return reusedImages.get();
+    }
+
+    /**
+     * Hashes the pixels of an image, row by row so that images sharing a larger
+     * buffer, such as pooled rasters, are hashed on their own pixels only
+     *
+     * @param image - the image to hash
+     * @return - a key identical for images of the same type, size and pixels
+     */
+    static String hash(BufferedImage image) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        digest.update(ByteBuffer.allocate(Integer.BYTES * 3).putInt(image.getType()).putInt(width).putInt(height)
+                .array());
+        Raster raster = image.getRaster();
+        Object row = null;
+        ByteBuffer rowBytes = null;
+        for (int y = 0; y < height; y++) {
+            row = raster.getDataElements(raster.getMinX(), raster.getMinY() + y, width, 1, row);
+            if (row instanceof byte[]) {
+                digest.update((byte[]) row);
+                continue;
+            }
+            if (row instanceof int[]) {
+                int[] pixels = (int[]) row;
+                rowBytes = rowBytes == null ? ByteBuffer.allocate(pixels.length * Integer.BYTES) : rowBytes.clear();
+                rowBytes.asIntBuffer().put(pixels);
+            } else if (row instanceof short[]) {
+                short[] pixels = (short[]) row;
+                rowBytes = rowBytes == null ? ByteBuffer.allocate(pixels.length * Short.BYTES) : rowBytes.clear();
+                rowBytes.asShortBuffer().put(pixels);
+            } else {
+                throw new IllegalArgumentException("Unsupported raster of type " + raster.getTransferType());
+            }
+            digest.update(rowBytes.array());
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+}
@@ -0,0 +1,295 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.BitSet;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.image.CCITTFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.builder.lambda.model.PdfImageCodec;
+
+/**
+ * This class compresses rendered pdf pages into image xobjects, using the
+ * configured {@link PdfImageCodec}. When color detection is enabled, gray
+ * pages are stored with 8 bits per pixel and bi-level pages are stored with
+ * 1 bit per pixel using CCITT group 4.
+ */
+public class PageImageEncoder {
+
+    /**
+     * Number of pixels sampled along each axis of a page when looking for
+     * photographic content
+     */
+    private static final int SAMPLES_PER_AXIS = 64;
+
+    /**
+     * Number of distinct colors, out of the 4096 colors left after keeping the
+     * top 4 bits of each channel, above which sampled pixels are considered
+     * photographic. Text and line art stay well below it even when anti-aliased.
+     */
+    private static final int PHOTOGRAPHIC_COLOR_THRESHOLD = 256;
+
+    /**
+     * Number of distinct levels, out of the 256 levels of a gray page, above which
+     * sampled pixels are considered photographic. Levels aren't quantized like
+     * colors are, so anti-aliased text reaches about half of them.
+     */
+    private static final int PHOTOGRAPHIC_GRAY_LEVEL_THRESHOLD = 160;
+
+    /**
+     * Largest difference between the channels of a pixel still considered gray
+     */
+    private static final int GRAY_TOLERANCE = 8;
+
+    /**
+     * Gray levels at or below which a pixel is black, and at or above which it is
+     * white, when checking whether a page is bi-level
+     */
+    private static final int BLACK_LEVEL = 64;
+    private static final int WHITE_LEVEL = 192;
+
+    /**
+     * Largest share of pixels which are neither black nor white on a bi-level
+     * page, leaving room for anti-aliased edges
+     */
+    private static final double MAX_MID_TONE_RATIO = 0.02;
+
+    private static final int BILEVEL_THRESHOLD = 128;
+
+    /**
+     * Flate predictor telling that each row is PNG filtered with its own filter
+     */
+    private static final int PNG_OPTIMUM_PREDICTOR = 15;
+
+    private final PdfImageCodec codec;
+    private final float jpegQuality;
+    private final boolean colorDetection;
+    private final ScanlineDeflater scanlineDeflater;
+
+    /**
+     * @param codec            compression used for the rendered pages
+     * @param jpegQuality      jpeg quality on [0,1], used when pages are
+     *                         compressed with DCT
+     * @param colorDetection   whether gray and bi-level pages are detected and
+     *                         stored with fewer bits per pixel
+     * @param scanlineDeflater compresses the pages stored with flate on several
+     *                         threads, or null to leave it to pdfbox
+     */
+    public PageImageEncoder(PdfImageCodec codec, float jpegQuality, boolean colorDetection,
+            ScanlineDeflater scanlineDeflater) {
+        this.codec = codec;
+        this.jpegQuality = jpegQuality;
+        this.colorDetection = colorDetection;
+        this.scanlineDeflater = scanlineDeflater;
+    }
+
+    /**
+     * The colors a rendered page is made of
+     */
+    enum PageColor {
+        COLOR,
+        GRAY,
+        BILEVEL;
+    }
+
+    /**
+     * Encodes a rendered page so it can be drawn on a page of the redacted
+     * document.
+     *
+     * @param targetDoc - the document which will own the encoded image
+     * @param image     - the rendered page
+     * @return - the encoded page image
+     * @throws IOException if the image can't be encoded
+     */
+    public PDImageXObject encode(PDDocument targetDoc, BufferedImage image) throws IOException {
+        if (colorDetection) {
+            PageColor pageColor = detectPageColor(image);
+            if (pageColor == PageColor.BILEVEL) {
+                return CCITTFactory.createFromImage(targetDoc, toBilevel(image));
+            }
+            if (pageColor == PageColor.GRAY) {
+                image = toGray(image);
+            }
+        }
+
+        boolean useJpeg;
+        switch (codec) {
+            case JPEG:
+                useJpeg = true;
+                break;
+            case AUTO:
+                useJpeg = isPhotographic(image);
+                break;
+            default:
+                useJpeg = false;
+        }
+        if (useJpeg) {
+            return JPEGFactory.createFromImage(targetDoc, image, jpegQuality);
+        }
+        int samplesPerPixel = ScanlineDeflater.getSamplesPerPixel(image);
+        if (scanlineDeflater != null && (samplesPerPixel == 1 || samplesPerPixel == 3)) {
+            return createFlateImage(targetDoc, image, samplesPerPixel);
+        }
+        return LosslessFactory.createFromImage(targetDoc, image);
+    }
+
+    /**
+     * Builds a flate image xobject out of the PNG filtered scanlines of an image,
+     * as {@link LosslessFactory} does for images without transparency, but with
+     * the scanlines deflated by the {@link ScanlineDeflater} straight into the
+     * stream of the xobject.
+     */
+    private PDImageXObject createFlateImage(PDDocument targetDoc, BufferedImage image, int samplesPerPixel)
+            throws IOException {
+        COSStream stream = targetDoc.getDocument().createCOSStream();
+        try (OutputStream outputStream = stream.createRawOutputStream()) {
+            scanlineDeflater.deflate(image, outputStream);
+        }
+        stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        COSDictionary decodeParms = new COSDictionary();
+        decodeParms.setInt(COSName.PREDICTOR, PNG_OPTIMUM_PREDICTOR);
+        decodeParms.setInt(COSName.COLORS, samplesPerPixel);
+        decodeParms.setInt(COSName.BITS_PER_COMPONENT, 8);
+        decodeParms.setInt(COSName.COLUMNS, image.getWidth());
+        stream.setItem(COSName.DECODE_PARMS, decodeParms);
+
+        PDImageXObject pdImage = new PDImageXObject(new PDStream(stream), null);
+        pdImage.setWidth(image.getWidth());
+        pdImage.setHeight(image.getHeight());
+        pdImage.setBitsPerComponent(8);
+        pdImage.setColorSpace(samplesPerPixel == 1 ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE);
+        return pdImage;
+    }
+
+    /**
+     * @return - the settings affecting the encoded images, so that images encoded
+     *         with other settings can be told apart
+     */
+    public String getSettings() {
+        return codec + "|" + jpegQuality + "|" + colorDetection;
+    }
+
+    /**
+     * Checks whether a rendered page mostly holds photographic content, such as
+     * a color scan, by counting the distinct colors of a grid of sampled pixels,
+     * or the distinct levels of a gray page. Bi-level pages are never
+     * photographic.
+     *
+     * @param image - the rendered page
+     * @return - true if DCT compression suits the page better than flate
+     */
+    static boolean isPhotographic(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY) {
+            return false;
+        }
+        boolean gray = image.getColorModel().getNumComponents() == 1;
+        int threshold = gray ? PHOTOGRAPHIC_GRAY_LEVEL_THRESHOLD : PHOTOGRAPHIC_COLOR_THRESHOLD;
+        int levelShift = Math.max(0, image.getSampleModel().getSampleSize(0) - 8);
+        int stepX = Math.max(1, image.getWidth() / SAMPLES_PER_AXIS);
+        int stepY = Math.max(1, image.getHeight() / SAMPLES_PER_AXIS);
+        BitSet colors = new BitSet(4096);
+        int distinctColors = 0;
+        for (int y = stepY / 2; y < image.getHeight(); y += stepY) {
+            for (int x = stepX / 2; x < image.getWidth(); x += stepX) {
+                int color;
+                if (gray) {
+                    color = image.getRaster().getSample(x, y, 0) >> levelShift;
+                } else {
+                    int rgb = image.getRGB(x, y);
+                    color = ((rgb >> 12) & 0xF00) | ((rgb >> 8) & 0xF0) | ((rgb >> 4) & 0xF);
+                }
+                if (!colors.get(color)) {
+                    colors.set(color);
+                    distinctColors++;
+                    if (distinctColors > threshold) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a rendered page only holds gray pixels, and whether those
+     * are nearly all black or white, as with black and white scans and plain
+     * text. Stops at the first colored pixel.
+     *
+     * @param image - the rendered page
+     * @return - the colors the page is made of
+     */
+    static PageColor detectPageColor(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY && image.getColorModel().getPixelSize() == 1) {
+            return PageColor.BILEVEL;
+        }
+        int width = image.getWidth();
+        int[] row = new int[width];
+        long midTones = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int rgb : row) {
+                int red = (rgb >> 16) & 0xFF;
+                int green = (rgb >> 8) & 0xFF;
+                int blue = rgb & 0xFF;
+                if (Math.abs(red - green) > GRAY_TOLERANCE || Math.abs(green - blue) > GRAY_TOLERANCE
+                        || Math.abs(red - blue) > GRAY_TOLERANCE) {
+                    return PageColor.COLOR;
+                }
+                if (green > BLACK_LEVEL && green < WHITE_LEVEL) {
+                    midTones++;
+                }
+            }
+        }
+        double pixels = (double) width * image.getHeight();
+        return midTones <= pixels * MAX_MID_TONE_RATIO ? PageColor.BILEVEL : PageColor.GRAY;
+    }
+
+    private static BufferedImage toGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return gray;
+    }
+
+    private static BufferedImage toBilevel(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY && image.getColorModel().getPixelSize() == 1) {
+            return image;
+        }
+        int width = image.getWidth();
+        BufferedImage bilevel = new BufferedImage(width, image.getHeight(), BufferedImage.TYPE_BYTE_BINARY);
+        WritableRaster raster = bilevel.getRaster();
+        int[] row = new int[width];
+        int[] bits = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                bits[x] = ((row[x] >> 8) & 0xFF) >= BILEVEL_THRESHOLD ? 1 : 0;
+            }
+            raster.setSamples(0, y, width, 1, 0, bits);
+        }
+        return bilevel;
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+/**
+ * This class caps the number of pixels a pdf page is rendered to, so that
+ * rendering oversized pages, such as engineering drawings, can't exhaust the
+ * heap. Pages which would exceed the budget have their resolution lowered step
+ * by step until they fit.
+ */
+public class PagePixelBudget {
+
+    /**
+     * Factor applied to the resolution of a page at each step down
+     */
+    private static final double DPI_STEP = 0.75;
+
+    /**
+     * Lowest resolution stepped down to, below which the resolution is computed
+     * to fit the budget exactly
+     */
+    private static final int MIN_STEPPED_DPI = 36;
+
+    private static final float POINTS_PER_INCH = 72;
+
+    private Logger log = LogManager.getLogger(PagePixelBudget.class);
+
+    private final long maxPagePixels;
+    private final AtomicInteger downgradedPages = new AtomicInteger();
+
+    /**
+     * @param maxPagePixels highest number of pixels a page is rendered to
+     */
+    public PagePixelBudget(long maxPagePixels) {
+        this.maxPagePixels = Math.max(1, maxPagePixels);
+    }
+
+    /**
+     * Creates a budget sharing a part of the heap between the pages rendered at
+     * the same time.
+     *
+     * @param maxMemoryBytes - the maximum heap size
+     * @param concurrency    - the number of pages rendered at the same time
+     * @return - the pixel budget of a single page
+     */
+    public static PagePixelBudget forHeap(long maxMemoryBytes, int concurrency) {
+        double pageBytes = maxMemoryBytes * Constants.PDF_RENDER_HEAP_FRACTION / Math.max(1, concurrency);
+        return new PagePixelBudget((long) (pageBytes / Constants.RENDERED_PAGE_BYTES_PER_PIXEL));
+    }
+
+    /**
+     * Lowers the resolution of a page until its rendering fits the budget.
+     *
+     * @param page      - the page to render
+     * @param pageIndex - zero-based index of the page, for logging
+     * @param dpi       - the resolution the page would be rendered at
+     * @return - the resolution to render the page at
+     */
+    public int fit(PDPage page, int pageIndex, int dpi) {
+        // the rendered image covers the crop box, rotating the page doesn't change
+        // its number of pixels
+        PDRectangle cropBox = page.getCropBox();
+        if (getPixels(cropBox, dpi) <= maxPagePixels) {
+            return dpi;
+        }
+        int fittedDpi = dpi;
+        while (getPixels(cropBox, fittedDpi) > maxPagePixels && fittedDpi > MIN_STEPPED_DPI) {
+            int lowerDpi = Math.max(MIN_STEPPED_DPI, (int) (fittedDpi * DPI_STEP));
+            log.info("Page {} exceeds the budget of {} pixels at {}-dpi, trying {}-dpi",
+                    pageIndex + 1, maxPagePixels, fittedDpi, lowerDpi);
+            fittedDpi = lowerDpi;
+        }
+        if (getPixels(cropBox, fittedDpi) > maxPagePixels) {
+            double pageArea = (double) cropBox.getWidth() * cropBox.getHeight();
+            fittedDpi = Math.max(1, (int) (POINTS_PER_INCH * Math.sqrt(maxPagePixels / pageArea)));
+        }
+        log.warn("Rendering page {} at {}-dpi instead of {}-dpi to stay within the budget of {} pixels, "
+                + "{} pages downgraded so far", pageIndex + 1, fittedDpi, dpi, maxPagePixels,
+                downgradedPages.incrementAndGet());
+        return fittedDpi;
+    }
+
+    /**
+     * @return the number of pages rendered at a lower resolution to fit the
+     *         budget
+     */
+    public int getDowngradedPages() {
+        return downgradedPages.get();
+    }
+
+    /**
+     * @return the highest number of pixels a page is rendered to
+     */
+    public long getMaxPagePixels() {
+        return maxPagePixels;
+    }
+
+    /**
+     * Counts the pixels of a page rendering the same way PDFBox sizes it
+     */
+    static long getPixels(PDRectangle cropBox, int dpi) {
+        double scale = dpi / POINTS_PER_INCH;
+        return (long) Math.max(1, (int) Math.ceil(cropBox.getWidth() * scale))
+                * Math.max(1, (int) Math.ceil(cropBox.getHeight() * scale));
+    }
+}
@@ -0,0 +1,210 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+/**
+ * This class renders pdf pages too large to be rendered at once as a stack of
+ * horizontal tiles. Each tile is rendered through a graphics context
+ * translated to the tile and is encoded before the next tile is rendered, so
+ * only a single tile raster is live at any point. When given a raster buffer
+ * pool, whole pages and tiles are rendered into pooled buffers.
+ */
+public class PageTileRenderer {
+    private static final float POINTS_PER_INCH = 72;
+
+    private final long maxTilePixels;
+    private final ImageType imageType;
+    private final RasterBufferPool rasterBufferPool;
+
+    /**
+     * Encodes a rendered tile into the document it is drawn in
+     */
+    public interface TileEncoder {
+        /**
+         * @param tile - the rendered tile
+         * @return - the encoded tile
+         * @throws IOException if the tile can't be encoded
+         */
+        PDImageXObject encode(BufferedImage tile) throws IOException;
+    }
+
+    /**
+     * @param maxTilePixels    highest number of pixels of a tile
+     * @param imageType        the type of image tiles are rendered to
+     * @param rasterBufferPool pool of the buffers pages are rendered into, or null
+     *                         to allocate a buffer per page
+     */
+    public PageTileRenderer(long maxTilePixels, ImageType imageType, RasterBufferPool rasterBufferPool) {
+        this.maxTilePixels = Math.max(1, maxTilePixels);
+        this.imageType = imageType;
+        this.rasterBufferPool = rasterBufferPool;
+    }
+
+    /**
+     * @param page - the page to render
+     * @param dpi  - the resolution the page is rendered at
+     * @return - true if the page rendering has more pixels than a single tile
+     */
+    public boolean needsTiles(PDPage page, int dpi) {
+        int[] size = getRenderedSize(page, dpi);
+        return (long) size[0] * size[1] > maxTilePixels;
+    }
+
+    /**
+     * Renders a page tile by tile, from the top of the page to the bottom.
+     *
+     * @param renderer  - the renderer of the document containing the page
+     * @param page      - the page to render
+     * @param pageIndex - zero-based index of the page
+     * @param dpi       - the resolution to render the page at
+     * @param encoder   - encodes each tile as soon as it is rendered
+     * @return - the encoded tiles, from top to bottom, which all have the width of
+     *         the page
+     * @throws IOException if the page can't be rendered or a tile can't be encoded
+     */
+    public List<PDImageXObject> render(PDFRenderer renderer, PDPage page, int pageIndex, int dpi,
+            TileEncoder encoder) throws IOException {
+        return renderTiles(renderer, pageIndex, dpi, getTiles(page, dpi, true), encoder);
+    }
+
+    /**
+     * Renders a whole page at once.
+     *
+     * @param renderer  - the renderer of the document containing the page
+     * @param page      - the page to render
+     * @param pageIndex - zero-based index of the page
+     * @param dpi       - the resolution to render the page at
+     * @param encoder   - encodes the rendered page
+     * @return - the encoded page
+     * @throws IOException if the page can't be rendered or encoded
+     */
+    public PDImageXObject renderWhole(PDFRenderer renderer, PDPage page, int pageIndex, int dpi,
+            TileEncoder encoder) throws IOException {
+        return renderTiles(renderer, pageIndex, dpi, getTiles(page, dpi, false), encoder).get(0);
+    }
+
+    /**
+     * Splits the rendering of a page into tiles.
+     *
+     * @param page  - the page to render
+     * @param dpi   - the resolution the page is rendered at
+     * @param tiled - false to get a single tile covering the whole page
+     * @return - the pixel bounds of the tiles, from top to bottom
+     */
+    public List<Rectangle> getTiles(PDPage page, int dpi, boolean tiled) {
+        int[] size = getRenderedSize(page, dpi);
+        int width = size[0];
+        int height = size[1];
+        int tileHeight = tiled ? (int) Math.max(1, Math.min(height, maxTilePixels / width)) : height;
+        List<Rectangle> tiles = new ArrayList<>();
+        for (int top = 0; top < height; top += tileHeight) {
+            tiles.add(new Rectangle(0, top, width, Math.min(tileHeight, height - top)));
+        }
+        return tiles;
+    }
+
+    /**
+     * Renders a single tile of a page, into a pooled buffer if there is a pool.
+     *
+     * @param renderer  - the renderer of the document containing the page
+     * @param pageIndex - zero-based index of the page
+     * @param dpi       - the resolution to render the page at
+     * @param tile      - the pixel bounds of the tile
+     * @return - the rendered tile, to be released once encoded
+     * @throws IOException if the page can't be rendered
+     */
+    public BufferedImage renderTile(PDFRenderer renderer, int pageIndex, int dpi, Rectangle tile)
+            throws IOException {
+        BufferedImage image = acquireBuffer(tile.width, tile.height);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            // the page is drawn on a cleared background, so a pooled buffer keeps
+            // nothing of the page previously rendered into it. PDFBox clears only
+            // the whole points of the crop box, which leaves the last pixel column
+            // and row of a page with a fractional crop box unpainted
+            graphics.setBackground(imageType == ImageType.ARGB ? new Color(0, 0, 0, 0) : Color.WHITE);
+            graphics.clearRect(0, 0, tile.width, tile.height);
+            // translating by whole pixels rasterizes the page exactly as a single
+            // rendering would, so tiles join without seams
+            graphics.translate(-tile.x, -tile.y);
+            float scale = dpi / POINTS_PER_INCH;
+            renderer.renderPageToGraphics(pageIndex, graphics, scale, scale);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Returns the buffer of a rendered tile to the pool. The encoders copy the
+     * pixels, so the buffer can be reused as soon as the tile is encoded.
+     *
+     * @param image - the rendered tile
+     */
+    public void releaseTile(BufferedImage image) {
+        if (rasterBufferPool != null) {
+            rasterBufferPool.release(image);
+        }
+    }
+
+    private List<PDImageXObject> renderTiles(PDFRenderer renderer, int pageIndex, int dpi, List<Rectangle> tiles,
+            TileEncoder encoder) throws IOException {
+        List<PDImageXObject> encodedTiles = new ArrayList<>();
+        for (Rectangle tile : tiles) {
+            BufferedImage image = renderTile(renderer, pageIndex, dpi, tile);
+            encodedTiles.add(encoder.encode(image));
+            releaseTile(image);
+        }
+        return encodedTiles;
+    }
+
+    private BufferedImage acquireBuffer(int width, int height) {
+        if (rasterBufferPool == null) {
+            return new BufferedImage(width, height, getBufferedImageType());
+        }
+        return rasterBufferPool.acquire(width, height, getBufferedImageType());
+    }
+
+    /**
+     * Computes the pixel size of a page rendering the same way PDFBox does
+     */
+    private static int[] getRenderedSize(PDPage page, int dpi) {
+        PDRectangle cropBox = page.getCropBox();
+        float scale = dpi / POINTS_PER_INCH;
+        int width = (int) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+        int height = (int) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+        int rotation = page.getRotation();
+        if (rotation == 90 || rotation == 270) {
+            return new int[] { height, width };
+        }
+        return new int[] { width, height };
+    }
+
+    private int getBufferedImageType() {
+        switch (imageType) {
+            case GRAY:
+                return BufferedImage.TYPE_BYTE_GRAY;
+            case BINARY:
+                return BufferedImage.TYPE_BYTE_BINARY;
+            case ARGB:
+                return BufferedImage.TYPE_INT_ARGB;
+            default:
+                return BufferedImage.TYPE_INT_RGB;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDTransparencyGroup;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDTextState;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+/**
+ * Walks the content stream of a pdf page and finds the content lying under the
+ * redaction areas. Only text and images drawn directly by the page content
+ * stream can be removed. Anything under a redaction area which is drawn from a
+ * form xobject, a type 3 glyph, an inline image or an annotation makes the page
+ * unsafe to redact as vector content.
+ */
+public class PdfContentAnalyzer extends PDFGraphicsStreamEngine {
+    /**
+     * Part of the glyph box trimmed on every side before checking it against the
+     * redaction areas, so that glyphs of neighbouring words which only touch a
+     * box are kept.
+     */
+    private static final float GLYPH_INSET = 0.2f;
+
+    /**
+     * Glyph ascent and descent, in text space, used when the font doesn't
+     * describe them
+     */
+    private static final float DEFAULT_ASCENT = 0.8f;
+    private static final float DEFAULT_DESCENT = -0.2f;
+
+    private final List<Rectangle2D> redactionAreas;
+    private final Map<Integer, TextOperation> textOperations = new HashMap<>();
+    private final Map<Integer, Matrix> imageOperations = new HashMap<>();
+    private final Set<COSStream> nestedImages = new HashSet<>();
+    private final Point2D currentPoint = new Point2D.Float();
+
+    private int operatorIndex = -1;
+    private int operatorDepth = 0;
+    private int nestingLevel = 0;
+    private String unsafeReason = null;
+
+    /**
+     * @param page           page to analyze
+     * @param redactionAreas areas to redact, in pdf space
+     */
+    public PdfContentAnalyzer(PDPage page, List<Rectangle2D> redactionAreas) {
+        super(page);
+        this.redactionAreas = redactionAreas;
+    }
+
+    /**
+     * Processes the page content and its annotations
+     *
+     * @throws IOException if the page content can't be parsed
+     */
+    public void analyze() throws IOException {
+        processPage(getPage());
+        for (PDAnnotation annotation : getPage().getAnnotations()) {
+            if (!(annotation instanceof PDAnnotationLink) && annotation.getRectangle() != null
+                    && intersects(annotation.getRectangle().toGeneralPath().getBounds2D())) {
+                markUnsafe("an annotation overlaps a redaction area");
+            }
+        }
+    }
+
+    /**
+     * @return true if the page can't be redacted by rewriting its content stream
+     */
+    public boolean isUnsafe() {
+        return unsafeReason != null;
+    }
+
+    /**
+     * @return the first reason the page can't be redacted as vector content
+     */
+    public String getUnsafeReason() {
+        return unsafeReason;
+    }
+
+    /**
+     * @return the text showing operators of the page content stream, keyed by
+     *         their index among the operators of the stream
+     */
+    public Map<Integer, TextOperation> getTextOperations() {
+        return textOperations;
+    }
+
+    /**
+     * @return the transformation matrix of every image xobject overlapping a
+     *         redaction area, keyed by the index of its Do operator among the
+     *         operators of the stream
+     */
+    public Map<Integer, Matrix> getImageOperations() {
+        return imageOperations;
+    }
+
+    /**
+     * @return the image xobjects drawn by form xobjects or type 3 glyphs, which
+     *         a rewrite of the page content stream doesn't reach
+     */
+    public Set<COSStream> getNestedImages() {
+        return nestedImages;
+    }
+
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        // operators such as ' and " are implemented by calling other operators,
+        // only the ones read from the page content stream are counted
+        if (operatorDepth == 0) {
+            operatorIndex++;
+        }
+        operatorDepth++;
+        try {
+            super.processOperator(operator, operands);
+        } finally {
+            operatorDepth--;
+        }
+    }
+
+    @Override
+    public void showForm(PDFormXObject form) throws IOException {
+        nestingLevel++;
+        try {
+            super.showForm(form);
+        } finally {
+            nestingLevel--;
+        }
+    }
+
+    @Override
+    public void showTransparencyGroup(PDTransparencyGroup form) throws IOException {
+        nestingLevel++;
+        try {
+            super.showTransparencyGroup(form);
+        } finally {
+            nestingLevel--;
+        }
+    }
+
+    @Override
+    protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement)
+            throws IOException {
+        boolean redacted = intersects(getGlyphBounds(textRenderingMatrix, font, displacement));
+        if (nestingLevel > 0) {
+            if (redacted) {
+                markUnsafe("text drawn by a form xobject or a type 3 glyph overlaps a redaction area");
+            }
+        } else {
+            PDTextState textState = getGraphicsState().getTextState();
+            TextOperation textOperation = textOperations.computeIfAbsent(operatorIndex,
+                    index -> new TextOperation(font, textState));
+            textOperation.redactedGlyphs.add(redacted);
+            if (redacted && (font.isVertical() || textState.getFontSize() == 0)) {
+                markUnsafe("text with a vertical font or a zero font size overlaps a redaction area");
+            }
+        }
+
+        // type 3 glyphs are content streams of their own
+        nestingLevel++;
+        try {
+            super.showGlyph(textRenderingMatrix, font, code, displacement);
+        } finally {
+            nestingLevel--;
+        }
+    }
+
+    @Override
+    public void drawImage(PDImage pdImage) throws IOException {
+        if (nestingLevel > 0 && pdImage instanceof PDImageXObject) {
+            nestedImages.add(((PDImageXObject) pdImage).getCOSObject());
+        }
+        Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+        Rectangle2D bounds = ctm.createAffineTransform()
+                .createTransformedShape(new Rectangle2D.Float(0, 0, 1, 1))
+                .getBounds2D();
+        if (!intersects(bounds)) {
+            return;
+        }
+        if (nestingLevel > 0 || !(pdImage instanceof PDImageXObject) || pdImage.isStencil()) {
+            markUnsafe("an inline image, a stencil mask or an image inside a form xobject overlaps a redaction area");
+        } else {
+            imageOperations.put(operatorIndex, ctm.clone());
+        }
+    }
+
+    @Override
+    public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+        currentPoint.setLocation(p0);
+    }
+
+    @Override
+    public void clip(int windingRule) {
+        // clipping doesn't draw anything
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        currentPoint.setLocation(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        currentPoint.setLocation(x, y);
+    }
+
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        currentPoint.setLocation(x3, y3);
+    }
+
+    @Override
+    public Point2D getCurrentPoint() {
+        return currentPoint;
+    }
+
+    @Override
+    public void closePath() {
+        // paths under a redaction area are covered by the black boxes
+    }
+
+    @Override
+    public void endPath() {
+        // paths under a redaction area are covered by the black boxes
+    }
+
+    @Override
+    public void strokePath() {
+        // paths under a redaction area are covered by the black boxes
+    }
+
+    @Override
+    public void fillPath(int windingRule) {
+        // paths under a redaction area are covered by the black boxes
+    }
+
+    @Override
+    public void fillAndStrokePath(int windingRule) {
+        // paths under a redaction area are covered by the black boxes
+    }
+
+    @Override
+    public void shadingFill(COSName shadingName) {
+        // shadings under a redaction area are covered by the black boxes
+    }
+
+    /**
+     * Computes the box of a glyph in pdf space, using the advance of the glyph
+     * and the ascent and descent of its font.
+     */
+    private static Rectangle2D getGlyphBounds(Matrix textRenderingMatrix, PDFont font, Vector displacement) {
+        float ascent = DEFAULT_ASCENT;
+        float descent = DEFAULT_DESCENT;
+        PDFontDescriptor fontDescriptor = font.getFontDescriptor();
+        if (fontDescriptor != null && fontDescriptor.getAscent() > 0) {
+            ascent = fontDescriptor.getAscent() / 1000;
+            descent = Math.min(0, fontDescriptor.getDescent() / 1000);
+        }
+        float width = displacement.getX();
+        float height = ascent - descent;
+        Rectangle2D glyphBox = new Rectangle2D.Float(
+                width * GLYPH_INSET,
+                descent + height * GLYPH_INSET,
+                width * (1 - 2 * GLYPH_INSET),
+                height * (1 - 2 * GLYPH_INSET));
+        AffineTransform transform = textRenderingMatrix.createAffineTransform();
+        return transform.createTransformedShape(glyphBox).getBounds2D();
+    }
+
+    private boolean intersects(Rectangle2D bounds) {
+        for (Rectangle2D redactionArea : redactionAreas) {
+            if (redactionArea.intersects(bounds)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void markUnsafe(String reason) {
+        if (unsafeReason == null) {
+            unsafeReason = reason;
+        }
+    }
+
+    /**
+     * A text showing operator of the page content stream, with the text state it
+     * was shown with and whether each of its glyphs is redacted.
+     */
+    public static class TextOperation {
+        private final PDFont font;
+        private final float fontSize;
+        private final float characterSpacing;
+        private final float wordSpacing;
+        private final List<Boolean> redactedGlyphs = new ArrayList<>();
+
+        TextOperation(PDFont font, PDTextState textState) {
+            this.font = font;
+            this.fontSize = textState.getFontSize();
+            this.characterSpacing = textState.getCharacterSpacing();
+            this.wordSpacing = textState.getWordSpacing();
+        }
+
+        public PDFont getFont() {
+            return font;
+        }
+
+        public float getFontSize() {
+            return fontSize;
+        }
+
+        public float getCharacterSpacing() {
+            return characterSpacing;
+        }
+
+        public float getWordSpacing() {
+            return wordSpacing;
+        }
+
+        public List<Boolean> getRedactedGlyphs() {
+            return redactedGlyphs;
+        }
+
+        /**
+         * @return true if at least one glyph of the operator is redacted
+         */
+        public boolean hasRedactedGlyphs() {
+            return redactedGlyphs.contains(Boolean.TRUE);
+        }
+    }
+}
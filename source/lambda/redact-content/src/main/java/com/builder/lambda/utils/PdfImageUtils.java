@@ -0,0 +1,242 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.plugins.jpeg.JPEGQTable;
+import javax.imageio.stream.ImageInputStream;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.image.CCITTFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Helpers to redact the pixels of images embedded in pdf files
+ */
+public final class PdfImageUtils {
+
+    /**
+     * Page entries which would leak the original content of a page whose
+     * content or images are redacted in place
+     */
+    public static final List<COSName> REDACTED_PAGE_REMOVED_KEYS = List.of(
+            COSName.getPDFName("Thumb"), COSName.PIECE_INFO);
+
+    /**
+     * Quality {@link JPEGFactory} encodes images with when none is given
+     */
+    private static final float DEFAULT_JPEG_QUALITY = 0.75f;
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    /**
+     * Private constructor to hide default public constructor for utility class
+     */
+    private PdfImageUtils() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Blacks out the pixels of an image xobject which lie under the redaction
+     * areas, and re-encodes the image with the same kind of compression as the
+     * original.
+     *
+     * @param pddDoc         pdf file the new image is created in
+     * @param image          image to redact
+     * @param ctm            transformation matrix the image is drawn with, which
+     *                       maps the unit square to pdf space
+     * @param redactionAreas areas to redact, in pdf space
+     * @return a new image xobject with the redacted pixels
+     * @throws IOException if the image can't be decoded or encoded
+     */
+    public static PDImageXObject redactImage(PDDocument pddDoc, PDImageXObject image, Matrix ctm,
+            List<Rectangle2D> redactionAreas) throws IOException {
+        return redactImage(pddDoc, image, List.of(ctm), redactionAreas);
+    }
+
+    /**
+     * Blacks out the pixels of an image xobject which lie under the redaction
+     * areas wherever the image is drawn, so that a single redacted copy can
+     * replace the image for all of its uses.
+     *
+     * @param pddDoc         pdf file the new image is created in
+     * @param image          image to redact
+     * @param ctms           transformation matrices the image is drawn with
+     * @param redactionAreas areas to redact, in pdf space
+     * @return a new image xobject with the redacted pixels
+     * @throws IOException if the image can't be decoded or encoded
+     */
+    public static PDImageXObject redactImage(PDDocument pddDoc, PDImageXObject image, List<Matrix> ctms,
+            List<Rectangle2D> redactionAreas) throws IOException {
+        BufferedImage raster = toDrawableImage(image.getImage());
+        Graphics2D graphics = raster.createGraphics();
+        try {
+            graphics.setColor(Color.BLACK);
+            graphics.setStroke(new BasicStroke(1));
+            for (Matrix ctm : ctms) {
+                // pixel (0, 0) is the top left corner of the image, which is drawn at (0, 1)
+                // of the unit square
+                AffineTransform pixelToPdf = ctm.createAffineTransform();
+                pixelToPdf.concatenate(new AffineTransform(
+                        1.0 / raster.getWidth(), 0, 0, -1.0 / raster.getHeight(), 0, 1));
+                AffineTransform pdfToPixel;
+                try {
+                    pdfToPixel = pixelToPdf.createInverse();
+                } catch (NoninvertibleTransformException e) {
+                    throw new IOException("Image is drawn with a non invertible transformation", e);
+                }
+                for (Rectangle2D redactionArea : redactionAreas) {
+                    Shape pixelArea = pdfToPixel.createTransformedShape(redactionArea);
+                    // filling only covers pixels whose center is inside the area, the stroke
+                    // covers the partially redacted pixels on the edges
+                    graphics.fill(pixelArea);
+                    graphics.draw(pixelArea);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return encodeLike(pddDoc, image, raster);
+    }
+
+    /**
+     * Copies the resources of a page, so that redacted images and marked content
+     * properties can be swapped in without changing resources shared with other
+     * pages
+     *
+     * @param page page whose resources are copied
+     * @return resources only used by the page
+     */
+    public static PDResources copyPageResources(PDPage page) {
+        PDResources pageResources = page.getResources();
+        if (pageResources == null) {
+            return new PDResources();
+        }
+        COSDictionary resources = new COSDictionary(pageResources.getCOSObject());
+        for (COSName key : List.of(COSName.XOBJECT, COSName.PROPERTIES)) {
+            COSBase entries = resources.getDictionaryObject(key);
+            if (entries instanceof COSDictionary) {
+                resources.setItem(key, new COSDictionary((COSDictionary) entries));
+            }
+        }
+        return new PDResources(resources);
+    }
+
+    /**
+     * Encodes an image with the same kind of compression as an existing image
+     * xobject: DCT images stay jpeg, at the quality they were encoded with, CCITT
+     * images stay fax encoded if still bi-level, and anything else is flate
+     * encoded.
+     *
+     * @param pddDoc   pdf file the new image is created in
+     * @param original image whose compression is reused
+     * @param image    pixels to encode
+     * @return a new image xobject
+     * @throws IOException if the image can't be encoded
+     */
+    public static PDImageXObject encodeLike(PDDocument pddDoc, PDImageXObject original, BufferedImage image)
+            throws IOException {
+        List<COSName> filters = original.getStream().getFilters();
+        COSName filter = filters.isEmpty() ? null : filters.get(filters.size() - 1);
+        if (COSName.DCT_DECODE.equals(filter)) {
+            return JPEGFactory.createFromImage(pddDoc, image, getJpegQuality(original));
+        }
+        if (COSName.CCITTFAX_DECODE.equals(filter) && image.getType() == BufferedImage.TYPE_BYTE_BINARY
+                && image.getColorModel().getPixelSize() == 1) {
+            return CCITTFactory.createFromImage(pddDoc, image);
+        }
+        return LosslessFactory.createFromImage(pddDoc, image);
+    }
+
+    /**
+     * Estimates the quality a jpeg image was encoded with, from how much its
+     * luminance quantization table is scaled from the standard table, in the way
+     * the jpeg image writer scales it for a given quality. The quality is rounded
+     * up, so the image doesn't lose more detail when encoded again.
+     *
+     * @param image jpeg image xobject
+     * @return the quality between 0 and 1, or the default quality of
+     *         {@link JPEGFactory} if the image has no readable quantization table
+     */
+    static float getJpegQuality(PDImageXObject image) {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(
+                image.getStream().createInputStream(List.of(COSName.DCT_DECODE.getName())))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("jpeg");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(inputStream, true, false);
+                Node tree = reader.getImageMetadata(0).getAsTree(JPEG_METADATA_FORMAT);
+                NodeList tables = ((IIOMetadataNode) tree).getElementsByTagName("dqtable");
+                for (int index = 0; index < tables.getLength(); index++) {
+                    IIOMetadataNode table = (IIOMetadataNode) tables.item(index);
+                    if ("0".equals(table.getAttribute("qtableId"))) {
+                        return getJpegQuality((JPEGQTable) table.getUserObject());
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // the image is encoded again at the default quality
+        }
+        return DEFAULT_JPEG_QUALITY;
+    }
+
+    private static float getJpegQuality(JPEGQTable table) {
+        long sum = 0;
+        long standardSum = 0;
+        for (int index = 0; index < table.getTable().length; index++) {
+            sum += table.getTable()[index];
+            standardSum += JPEGQTable.K1Luminance.getTable()[index];
+        }
+        // the writer scales the standard table by 2 - 2 * quality above a quality of
+        // 0.5, and by 0.5 / quality below
+        float scale = (float) sum / standardSum;
+        float quality = scale <= 1 ? 1 - scale / 2 : 0.5f / scale;
+        return Math.min(1, (float) Math.ceil(quality * 100) / 100);
+    }
+
+    /**
+     * Images decoded with a custom color model can't be drawn on, those are
+     * copied to a plain rgb image.
+     */
+    private static BufferedImage toDrawableImage(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_CUSTOM) {
+            return image;
+        }
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D graphics = copy.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return copy;
+    }
+}
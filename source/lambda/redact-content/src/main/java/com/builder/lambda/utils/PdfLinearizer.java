@@ -0,0 +1,781 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class writes a pdf file linearized (fast web view), as described in
+ * annex F of the pdf specification, since PDFBox can't linearize a file itself.
+ * The objects of the first page come first, after a linearization dictionary
+ * and a hint stream locating the objects of the other pages, so that a viewer
+ * fetching the file with range requests can display the first page before the
+ * rest of the file is downloaded.
+ *
+ * The objects are written the way PDFBox writes them: every dictionary and
+ * stream is an object of its own, the other values are written in place.
+ */
+public class PdfLinearizer {
+
+    private static final byte[] HEADER_COMMENT = { '%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n' };
+
+    /**
+     * Width the offsets and lengths are padded to in the linearization dictionary
+     * and the first page trailer, which are written before they are known
+     */
+    private static final int PADDED_NUMBER_WIDTH = 10;
+
+    private static final String FREE_XREF_ENTRY = "0000000000 65535 f\r\n";
+
+    private Logger log = LogManager.getLogger(PdfLinearizer.class);
+
+    private final PDDocument document;
+    private final Map<COSBase, Integer> objectNumbers = new IdentityHashMap<>();
+    private final Map<COSStream, Long> streamLengths = new IdentityHashMap<>();
+    private final Map<COSBase, Long> objectSizes = new IdentityHashMap<>();
+
+    private COSDictionary catalog;
+    private List<COSBase> firstPageObjects;
+    private final List<List<COSBase>> otherPagesObjects = new ArrayList<>();
+    private final List<COSBase> sharedObjects = new ArrayList<>();
+    private final List<COSBase> otherObjects = new ArrayList<>();
+    // pages other than the first one, by the shared objects they reference
+    private final List<List<COSBase>> otherPagesSharedObjects = new ArrayList<>();
+
+    /**
+     * @param document the pdf file to write
+     */
+    public PdfLinearizer(PDDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Writes the pdf file linearized. The output stream is flushed but not closed.
+     *
+     * @param outputStream - where the pdf file is written to
+     * @throws IOException if the pdf file can't be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        if (document.getNumberOfPages() == 0) {
+            document.save(outputStream);
+            return;
+        }
+        catalog = document.getDocumentCatalog().getCOSObject();
+        COSBase info = document.getDocument().getTrailer().getItem(COSName.INFO);
+        assignObjects(info);
+        int mainObjects = numberObjects();
+
+        byte[] fileId = measureObjects();
+        COSArray idArray = getIdArray(fileId);
+        Layout layout = new Layout(mainObjects, info, idArray);
+        layout.compute();
+        log.info("Linearized pdf file of {} pages and {} bytes, first page ends at byte {}",
+                document.getNumberOfPages(), layout.fileLength, layout.firstPageEnd);
+
+        CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(outputStream));
+        writeAscii(out, "%PDF-" + document.getVersion() + "\n");
+        out.write(HEADER_COMMENT);
+        layout.writeFirstPageSection(out);
+        writeObjects(out, firstPageObjects, layout);
+        for (List<COSBase> pageObjects : otherPagesObjects) {
+            writeObjects(out, pageObjects, layout);
+        }
+        writeObjects(out, sharedObjects, layout);
+        writeObjects(out, otherObjects, layout);
+        layout.writeMainXref(out);
+        out.flush();
+        if (out.getCount() != layout.fileLength) {
+            throw new IOException("Linearized pdf file is " + out.getCount() + " bytes instead of "
+                    + layout.fileLength);
+        }
+    }
+
+    /**
+     * Splits the objects of the pdf file between the sections of a linearized
+     * file: the first page, the objects used by a single other page, the objects
+     * shared by the other pages, and the remaining document level objects.
+     */
+    private void assignObjects(COSBase info) {
+        List<COSDictionary> pages = new ArrayList<>();
+        for (PDPage page : document.getPages()) {
+            pages.add(page.getCOSObject());
+        }
+        // objects collected for a page stop at other pages and at the page tree
+        Set<COSBase> boundaries = Collections.newSetFromMap(new IdentityHashMap<>());
+        boundaries.add(catalog);
+        boundaries.add(document.getPages().getCOSObject());
+        for (COSDictionary page : pages) {
+            boundaries.add(page);
+            COSBase parent = page.getDictionaryObject(COSName.PARENT);
+            while (parent instanceof COSDictionary && boundaries.add(parent)) {
+                parent = ((COSDictionary) parent).getDictionaryObject(COSName.PARENT);
+            }
+        }
+
+        firstPageObjects = collectObjects(pages.get(0), boundaries);
+        Set<COSBase> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        assigned.add(catalog);
+        assigned.addAll(firstPageObjects);
+
+        List<List<COSBase>> pagesObjects = new ArrayList<>();
+        Map<COSBase, Integer> referencingPages = new IdentityHashMap<>();
+        for (int index = 1; index < pages.size(); index++) {
+            List<COSBase> pageObjects = collectObjects(pages.get(index), boundaries);
+            pagesObjects.add(pageObjects);
+            for (COSBase object : pageObjects) {
+                referencingPages.merge(object, 1, Integer::sum);
+            }
+        }
+        Set<COSBase> firstPageSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        firstPageSet.addAll(firstPageObjects);
+        for (List<COSBase> pageObjects : pagesObjects) {
+            List<COSBase> ownObjects = new ArrayList<>();
+            List<COSBase> pageSharedObjects = new ArrayList<>();
+            for (COSBase object : pageObjects) {
+                if (firstPageSet.contains(object)) {
+                    pageSharedObjects.add(object);
+                } else if (referencingPages.get(object) > 1) {
+                    pageSharedObjects.add(object);
+                    if (assigned.add(object)) {
+                        sharedObjects.add(object);
+                    }
+                } else {
+                    ownObjects.add(object);
+                    assigned.add(object);
+                }
+            }
+            otherPagesObjects.add(ownObjects);
+            otherPagesSharedObjects.add(pageSharedObjects);
+        }
+
+        List<COSBase> documentObjects = collectObjects(catalog, Collections.emptySet());
+        if (info != null) {
+            documentObjects.addAll(collectObjects(info, Collections.emptySet()));
+        }
+        for (COSBase object : documentObjects) {
+            if (assigned.add(object)) {
+                otherObjects.add(object);
+            }
+        }
+    }
+
+    /**
+     * Collects the objects reachable from an object, in the order they are
+     * found, without going through the boundary objects
+     */
+    private static List<COSBase> collectObjects(COSBase start, Set<COSBase> boundaries) {
+        List<COSBase> objects = new ArrayList<>();
+        COSBase startObject = dereference(start);
+        if (startObject == null) {
+            return objects;
+        }
+        // a dictionary written in place somewhere may still be referenced as an
+        // object elsewhere, so being scanned and being found are tracked apart
+        Set<COSBase> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<COSBase> scanned = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(startObject);
+        found.add(startObject);
+        scanned.add(startObject);
+        objects.add(startObject);
+        while (!pending.isEmpty()) {
+            List<COSBase> children = getChildren(pending.pop());
+            // pushed in reverse order, so that they are visited in order
+            for (int index = children.size() - 1; index >= 0; index--) {
+                COSBase child = children.get(index);
+                COSBase object = dereference(child);
+                if (object == null || boundaries.contains(object)) {
+                    continue;
+                }
+                if (isIndirect(child) && found.add(object)) {
+                    objects.add(object);
+                }
+                if (scanned.add(object)) {
+                    pending.push(object);
+                }
+            }
+        }
+        return objects;
+    }
+
+    private static List<COSBase> getChildren(COSBase object) {
+        List<COSBase> children = new ArrayList<>();
+        if (object instanceof COSDictionary) {
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) object).entrySet()) {
+                if (entry.getValue() != null) {
+                    children.add(entry.getValue());
+                }
+            }
+        } else if (object instanceof COSArray) {
+            for (COSBase item : (COSArray) object) {
+                if (item != null) {
+                    children.add(item);
+                }
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Numbers the objects: the objects after the first page come first, as they
+     * are listed by the main cross-reference table, which starts at object 0.
+     *
+     * @return - the number of objects listed by the main cross-reference table,
+     *         object 0 included
+     */
+    private int numberObjects() {
+        int number = 1;
+        for (List<COSBase> pageObjects : otherPagesObjects) {
+            number = numberObjects(pageObjects, number);
+        }
+        number = numberObjects(sharedObjects, number);
+        number = numberObjects(otherObjects, number);
+        int mainObjects = number;
+        // the linearization dictionary and the hint stream are numbered around the
+        // catalog, as they are written in that order
+        objectNumbers.put(catalog, mainObjects + 1);
+        numberObjects(firstPageObjects, mainObjects + 3);
+        return mainObjects;
+    }
+
+    private int numberObjects(List<COSBase> objects, int firstNumber) {
+        int number = firstNumber;
+        for (COSBase object : objects) {
+            objectNumbers.put(object, number++);
+        }
+        return number;
+    }
+
+    /**
+     * Writes every object once without keeping it, to know its size before the
+     * file is laid out.
+     *
+     * @return - a digest of the objects, used as file identifier
+     */
+    private byte[] measureObjects() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5"); // NOSONAR - only used as file identifier
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        CountingOutputStream out = new CountingOutputStream(
+                new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+        List<COSBase> objects = new ArrayList<>();
+        objects.add(catalog);
+        objects.addAll(firstPageObjects);
+        otherPagesObjects.forEach(objects::addAll);
+        objects.addAll(sharedObjects);
+        objects.addAll(otherObjects);
+        for (COSBase object : objects) {
+            long start = out.getCount();
+            writeObject(out, object);
+            objectSizes.put(object, out.getCount() - start);
+        }
+        return digest.digest();
+    }
+
+    private COSArray getIdArray(byte[] fileId) {
+        COSBase id = document.getDocument().getTrailer().getDictionaryObject(COSName.ID);
+        if (id instanceof COSArray && ((COSArray) id).size() == 2) {
+            return (COSArray) id;
+        }
+        COSArray idArray = new COSArray();
+        idArray.add(new COSString(fileId));
+        idArray.add(new COSString(fileId));
+        return idArray;
+    }
+
+    private void writeObjects(CountingOutputStream out, List<COSBase> objects, Layout layout) throws IOException {
+        for (COSBase object : objects) {
+            if (out.getCount() != layout.getOffset(object)) {
+                throw new IOException("Object " + objectNumbers.get(object) + " written at byte " + out.getCount()
+                        + " instead of " + layout.getOffset(object));
+            }
+            writeObject(out, object);
+        }
+    }
+
+    private void writeObject(OutputStream out, COSBase object) throws IOException {
+        writeAscii(out, objectNumbers.get(object) + " 0 obj\n");
+        if (object instanceof COSStream) {
+            writeStream(out, (COSStream) object);
+        } else {
+            writeDirect(out, object);
+        }
+        writeAscii(out, "\nendobj\n");
+    }
+
+    private void writeStream(OutputStream out, COSStream stream) throws IOException {
+        Long length = streamLengths.get(stream);
+        if (length == null) {
+            try (InputStream data = stream.createRawInputStream()) {
+                length = data.transferTo(OutputStream.nullOutputStream());
+            }
+            streamLengths.put(stream, length);
+        }
+        writeAscii(out, "<<");
+        for (Map.Entry<COSName, COSBase> entry : stream.entrySet()) {
+            if (entry.getValue() != null && !COSName.LENGTH.equals(entry.getKey())) {
+                writeEntry(out, entry.getKey(), entry.getValue());
+            }
+        }
+        writeAscii(out, "/Length " + length + ">>\nstream\n");
+        try (InputStream data = stream.createRawInputStream()) {
+            data.transferTo(out);
+        }
+        writeAscii(out, "\nendstream");
+    }
+
+    private void writeEntry(OutputStream out, COSName key, COSBase value) throws IOException {
+        key.writePDF(out);
+        out.write(' ');
+        writeValue(out, value);
+        out.write('\n');
+    }
+
+    /**
+     * Writes a value, either in place or as a reference to its object
+     */
+    private void writeValue(OutputStream out, COSBase value) throws IOException {
+        if (!isIndirect(value)) {
+            writeDirect(out, value);
+            return;
+        }
+        COSBase object = dereference(value);
+        Integer number = object == null ? null : objectNumbers.get(object);
+        if (number == null) {
+            writeAscii(out, "null");
+        } else {
+            writeAscii(out, number + " 0 R");
+        }
+    }
+
+    private void writeDirect(OutputStream out, COSBase value) throws IOException {
+        if (value instanceof COSDictionary) {
+            writeAscii(out, "<<");
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) value).entrySet()) {
+                if (entry.getValue() != null) {
+                    writeEntry(out, entry.getKey(), entry.getValue());
+                }
+            }
+            writeAscii(out, ">>");
+        } else if (value instanceof COSArray) {
+            out.write('[');
+            boolean first = true;
+            for (COSBase item : (COSArray) value) {
+                if (!first) {
+                    out.write(' ');
+                }
+                writeValue(out, item == null ? COSNull.NULL : item);
+                first = false;
+            }
+            out.write(']');
+        } else if (value instanceof COSString) {
+            COSWriter.writeString((COSString) value, out);
+        } else if (value instanceof COSName) {
+            ((COSName) value).writePDF(out);
+        } else if (value instanceof COSInteger) {
+            ((COSInteger) value).writePDF(out);
+        } else if (value instanceof COSFloat) {
+            ((COSFloat) value).writePDF(out);
+        } else if (value instanceof COSBoolean) {
+            ((COSBoolean) value).writePDF(out);
+        } else if (value instanceof COSNull) {
+            writeAscii(out, "null");
+        } else {
+            throw new IOException("Unable to write pdf object of type " + value.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Objects referenced through an object number, and dictionaries, which PDFBox
+     * writes as objects of their own unless they are flagged as direct
+     */
+    private static boolean isIndirect(COSBase value) {
+        return value instanceof COSObject || value instanceof COSStream
+                || value instanceof COSDictionary && !value.isDirect();
+    }
+
+    private static COSBase dereference(COSBase value) {
+        return value instanceof COSObject ? ((COSObject) value).getObject() : value;
+    }
+
+    private static void writeAscii(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String pad(long value) {
+        return String.format("%-" + PADDED_NUMBER_WIDTH + "d", value);
+    }
+
+    private static String formatXrefEntry(long offset) {
+        return String.format("%010d 00000 n\r\n", offset);
+    }
+
+    private static int bitsNeeded(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * The byte offsets of the linearized file. The hint tables locate the objects
+     * as if the hint stream wasn't there, so the offsets are first computed
+     * without it, the hint stream is then built and the offsets shifted by its
+     * length.
+     */
+    private final class Layout {
+        private final int mainObjects;
+        private final COSBase info;
+        private final COSArray idArray;
+        private final int linearizationNumber;
+        private final int hintNumber;
+        private final Map<COSBase, Long> offsets = new IdentityHashMap<>();
+
+        private long headerLength;
+        private long firstXrefOffset;
+        private long catalogOffset;
+        private long hintOffset;
+        private byte[] hintStream;
+        private long firstPageEnd;
+        private long mainXrefOffset;
+        private long fileLength;
+
+        Layout(int mainObjects, COSBase info, COSArray idArray) {
+            this.mainObjects = mainObjects;
+            this.info = info;
+            this.idArray = idArray;
+            this.linearizationNumber = mainObjects;
+            this.hintNumber = mainObjects + 2;
+        }
+
+        long getOffset(COSBase object) {
+            return offsets.get(object);
+        }
+
+        void compute() throws IOException {
+            headerLength = ("%PDF-" + document.getVersion() + "\n").length() + HEADER_COMMENT.length;
+            firstXrefOffset = headerLength + formatLinearizationDictionary(0, 0, 0).length();
+            catalogOffset = firstXrefOffset + formatFirstXref().length() + formatFirstTrailer(0).length();
+            hintOffset = catalogOffset + objectSizes.get(catalog);
+
+            // offsets without the hint stream
+            long offset = hintOffset;
+            offset = placeObjects(firstPageObjects, offset);
+            firstPageEnd = offset;
+            List<Long> pageOffsets = new ArrayList<>();
+            for (List<COSBase> pageObjects : otherPagesObjects) {
+                pageOffsets.add(offset);
+                offset = placeObjects(pageObjects, offset);
+            }
+            long sharedOffset = offset;
+            offset = placeObjects(sharedObjects, offset);
+            offset = placeObjects(otherObjects, offset);
+            mainXrefOffset = offset;
+
+            hintStream = formatHintStream(pageOffsets, sharedOffset);
+            for (Map.Entry<COSBase, Long> entry : offsets.entrySet()) {
+                entry.setValue(entry.getValue() + hintStream.length);
+            }
+            offsets.put(catalog, catalogOffset);
+            firstPageEnd += hintStream.length;
+            mainXrefOffset += hintStream.length;
+            fileLength = mainXrefOffset + formatMainXref().length();
+        }
+
+        private long placeObjects(List<COSBase> objects, long firstOffset) {
+            long offset = firstOffset;
+            for (COSBase object : objects) {
+                offsets.put(object, offset);
+                offset += objectSizes.get(object);
+            }
+            return offset;
+        }
+
+        void writeFirstPageSection(OutputStream out) throws IOException {
+            // the first entry of the main cross-reference table follows its subsection header
+            long mainXrefFirstEntry = mainXrefOffset + ("xref\n0 " + (mainObjects)).length();
+            writeAscii(out, formatLinearizationDictionary(fileLength, firstPageEnd, mainXrefFirstEntry));
+            writeAscii(out, formatFirstXref());
+            writeAscii(out, formatFirstTrailer(mainXrefOffset));
+            writeObject(out, catalog);
+            out.write(hintStream);
+        }
+
+        void writeMainXref(OutputStream out) throws IOException {
+            writeAscii(out, formatMainXref());
+        }
+
+        private String formatLinearizationDictionary(long length, long firstPageEnd, long mainXrefFirstEntry) {
+            return linearizationNumber + " 0 obj\n<</Linearized 1 /L " + pad(length)
+                    + " /H [" + pad(hintOffset) + " " + pad(hintStream == null ? 0 : hintStream.length)
+                    + "] /O " + objectNumbers.get(firstPageObjects.get(0)) + " /E " + pad(firstPageEnd)
+                    + " /N " + document.getNumberOfPages() + " /T " + pad(mainXrefFirstEntry) + ">>\nendobj\n";
+        }
+
+        private String formatFirstXref() {
+            StringBuilder xref = new StringBuilder("xref\n").append(linearizationNumber).append(' ')
+                    .append(firstPageObjects.size() + 3).append('\n');
+            xref.append(formatXrefEntry(headerLength));
+            xref.append(formatXrefEntry(catalogOffset));
+            xref.append(formatXrefEntry(hintOffset));
+            for (COSBase object : firstPageObjects) {
+                xref.append(formatXrefEntry(offsets.getOrDefault(object, 0L)));
+            }
+            return xref.toString();
+        }
+
+        private String formatFirstTrailer(long mainXref) throws IOException {
+            ByteArrayOutputStream id = new ByteArrayOutputStream();
+            writeDirect(id, idArray);
+            String infoEntry = info == null || objectNumbers.get(dereference(info)) == null
+                    ? ""
+                    : "/Info " + objectNumbers.get(dereference(info)) + " 0 R ";
+            return "trailer\n<</Size " + (hintNumber + 1 + firstPageObjects.size())
+                    + " /Root " + objectNumbers.get(catalog) + " 0 R " + infoEntry
+                    + "/ID " + id.toString(StandardCharsets.ISO_8859_1) + " /Prev " + pad(mainXref)
+                    + ">>\nstartxref\n0\n%%EOF\n";
+        }
+
+        private String formatMainXref() {
+            StringBuilder xref = new StringBuilder("xref\n0 ").append(mainObjects).append('\n');
+            xref.append(FREE_XREF_ENTRY);
+            List<COSBase> objects = new ArrayList<>();
+            otherPagesObjects.forEach(objects::addAll);
+            objects.addAll(sharedObjects);
+            objects.addAll(otherObjects);
+            for (COSBase object : objects) {
+                xref.append(formatXrefEntry(offsets.get(object)));
+            }
+            return xref.append("trailer\n<</Size ").append(mainObjects).append(">>\nstartxref\n")
+                    .append(firstXrefOffset).append("\n%%EOF\n").toString();
+        }
+
+        /**
+         * Builds the hint stream, made of the page offset hint table followed by the
+         * shared object hint table, where the objects of the first page count as
+         * shared objects.
+         */
+        private byte[] formatHintStream(List<Long> pageOffsets, long sharedOffset) throws IOException {
+            int pages = otherPagesObjects.size() + 1;
+            long[] objectCounts = new long[pages];
+            long[] pageLengths = new long[pages];
+            List<List<Integer>> sharedIds = new ArrayList<>();
+            objectCounts[0] = firstPageObjects.size();
+            pageLengths[0] = firstPageEnd - offsets.get(firstPageObjects.get(0));
+            sharedIds.add(Collections.emptyList());
+            Map<COSBase, Integer> sharedIdentifiers = new IdentityHashMap<>();
+            for (COSBase object : firstPageObjects) {
+                sharedIdentifiers.put(object, sharedIdentifiers.size());
+            }
+            for (COSBase object : sharedObjects) {
+                sharedIdentifiers.put(object, sharedIdentifiers.size());
+            }
+            for (int page = 1; page < pages; page++) {
+                List<COSBase> pageObjects = otherPagesObjects.get(page - 1);
+                objectCounts[page] = pageObjects.size();
+                long end = page < pages - 1 ? pageOffsets.get(page) : sharedOffset;
+                pageLengths[page] = end - pageOffsets.get(page - 1);
+                List<Integer> ids = new ArrayList<>();
+                for (COSBase object : otherPagesSharedObjects.get(page - 1)) {
+                    ids.add(sharedIdentifiers.get(object));
+                }
+                sharedIds.add(ids);
+            }
+
+            long leastObjects = min(objectCounts);
+            long leastLength = min(pageLengths);
+            int objectBits = bitsNeeded(max(objectCounts) - leastObjects);
+            int lengthBits = bitsNeeded(max(pageLengths) - leastLength);
+            int sharedCountBits = bitsNeeded(sharedIds.stream().mapToInt(List::size).max().orElse(0));
+            int sharedIdBits = bitsNeeded(Math.max(0, sharedIdentifiers.size() - 1));
+
+            BitWriter bits = new BitWriter();
+            bits.write(leastObjects, 32);
+            bits.write(offsets.get(firstPageObjects.get(0)), 32);
+            bits.write(objectBits, 16);
+            bits.write(leastLength, 32);
+            bits.write(lengthBits, 16);
+            // content stream offsets aren't used by viewers, the content stream
+            // lengths are given as the page lengths like other writers do
+            bits.write(0, 32);
+            bits.write(0, 16);
+            bits.write(leastLength, 32);
+            bits.write(lengthBits, 16);
+            bits.write(sharedCountBits, 16);
+            bits.write(sharedIdBits, 16);
+            bits.write(0, 16);
+            bits.write(1, 16);
+            for (long count : objectCounts) {
+                bits.write(count - leastObjects, objectBits);
+            }
+            bits.flush();
+            for (long length : pageLengths) {
+                bits.write(length - leastLength, lengthBits);
+            }
+            bits.flush();
+            for (List<Integer> ids : sharedIds) {
+                bits.write(ids.size(), sharedCountBits);
+            }
+            bits.flush();
+            for (List<Integer> ids : sharedIds) {
+                for (int id : ids) {
+                    bits.write(id, sharedIdBits);
+                }
+            }
+            bits.flush();
+            for (long length : pageLengths) {
+                bits.write(length - leastLength, lengthBits);
+            }
+            bits.flush();
+            int sharedTableOffset = bits.size();
+
+            long[] groupLengths = new long[sharedIdentifiers.size()];
+            int group = 0;
+            for (COSBase object : firstPageObjects) {
+                groupLengths[group++] = objectSizes.get(object);
+            }
+            for (COSBase object : sharedObjects) {
+                groupLengths[group++] = objectSizes.get(object);
+            }
+            long leastGroupLength = min(groupLengths);
+            int groupLengthBits = bitsNeeded(max(groupLengths) - leastGroupLength);
+            bits.write(sharedObjects.isEmpty() ? 0 : objectNumbers.get(sharedObjects.get(0)), 32);
+            bits.write(sharedObjects.isEmpty() ? 0 : offsets.get(sharedObjects.get(0)), 32);
+            bits.write(firstPageObjects.size(), 32);
+            bits.write(groupLengths.length, 32);
+            bits.write(0, 16);
+            bits.write(leastGroupLength, 32);
+            bits.write(groupLengthBits, 16);
+            for (long length : groupLengths) {
+                bits.write(length - leastGroupLength, groupLengthBits);
+            }
+            bits.flush();
+            // no signatures
+            for (int index = 0; index < groupLengths.length; index++) {
+                bits.write(0, 1);
+            }
+            bits.flush();
+
+            byte[] data = bits.toByteArray();
+            ByteArrayOutputStream hint = new ByteArrayOutputStream();
+            writeAscii(hint, hintNumber + " 0 obj\n<</Length " + data.length + " /S " + sharedTableOffset
+                    + ">>\nstream\n");
+            hint.write(data);
+            writeAscii(hint, "\nendstream\nendobj\n");
+            return hint.toByteArray();
+        }
+
+        private long min(long[] values) {
+            long min = Long.MAX_VALUE;
+            for (long value : values) {
+                min = Math.min(min, value);
+            }
+            return values.length == 0 ? 0 : min;
+        }
+
+        private long max(long[] values) {
+            long max = 0;
+            for (long value : values) {
+                max = Math.max(max, value);
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Packs the entries of the hint tables, most significant bit first
+     */
+    private static final class BitWriter {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int current;
+        private int currentBits;
+
+        void write(long value, int bits) {
+            for (int bit = bits - 1; bit >= 0; bit--) {
+                current = (current << 1) | (int) ((value >>> bit) & 1);
+                if (++currentBits == Byte.SIZE) {
+                    bytes.write(current);
+                    current = 0;
+                    currentBits = 0;
+                }
+            }
+        }
+
+        /**
+         * Pads the last byte, each item of the hint tables starts on a byte boundary
+         */
+        void flush() {
+            if (currentBits > 0) {
+                write(0, Byte.SIZE - currentBits);
+            }
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        byte[] toByteArray() {
+            flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -5,27 +5,51 @@ package com.builder.lambda.utils;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 
 import com.builder.lambda.model.BoundingBox;
 import com.builder.lambda.model.Document;
+import com.builder.lambda.model.PdfImageCodec;
+import com.builder.lambda.model.RedactionQuality;
 
 import software.amazon.lambda.powertools.logging.Logging;
 
 import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This class processes {@link InputStream} based pdf file to apply redaction
@@ -33,13 +57,106 @@ import java.util.Map;
  */
 public class PdfRedactor implements Redactor {
 
+    /**
+     * Pdf user space units per inch
+     */
+    private static final float POINTS_PER_INCH = 72;
+
+    /**
+     * Annotation entries that reference other pages, form fields, structure or
+     * actions of the input document
+     */
+    private static final List<COSName> UNSAFE_ANNOTATION_KEYS = List.of(
+            COSName.P, COSName.PARENT, COSName.DEST, COSName.A, COSName.AA, COSName.getPDFName("Popup"),
+            COSName.getPDFName("IRT"), COSName.STRUCT_PARENT);
+
+    /**
+     * Page entries which no longer apply, or would leak the original content,
+     * once a page is replaced by its rendered image
+     */
+    private static final List<COSName> RASTERIZED_PAGE_REMOVED_KEYS = List.of(
+            COSName.ANNOTS, COSName.B, COSName.STRUCT_PARENTS, COSName.CROP_BOX, COSName.BLEED_BOX,
+            COSName.TRIM_BOX, COSName.ART_BOX, COSName.getPDFName("Thumb"), COSName.PIECE_INFO);
+
     Logger log = LogManager.getLogger(PdfRedactor.class);
 
     private int pdfQuality = Constants.DEFAULT_PDF_QUALITY;
     private ImageType imageType = Constants.DEFAULT_IMAGE_TYPE;
+    private boolean streamingEnabled = false;
+    private boolean pipelineEnabled = false;
+    private long maxMainMemoryBytes = Constants.DEFAULT_PDF_MAX_MAIN_MEMORY_MB * Constants.BYTES_PER_MB;
+    private int renderWorkers = Constants.DEFAULT_PDF_RENDER_WORKERS;
+    private boolean selectiveRasterization = false;
+    private PdfImageCodec imageCodec = Constants.DEFAULT_PDF_IMAGE_CODEC;
+    private float jpegQuality = Constants.DEFAULT_PDF_JPEG_QUALITY;
+    private boolean adaptiveDpi = false;
+    private boolean colorDetection = false;
+    private boolean directImageRedaction = false;
+    private boolean pageCacheEnabled = false;
+    private long pageCacheMemoryBytes = Constants.DEFAULT_PDF_PAGE_CACHE_MEMORY_MB * Constants.BYTES_PER_MB;
+    private long pageCacheDiskBytes = Constants.DEFAULT_PDF_PAGE_CACHE_DISK_MB * Constants.BYTES_PER_MB;
+    private int maxDpi = Constants.DEFAULT_PDF_MAX_DPI;
+    private long maxPagePixels = 0;
+    private boolean tiledRendering = false;
+    private long rasterPoolBytes = Constants.DEFAULT_PDF_RASTER_POOL_MB * Constants.BYTES_PER_MB;
+    private boolean linearizedOutput = false;
+    private boolean imageDeduplication = false;
+    private int deflateThreads = Constants.DEFAULT_DEFLATE_THREADS;
+    private boolean subsamplingAllowed = false;
+    private RenderingHints renderingHints = null;
+    private final PageImageEncoder pageImageEncoder;
+    private final PageDpiResolver pageDpiResolver;
+    private final RenderedPageCache pageCache;
+    private final PagePixelBudget pagePixelBudget;
+    private final RasterBufferPool rasterBufferPool;
+    private final PageTileRenderer pageTileRenderer;
 
     public PdfRedactor() {
+        this(null);
+    }
+
+    /**
+     * @param quality the quality profile overriding the rendering settings of
+     *                the environment, or null to use those settings
+     */
+    public PdfRedactor(RedactionQuality quality) {
         checkEnvSetup();
+        if (quality != null) {
+            applyQualityProfile(quality);
+        }
+        pageImageEncoder = new PageImageEncoder(imageCodec, jpegQuality, colorDetection,
+                deflateThreads > 1 ? ScanlineDeflater.getSharedDeflater(deflateThreads) : null);
+        pageDpiResolver = new PageDpiResolver(pdfQuality, maxDpi);
+        pageCache = pageCacheEnabled
+                ? RenderedPageCache.getSharedCache(pageCacheMemoryBytes, pageCacheDiskBytes)
+                : null;
+        pagePixelBudget = maxPagePixels > 0
+                ? new PagePixelBudget(maxPagePixels)
+                : PagePixelBudget.forHeap(Runtime.getRuntime().maxMemory(), renderWorkers);
+        log.info("Pages are rendered to at most {} pixels", pagePixelBudget.getMaxPagePixels());
+        rasterBufferPool = rasterPoolBytes > 0 ? RasterBufferPool.getSharedPool(rasterPoolBytes) : null;
+        pageTileRenderer = new PageTileRenderer(pagePixelBudget.getMaxPagePixels(), imageType, rasterBufferPool);
+    }
+
+    /**
+     * Replaces the resolution, image type, codec, rendering hints and number of
+     * render workers with those of a quality profile
+     *
+     * @param quality the quality profile of the redaction requests
+     */
+    private void applyQualityProfile(RedactionQuality quality) {
+        pdfQuality = quality.getDpi();
+        imageType = quality.getImageType();
+        imageCodec = quality.getImageCodec();
+        subsamplingAllowed = quality.isSubsamplingAllowed();
+        renderWorkers = quality.isParallelRendering() ? Runtime.getRuntime().availableProcessors() : 1;
+        renderingHints = quality.isAntialiasing()
+                ? null
+                : new RenderingHints(Map.of(
+                        RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF,
+                        RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED,
+                        RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR));
+        log.info("Redacting with the {} quality profile", quality);
     }
 
     /**
@@ -55,128 +172,1078 @@ public class PdfRedactor implements Redactor {
             imageType = ImageType.valueOf(System.getenv("IMAGE_TYPE"));
             log.info("IMAGE_TYPE is: {}", imageType);
         }
+        if (System.getenv("PDF_STREAMING") != null) {
+            streamingEnabled = Boolean.parseBoolean(System.getenv("PDF_STREAMING"));
+            log.info("PDF_STREAMING is: {}", streamingEnabled);
+        }
+        if (System.getenv("PDF_PIPELINE") != null) {
+            pipelineEnabled = Boolean.parseBoolean(System.getenv("PDF_PIPELINE"));
+            log.info("PDF_PIPELINE is: {}", pipelineEnabled);
+        }
+        if (System.getenv("PDF_MAX_MAIN_MEMORY_MB") != null) {
+            maxMainMemoryBytes = Long.parseLong(System.getenv("PDF_MAX_MAIN_MEMORY_MB")) * Constants.BYTES_PER_MB;
+            log.info("PDF_MAX_MAIN_MEMORY_MB is: {}", System.getenv("PDF_MAX_MAIN_MEMORY_MB"));
+        }
+        if (System.getenv("PDF_RENDER_WORKERS") != null) {
+            renderWorkers = Math.max(1, Integer.parseInt(System.getenv("PDF_RENDER_WORKERS")));
+            log.info("PDF_RENDER_WORKERS is: {}", renderWorkers);
+        }
+        if (System.getenv("PDF_SELECTIVE_RASTERIZATION") != null) {
+            selectiveRasterization = Boolean.parseBoolean(System.getenv("PDF_SELECTIVE_RASTERIZATION"));
+            log.info("PDF_SELECTIVE_RASTERIZATION is: {}", selectiveRasterization);
+        }
+        if (System.getenv("PDF_IMAGE_CODEC") != null) {
+            imageCodec = PdfImageCodec.valueOf(System.getenv("PDF_IMAGE_CODEC"));
+            log.info("PDF_IMAGE_CODEC is: {}", imageCodec);
+        }
+        if (System.getenv("PDF_JPEG_QUALITY") != null) {
+            jpegQuality = Float.parseFloat(System.getenv("PDF_JPEG_QUALITY"));
+            log.info("PDF_JPEG_QUALITY is: {}", jpegQuality);
+        }
+        if (System.getenv("PDF_COLOR_DETECTION") != null) {
+            colorDetection = Boolean.parseBoolean(System.getenv("PDF_COLOR_DETECTION"));
+            log.info("PDF_COLOR_DETECTION is: {}", colorDetection);
+        }
+        if (System.getenv("PDF_DIRECT_IMAGE_REDACTION") != null) {
+            directImageRedaction = Boolean.parseBoolean(System.getenv("PDF_DIRECT_IMAGE_REDACTION"));
+            log.info("PDF_DIRECT_IMAGE_REDACTION is: {}", directImageRedaction);
+        }
+        if (System.getenv("PDF_PAGE_CACHE") != null) {
+            pageCacheEnabled = Boolean.parseBoolean(System.getenv("PDF_PAGE_CACHE"));
+            log.info("PDF_PAGE_CACHE is: {}", pageCacheEnabled);
+        }
+        if (System.getenv("PDF_PAGE_CACHE_MEMORY_MB") != null) {
+            pageCacheMemoryBytes = Long.parseLong(System.getenv("PDF_PAGE_CACHE_MEMORY_MB")) * Constants.BYTES_PER_MB;
+            log.info("PDF_PAGE_CACHE_MEMORY_MB is: {}", System.getenv("PDF_PAGE_CACHE_MEMORY_MB"));
+        }
+        if (System.getenv("PDF_PAGE_CACHE_DISK_MB") != null) {
+            pageCacheDiskBytes = Long.parseLong(System.getenv("PDF_PAGE_CACHE_DISK_MB")) * Constants.BYTES_PER_MB;
+            log.info("PDF_PAGE_CACHE_DISK_MB is: {}", System.getenv("PDF_PAGE_CACHE_DISK_MB"));
+        }
+        if (System.getenv("PDF_ADAPTIVE_DPI") != null) {
+            adaptiveDpi = Boolean.parseBoolean(System.getenv("PDF_ADAPTIVE_DPI"));
+            log.info("PDF_ADAPTIVE_DPI is: {}", adaptiveDpi);
+        }
+        if (System.getenv("PDF_MAX_DPI") != null) {
+            maxDpi = Integer.parseInt(System.getenv("PDF_MAX_DPI"));
+            log.info("PDF_MAX_DPI is: {}-dpi", maxDpi);
+        }
+        if (System.getenv("PDF_MAX_PAGE_PIXELS") != null) {
+            maxPagePixels = Long.parseLong(System.getenv("PDF_MAX_PAGE_PIXELS"));
+            log.info("PDF_MAX_PAGE_PIXELS is: {}", maxPagePixels);
+        }
+        if (System.getenv("PDF_TILED_RENDERING") != null) {
+            tiledRendering = Boolean.parseBoolean(System.getenv("PDF_TILED_RENDERING"));
+            log.info("PDF_TILED_RENDERING is: {}", tiledRendering);
+        }
+        if (System.getenv("PDF_RASTER_POOL_MB") != null) {
+            rasterPoolBytes = Long.parseLong(System.getenv("PDF_RASTER_POOL_MB")) * Constants.BYTES_PER_MB;
+            log.info("PDF_RASTER_POOL_MB is: {}", System.getenv("PDF_RASTER_POOL_MB"));
+        }
+        if (System.getenv("PDF_LINEARIZED") != null) {
+            linearizedOutput = Boolean.parseBoolean(System.getenv("PDF_LINEARIZED"));
+            log.info("PDF_LINEARIZED is: {}", linearizedOutput);
+        }
+        if (System.getenv("PDF_DEDUPLICATE_IMAGES") != null) {
+            imageDeduplication = Boolean.parseBoolean(System.getenv("PDF_DEDUPLICATE_IMAGES"));
+            log.info("PDF_DEDUPLICATE_IMAGES is: {}", imageDeduplication);
+        }
+        if (System.getenv("DEFLATE_THREADS") != null) {
+            deflateThreads = Integer.parseInt(System.getenv("DEFLATE_THREADS"));
+            log.info("DEFLATE_THREADS is: {}", deflateThreads);
+        }
     }
 
     /**
      * This method applies redaction on a pdf file using bounding-box information
      *
-     * @param document   - contains input pdf file and bounding-box info
-     * @param redactData - the bounding boxes to be redacted
-     * @return - redacted pdf file
+     * @param document     - contains input pdf file and bounding-box info
+     * @param redactData   - the bounding boxes to be redacted
+     * @param outputStream - where the redacted pdf file is written to
      * @throws IOException if it is unable to process the document to redact
      */
     @Override
     @Logging
-    public ByteArrayOutputStream processDocument(
-            Document document, Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException {
-        PDDocument pdfDoc = drawRectangles(document.fileInputStream, boundingBoxesByPage);
-        return applyPermanentRedaction(pdfDoc);
+    public void processDocument(Document document, Map<String, List<BoundingBox>> boundingBoxesByPage,
+            OutputStream outputStream) throws IOException {
+        if (renderWorkers > 1) {
+            processDocumentParallel(document.fileInputStream, boundingBoxesByPage, outputStream);
+        } else if (pipelineEnabled) {
+            processDocumentPipelined(document.fileInputStream, boundingBoxesByPage, outputStream);
+        } else if (streamingEnabled) {
+            processDocumentStreaming(document.fileInputStream, boundingBoxesByPage, outputStream);
+        } else {
+            redactDocument(loadDocument(document.fileInputStream), boundingBoxesByPage, outputStream);
+        }
     }
 
     /**
-     * This method uses bounding-box to draw black-boxes on the pdf file
+     * Saves the redacted pdf file, linearized when enabled, so that viewers
+     * fetching it with range requests display its first page early
      *
-     * @param pdfInputStream      input pdf file
-     * @param boundingBoxesByPage bounding-box information mapped with page number
-     * @return - a pdf file with black boxes on top
-     * @throws IOException if it is unable to opens the pdf file or issues with
-     *                     drawing rectangles
+     * @param redactedDoc  - the redacted pdf file
+     * @param outputStream - where the redacted pdf file is written to
+     * @throws IOException if it is unable to save the pdf file
      */
-    @Logging
-    private PDDocument drawRectangles(InputStream pdfInputStream,
-            Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException {
+    private void saveRedactedDocument(PDDocument redactedDoc, OutputStream outputStream) throws IOException {
+        if (linearizedOutput) {
+            new PdfLinearizer(redactedDoc).write(outputStream);
+        } else {
+            redactedDoc.save(outputStream);
+        }
+    }
 
-        PDDocument pddDoc;
+    /**
+     * This method loads the pdf file
+     *
+     * @param pdfInputStream input pdf file
+     * @return - the loaded pdf file
+     * @throws IOException if it is unable to opens the pdf file
+     */
+    @Logging
+    private PDDocument loadDocument(InputStream pdfInputStream) throws IOException {
         try {
-            pddDoc = PDDocument.load(pdfInputStream);
+            return PDDocument.load(pdfInputStream);
         } catch (IOException ioException) {
             log.error("Unable to load pdf file");
             throw ioException;
         }
+    }
 
-        for (int pageIndex = 0; pageIndex < pddDoc.getNumberOfPages(); pageIndex++) {
-            PDPage page = pddDoc.getPage(pageIndex);
-            String pageKey = String.valueOf(pageIndex + 1);
-            PDRectangle pageDims = page.getMediaBox();
-            try (PDPageContentStream contentStream = new PDPageContentStream(
-                    pddDoc,
-                    page,
-                    PDPageContentStream.AppendMode.APPEND,
-                    true,
-                    true)) {
-                contentStream.setNonStrokingColor(Color.BLACK);
-
-                List<BoundingBox> currentPageBboxes = boundingBoxesByPage.get(pageKey);
-                log.info("Drawing rectangles for {} entities on page {}", currentPageBboxes.size(), pageKey);
-
-                for (BoundingBox boundingBox : currentPageBboxes) {
-                    // Since bbox is normalized on [0,1] for textract output, we need to multiple by
-                    // the dimensions of the page in order to get coordinates in pdf space.
-                    // Further, coordinates in textract are relative to the top left, while pdfbox
-                    // is bottom left. Hence the transformation below of boundingBox.top to the 'y'
-                    // argument of addRect
-                    if (boundingBox != null) {
-                        contentStream.addRect(
-                                (float) boundingBox.getLeft() * pageDims.getWidth(),
-                                (float) (pageDims.getHeight() * (1 - (boundingBox.getTop() + boundingBox.getHeight()))),
-                                (float) boundingBox.getWidth() * pageDims.getWidth(),
-                                (float) boundingBox.getHeight() * pageDims.getHeight());
-                    }
+    /**
+     * Applies the permanent raster redaction on an already loaded pdf file. Used
+     * by other pdf redactors when a document can't be handled in any other way.
+     * The document is closed once done.
+     *
+     * @param pddDoc              input pdf file
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @param outputStream        where the image based pdf file, where the black
+     *                            boxes are permanent, is written to
+     * @throws IOException if it is unable to draw, render or save the pdf file
+     */
+    void redactDocument(PDDocument pddDoc, Map<String, List<BoundingBox>> boundingBoxesByPage,
+            OutputStream outputStream) throws IOException {
+        applyPermanentRedaction(pddDoc, boundingBoxesByPage, outputStream);
+    }
+
+    /**
+     * Replaces the content of a single page with a rendered image of the page
+     * with its black boxes burned in. Used by other pdf redactors for pages they
+     * can't redact safely. The page object itself is kept, so links and outline
+     * entries pointing to it stay valid.
+     *
+     * @param pddDoc              pdf file containing the page
+     * @param pageIndex           zero-based index of the page to rasterize
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @throws IOException if the page can't be drawn on, rendered or encoded
+     */
+    void rasterizePage(PDDocument pddDoc, int pageIndex, Map<String, List<BoundingBox>> boundingBoxesByPage)
+            throws IOException {
+        int dpi = getPageDpi(pddDoc, pageIndex);
+        List<PDImageXObject> pageTiles = renderRedactedPage(pddDoc, newRenderer(pddDoc), pageIndex, dpi,
+                boundingBoxesByPage, pddDoc, null);
+
+        // the rendered image already accounts for the crop box and the rotation of the page
+        float scale = POINTS_PER_INCH / dpi;
+        float width = pageTiles.get(0).getWidth() * scale;
+        float height = getTotalHeight(pageTiles) * scale;
+        PDPage page = pddDoc.getPage(pageIndex);
+        for (COSName key : RASTERIZED_PAGE_REMOVED_KEYS) {
+            page.getCOSObject().removeItem(key);
+        }
+        page.setMediaBox(new PDRectangle(width, height));
+        page.setRotation(0);
+        page.setResources(new PDResources());
+        try (PDPageContentStream contentStream = new PDPageContentStream(
+                pddDoc,
+                page,
+                PDPageContentStream.AppendMode.OVERWRITE,
+                true)) {
+            drawPageTiles(contentStream, pageTiles, scale);
+        }
+    }
+
+    /**
+     * Converts a bounding box into the rectangle it covers in pdf space.
+     *
+     * @param boundingBox - bounding box normalized on [0,1] relative to the top
+     *                    left of the page
+     * @param pageDims    - the media box of the page
+     * @return - the area to redact in pdf space
+     */
+    static Rectangle2D toPdfRectangle(BoundingBox boundingBox, PDRectangle pageDims) {
+        // Since bbox is normalized on [0,1] for textract output, we need to multiple by
+        // the dimensions of the page in order to get coordinates in pdf space.
+        // Further, coordinates in textract are relative to the top left, while pdfbox
+        // is bottom left. Hence the transformation below of boundingBox.top to the 'y'
+        // argument of addRect
+        return new Rectangle2D.Float(
+                (float) boundingBox.getLeft() * pageDims.getWidth(),
+                (float) (pageDims.getHeight() * (1 - (boundingBox.getTop() + boundingBox.getHeight()))),
+                (float) boundingBox.getWidth() * pageDims.getWidth(),
+                (float) boundingBox.getHeight() * pageDims.getHeight());
+    }
+
+    /**
+     * Draws the black boxes for a single page of the pdf file. Pages without any
+     * bounding boxes are left untouched.
+     *
+     * @param pddDoc              pdf file to draw on
+     * @param pageIndex           zero-based index of the page to draw on
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @throws IOException if there are issues with drawing rectangles
+     */
+    void drawPageRectangles(PDDocument pddDoc, int pageIndex,
+            Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException {
+        PDPage page = pddDoc.getPage(pageIndex);
+        String pageKey = String.valueOf(pageIndex + 1);
+        PDRectangle pageDims = page.getMediaBox();
+        try (PDPageContentStream contentStream = new PDPageContentStream(
+                pddDoc,
+                page,
+                PDPageContentStream.AppendMode.APPEND,
+                true,
+                true)) {
+            contentStream.setNonStrokingColor(Color.BLACK);
+
+            List<BoundingBox> currentPageBboxes = boundingBoxesByPage.get(pageKey);
+            log.info("Drawing rectangles for {} entities on page {}", currentPageBboxes.size(), pageKey);
+
+            for (BoundingBox boundingBox : currentPageBboxes) {
+                if (boundingBox != null) {
+                    Rectangle2D rectangle = toPdfRectangle(boundingBox, pageDims);
+                    contentStream.addRect(
+                            (float) rectangle.getX(),
+                            (float) rectangle.getY(),
+                            (float) rectangle.getWidth(),
+                            (float) rectangle.getHeight());
                 }
-                contentStream.fill();
-            } catch (NullPointerException e) {
-                log.info("No bounding boxes provided for page {}. Skipping.", pageKey);
-            } catch (IOException ioException) {
-                log.error("Unable to draw rectangles on pdf file");
-                pddDoc.close();
-                throw ioException;
             }
-
+            contentStream.fill();
+        } catch (NullPointerException e) {
+            log.info("No bounding boxes provided for page {}. Skipping.", pageKey);
+        } catch (IOException ioException) {
+            log.error("Unable to draw rectangles on pdf file");
+            throw ioException;
         }
-        return pddDoc;
     }
 
     /**
-     * This method applies black boxes permanently on the pdf file by converting
-     * them into images.
+     * This method draws black boxes on the pdf file and applies them permanently
+     * by converting the pages into images.
      * And finally convert the images back into a pdf file.
      *
-     * @param doc - input pdf file with black-boxes on top
-     * @return - an image based pdf file where the black boxes are permanent
+     * @param doc                 - input pdf file
+     * @param boundingBoxesByPage - bounding-box information mapped with page
+     *                            number
+     * @param outputStream        - where the image based pdf file, where the
+     *                            black boxes are permanent, is written to
      * @throws IOException if three's any error rendering the image or opening the
      *                     image as a pdf page
      */
-    private ByteArrayOutputStream applyPermanentRedaction(PDDocument doc) throws IOException {
-        PDPageContentStream contentStream = null;
+    private void applyPermanentRedaction(PDDocument doc, Map<String, List<BoundingBox>> boundingBoxesByPage,
+            OutputStream outputStream) throws IOException {
         try (PDDocument redactedDoc = new PDDocument()) {
-            PDFRenderer renderer = new PDFRenderer(doc);
+            PDFRenderer renderer = newRenderer(doc);
+            PageImageDeduplicator imageDeduplicator = newImageDeduplicator();
             for (int index = 0; index < doc.getNumberOfPages(); index++) {
+                if (isCopiedThrough(index, boundingBoxesByPage)
+                        || redactImagePage(doc, index, boundingBoxesByPage)) {
+                    copyPage(redactedDoc, doc.getPage(index));
+                    continue;
+                }
                 // Render the page to an image
-                BufferedImage image = renderer.renderImageWithDPI(index, pdfQuality, imageType);
-
-                // image to pdf
-                PDPage newPage = new PDPage(new PDRectangle(image.getWidth(), image.getHeight()));
-                redactedDoc.addPage(newPage);
-                PDImageXObject pdImage = LosslessFactory.createFromImage(redactedDoc, image);
-                contentStream = new PDPageContentStream(
-                        redactedDoc,
-                        newPage,
-                        PDPageContentStream.AppendMode.OVERWRITE,
-                        true);
-                contentStream.drawImage(pdImage, 0, 0);
-                contentStream.close();
-            }
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            redactedDoc.save(byteArrayOutputStream);
-            return byteArrayOutputStream;
+                int dpi = getPageDpi(doc, index);
+                appendImagePage(redactedDoc,
+                        renderRedactedPage(doc, renderer, index, dpi, boundingBoxesByPage, redactedDoc,
+                                imageDeduplicator), dpi);
+            }
+            saveRedactedDocument(redactedDoc, outputStream);
         } catch (IOException ioException) {
             log.error("Unable to apply redaction permanently on pdf file");
             throw ioException;
         } finally {
-            if (contentStream != null) {
-                contentStream.close();
-            }
             doc.close();
         }
     }
+
+    /**
+     * Redacts the pdf file one page at a time. Each page gets its black boxes
+     * drawn, is rendered and is encoded into the output before the next page is
+     * touched, so only a single rendered page is live at any point. Both the input
+     * and the output documents keep at most {@code PDF_MAX_MAIN_MEMORY_MB} of
+     * stream data in heap and spill the rest to scratch files, which keeps peak
+     * heap usage roughly constant regardless of the number of pages.
+     *
+     * @param pdfInputStream      input pdf file
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @param outputStream        where the image based pdf file, where the black
+     *                            boxes are permanent, is written to
+     * @throws IOException if it is unable to load, render or save the pdf file
+     */
+    private void processDocumentStreaming(InputStream pdfInputStream,
+            Map<String, List<BoundingBox>> boundingBoxesByPage, OutputStream outputStream) throws IOException {
+        MemoryUsageSetting memoryUsageSetting = getMemoryUsageSetting();
+
+        PDDocument pddDoc;
+        try {
+            pddDoc = PDDocument.load(pdfInputStream, memoryUsageSetting);
+        } catch (IOException ioException) {
+            log.error("Unable to load pdf file");
+            throw ioException;
+        }
+
+        try (PDDocument redactedDoc = new PDDocument(memoryUsageSetting)) {
+            // pages are only rendered once, so caching their fonts and images would only
+            // grow the heap with every page processed
+            pddDoc.setResourceCache(null);
+            PDFRenderer renderer = newRenderer(pddDoc);
+            PageImageDeduplicator imageDeduplicator = newImageDeduplicator();
+            for (int index = 0; index < pddDoc.getNumberOfPages(); index++) {
+                if (isCopiedThrough(index, boundingBoxesByPage)
+                        || redactImagePage(pddDoc, index, boundingBoxesByPage)) {
+                    copyPage(redactedDoc, pddDoc.getPage(index));
+                    continue;
+                }
+                int dpi = getPageDpi(pddDoc, index);
+                appendImagePage(redactedDoc,
+                        renderRedactedPage(pddDoc, renderer, index, dpi, boundingBoxesByPage, redactedDoc,
+                                imageDeduplicator), dpi);
+            }
+            saveRedactedDocument(redactedDoc, outputStream);
+        } catch (IOException ioException) {
+            log.error("Unable to apply redaction permanently on pdf file");
+            throw ioException;
+        } finally {
+            pddDoc.close();
+        }
+    }
+
+    /**
+     * Redacts the pdf file in three stages joined by bounded queues, so that a
+     * page is rendered while the previous page is encoded and the one before it
+     * is added to the redacted document. The render stage draws the black boxes
+     * and renders the pages, the encode stage compresses them into a document of
+     * its own, and the assemble stage, on the calling thread, builds and saves
+     * the redacted document. Pages go through the stages tile by tile, so tiled
+     * rendering still bounds the raster memory. When the page cache is enabled,
+     * pages rendered whole are looked up in it by the render stage and added to
+     * it by the encode stage. Pdfbox documents aren't thread safe, so the render
+     * and assemble stages take turns on the input document. The share of time
+     * each stage was busy is logged at the end, the busiest stage being the
+     * bottleneck.
+     *
+     * @param pdfInputStream      input pdf file
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @param outputStream        where the image based pdf file, where the black
+     *                            boxes are permanent, is written to
+     * @throws IOException if it is unable to load, render or save the pdf file
+     */
+    private void processDocumentPipelined(InputStream pdfInputStream,
+            Map<String, List<BoundingBox>> boundingBoxesByPage, OutputStream outputStream) throws IOException {
+        MemoryUsageSetting memoryUsageSetting = getMemoryUsageSetting();
+
+        PDDocument pddDoc;
+        try {
+            pddDoc = PDDocument.load(pdfInputStream, memoryUsageSetting);
+        } catch (IOException ioException) {
+            log.error("Unable to load pdf file");
+            throw ioException;
+        }
+
+        long start = System.nanoTime();
+        BlockingQueue<PipelineTile> renderedTiles = new ArrayBlockingQueue<>(Constants.PDF_PIPELINE_QUEUE_CAPACITY);
+        BlockingQueue<PipelineTile> encodedTiles = new ArrayBlockingQueue<>(Constants.PDF_PIPELINE_QUEUE_CAPACITY);
+        PipelineStage renderStage = new PipelineStage("render");
+        PipelineStage encodeStage = new PipelineStage("encode");
+        PipelineStage assembleStage = new PipelineStage("assemble");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (PDDocument cacheDoc = new PDDocument(memoryUsageSetting);
+                PDDocument encodeDoc = new PDDocument(memoryUsageSetting);
+                PDDocument redactedDoc = new PDDocument(memoryUsageSetting)) {
+            // pages are only rendered once, so caching their fonts and images would only
+            // grow the heap with every page processed
+            pddDoc.setResourceCache(null);
+            Future<Void> renderResult = executor.submit(() -> {
+                runRenderStage(pddDoc, cacheDoc, boundingBoxesByPage, renderedTiles, renderStage);
+                return null;
+            });
+            Future<Void> encodeResult = executor.submit(() -> {
+                runEncodeStage(encodeDoc, newImageDeduplicator(), renderedTiles, encodedTiles, encodeStage);
+                return null;
+            });
+            runAssembleStage(pddDoc, redactedDoc, encodedTiles, assembleStage);
+            getWorkerResult(renderResult);
+            getWorkerResult(encodeResult);
+
+            assembleStage.begin();
+            saveRedactedDocument(redactedDoc, outputStream);
+            assembleStage.end();
+
+            long elapsed = System.nanoTime() - start;
+            for (PipelineStage stage : List.of(renderStage, encodeStage, assembleStage)) {
+                log.info("Pipeline stage {} was busy {} ms of {} ms ({}%) over {} pages and {} tiles",
+                        stage.getName(), stage.getBusyMillis(), elapsed / 1_000_000, stage.getOccupancy(elapsed),
+                        stage.getPages(), stage.getTiles());
+            }
+        } catch (IOException ioException) {
+            log.error("Unable to apply redaction permanently on pdf file");
+            throw ioException;
+        } finally {
+            executor.shutdownNow();
+            pddDoc.close();
+        }
+    }
+
+    /**
+     * Render stage of the pipeline: draws the black boxes of each page and
+     * renders it tile by tile. Pages which aren't rendered are passed on as is,
+     * and pages found in the page cache are passed on already encoded, their
+     * image copied into the cache document. The end of the pages is always
+     * signaled, even on failure, so the following stages don't wait forever.
+     */
+    private void runRenderStage(PDDocument pddDoc, PDDocument cacheDoc,
+            Map<String, List<BoundingBox>> boundingBoxesByPage, BlockingQueue<PipelineTile> renderedTiles,
+            PipelineStage stage) throws IOException, InterruptedException {
+        try {
+            PDFRenderer renderer = newRenderer(pddDoc);
+            for (int index = 0; index < pddDoc.getNumberOfPages(); index++) {
+                int dpi = 0;
+                List<Rectangle> tiles = null;
+                String cacheKey = null;
+                PDImageXObject cachedImage = null;
+                stage.begin();
+                synchronized (pddDoc) {
+                    if (!isCopiedThrough(index, boundingBoxesByPage)
+                            && !redactImagePage(pddDoc, index, boundingBoxesByPage)) {
+                        PDPage page = pddDoc.getPage(index);
+                        dpi = getPageDpi(pddDoc, index);
+                        boolean tiled = tiledRendering && pageTileRenderer.needsTiles(page, dpi);
+                        if (pageCache != null && !tiled) {
+                            cacheKey = createPageCacheKey(pddDoc, index, dpi, boundingBoxesByPage);
+                            cachedImage = pageCache.get(cacheKey, cacheDoc);
+                        }
+                        if (cachedImage == null) {
+                            tiles = pageTileRenderer.getTiles(page, dpi, tiled);
+                            drawPageRectangles(pddDoc, index, boundingBoxesByPage);
+                        }
+                    }
+                }
+                stage.end();
+                stage.countPage();
+                if (cachedImage != null) {
+                    log.info("Reusing the cached rendering of page {}", index + 1);
+                    renderedTiles.put(new PipelineTile(index, dpi, null, cachedImage, null, true));
+                    continue;
+                }
+                if (tiles == null) {
+                    renderedTiles.put(new PipelineTile(index, 0, null, null, null, true));
+                    continue;
+                }
+                for (int tileIndex = 0; tileIndex < tiles.size(); tileIndex++) {
+                    BufferedImage image;
+                    stage.begin();
+                    synchronized (pddDoc) {
+                        image = pageTileRenderer.renderTile(renderer, index, dpi, tiles.get(tileIndex));
+                    }
+                    stage.end();
+                    stage.countTile();
+                    renderedTiles.put(
+                            new PipelineTile(index, dpi, image, null, cacheKey, tileIndex == tiles.size() - 1));
+                }
+            }
+        } finally {
+            renderedTiles.put(PipelineTile.END);
+        }
+    }
+
+    /**
+     * Encode stage of the pipeline: compresses each rendered tile into the encode
+     * document, adds the pages rendered whole to the page cache, and returns the
+     * raster buffers to the pool. On failure the
+     * remaining rendered tiles are drained, so the render stage isn't left
+     * blocked on a full queue.
+     */
+    private void runEncodeStage(PDDocument encodeDoc, PageImageDeduplicator imageDeduplicator,
+            BlockingQueue<PipelineTile> renderedTiles, BlockingQueue<PipelineTile> encodedTiles, PipelineStage stage)
+            throws IOException, InterruptedException {
+        boolean done = false;
+        try {
+            PipelineTile tile = renderedTiles.take();
+            while (tile != PipelineTile.END) {
+                PDImageXObject encodedImage = tile.encodedImage;
+                if (tile.image != null) {
+                    stage.begin();
+                    encodedImage = encodePageImage(encodeDoc, tile.image, imageDeduplicator);
+                    pageTileRenderer.releaseTile(tile.image);
+                    if (tile.cacheKey != null) {
+                        pageCache.put(tile.cacheKey, encodedImage);
+                    }
+                    stage.end();
+                    stage.countTile();
+                }
+                if (tile.lastTile) {
+                    stage.countPage();
+                }
+                encodedTiles.put(new PipelineTile(tile.pageIndex, tile.dpi, null, encodedImage, null, tile.lastTile));
+                tile = renderedTiles.take();
+            }
+            done = true;
+        } finally {
+            if (!done) {
+                drainPipelineQueue(renderedTiles);
+            }
+            encodedTiles.put(PipelineTile.END);
+        }
+    }
+
+    /**
+     * Assemble stage of the pipeline: adds the pages to the redacted document in
+     * order, once all the tiles of a page are encoded. On failure the remaining
+     * encoded tiles are drained, so the other stages run to their end.
+     */
+    private void runAssembleStage(PDDocument pddDoc, PDDocument redactedDoc, BlockingQueue<PipelineTile> encodedTiles,
+            PipelineStage stage) throws IOException {
+        boolean done = false;
+        try {
+            List<PDImageXObject> pageTiles = new ArrayList<>();
+            PipelineTile tile = encodedTiles.take();
+            while (tile != PipelineTile.END) {
+                stage.begin();
+                if (tile.encodedImage == null) {
+                    synchronized (pddDoc) {
+                        copyPage(redactedDoc, pddDoc.getPage(tile.pageIndex));
+                    }
+                } else {
+                    pageTiles.add(tile.encodedImage);
+                    if (tile.lastTile) {
+                        appendImagePage(redactedDoc, pageTiles, tile.dpi);
+                        pageTiles = new ArrayList<>();
+                    }
+                }
+                stage.end();
+                if (tile.lastTile) {
+                    stage.countPage();
+                }
+                tile = encodedTiles.take();
+            }
+            done = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for pdf pages to encode", e);
+        } finally {
+            if (!done && !Thread.currentThread().isInterrupted()) {
+                drainPipelineQueue(encodedTiles);
+            }
+        }
+    }
+
+    /**
+     * Takes tiles off a pipeline queue until the end of the tiles, dropping them
+     */
+    private static void drainPipelineQueue(BlockingQueue<PipelineTile> tiles) {
+        try {
+            while (tiles.take() != PipelineTile.END) {
+                // the tiles of a failed pipeline are dropped
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Redacts the pdf file by rendering contiguous page ranges on
+     * {@code PDF_RENDER_WORKERS} threads. Pdfbox documents and renderers are not
+     * thread safe, so the input is spooled to a scratch file and every worker
+     * opens its own copy of the document, draws the black boxes on its pages,
+     * renders them and encodes the page images into a worker owned document. The
+     * encoded images are then assembled into the output in page order.
+     *
+     * @param pdfInputStream      input pdf file
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @param outputStream        where the image based pdf file, where the black
+     *                            boxes are permanent, is written to
+     * @throws IOException if it is unable to load, render or save the pdf file
+     */
+    private void processDocumentParallel(InputStream pdfInputStream,
+            Map<String, List<BoundingBox>> boundingBoxesByPage, OutputStream outputStream) throws IOException {
+        MemoryUsageSetting memoryUsageSetting = getMemoryUsageSetting();
+        Path sourceFile = Files.createTempFile(Path.of(Constants.PDF_SCRATCH_DIRECTORY), "redaction-", ".pdf");
+        List<PDDocument> workerDocs = new ArrayList<>();
+        PDDocument pddDoc = null;
+        ExecutorService executor = null;
+        try {
+            Files.copy(pdfInputStream, sourceFile, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                pddDoc = PDDocument.load(sourceFile.toFile(), memoryUsageSetting);
+            } catch (IOException ioException) {
+                log.error("Unable to load pdf file");
+                throw ioException;
+            }
+
+            int numberOfPages = pddDoc.getNumberOfPages();
+            List<Integer> pagesToRender = new ArrayList<>();
+            for (int index = 0; index < numberOfPages; index++) {
+                if (!isCopiedThrough(index, boundingBoxesByPage)
+                        && !redactImagePage(pddDoc, index, boundingBoxesByPage)) {
+                    pagesToRender.add(index);
+                }
+            }
+
+            int workers = Math.min(renderWorkers, Math.max(1, pagesToRender.size()));
+            int pagesPerWorker = (pagesToRender.size() + workers - 1) / workers;
+            log.info("Rendering {} of {} pages with {} workers", pagesToRender.size(), numberOfPages, workers);
+
+            List<List<PDImageXObject>> pageImages = new ArrayList<>(Collections.nCopies(numberOfPages, null));
+            int[] pageDpis = new int[numberOfPages];
+            List<Future<PDDocument>> futures = new ArrayList<>();
+            // shared by the workers, so identical pages are encoded once across page ranges
+            PageImageDeduplicator imageDeduplicator = newImageDeduplicator();
+            executor = Executors.newFixedThreadPool(workers);
+            for (int fromIndex = 0; fromIndex < pagesToRender.size(); fromIndex += pagesPerWorker) {
+                List<Integer> workerPages = pagesToRender.subList(fromIndex,
+                        Math.min(fromIndex + pagesPerWorker, pagesToRender.size()));
+                futures.add(executor.submit(() -> renderPages(sourceFile, memoryUsageSetting, workerPages,
+                        boundingBoxesByPage, pageImages, pageDpis, imageDeduplicator)));
+            }
+            for (Future<PDDocument> future : futures) {
+                workerDocs.add(getWorkerResult(future));
+            }
+
+            try (PDDocument redactedDoc = new PDDocument(memoryUsageSetting)) {
+                for (int index = 0; index < numberOfPages; index++) {
+                    if (pageImages.get(index) == null) {
+                        copyPage(redactedDoc, pddDoc.getPage(index));
+                    } else {
+                        appendImagePage(redactedDoc, pageImages.get(index), pageDpis[index]);
+                    }
+                }
+                saveRedactedDocument(redactedDoc, outputStream);
+            }
+        } catch (IOException ioException) {
+            log.error("Unable to apply redaction permanently on pdf file");
+            throw ioException;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            for (PDDocument workerDoc : workerDocs) {
+                workerDoc.close();
+            }
+            if (pddDoc != null) {
+                pddDoc.close();
+            }
+            Files.deleteIfExists(sourceFile);
+        }
+    }
+
+    /**
+     * Renders a set of pages of the pdf file on the calling thread, using its own
+     * instance of the document.
+     *
+     * @param sourceFile          the spooled input pdf file
+     * @param memoryUsageSetting  memory settings for the documents opened by the
+     *                            worker
+     * @param pageIndexes         zero-based indexes of the pages to render
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @param pageImages          receives the encoded image tiles of each rendered
+     *                            page
+     * @param pageDpis            receives the resolution of each rendered page
+     * @param imageDeduplicator   reuses the images of identical pages, or null
+     * @return - the document owning the encoded page images. It must be kept open
+     *         until the redacted document is saved.
+     * @throws IOException if it is unable to load or render the pages
+     */
+    private PDDocument renderPages(Path sourceFile, MemoryUsageSetting memoryUsageSetting, List<Integer> pageIndexes,
+            Map<String, List<BoundingBox>> boundingBoxesByPage, List<List<PDImageXObject>> pageImages, int[] pageDpis,
+            PageImageDeduplicator imageDeduplicator) throws IOException {
+        PDDocument workerDoc = new PDDocument(memoryUsageSetting);
+        try (PDDocument pddDoc = PDDocument.load(sourceFile.toFile(), memoryUsageSetting)) {
+            pddDoc.setResourceCache(null);
+            PDFRenderer renderer = newRenderer(pddDoc);
+            for (int index : pageIndexes) {
+                pageDpis[index] = getPageDpi(pddDoc, index);
+                pageImages.set(index, renderRedactedPage(pddDoc, renderer, index, pageDpis[index],
+                        boundingBoxesByPage, workerDoc, imageDeduplicator));
+            }
+            return workerDoc;
+        } catch (IOException ioException) {
+            workerDoc.close();
+            throw ioException;
+        }
+    }
+
+    /**
+     * Waits for a render worker to complete, unwrapping its failure.
+     *
+     * @param future - the render worker
+     * @return - the result of the worker
+     * @throws IOException if the worker failed or the wait got interrupted
+     */
+    private <T> T getWorkerResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for pdf pages to render", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to render pdf pages", e.getCause());
+        }
+    }
+
+    /**
+     * Memory settings for documents opened while redacting. When streaming is
+     * enabled stream data above {@code PDF_MAX_MAIN_MEMORY_MB} is spilled to
+     * scratch files, otherwise everything is kept in heap.
+     *
+     * @return - the memory settings to open documents with
+     */
+    private MemoryUsageSetting getMemoryUsageSetting() {
+        if (streamingEnabled) {
+            return MemoryUsageSetting.setupMixed(maxMainMemoryBytes)
+                    .setTempDir(new File(Constants.PDF_SCRATCH_DIRECTORY));
+        }
+        return MemoryUsageSetting.setupMainMemoryOnly();
+    }
+
+    /**
+     * Creates a renderer of a document using the subsampling and rendering hints
+     * of the quality profile, if any
+     *
+     * @param pddDoc - the document to render
+     * @return - the renderer
+     */
+    private PDFRenderer newRenderer(PDDocument pddDoc) {
+        PDFRenderer renderer = new PDFRenderer(pddDoc);
+        renderer.setSubsamplingAllowed(subsamplingAllowed);
+        if (renderingHints != null) {
+            renderer.setRenderingHints(renderingHints);
+        }
+        return renderer;
+    }
+
+    /**
+     * @return - the renderer settings affecting the rendered pages, so that pages
+     *         rendered with other settings can be told apart
+     */
+    private String getRendererSettings() {
+        return subsamplingAllowed + "|"
+                + (renderingHints == null ? "default" : renderingHints.get(RenderingHints.KEY_ANTIALIASING));
+    }
+
+    /**
+     * Computes the page cache key of a page, before its black boxes are drawn
+     *
+     * @param pddDoc              - the document containing the page
+     * @param pageIndex           - zero-based index of the page
+     * @param dpi                 - the resolution the page is rendered at
+     * @param boundingBoxesByPage - bounding-box information mapped with page
+     *                            number
+     * @return - the cache key of the rendered page
+     * @throws IOException if the page content can't be read
+     */
+    private String createPageCacheKey(PDDocument pddDoc, int pageIndex, int dpi,
+            Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException {
+        return RenderedPageCache.createKey(pddDoc.getPage(pageIndex),
+                boundingBoxesByPage.get(String.valueOf(pageIndex + 1)),
+                dpi + "|" + imageType + "|" + getRendererSettings() + "|" + pageImageEncoder.getSettings());
+    }
+
+    /**
+     * Draws the black boxes of a page, renders it and encodes the rendered image
+     * into the target document. When the page cache is enabled, a page which was
+     * already rendered with the same content, bounding boxes and settings is
+     * taken from the cache instead. With tiled rendering, pages over the pixel
+     * budget are rendered and encoded as several tiles. With a raster buffer
+     * pool, pages are rendered into pooled buffers. With an image deduplicator,
+     * pages identical to an earlier page reuse its image.
+     *
+     * @param pddDoc              - the document containing the page
+     * @param renderer            - renderer of the document
+     * @param pageIndex           - zero-based index of the page
+     * @param dpi                 - the resolution to render the page at
+     * @param boundingBoxesByPage - bounding-box information mapped with page
+     *                            number
+     * @param targetDoc           - the document which will own the encoded image
+     * @param imageDeduplicator   - reuses the images of identical pages, or null
+     * @return - the encoded page image tiles, from top to bottom
+     * @throws IOException if the page can't be drawn on, rendered or encoded
+     */
+    private List<PDImageXObject> renderRedactedPage(PDDocument pddDoc, PDFRenderer renderer, int pageIndex, int dpi,
+            Map<String, List<BoundingBox>> boundingBoxesByPage, PDDocument targetDoc,
+            PageImageDeduplicator imageDeduplicator) throws IOException {
+        if (tiledRendering && pageTileRenderer.needsTiles(pddDoc.getPage(pageIndex), dpi)) {
+            drawPageRectangles(pddDoc, pageIndex, boundingBoxesByPage);
+            List<PDImageXObject> pageTiles = pageTileRenderer.render(renderer, pddDoc.getPage(pageIndex), pageIndex,
+                    dpi, tile -> encodePageImage(targetDoc, tile, imageDeduplicator));
+            log.info("Rendered page {} in {} tiles", pageIndex + 1, pageTiles.size());
+            return pageTiles;
+        }
+
+        String cacheKey = null;
+        if (pageCache != null) {
+            cacheKey = createPageCacheKey(pddDoc, pageIndex, dpi, boundingBoxesByPage);
+            PDImageXObject cachedImage = pageCache.get(cacheKey, targetDoc);
+            if (cachedImage != null) {
+                log.info("Reusing the cached rendering of page {}", pageIndex + 1);
+                return List.of(cachedImage);
+            }
+        }
+
+        drawPageRectangles(pddDoc, pageIndex, boundingBoxesByPage);
+        PDImageXObject pdImage;
+        if (rasterBufferPool != null) {
+            pdImage = pageTileRenderer.renderWhole(renderer, pddDoc.getPage(pageIndex), pageIndex, dpi,
+                    image -> encodePageImage(targetDoc, image, imageDeduplicator));
+        } else {
+            pdImage = encodePageImage(targetDoc, renderer.renderImageWithDPI(pageIndex, dpi, imageType),
+                    imageDeduplicator);
+        }
+        if (cacheKey != null) {
+            pageCache.put(cacheKey, pdImage);
+        }
+        return List.of(pdImage);
+    }
+
+    /**
+     * Picks the resolution a page is rendered at. With adaptive resolution,
+     * scanned pages are rendered at the resolution of the scan, bounded by
+     * {@code PDF_MAX_DPI}. Unless they are rendered in tiles, pages too large
+     * for the pixel budget are rendered at a lower resolution.
+     *
+     * @param pddDoc    - the document containing the page
+     * @param pageIndex - zero-based index of the page
+     * @return - the resolution to render the page at
+     * @throws IOException if the page content can't be parsed
+     */
+    private int getPageDpi(PDDocument pddDoc, int pageIndex) throws IOException {
+        PDPage page = pddDoc.getPage(pageIndex);
+        int dpi = adaptiveDpi ? pageDpiResolver.resolve(page) : pdfQuality;
+        if (!tiledRendering) {
+            dpi = pagePixelBudget.fit(page, pageIndex, dpi);
+        }
+        if (adaptiveDpi) {
+            log.info("Rendering page {} at {}-dpi", pageIndex + 1, dpi);
+        }
+        return dpi;
+    }
+
+    /**
+     * Encodes a rendered page so it can be drawn on a page of the redacted
+     * document.
+     *
+     * @param targetDoc         - the document which will own the encoded image
+     * @param image             - the rendered page
+     * @param imageDeduplicator - reuses the images of identical pages, or null
+     * @return - the encoded page image
+     * @throws IOException if the image can't be encoded
+     */
+    private PDImageXObject encodePageImage(PDDocument targetDoc, BufferedImage image,
+            PageImageDeduplicator imageDeduplicator) throws IOException {
+        if (imageDeduplicator == null) {
+            return pageImageEncoder.encode(targetDoc, image);
+        }
+        return imageDeduplicator.encode(image, page -> pageImageEncoder.encode(targetDoc, page));
+    }
+
+    /**
+     * @return - a deduplicator for the pages of a redacted document, or null when
+     *         image deduplication isn't enabled
+     */
+    private PageImageDeduplicator newImageDeduplicator() {
+        return imageDeduplication ? new PageImageDeduplicator() : null;
+    }
+
+    /**
+     * Adds a new page to the redacted document which only contains the given
+     * page image tiles. When untouched pages are copied through, or pages are rendered
+     * at different resolutions, the page keeps the size of the original page so
+     * all pages of the output share the same scale. Otherwise the page is sized
+     * to the pixel dimensions the image would have at {@code PDF_QUALITY}.
+     *
+     * @param redactedDoc - the document to append the page to
+     * @param pageTiles   - the encoded page image tiles, from top to bottom
+     * @param dpi         - the resolution the page image was rendered at
+     * @throws IOException if the image can't be drawn on the new page
+     */
+    private void appendImagePage(PDDocument redactedDoc, List<PDImageXObject> pageTiles, int dpi)
+            throws IOException {
+        float scale = (selectiveRasterization || adaptiveDpi ? POINTS_PER_INCH : pdfQuality) / dpi;
+        float width = pageTiles.get(0).getWidth() * scale;
+        float height = getTotalHeight(pageTiles) * scale;
+        PDPage newPage = new PDPage(new PDRectangle(width, height));
+        redactedDoc.addPage(newPage);
+        try (PDPageContentStream contentStream = new PDPageContentStream(
+                redactedDoc,
+                newPage,
+                PDPageContentStream.AppendMode.OVERWRITE,
+                true)) {
+            drawPageTiles(contentStream, pageTiles, scale);
+        }
+    }
+
+    /**
+     * Draws page image tiles below each other, starting from the top of the page.
+     *
+     * @param contentStream - the content stream of the page
+     * @param pageTiles     - the page image tiles, from top to bottom
+     * @param scale         - the size of a pixel in pdf units
+     * @throws IOException if the tiles can't be drawn
+     */
+    private static void drawPageTiles(PDPageContentStream contentStream, List<PDImageXObject> pageTiles, float scale)
+            throws IOException {
+        int rowsBelow = getTotalHeight(pageTiles);
+        for (PDImageXObject tile : pageTiles) {
+            rowsBelow -= tile.getHeight();
+            contentStream.drawImage(tile, 0, rowsBelow * scale, tile.getWidth() * scale, tile.getHeight() * scale);
+        }
+    }
+
+    /**
+     * @param pageTiles - the page image tiles
+     * @return - the height of the page image in pixels
+     */
+    private static int getTotalHeight(List<PDImageXObject> pageTiles) {
+        int height = 0;
+        for (PDImageXObject tile : pageTiles) {
+            height += tile.getHeight();
+        }
+        return height;
+    }
+
+    /**
+     * Redacts a page made of a single full-page image, such as a scan, by
+     * blacking out the pixels under its bounding boxes and swapping the redacted
+     * image into the page. The image keeps its kind of compression and the page
+     * is not rendered, so it can be copied into the redacted document. A page
+     * without bounding boxes is copied with its image unchanged. Only done when
+     * {@code PDF_DIRECT_IMAGE_REDACTION} is enabled.
+     *
+     * @param pddDoc              pdf file containing the page
+     * @param pageIndex           zero-based index of the page
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @return - true if the page was redacted, false if it must be rasterized
+     * @throws IOException if the image can't be decoded or encoded
+     */
+    private boolean redactImagePage(PDDocument pddDoc, int pageIndex,
+            Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException {
+        if (!directImageRedaction) {
+            return false;
+        }
+        PDPage page = pddDoc.getPage(pageIndex);
+        ImageOnlyPageDetector detector = new ImageOnlyPageDetector(page);
+        if (!detector.detect() || detector.getImageName() == null) {
+            return false;
+        }
+
+        List<Rectangle2D> redactionAreas = new ArrayList<>();
+        List<BoundingBox> pageBoundingBoxes = boundingBoxesByPage.get(String.valueOf(pageIndex + 1));
+        if (pageBoundingBoxes != null) {
+            for (BoundingBox boundingBox : pageBoundingBoxes) {
+                if (boundingBox != null) {
+                    redactionAreas.add(toPdfRectangle(boundingBox, page.getMediaBox()));
+                }
+            }
+        }
+        if (redactionAreas.isEmpty()) {
+            // nothing to redact, the image is kept as it is rather than decoded and encoded again
+            log.info("Copying the image of page {} without redactions", pageIndex + 1);
+            return true;
+        }
+        log.info("Redacting the image of page {} directly", pageIndex + 1);
+        PDImageXObject redactedImage = PdfImageUtils.redactImage(pddDoc, detector.getImage(),
+                detector.getImageMatrix(), redactionAreas);
+        PDResources resources = PdfImageUtils.copyPageResources(page);
+        resources.put(detector.getImageName(), redactedImage);
+        page.setResources(resources);
+        for (COSName key : PdfImageUtils.REDACTED_PAGE_REMOVED_KEYS) {
+            page.getCOSObject().removeItem(key);
+        }
+        return true;
+    }
+
+    /**
+     * Whether the page is copied into the redacted document as-is instead of
+     * being rasterized. This is only the case for pages without any bounding
+     * boxes when {@code PDF_SELECTIVE_RASTERIZATION} is enabled.
+     *
+     * @param pageIndex           zero-based index of the page
+     * @param boundingBoxesByPage bounding-box information mapped with page number
+     * @return - true if the page does not need to be rasterized
+     */
+    private boolean isCopiedThrough(int pageIndex, Map<String, List<BoundingBox>> boundingBoxesByPage) {
+        if (!selectiveRasterization) {
+            return false;
+        }
+        List<BoundingBox> pageBoundingBoxes = boundingBoxesByPage.get(String.valueOf(pageIndex + 1));
+        return pageBoundingBoxes == null || pageBoundingBoxes.stream().allMatch(Objects::isNull);
+    }
+
+    /**
+     * Copies an untouched page of the input into the redacted document. The
+     * source document must be kept open until the redacted document is saved.
+     * Annotations are kept for their appearance, but any reference from them to
+     * other pages, form fields or actions is dropped. Otherwise saving the output
+     * would also write the objects they point to, which can include the
+     * unredacted versions of the other pages.
+     *
+     * @param redactedDoc - the document to append the page to
+     * @param sourcePage  - the page to copy
+     * @throws IOException if the page contents can't be copied
+     */
+    private void copyPage(PDDocument redactedDoc, PDPage sourcePage) throws IOException {
+        PDPage copiedPage = redactedDoc.importPage(sourcePage);
+        COSDictionary pageDict = copiedPage.getCOSObject();
+        pageDict.removeItem(COSName.B);
+        pageDict.removeItem(COSName.STRUCT_PARENTS);
+
+        COSBase annotations = pageDict.getDictionaryObject(COSName.ANNOTS);
+        if (annotations instanceof COSArray) {
+            COSArray copiedAnnotations = new COSArray();
+            for (COSBase annotation : (COSArray) annotations) {
+                COSBase annotationDict = annotation instanceof COSObject ? ((COSObject) annotation).getObject()
+                        : annotation;
+                if (annotationDict instanceof COSDictionary) {
+                    COSDictionary copiedAnnotation = new COSDictionary((COSDictionary) annotationDict);
+                    for (COSName key : UNSAFE_ANNOTATION_KEYS) {
+                        copiedAnnotation.removeItem(key);
+                    }
+                    copiedAnnotations.add(copiedAnnotation);
+                }
+            }
+            pageDict.setItem(COSName.ANNOTS, copiedAnnotations);
+        }
+    }
+
+    /**
+     * A rendered or encoded tile going through the pipeline. A tile without image
+     * stands for a page copied without being rendered. A rendered tile with a
+     * cache key is a whole page, to be added to the page cache once encoded.
+     */
+    private static final class PipelineTile {
+        /**
+         * Signals that there are no more tiles
+         */
+        static final PipelineTile END = new PipelineTile(-1, 0, null, null, null, true);
+
+        final int pageIndex;
+        final int dpi;
+        final BufferedImage image;
+        final PDImageXObject encodedImage;
+        final String cacheKey;
+        final boolean lastTile;
+
+        PipelineTile(int pageIndex, int dpi, BufferedImage image, PDImageXObject encodedImage, String cacheKey,
+                boolean lastTile) {
+            this.pageIndex = pageIndex;
+            this.dpi = dpi;
+            this.image = image;
+            this.encodedImage = encodedImage;
+            this.cacheKey = cacheKey;
+            this.lastTile = lastTile;
+        }
+    }
 }
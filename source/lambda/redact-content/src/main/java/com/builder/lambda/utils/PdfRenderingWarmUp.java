@@ -0,0 +1,139 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+/**
+ * Pays the one time costs of pdf rendering while the lambda environment is
+ * initialized rather than during the first redaction: PDFBox scanning the
+ * system fonts to build its font cache, loading the fallback fonts used for
+ * non-embedded fonts, and initializing Java2D.
+ */
+public final class PdfRenderingWarmUp {
+    private static final Logger log = LogManager.getLogger(PdfRenderingWarmUp.class);
+
+    /**
+     * Fallback font shipped with PDFBox, embedded in the warm-up document to
+     * also load the parsers of embedded fonts
+     */
+    private static final String EMBEDDED_FONT_RESOURCE = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    /**
+     * System property holding the directory of the PDFBox font cache
+     */
+    static final String FONT_CACHE_PROPERTY = "pdfbox.fontcache";
+
+    private static boolean warmedUp = false;
+
+    /**
+     * Private constructor to hide default public constructor for utility class
+     */
+    private PdfRenderingWarmUp() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Renders a small document using the common non-embedded fonts, once per
+     * lambda environment. Setting PDF_WARM_UP to false skips the warm-up.
+     * Setting PDF_FONT_CACHE to the path of a font cache built ahead of time,
+     * e.g. in a layer, seeds the PDFBox font cache with it.
+     */
+    public static synchronized void warmUp() {
+        if (warmedUp || "false".equalsIgnoreCase(System.getenv("PDF_WARM_UP"))) {
+            return;
+        }
+        warmedUp = true;
+        long start = System.nanoTime();
+        if (System.getenv("PDF_FONT_CACHE") != null) {
+            seedFontCache(Path.of(System.getenv("PDF_FONT_CACHE")), Path.of(Constants.PDF_SCRATCH_DIRECTORY));
+        }
+        // CHECKSTYLE:OFF
+        try (PDDocument pddDoc = new PDDocument();
+                InputStream embeddedFont = PDFont.class.getResourceAsStream(EMBEDDED_FONT_RESOURCE)) {
+            PDPage page = new PDPage(PDRectangle.A6);
+            pddDoc.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(pddDoc, page)) {
+                float y = page.getMediaBox().getHeight();
+                for (PDFont font : getWarmUpFonts()) {
+                    y = showText(contentStream, font, y);
+                }
+                showText(contentStream, PDType0Font.load(pddDoc, embeddedFont), y);
+                contentStream.drawImage(LosslessFactory.createFromImage(pddDoc,
+                        new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB)), 10, 10, 8, 8);
+            }
+            BufferedImage image = new PDFRenderer(pddDoc).renderImageWithDPI(0, Constants.DEFAULT_PDF_QUALITY,
+                    ImageType.RGB);
+            // encoding rendered pages is the next step of a redaction
+            LosslessFactory.createFromImage(pddDoc, image);
+            log.info("Warmed up pdf rendering in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // the first redaction pays the initialization costs instead
+            log.warn("Unable to warm up pdf rendering", e);
+        }
+        // CHECKSTYLE:ON
+    }
+
+    /**
+     * Returns the fonts which aren't embedded in most documents, and are mapped to
+     * system or fallback fonts when rendered. They are only built once the font
+     * cache is seeded, as building them makes PDFBox read or build its font cache.
+     */
+    private static PDFont[] getWarmUpFonts() {
+        return new PDFont[] { PDType1Font.HELVETICA, PDType1Font.HELVETICA_BOLD, PDType1Font.TIMES_ROMAN,
+                PDType1Font.COURIER, PDType1Font.SYMBOL };
+    }
+
+    /**
+     * Shows a line of text, and returns the position of the next line
+     */
+    private static float showText(PDPageContentStream contentStream, PDFont font, float y) throws IOException {
+        float lineY = y - 20;
+        contentStream.beginText();
+        contentStream.setFont(font, 12);
+        contentStream.newLineAtOffset(10, lineY);
+        contentStream.showText("abc");
+        contentStream.endText();
+        return lineY;
+    }
+
+    /**
+     * Copies a font cache built ahead of time to a writable directory, and
+     * points PDFBox at it. PDFBox checks the cached entries against the font
+     * files, and rebuilds the cache if it doesn't match the installed fonts. It
+     * only reads the location of the cache when the first font is built.
+     *
+     * @param prebuiltFontCache - the font cache built ahead of time
+     * @param directory         - the directory PDFBox keeps its font cache in
+     */
+    static void seedFontCache(Path prebuiltFontCache, Path directory) {
+        Path fontCache = directory.resolve(Constants.PDF_FONT_CACHE_FILE_NAME);
+        try {
+            if (!Files.exists(fontCache)) {
+                Files.copy(prebuiltFontCache, fontCache);
+            }
+            System.setProperty(FONT_CACHE_PROPERTY, directory.toString());
+            log.info("PDF_FONT_CACHE is: {}", prebuiltFontCache);
+        } catch (IOException e) {
+            log.warn("Unable to use the prebuilt font cache {}", prebuiltFontCache);
+        }
+    }
+}
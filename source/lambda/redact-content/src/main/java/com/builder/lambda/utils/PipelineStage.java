@@ -0,0 +1,91 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+/**
+ * Tracks how long a stage of a pipeline is busy, as opposed to waiting on the
+ * queues joining it to the other stages. The stage with the highest occupancy
+ * is the bottleneck of the pipeline. A stage is only used by the thread running
+ * it, and read once that thread is done.
+ */
+public class PipelineStage {
+    private static final long NANOS_PER_MILLI = 1_000_000;
+
+    private final String name;
+    private long busyNanos = 0;
+    private long busySince = 0;
+    private int pages = 0;
+    private int tiles = 0;
+
+    /**
+     * @param name name of the stage, for logging
+     */
+    public PipelineStage(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Marks the start of a piece of work
+     */
+    public void begin() {
+        busySince = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a piece of work
+     */
+    public void end() {
+        busyNanos += System.nanoTime() - busySince;
+    }
+
+    /**
+     * Counts a page the stage is done with
+     */
+    public void countPage() {
+        pages++;
+    }
+
+    /**
+     * Counts a tile the stage rendered or encoded
+     */
+    public void countTile() {
+        tiles++;
+    }
+
+    /**
+     * @return the name of the stage
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of pages the stage is done with
+     */
+    public int getPages() {
+        return pages;
+    }
+
+    /**
+     * @return the number of tiles the stage rendered or encoded
+     */
+    public int getTiles() {
+        return tiles;
+    }
+
+    /**
+     * @return the time the stage was busy, in milliseconds
+     */
+    public long getBusyMillis() {
+        return busyNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param elapsedNanos - the time the whole pipeline ran for
+     * @return - the share of that time the stage was busy, in percent
+     */
+    public long getOccupancy(long elapsedNanos) {
+        return elapsedNanos <= 0 ? 0 : Math.round(100.0 * busyNanos / elapsedNanos);
+    }
+}
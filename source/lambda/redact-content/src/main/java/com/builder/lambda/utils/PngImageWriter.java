@@ -0,0 +1,144 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * This class writes 8 bit gray, RGB and RGBA images as PNG files, with their
+ * scanlines compressed by a {@link ScanlineDeflater}, so that large images are
+ * compressed on several threads where ImageIO would use a single one.
+ */
+public class PngImageWriter {
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    /**
+     * Most compressed bytes held in a single IDAT chunk
+     */
+    private static final int MAX_IDAT_BYTES = 64 * 1024;
+
+    private static final int HEADER_BYTES = 13;
+    private static final int BIT_DEPTH = 8;
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    private final ScanlineDeflater scanlineDeflater;
+
+    /**
+     * @param scanlineDeflater compresses the scanlines of the images
+     */
+    public PngImageWriter(ScanlineDeflater scanlineDeflater) {
+        this.scanlineDeflater = scanlineDeflater;
+    }
+
+    /**
+     * @param image - the image to write
+     * @return - true if the image is of a type this writer supports
+     */
+    public static boolean supports(BufferedImage image) {
+        return ScanlineDeflater.getSamplesPerPixel(image) > 0;
+    }
+
+    /**
+     * Writes an image as a PNG file. The output stream is flushed but not closed.
+     *
+     * @param image        - the image, of a type this writer supports
+     * @param outputStream - where the PNG file is written to
+     * @throws IOException if the PNG file can't be written
+     */
+    public void write(BufferedImage image, OutputStream outputStream) throws IOException {
+        int colorType;
+        switch (ScanlineDeflater.getSamplesPerPixel(image)) {
+            case 1:
+                colorType = COLOR_TYPE_GRAY;
+                break;
+            case 3:
+                colorType = COLOR_TYPE_RGB;
+                break;
+            case 4:
+                colorType = COLOR_TYPE_RGBA;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported image type " + image.getType());
+        }
+        outputStream.write(SIGNATURE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(image.getWidth()).putInt(image.getHeight()).put((byte) BIT_DEPTH).put((byte) colorType);
+        // default compression, filtering and no interlacing
+        header.put((byte) 0).put((byte) 0).put((byte) 0);
+        writeChunk(outputStream, "IHDR", header.array(), HEADER_BYTES);
+
+        IdatOutputStream idat = new IdatOutputStream(outputStream);
+        scanlineDeflater.deflate(image, idat);
+        idat.writeBufferedChunk();
+        writeChunk(outputStream, "IEND", new byte[0], 0);
+        outputStream.flush();
+    }
+
+    /**
+     * Writes a PNG chunk: its length, type, data and the CRC of its type and data
+     */
+    static void writeChunk(OutputStream outputStream, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        outputStream.write(ByteBuffer.allocate(Integer.BYTES).putInt(length).array());
+        outputStream.write(typeBytes);
+        outputStream.write(data, 0, length);
+        outputStream.write(ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array());
+    }
+
+    /**
+     * Splits the compressed scanlines into IDAT chunks
+     */
+    static final class IdatOutputStream extends OutputStream {
+        private final OutputStream outputStream;
+        private final byte[] buffer = new byte[MAX_IDAT_BYTES];
+        private int buffered;
+
+        IdatOutputStream(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (buffered == buffer.length) {
+                writeBufferedChunk();
+            }
+            buffer[buffered++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            int written = 0;
+            while (written < length) {
+                if (buffered == buffer.length) {
+                    writeBufferedChunk();
+                }
+                int count = Math.min(length - written, buffer.length - buffered);
+                System.arraycopy(data, offset + written, buffer, buffered, count);
+                buffered += count;
+                written += count;
+            }
+        }
+
+        /**
+         * Writes the bytes buffered so far as an IDAT chunk
+         */
+        void writeBufferedChunk() throws IOException {
+            if (buffered > 0) {
+                writeChunk(outputStream, "IDAT", buffer, buffered);
+                buffered = 0;
+            }
+        }
+    }
+}
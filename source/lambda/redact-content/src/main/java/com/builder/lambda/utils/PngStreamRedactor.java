@@ -0,0 +1,487 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import com.builder.lambda.model.BoundingBox;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * This class redacts PNG files one scanline at a time, as they are read. Each
+ * scanline is inflated and unfiltered, the pixels of the bounding boxes it
+ * crosses are set to black, and it is filtered and deflated again into the
+ * redacted file. The memory used depends on the width of the image, not on its
+ * height, where decoding the image would hold all of its pixels.
+ *
+ * Non interlaced gray, RGB, gray with alpha and RGBA images of 8 or 16 bit
+ * samples are supported. Ancillary chunks other than those describing the
+ * colors and size of the pixels are dropped, as when the image is encoded
+ * again.
+ */
+public class PngStreamRedactor {
+
+    /**
+     * Size of the PNG signature and IHDR chunk
+     */
+    private static final int HEADER_BYTES = 33;
+
+    /**
+     * Most bytes of chunks read before the image data, which are read again by
+     * the decoding redactor when the file isn't supported
+     */
+    public static final int MAX_PREAMBLE_BYTES = 1024 * 1024;
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private static final int HEADER_DATA_BYTES = 13;
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_GRAY_ALPHA = 4;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Ancillary chunks describing how to display the pixels, which are kept
+     */
+    private static final Set<String> KEPT_CHUNKS = Set.of("cHRM", "gAMA", "iCCP", "sBIT", "sRGB", "bKGD", "pHYs",
+            "tRNS");
+
+    Logger log = LogManager.getLogger(PngStreamRedactor.class);
+
+    /**
+     * @param header - the first {@link #HEADER_BYTES} bytes of a file
+     * @return - true if the file is a PNG file of an image this class can redact
+     */
+    private static boolean supports(byte[] header) {
+        if (header.length < HEADER_BYTES || !Arrays.equals(header, 0, SIGNATURE.length, SIGNATURE, 0, SIGNATURE.length)
+                || !new String(header, 12, 4, StandardCharsets.US_ASCII).equals("IHDR")) {
+            return false;
+        }
+        ByteBuffer data = ByteBuffer.wrap(header, 16, HEADER_DATA_BYTES);
+        int width = data.getInt();
+        int height = data.getInt();
+        int bitDepth = data.get();
+        int colorType = data.get();
+        int compression = data.get();
+        int filter = data.get();
+        int interlace = data.get();
+        return width > 0 && height > 0 && (bitDepth == 8 || bitDepth == 16) && getChannels(colorType) > 0
+                && compression == 0 && filter == 0 && interlace == 0
+                && (long) width * getChannels(colorType) * bitDepth / 8 < Integer.MAX_VALUE - 1;
+    }
+
+    private static int getChannels(int colorType) {
+        switch (colorType) {
+            case COLOR_TYPE_GRAY:
+                return 1;
+            case COLOR_TYPE_GRAY_ALPHA:
+                return 2;
+            case COLOR_TYPE_RGB:
+                return 3;
+            case COLOR_TYPE_RGBA:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Redacts a PNG file as it is read. Nothing is written when the file can't
+     * be redacted this way, and the input stream is reset to be read again. The
+     * output stream is flushed but not closed.
+     *
+     * @param inputStream   - the PNG file, marked at most
+     *                      {@link #MAX_PREAMBLE_BYTES} bytes ahead and reset
+     *                      when the file can't be redacted
+     * @param boundingBoxes - the areas to redact, relative to the size of the
+     *                      image
+     * @param outputStream  - where the redacted PNG file is written to
+     * @return - true if the file was redacted, false if it should be decoded and
+     *         redacted instead
+     * @throws IOException if the file can't be read or is corrupted, if it has
+     *                     EXIF data after its image data, or if the redacted
+     *                     file can't be written
+     */
+    public boolean redact(InputStream inputStream, List<BoundingBox> boundingBoxes, OutputStream outputStream)
+            throws IOException {
+        inputStream.mark(MAX_PREAMBLE_BYTES);
+        ChunkReader reader = new ChunkReader(inputStream);
+        byte[] header = reader.readHeader();
+        ByteArrayOutputStream preamble = new ByteArrayOutputStream();
+        boolean supported = supports(header);
+        String type = supported ? reader.nextChunk() : "";
+        while (supported && !type.equals("IDAT")) {
+            // the image must be decoded to be oriented as its EXIF data says
+            if (type.equals("eXIf") || reader.position + reader.remaining + 12 > MAX_PREAMBLE_BYTES) {
+                supported = false;
+            } else {
+                copyChunk(reader, type, preamble);
+                type = reader.nextChunk();
+            }
+        }
+        if (!supported) {
+            log.info("PNG file can't be redacted a scanline at a time, it is decoded instead");
+            inputStream.reset();
+            return false;
+        }
+
+        ByteBuffer headerData = ByteBuffer.wrap(header, 16, HEADER_DATA_BYTES);
+        int width = headerData.getInt();
+        int height = headerData.getInt();
+        int bitDepth = headerData.get();
+        int colorType = headerData.get();
+        List<int[]> spans = getSpans(boundingBoxes, width, height);
+        log.info("Redacting PNG image of {}x{} pixels with {} bounding boxes", width, height, spans.size());
+
+        outputStream.write(header);
+        preamble.writeTo(outputStream);
+        PngImageWriter.IdatOutputStream idat = new PngImageWriter.IdatOutputStream(outputStream);
+        redactScanlines(new IdatInputStream(reader), width, height, getChannels(colorType) * bitDepth / 8,
+                hasAlpha(colorType) ? bitDepth / 8 : 0, spans, idat);
+        idat.writeBufferedChunk();
+
+        type = reader.type;
+        while (!type.equals("IEND")) {
+            // the orientation came too late, the pixels were already redacted as stored
+            if (type.equals("eXIf")) {
+                throw new IOException("PNG file has EXIF data after its image data");
+            }
+            copyChunk(reader, type, outputStream);
+            type = reader.nextChunk();
+        }
+        reader.checkCrc();
+        PngImageWriter.writeChunk(outputStream, "IEND", new byte[0], 0);
+        outputStream.flush();
+        return true;
+    }
+
+    private static boolean hasAlpha(int colorType) {
+        return colorType == COLOR_TYPE_GRAY_ALPHA || colorType == COLOR_TYPE_RGBA;
+    }
+
+    /**
+     * Writes the chunks describing the pixels, and skips the others
+     */
+    private static void copyChunk(ChunkReader reader, String type, OutputStream outputStream) throws IOException {
+        if (KEPT_CHUNKS.contains(type)) {
+            byte[] data = reader.readData();
+            PngImageWriter.writeChunk(outputStream, type, data, data.length);
+        } else if (Character.isUpperCase(type.charAt(0)) && !type.equals("PLTE")) {
+            throw new IOException("Unsupported critical chunk " + type);
+        } else {
+            // the palette of a true color image only suggests colors to display it with
+            reader.skipData();
+        }
+    }
+
+    /**
+     * Converts the bounding boxes to the pixels Graphics2D fills for them, as
+     * {top, bottom, left, right} ranges sorted by their top row
+     */
+    private static List<int[]> getSpans(List<BoundingBox> boundingBoxes, int width, int height) {
+        List<int[]> spans = new ArrayList<>();
+        for (BoundingBox boundingBox : boundingBoxes) {
+            if (boundingBox == null) {
+                continue;
+            }
+            // Graphics2D normalizes the edges of a filled rectangle to the pixel a quarter of a pixel after them
+            int left = toPixel(boundingBox.getLeft() * width, width);
+            int right = toPixel((boundingBox.getLeft() + boundingBox.getWidth()) * width, width);
+            int top = toPixel(boundingBox.getTop() * height, height);
+            int bottom = toPixel((boundingBox.getTop() + boundingBox.getHeight()) * height, height);
+            if (left < right && top < bottom) {
+                spans.add(new int[] { top, bottom, left, right });
+            }
+        }
+        spans.sort(Comparator.comparingInt(span -> span[0]));
+        return spans;
+    }
+
+    private static int toPixel(double coordinate, int max) {
+        return (int) Math.max(0, Math.min(max, Math.floor(coordinate + 0.25)));
+    }
+
+    /**
+     * Inflates, redacts, filters and deflates the scanlines of the image
+     */
+    private static void redactScanlines(InputStream idat, int width, int height, int bytesPerPixel,
+            int alphaBytes, List<int[]> spans, OutputStream outputStream) throws IOException {
+        int rowBytes = width * bytesPerPixel;
+        byte[] filtered = new byte[rowBytes + 1];
+        // the rows as decoded, and as redacted
+        byte[] previousRow = new byte[rowBytes];
+        byte[] row = new byte[rowBytes];
+        byte[] previousRedactedRow = new byte[rowBytes];
+        byte[] redactedRow = new byte[rowBytes];
+        byte[] previousOutputRow = previousRow;
+        byte[][] candidates = new byte[ScanlineDeflater.FILTER_TYPES][rowBytes + 1];
+        boolean previousRedacted = false;
+        List<int[]> activeSpans = new ArrayList<>();
+        int nextSpan = 0;
+
+        Inflater inflater = new Inflater();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            InflaterInputStream inflated = new InflaterInputStream(idat, inflater, BUFFER_BYTES);
+            DeflaterOutputStream deflated = new DeflaterOutputStream(outputStream, deflater, BUFFER_BYTES);
+            for (int y = 0; y < height; y++) {
+                if (inflated.readNBytes(filtered, 0, filtered.length) < filtered.length) {
+                    throw new EOFException("Image data ended at row " + y);
+                }
+                unfilterRow(filtered, previousRow, row, bytesPerPixel);
+
+                final int currentRow = y;
+                activeSpans.removeIf(span -> span[1] <= currentRow);
+                while (nextSpan < spans.size() && spans.get(nextSpan)[0] <= y) {
+                    activeSpans.add(spans.get(nextSpan++));
+                }
+                boolean redacted = !activeSpans.isEmpty();
+                byte[] outputRow = row;
+                if (redacted) {
+                    System.arraycopy(row, 0, redactedRow, 0, rowBytes);
+                    for (int[] span : activeSpans) {
+                        fillBlack(redactedRow, span[2], span[3], bytesPerPixel, alphaBytes);
+                    }
+                    outputRow = redactedRow;
+                }
+
+                if (redacted || previousRedacted) {
+                    deflated.write(ScanlineDeflater.filterRow(previousOutputRow, outputRow, bytesPerPixel, candidates));
+                } else {
+                    // rows away from the redacted areas keep the filter they were written with
+                    deflated.write(filtered);
+                }
+
+                byte[] swap = previousRow;
+                previousRow = row;
+                row = swap;
+                if (redacted) {
+                    swap = previousRedactedRow;
+                    previousRedactedRow = redactedRow;
+                    redactedRow = swap;
+                    previousOutputRow = previousRedactedRow;
+                } else {
+                    previousOutputRow = previousRow;
+                }
+                previousRedacted = redacted;
+            }
+            deflated.finish();
+            // reads the end of the zlib stream and of the IDAT chunks
+            idat.transferTo(OutputStream.nullOutputStream());
+        } finally {
+            inflater.end();
+            deflater.end();
+        }
+    }
+
+    /**
+     * Sets the pixels of a range of a row to opaque black
+     */
+    private static void fillBlack(byte[] row, int fromPixel, int toPixel, int bytesPerPixel, int alphaBytes) {
+        Arrays.fill(row, fromPixel * bytesPerPixel, toPixel * bytesPerPixel, (byte) 0);
+        if (alphaBytes > 0) {
+            for (int pixel = fromPixel; pixel < toPixel; pixel++) {
+                int alphaEnd = (pixel + 1) * bytesPerPixel;
+                Arrays.fill(row, alphaEnd - alphaBytes, alphaEnd, (byte) 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Reverses the PNG filter of a scanline
+     */
+    private static void unfilterRow(byte[] filtered, byte[] previous, byte[] row, int bytesPerPixel)
+            throws IOException {
+        int length = row.length;
+        switch (filtered[0]) {
+            case 0:
+                System.arraycopy(filtered, 1, row, 0, length);
+                break;
+            case 1:
+                for (int index = 0; index < length; index++) {
+                    int left = index >= bytesPerPixel ? row[index - bytesPerPixel] : 0;
+                    row[index] = (byte) (filtered[index + 1] + left);
+                }
+                break;
+            case 2:
+                for (int index = 0; index < length; index++) {
+                    row[index] = (byte) (filtered[index + 1] + previous[index]);
+                }
+                break;
+            case 3:
+                for (int index = 0; index < length; index++) {
+                    int left = index >= bytesPerPixel ? row[index - bytesPerPixel] & 0xFF : 0;
+                    row[index] = (byte) (filtered[index + 1] + ((left + (previous[index] & 0xFF)) >>> 1));
+                }
+                break;
+            case 4:
+                for (int index = 0; index < length; index++) {
+                    int left = index >= bytesPerPixel ? row[index - bytesPerPixel] & 0xFF : 0;
+                    int aboveLeft = index >= bytesPerPixel ? previous[index - bytesPerPixel] & 0xFF : 0;
+                    row[index] = (byte) (filtered[index + 1]
+                            + ScanlineDeflater.paeth(left, previous[index] & 0xFF, aboveLeft));
+                }
+                break;
+            default:
+                throw new IOException("Invalid filter type " + filtered[0]);
+        }
+    }
+
+    /**
+     * Reads the chunks of a PNG file, checking their CRC
+     */
+    private static final class ChunkReader {
+        private final DataInputStream inputStream;
+        private final CRC32 crc = new CRC32();
+        private String type;
+        private int remaining;
+        /**
+         * Number of bytes read from the file
+         */
+        private long position;
+
+        ChunkReader(InputStream inputStream) {
+            this.inputStream = new DataInputStream(inputStream);
+        }
+
+        /**
+         * Reads the signature and IHDR chunk of the file
+         */
+        byte[] readHeader() throws IOException {
+            byte[] header = inputStream.readNBytes(HEADER_BYTES);
+            position = header.length;
+            if (header.length < HEADER_BYTES || !new String(header, 12, 4, StandardCharsets.US_ASCII).equals("IHDR")) {
+                // not a PNG file, which the decoding redactor reports
+                return header;
+            }
+            crc.reset();
+            crc.update(header, 12, 4 + HEADER_DATA_BYTES);
+            if ((int) crc.getValue() != ByteBuffer.wrap(header, 29, 4).getInt()) {
+                throw new IOException("Invalid CRC of chunk IHDR");
+            }
+            return header;
+        }
+
+        /**
+         * Reads the length and type of the next chunk
+         *
+         * @return - the type of the chunk
+         */
+        String nextChunk() throws IOException {
+            remaining = inputStream.readInt();
+            byte[] typeBytes = new byte[4];
+            inputStream.readFully(typeBytes);
+            position += 8;
+            if (remaining < 0) {
+                throw new IOException("Invalid chunk length");
+            }
+            crc.reset();
+            crc.update(typeBytes);
+            type = new String(typeBytes, StandardCharsets.US_ASCII);
+            return type;
+        }
+
+        int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = inputStream.read(buffer, offset, Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException("Chunk " + type + " is truncated");
+            }
+            crc.update(buffer, offset, read);
+            remaining -= read;
+            position += read;
+            return read;
+        }
+
+        byte[] readData() throws IOException {
+            byte[] data = new byte[remaining];
+            inputStream.readFully(data);
+            crc.update(data);
+            position += remaining;
+            remaining = 0;
+            checkCrc();
+            return data;
+        }
+
+        void skipData() throws IOException {
+            long skipped = 0;
+            while (skipped < remaining + 4L) {
+                long count = inputStream.skip(remaining + 4L - skipped);
+                if (count <= 0) {
+                    if (inputStream.read() < 0) {
+                        throw new EOFException("Chunk " + type + " is truncated");
+                    }
+                    count = 1;
+                }
+                skipped += count;
+            }
+            position += skipped;
+            remaining = 0;
+        }
+
+        void checkCrc() throws IOException {
+            position += 4;
+            if (inputStream.readInt() != (int) crc.getValue()) {
+                throw new IOException("Invalid CRC of chunk " + type);
+            }
+        }
+    }
+
+    /**
+     * Reads the data of consecutive IDAT chunks as a single stream, which ends
+     * at the next chunk
+     */
+    private static final class IdatInputStream extends InputStream {
+        private final ChunkReader reader;
+        private boolean ended;
+
+        IdatInputStream(ChunkReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (ended) {
+                return -1;
+            }
+            while (reader.remaining == 0) {
+                reader.checkCrc();
+                if (!reader.nextChunk().equals("IDAT")) {
+                    ended = true;
+                    return -1;
+                }
+            }
+            return reader.read(buffer, offset, length);
+        }
+    }
+}
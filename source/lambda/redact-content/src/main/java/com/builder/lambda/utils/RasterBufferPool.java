@@ -0,0 +1,119 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A pool of page sized raster buffers, so that rendering a page reuses the
+ * buffer of a previously rendered page of the same size and image type instead
+ * of allocating a new one. Most documents have pages of a single size, so the
+ * pool mostly holds one buffer per render worker. Buffers of sizes which
+ * haven't been used for the longest time are dropped once the pool is over its
+ * size limit.
+ */
+public class RasterBufferPool {
+    private static RasterBufferPool sharedPool = null;
+
+    private final long maxPooledBytes;
+    private final LinkedHashMap<String, Deque<BufferedImage>> buffersBySize = new LinkedHashMap<>(16, 0.75f, true);
+    private long pooledBytes = 0;
+    private long allocatedBuffers = 0;
+    private long reusedBuffers = 0;
+
+    /**
+     * @param maxPooledBytes size limit of the buffers kept in the pool
+     */
+    public RasterBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Returns the pool shared by every redactor of the lambda environment,
+     * creating it on first use.
+     *
+     * @param maxPooledBytes size limit of the buffers kept in the pool
+     * @return the shared pool
+     */
+    public static synchronized RasterBufferPool getSharedPool(long maxPooledBytes) {
+        if (sharedPool == null) {
+            sharedPool = new RasterBufferPool(maxPooledBytes);
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Takes a buffer out of the pool, or allocates one if none of that size and
+     * type is available. The content of a pooled buffer is left as is.
+     *
+     * @param width  - width of the buffer in pixels
+     * @param height - height of the buffer in pixels
+     * @param type   - the {@link BufferedImage} type of the buffer
+     * @return - a buffer owned by the caller until it is released
+     */
+    public synchronized BufferedImage acquire(int width, int height, int type) {
+        Deque<BufferedImage> buffers = buffersBySize.get(getSizeKey(width, height, type));
+        if (buffers != null && !buffers.isEmpty()) {
+            BufferedImage buffer = buffers.pop();
+            pooledBytes -= getBytes(buffer);
+            reusedBuffers++;
+            return buffer;
+        }
+        allocatedBuffers++;
+        return new BufferedImage(width, height, type);
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use the buffer anymore.
+     *
+     * @param buffer - a buffer taken from the pool
+     */
+    public synchronized void release(BufferedImage buffer) {
+        long bytes = getBytes(buffer);
+        if (bytes > maxPooledBytes) {
+            return;
+        }
+        buffersBySize.computeIfAbsent(getSizeKey(buffer.getWidth(), buffer.getHeight(), buffer.getType()),
+                key -> new ArrayDeque<>()).push(buffer);
+        pooledBytes += bytes;
+
+        Iterator<Map.Entry<String, Deque<BufferedImage>>> eldest = buffersBySize.entrySet().iterator();
+        while (pooledBytes > maxPooledBytes && eldest.hasNext()) {
+            for (BufferedImage droppedBuffer : eldest.next().getValue()) {
+                pooledBytes -= getBytes(droppedBuffer);
+            }
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @return the number of buffers allocated because none could be reused
+     */
+    public synchronized long getAllocatedBuffers() {
+        return allocatedBuffers;
+    }
+
+    /**
+     * @return the number of buffers taken from the pool
+     */
+    public synchronized long getReusedBuffers() {
+        return reusedBuffers;
+    }
+
+    private static String getSizeKey(int width, int height, int type) {
+        return width + "x" + height + "|" + type;
+    }
+
+    private static long getBytes(BufferedImage buffer) {
+        DataBuffer dataBuffer = buffer.getRaster().getDataBuffer();
+        return (long) dataBuffer.getSize() * dataBuffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / Byte.SIZE;
+    }
+}
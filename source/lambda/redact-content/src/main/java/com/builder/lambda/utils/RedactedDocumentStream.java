@@ -0,0 +1,25 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * The in-memory output of a redactor. Unlike {@link #toByteArray()}, which
+ * copies the whole document, {@link #toInputStream()} reads the written bytes
+ * in place, so the document can be uploaded without being copied.
+ */
+public class RedactedDocumentStream extends ByteArrayOutputStream {
+    /**
+     * Reads the bytes written so far without copying them. The stream must not be
+     * written to anymore while they are read.
+     *
+     * @return - a stream over the redacted document
+     */
+    public synchronized InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+}
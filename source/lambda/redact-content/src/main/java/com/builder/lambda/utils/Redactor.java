@@ -3,8 +3,12 @@
 
 package com.builder.lambda.utils;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.Map;
 
@@ -16,16 +20,56 @@ import com.builder.lambda.model.Document;
  * implements this interface
  */
 public interface Redactor {
+    /**
+     * This method will be called to apply redaction on a document, writing the
+     * redacted document to the given stream. The stream is left open.
+     *
+     * @param document            to be used to apply redactions on
+     * @param boundingBoxesByPage to be used to identify the texts to be reacted on
+     *                            the document
+     * @param outputStream        where the redacted document is written to
+     * @throws IOException if processing the document or writing it goes wrong
+     */
+    void processDocument(
+            Document document,
+            Map<String, List<BoundingBox>> boundingBoxesByPage,
+            OutputStream outputStream) throws IOException;
+
+    /**
+     * Applies redaction on a document, writing the redacted document to the given
+     * channel. The channel is left open.
+     *
+     * @param document            to be used to apply redactions on
+     * @param boundingBoxesByPage to be used to identify the texts to be reacted on
+     *                            the document
+     * @param channel             where the redacted document is written to
+     * @throws IOException if processing the document or writing it goes wrong
+     */
+    default void processDocument(
+            Document document,
+            Map<String, List<BoundingBox>> boundingBoxesByPage,
+            WritableByteChannel channel) throws IOException {
+        // redactors write in small chunks, which would each be a write to the channel
+        BufferedOutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(channel));
+        processDocument(document, boundingBoxesByPage, outputStream);
+        outputStream.flush();
+    }
+
     /**
      * This method will be called to apply redaction on a document.
      *
      * @param document            to be used to apply redactions on
      * @param boundingBoxesByPage to be used to identify the texts to be reacted on
      *                            the document
-     * @return redacted document as a stream
+     * @return redacted document as a stream, which is a
+     *         {@link RedactedDocumentStream} that can be read without being copied
      * @throws IOException if processing the document goes wrong
      */
-    ByteArrayOutputStream processDocument(
+    default ByteArrayOutputStream processDocument(
             Document document,
-            Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException;
+            Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException {
+        RedactedDocumentStream outputStream = new RedactedDocumentStream();
+        processDocument(document, boundingBoxesByPage, outputStream);
+        return outputStream;
+    }
 }
@@ -0,0 +1,448 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import com.builder.lambda.model.BoundingBox;
+
+/**
+ * A content-addressed cache of encoded page images, so that pages redacted
+ * again with the same bounding boxes don't need to be rendered again. Entries
+ * are keyed by a hash of the page content, its bounding boxes and the
+ * rendering settings. Recently used entries are kept in memory, and every
+ * entry is also written to the scratch directory, which outlives a single
+ * invocation of a warm lambda. Both tiers evict their least recently used
+ * entries once over their size limit.
+ */
+public class RenderedPageCache {
+    private static final String ENTRY_SUFFIX = ".page";
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_NAME = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_ARRAY = 6;
+    private static final byte TYPE_DICTIONARY = 7;
+    private static final byte TYPE_REFERENCE = 8;
+
+    private static RenderedPageCache sharedCache = null;
+
+    private Logger log = LogManager.getLogger(RenderedPageCache.class);
+
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final Path directory;
+    private final LinkedHashMap<String, CachedImage> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes = 0;
+    private long diskBytes = 0;
+
+    /**
+     * @param maxMemoryBytes size limit of the in-memory tier
+     * @param maxDiskBytes   size limit of the scratch directory tier
+     * @param directory      directory holding the scratch directory tier, entries
+     *                       already in it are reused
+     */
+    public RenderedPageCache(long maxMemoryBytes, long maxDiskBytes, Path directory) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+                for (Path entry : entries) {
+                    String fileName = entry.getFileName().toString();
+                    long size = Files.size(entry);
+                    diskEntries.put(fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length()), size);
+                    diskBytes += size;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to use the page cache directory {}, only caching pages in memory", directory);
+        }
+    }
+
+    /**
+     * Returns the cache shared by every redactor of the lambda environment,
+     * creating it on first use.
+     *
+     * @param maxMemoryBytes size limit of the in-memory tier
+     * @param maxDiskBytes   size limit of the scratch directory tier
+     * @return the shared cache
+     */
+    public static synchronized RenderedPageCache getSharedCache(long maxMemoryBytes, long maxDiskBytes) {
+        if (sharedCache == null) {
+            sharedCache = new RenderedPageCache(maxMemoryBytes, maxDiskBytes,
+                    Path.of(Constants.PDF_PAGE_CACHE_DIRECTORY));
+        }
+        return sharedCache;
+    }
+
+    /**
+     * Computes the key of a page rendering. The page is hashed with everything
+     * it references, except the page tree it belongs to, so identical pages of
+     * different documents or different versions of a document share a key.
+     *
+     * @param page           the page to render, before any black box is drawn
+     * @param boundingBoxes  the bounding boxes of the page, in any order
+     * @param renderSettings the settings the page is rendered and encoded with
+     * @return - the cache key
+     * @throws IOException if the page content can't be read
+     */
+    public static String createKey(PDPage page, List<BoundingBox> boundingBoxes, String renderSettings)
+            throws IOException {
+        MessageDigest digest = createDigest();
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        hash(digest, page.getCOSObject(), visited);
+        // inherited attributes aren't part of the page dictionary itself
+        PDResources resources = page.getResources();
+        hash(digest, resources == null ? null : resources.getCOSObject(), visited);
+        hash(digest, page.getMediaBox().getCOSArray(), visited);
+        hash(digest, page.getCropBox().getCOSArray(), visited);
+        digest.update(String.valueOf(page.getRotation()).getBytes(StandardCharsets.UTF_8));
+
+        String sortedBoxes = boundingBoxes == null ? "" : boundingBoxes.stream()
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingDouble(BoundingBox::getTop)
+                        .thenComparingDouble(BoundingBox::getLeft)
+                        .thenComparingDouble(BoundingBox::getWidth)
+                        .thenComparingDouble(BoundingBox::getHeight))
+                .map(box -> box.getLeft() + "," + box.getTop() + "," + box.getWidth() + "," + box.getHeight())
+                .collect(Collectors.joining(";"));
+        digest.update(sortedBoxes.getBytes(StandardCharsets.UTF_8));
+        digest.update(renderSettings.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Looks an encoded page image up, first in memory then in the scratch
+     * directory.
+     *
+     * @param key       the cache key of the page
+     * @param targetDoc the document which will own the image
+     * @return - the cached image, copied into the target document, or null if
+     *         the page isn't cached
+     * @throws IOException if the cached image can't be copied
+     */
+    public synchronized PDImageXObject get(String key, PDDocument targetDoc) throws IOException {
+        CachedImage cachedImage = memoryEntries.get(key);
+        if (cachedImage == null && diskEntries.containsKey(key)) {
+            try {
+                cachedImage = new CachedImage(Files.readAllBytes(getEntryPath(key)));
+                putInMemory(key, cachedImage);
+            } catch (IOException e) {
+                log.warn("Unable to read cached page {}", key);
+                removeFromDisk(key);
+            }
+        }
+        return cachedImage == null ? null : cachedImage.toImage(targetDoc);
+    }
+
+    /**
+     * Adds an encoded page image to both tiers of the cache. Images referencing
+     * other objects, such as soft masks, aren't cached.
+     *
+     * @param key   the cache key of the page
+     * @param image the encoded page image
+     * @throws IOException if the image can't be read
+     */
+    public synchronized void put(String key, PDImageXObject image) throws IOException {
+        CachedImage cachedImage = CachedImage.fromImage(image);
+        if (cachedImage == null) {
+            return;
+        }
+        putInMemory(key, cachedImage);
+        if (!diskEntries.containsKey(key) && cachedImage.bytes.length <= maxDiskBytes) {
+            try {
+                Files.write(getEntryPath(key), cachedImage.bytes);
+                diskEntries.put(key, (long) cachedImage.bytes.length);
+                diskBytes += cachedImage.bytes.length;
+                evictFromDisk();
+            } catch (IOException e) {
+                log.warn("Unable to write cached page {}", key);
+            }
+        }
+    }
+
+    private void putInMemory(String key, CachedImage cachedImage) {
+        if (cachedImage.bytes.length > maxMemoryBytes) {
+            return;
+        }
+        CachedImage previous = memoryEntries.put(key, cachedImage);
+        if (previous != null) {
+            memoryBytes -= previous.bytes.length;
+        }
+        memoryBytes += cachedImage.bytes.length;
+        Iterator<CachedImage> eldest = memoryEntries.values().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().bytes.length;
+            eldest.remove();
+        }
+    }
+
+    private void evictFromDisk() throws IOException {
+        Iterator<Map.Entry<String, Long>> eldest = diskEntries.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            diskBytes -= entry.getValue();
+            eldest.remove();
+            Files.deleteIfExists(getEntryPath(entry.getKey()));
+        }
+    }
+
+    private void removeFromDisk(String key) {
+        Long size = diskEntries.remove(key);
+        if (size != null) {
+            diskBytes -= size;
+        }
+    }
+
+    private Path getEntryPath(String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Feeds a pdf object and everything it references into the digest. Objects
+     * reached a second time are only marked, which also stops reference cycles.
+     */
+    private static void hash(MessageDigest digest, COSBase base, Set<COSBase> visited) throws IOException {
+        COSBase object = base instanceof COSObject ? ((COSObject) base).getObject() : base;
+        if (object == null || object instanceof COSNull) {
+            digest.update(TYPE_NULL);
+        } else if (object instanceof COSName) {
+            digest.update(TYPE_NAME);
+            digest.update(((COSName) object).getName().getBytes(StandardCharsets.UTF_8));
+        } else if (object instanceof COSNumber) {
+            digest.update(TYPE_FLOAT);
+            digest.update(String.valueOf(((COSNumber) object).floatValue()).getBytes(StandardCharsets.UTF_8));
+        } else if (object instanceof COSBoolean) {
+            digest.update(TYPE_BOOLEAN);
+            digest.update(((COSBoolean) object).getValue() ? (byte) 1 : (byte) 0);
+        } else if (object instanceof COSString) {
+            digest.update(TYPE_STRING);
+            digest.update(((COSString) object).getBytes());
+        } else if (!visited.add(object)) {
+            digest.update(TYPE_REFERENCE);
+        } else if (object instanceof COSArray) {
+            digest.update(TYPE_ARRAY);
+            for (COSBase item : (COSArray) object) {
+                hash(digest, item, visited);
+            }
+        } else if (object instanceof COSDictionary) {
+            digest.update(TYPE_DICTIONARY);
+            COSDictionary dictionary = (COSDictionary) object;
+            List<COSName> keys = new ArrayList<>(dictionary.keySet());
+            keys.sort(Comparator.comparing(COSName::getName));
+            for (COSName key : keys) {
+                // the page tree and annotation parents lead to the rest of the document
+                if (COSName.PARENT.equals(key) || COSName.P.equals(key)) {
+                    continue;
+                }
+                hash(digest, key, visited);
+                hash(digest, dictionary.getItem(key), visited);
+            }
+            if (object instanceof COSStream) {
+                try (InputStream inputStream = ((COSStream) object).createRawInputStream()) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An encoded page image, stored as its serialized dictionary followed by its
+     * encoded data.
+     */
+    private static final class CachedImage {
+        private final byte[] bytes;
+
+        private CachedImage(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the serialized image, or null if the image references other
+         *         objects
+         */
+        static CachedImage fromImage(PDImageXObject image) throws IOException {
+            COSStream stream = image.getCOSObject();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+            List<COSName> keys = new ArrayList<>(stream.keySet());
+            keys.remove(COSName.LENGTH);
+            dataOutputStream.writeInt(keys.size());
+            for (COSName key : keys) {
+                dataOutputStream.writeUTF(key.getName());
+                if (!write(dataOutputStream, stream.getItem(key))) {
+                    return null;
+                }
+            }
+            try (InputStream inputStream = stream.createRawInputStream()) {
+                inputStream.transferTo(dataOutputStream);
+            }
+            dataOutputStream.flush();
+            return new CachedImage(outputStream.toByteArray());
+        }
+
+        /**
+         * Recreates the image in the target document
+         */
+        PDImageXObject toImage(PDDocument targetDoc) throws IOException {
+            DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(bytes));
+            COSStream stream = targetDoc.getDocument().createCOSStream();
+            int numberOfKeys = dataInputStream.readInt();
+            for (int i = 0; i < numberOfKeys; i++) {
+                stream.setItem(COSName.getPDFName(dataInputStream.readUTF()), read(dataInputStream));
+            }
+            try (OutputStream outputStream = stream.createRawOutputStream()) {
+                dataInputStream.transferTo(outputStream);
+            }
+            return new PDImageXObject(new PDStream(stream), null);
+        }
+
+        private static boolean write(DataOutputStream outputStream, COSBase base) throws IOException {
+            if (base == null || base instanceof COSNull) {
+                outputStream.writeByte(TYPE_NULL);
+            } else if (base instanceof COSName) {
+                outputStream.writeByte(TYPE_NAME);
+                outputStream.writeUTF(((COSName) base).getName());
+            } else if (base instanceof COSInteger) {
+                outputStream.writeByte(TYPE_INTEGER);
+                outputStream.writeLong(((COSInteger) base).longValue());
+            } else if (base instanceof COSFloat) {
+                outputStream.writeByte(TYPE_FLOAT);
+                outputStream.writeFloat(((COSFloat) base).floatValue());
+            } else if (base instanceof COSBoolean) {
+                outputStream.writeByte(TYPE_BOOLEAN);
+                outputStream.writeBoolean(((COSBoolean) base).getValue());
+            } else if (base instanceof COSString) {
+                byte[] string = ((COSString) base).getBytes();
+                outputStream.writeByte(TYPE_STRING);
+                outputStream.writeInt(string.length);
+                outputStream.write(string);
+            } else if (base instanceof COSArray) {
+                COSArray array = (COSArray) base;
+                outputStream.writeByte(TYPE_ARRAY);
+                outputStream.writeInt(array.size());
+                for (COSBase item : array) {
+                    if (!write(outputStream, item)) {
+                        return false;
+                    }
+                }
+            } else if (base instanceof COSDictionary && !(base instanceof COSStream)) {
+                COSDictionary dictionary = (COSDictionary) base;
+                outputStream.writeByte(TYPE_DICTIONARY);
+                outputStream.writeInt(dictionary.size());
+                for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                    outputStream.writeUTF(entry.getKey().getName());
+                    if (!write(outputStream, entry.getValue())) {
+                        return false;
+                    }
+                }
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private static COSBase read(DataInputStream inputStream) throws IOException {
+            byte type = inputStream.readByte();
+            switch (type) {
+                case TYPE_NULL:
+                    return COSNull.NULL;
+                case TYPE_NAME:
+                    return COSName.getPDFName(inputStream.readUTF());
+                case TYPE_INTEGER:
+                    return COSInteger.get(inputStream.readLong());
+                case TYPE_FLOAT:
+                    return new COSFloat(inputStream.readFloat());
+                case TYPE_BOOLEAN:
+                    return COSBoolean.getBoolean(inputStream.readBoolean());
+                case TYPE_STRING:
+                    byte[] string = new byte[inputStream.readInt()];
+                    inputStream.readFully(string);
+                    return new COSString(string);
+                case TYPE_ARRAY:
+                    COSArray array = new COSArray();
+                    int size = inputStream.readInt();
+                    for (int i = 0; i < size; i++) {
+                        array.add(read(inputStream));
+                    }
+                    return array;
+                case TYPE_DICTIONARY:
+                    COSDictionary dictionary = new COSDictionary();
+                    int numberOfKeys = inputStream.readInt();
+                    for (int i = 0; i < numberOfKeys; i++) {
+                        dictionary.setItem(COSName.getPDFName(inputStream.readUTF()), read(inputStream));
+                    }
+                    return dictionary;
+                default:
+                    throw new IOException("Corrupted page cache entry");
+            }
+        }
+    }
+}
@@ -3,19 +3,32 @@
 
 package com.builder.lambda.utils;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.builder.lambda.model.BoundingBox;
+import com.builder.lambda.model.Document;
 import com.builder.lambda.model.FileType;
+import com.builder.lambda.model.PdfRedactionEngine;
+import com.builder.lambda.model.RedactionQuality;
 
 import software.amazon.lambda.powertools.logging.Logging;
 
 public abstract class RequestProcessor<T> {
     protected Logger log = LogManager.getLogger(RequestProcessor.class);
     protected ImageRedactor imageRedactor = null;
-    protected PdfRedactor pdfRedactor = null;
+    protected Redactor pdfRedactor = null;
+    protected final Map<RedactionQuality, PdfRedactor> qualityPdfRedactors = new EnumMap<>(RedactionQuality.class);
 
     protected final S3Storage s3;
 
@@ -23,6 +36,7 @@ public abstract class RequestProcessor<T> {
     protected final String s3InferenceBucketName;
     protected final String s3InputPrefix;
     protected final String s3OutputPrefix;
+    protected final boolean zeroRedactionCopy;
 
     protected RequestProcessor(S3Storage s3Storage) {
         this.s3 = s3Storage;
@@ -50,6 +64,11 @@ public abstract class RequestProcessor<T> {
             throw new IllegalStateException(
                     "The environment variable 'S3_REDACTED_PREFIX' is not set, and is required.");
         }
+
+        zeroRedactionCopy = Boolean.parseBoolean(System.getenv("ZERO_REDACTION_COPY"));
+        if (zeroRedactionCopy) {
+            log.info("ZERO_REDACTION_COPY is: {}", zeroRedactionCopy);
+        }
     }
 
     /**
@@ -80,7 +99,9 @@ public abstract class RequestProcessor<T> {
             return imageRedactor;
         } else if (fileType == FileType.PDF) {
             if (pdfRedactor == null) {
-                pdfRedactor = new PdfRedactor();
+                pdfRedactor = getPdfRedactionEngine() == PdfRedactionEngine.VECTOR
+                        ? new VectorPdfRedactor()
+                        : new PdfRedactor();
             }
             return pdfRedactor;
         } else {
@@ -88,4 +109,98 @@ public abstract class RequestProcessor<T> {
         }
     }
 
+    /**
+     * Factory method which creates/returns the redactor specific to the inputted
+     * file type and quality profile. Pdf files redacted with the raster engine
+     * get a redactor per profile, re-used across requests. Other file types,
+     * the vector engine and requests without a profile use the redactor of
+     * {@link #getRedactor(FileType)}.
+     *
+     * @param fileType
+     * @param quality  the quality profile of the request, or null
+     * @return Redactor
+     * @throws IllegalArgumentException if the fileType provided is not supported
+     */
+    protected Redactor getRedactor(FileType fileType, RedactionQuality quality) {
+        if (quality == null || fileType != FileType.PDF || getPdfRedactionEngine() == PdfRedactionEngine.VECTOR) {
+            return getRedactor(fileType);
+        }
+        return qualityPdfRedactors.computeIfAbsent(quality, PdfRedactor::new);
+    }
+
+    /**
+     * Redacts a document into a scratch file and uploads the file to S3. The
+     * redacted document is written to disk as it is produced, so it is never held
+     * in the heap as a whole. The scratch file is deleted once uploaded.
+     *
+     * @param redactor            the redactor for the type of the document
+     * @param document            the document to redact
+     * @param boundingBoxesByPage the bounding boxes to be redacted
+     * @param outputKey           key of the redacted document
+     * @throws IOException if the document can't be redacted or the scratch file
+     *                     can't be written
+     */
+    @Logging
+    protected void redactAndUpload(Redactor redactor, Document document,
+            Map<String, List<BoundingBox>> boundingBoxesByPage, String outputKey) throws IOException {
+        Path redactedFile = Files.createTempFile(Path.of(Constants.PDF_SCRATCH_DIRECTORY), "redacted-",
+                "." + FileUtils.getFileExtension(outputKey));
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(redactedFile))) {
+                redactor.processDocument(document, boundingBoxesByPage, outputStream);
+            }
+            s3.putFile(s3InputBucketName, outputKey, redactedFile);
+        } finally {
+            Files.deleteIfExists(redactedFile);
+        }
+    }
+
+    /**
+     * When {@code ZERO_REDACTION_COPY} is enabled and there is nothing to redact
+     * in a document, makes the redacted document a copy of the input document,
+     * tags included. The copy is made by S3, so the document is neither
+     * downloaded nor loaded.
+     *
+     * @param boundingBoxesByPage the bounding boxes to be redacted
+     * @param s3Key               key of the input document
+     * @param outputKey           key of the redacted document
+     * @return true if the document was copied, false if it is to be redacted
+     */
+    @Logging
+    protected boolean copyIfNothingToRedact(Map<String, List<BoundingBox>> boundingBoxesByPage, String s3Key,
+            String outputKey) {
+        if (!zeroRedactionCopy || !isNothingToRedact(boundingBoxesByPage)) {
+            return false;
+        }
+        log.info("Nothing to redact in {}, copying it to {}", s3Key, outputKey);
+        s3.copyFile(s3InputBucketName, s3Key, outputKey);
+        return true;
+    }
+
+    /**
+     * @param boundingBoxesByPage the bounding boxes to be redacted
+     * @return true if no page has a bounding box, the redactors skipping null
+     *         bounding boxes
+     */
+    static boolean isNothingToRedact(Map<String, List<BoundingBox>> boundingBoxesByPage) {
+        return boundingBoxesByPage.values().stream()
+                .allMatch(boundingBoxes -> boundingBoxes == null || boundingBoxes.stream().allMatch(Objects::isNull));
+    }
+
+    /**
+     * Reads the engine to use for pdf files from the environment, defaulting to
+     * the raster engine.
+     *
+     * @return PdfRedactionEngine
+     */
+    private PdfRedactionEngine getPdfRedactionEngine() {
+        String engine = System.getenv("PDF_REDACTION_ENGINE");
+        if (engine == null) {
+            return Constants.DEFAULT_PDF_REDACTION_ENGINE;
+        }
+        PdfRedactionEngine pdfRedactionEngine = PdfRedactionEngine.valueOf(engine.toUpperCase());
+        log.info("PDF_REDACTION_ENGINE is: {}", pdfRedactionEngine);
+        return pdfRedactionEngine;
+    }
+
 }
@@ -6,12 +6,16 @@ package com.builder.lambda.utils;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectTaggingResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
@@ -20,12 +24,17 @@ import software.amazon.awssdk.services.s3.model.PutObjectTaggingRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.model.Tag;
+import software.amazon.awssdk.services.s3.model.TaggingDirective;
 import software.amazon.lambda.powertools.logging.Logging;
 
 /**
  * This class connects to Amazon S3 storage service to get and upload files.
  */
 public class S3Storage {
+    /**
+     * Content type of uploaded files, the same as for uploads of byte arrays
+     */
+    private static final String UPLOAD_CONTENT_TYPE = "application/octet-stream";
 
     Logger log = LogManager.getLogger(S3Storage.class);
     private final S3Client client;
@@ -71,6 +80,22 @@ public class S3Storage {
         }
     }
 
+    /**
+     * Gets the Content-Length of a file returned by {@link #getFile(String, String)}
+     *
+     * @param fileInputStream - the file as returned by getFile
+     * @return - the size of the file in bytes, or -1 if it isn't known
+     */
+    public static long getContentLength(InputStream fileInputStream) {
+        if (fileInputStream instanceof ResponseInputStream
+                && ((ResponseInputStream<?>) fileInputStream).response() instanceof GetObjectResponse) {
+            Long contentLength = ((GetObjectResponse) ((ResponseInputStream<?>) fileInputStream).response())
+                    .contentLength();
+            return contentLength == null ? -1 : contentLength;
+        }
+        return -1;
+    }
+
     /**
      * Lists all objects matching a given prefix in a bucket
      *
@@ -98,7 +123,8 @@ public class S3Storage {
 
     /**
      * This method is to upload a file in the S3 bucket using
-     * provided buckName, s3Key and file
+     * provided buckName, s3Key and file. The output of a redactor, a
+     * {@link RedactedDocumentStream}, is uploaded without being copied.
      *
      * @param bucketName   - where in S3 file to be uploaded
      * @param s3Key        - file key
@@ -109,16 +135,77 @@ public class S3Storage {
     public void putFile(String bucketName, String s3Key, ByteArrayOutputStream fileToUpload) throws S3Exception {
         try {
             log.info("Putting  file in S3 with bucket: {}, s3Key: {}", bucketName, s3Key);
-            byte[] data = fileToUpload.toByteArray();
+            RequestBody requestBody;
+            if (fileToUpload instanceof RedactedDocumentStream) {
+                requestBody = RequestBody.fromContentProvider(((RedactedDocumentStream) fileToUpload)::toInputStream,
+                        fileToUpload.size(), UPLOAD_CONTENT_TYPE);
+            } else {
+                requestBody = RequestBody.fromBytes(fileToUpload.toByteArray());
+            }
             PutObjectRequest objectRequest = PutObjectRequest.builder().bucket(bucketName).key(s3Key)
                     .expectedBucketOwner(this.lambdaContextParser.getInvocationAccountId()).build();
-            client.putObject(objectRequest, RequestBody.fromBytes(data));
+            client.putObject(objectRequest, requestBody);
         } catch (S3Exception s3Exception) {
             log.error("Failed to upload the file in S3 with bucket: {}, s3Key: {}", bucketName, s3Key);
             throw s3Exception;
         }
     }
 
+    /**
+     * Uploads a file from the local file system to the S3 bucket. The file is
+     * read from disk as it is uploaded.
+     *
+     * @param bucketName   - where in S3 file to be uploaded
+     * @param s3Key        - file key
+     * @param fileToUpload - path of the file to be uploaded
+     * @throws S3Exception - if it fails to upload the file
+     */
+    @Logging
+    public void putFile(String bucketName, String s3Key, Path fileToUpload) throws S3Exception {
+        try {
+            log.info("Putting  file in S3 with bucket: {}, s3Key: {}", bucketName, s3Key);
+            PutObjectRequest objectRequest = PutObjectRequest.builder().bucket(bucketName).key(s3Key)
+                    .expectedBucketOwner(this.lambdaContextParser.getInvocationAccountId()).build();
+            client.putObject(objectRequest, RequestBody.fromFile(fileToUpload));
+        } catch (S3Exception s3Exception) {
+            log.error("Failed to upload the file in S3 with bucket: {}, s3Key: {}", bucketName, s3Key);
+            throw s3Exception;
+        }
+    }
+
+    /**
+     * Copies a file to another key of the same S3 bucket, along with its tags.
+     * The copy is made by S3, the file isn't downloaded.
+     *
+     * @param bucketName     - location of the file in Amazon s3
+     * @param sourceKey      - key of the file to copy
+     * @param destinationKey - key of the copy
+     * @throws S3Exception - if it fails to copy the file
+     */
+    @Logging
+    public void copyFile(String bucketName, String sourceKey, String destinationKey) throws S3Exception {
+        try {
+            log.info("Copying file in S3 with bucket: {}, s3Key: {} to s3Key: {}", bucketName, sourceKey,
+                    destinationKey);
+            String accountId = this.lambdaContextParser.getInvocationAccountId();
+            CopyObjectRequest copyObjectRequest = CopyObjectRequest
+                    .builder()
+                    .sourceBucket(bucketName)
+                    .sourceKey(sourceKey)
+                    .destinationBucket(bucketName)
+                    .destinationKey(destinationKey)
+                    .taggingDirective(TaggingDirective.COPY)
+                    .expectedSourceBucketOwner(accountId)
+                    .expectedBucketOwner(accountId)
+                    .build();
+            client.copyObject(copyObjectRequest);
+        } catch (S3Exception s3Exception) {
+            log.error("Failed to copy the file in S3 with bucket: {}, s3Key: {} to s3Key: {}", bucketName, sourceKey,
+                    destinationKey);
+            throw s3Exception;
+        }
+    }
+
     /**
      * Retrieve the tags for a given object stored in a s3 bucket
      *
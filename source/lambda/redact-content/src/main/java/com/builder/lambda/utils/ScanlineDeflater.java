@@ -0,0 +1,375 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * This class compresses the scanlines of an image into a zlib stream, each
+ * scanline being PNG filtered with the filter which suits it best. That is the
+ * content of the IDAT chunks of a PNG file, and of a flate image stream of a
+ * pdf file using the PNG predictors.
+ *
+ * Like pigz, the scanlines are split into chunks deflated in parallel: every
+ * chunk gets the data preceding it as preset dictionary, so it compresses
+ * about as well as a single stream would, and is ended on a byte boundary so
+ * that the chunks can be appended to each other. The checksums of the chunks
+ * are then combined into the checksum of the whole stream.
+ */
+public class ScanlineDeflater {
+
+    /**
+     * Bytes of filtered scanlines deflated by each task
+     */
+    private static final int CHUNK_BYTES = 128 * 1024;
+
+    /**
+     * Size of the deflate window, the most data a preset dictionary can hold
+     */
+    private static final int DICTIONARY_BYTES = 32 * 1024;
+
+    /**
+     * Deflate compression with a 32K window, default level and no preset
+     * dictionary for the stream as a whole
+     */
+    private static final byte[] ZLIB_HEADER = { 0x78, (byte) 0x9C };
+
+    private static final int ADLER_BASE = 65521;
+
+    static final int FILTER_TYPES = 5;
+    private static final int FILTER_SUB = 1;
+    private static final int FILTER_UP = 2;
+    private static final int FILTER_AVERAGE = 3;
+    private static final int FILTER_PAETH = 4;
+
+    private static ScanlineDeflater sharedDeflater;
+
+    private final int threads;
+    private final ExecutorService executor;
+
+    /**
+     * @param threads number of threads deflating chunks, 1 to deflate on the
+     *                calling thread only
+     */
+    public ScanlineDeflater(int threads) {
+        this.threads = Math.max(1, threads);
+        this.executor = this.threads > 1 ? Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "scanline-deflater");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Returns the deflater shared by the redactors of the container, so its
+     * threads are started once. The number of threads is set by the first caller.
+     *
+     * @param threads number of threads deflating chunks
+     * @return - the shared deflater
+     */
+    public static synchronized ScanlineDeflater getSharedDeflater(int threads) {
+        if (sharedDeflater == null) {
+            sharedDeflater = new ScanlineDeflater(threads);
+        }
+        return sharedDeflater;
+    }
+
+    /**
+     * @return - the number of threads deflating chunks
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Gets the number of 8 bit samples per pixel of the images which can be
+     * deflated: gray, RGB and non premultiplied RGBA images.
+     *
+     * @param image - the image to deflate
+     * @return - the number of samples per pixel, 0 if the image isn't supported
+     */
+    public static int getSamplesPerPixel(BufferedImage image) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_BYTE_GRAY:
+                return 1;
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_INT_RGB:
+                return 3;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_INT_ARGB:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Writes the filtered and deflated scanlines of an image as a zlib stream.
+     *
+     * @param image        - the image, of a type supported by
+     *                     {@link #getSamplesPerPixel(BufferedImage)}
+     * @param outputStream - where the zlib stream is written to
+     * @throws IOException if the stream can't be written or a chunk can't be
+     *                     deflated
+     */
+    public void deflate(BufferedImage image, OutputStream outputStream) throws IOException {
+        int samplesPerPixel = getSamplesPerPixel(image);
+        if (samplesPerPixel == 0) {
+            throw new IllegalArgumentException("Unsupported image type " + image.getType());
+        }
+        int rowBytes = image.getWidth() * samplesPerPixel + 1;
+        int height = image.getHeight();
+        int rowsPerChunk = threads > 1 ? Math.max(1, CHUNK_BYTES / rowBytes) : height;
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (int fromRow = 0; fromRow < height; fromRow += rowsPerChunk) {
+            chunks.add(new Chunk(image, samplesPerPixel, fromRow, Math.min(height, fromRow + rowsPerChunk)));
+        }
+        outputStream.write(ZLIB_HEADER);
+        long adler = 1;
+        if (executor == null || chunks.size() == 1) {
+            for (Chunk chunk : chunks) {
+                chunk.deflate();
+                adler = writeChunk(chunk, adler, outputStream);
+            }
+        } else {
+            List<Future<Chunk>> futures = new ArrayList<>();
+            try {
+                for (Chunk chunk : chunks) {
+                    futures.add(executor.submit(chunk::deflate));
+                }
+                for (Future<Chunk> future : futures) {
+                    adler = writeChunk(getChunk(future), adler, outputStream);
+                }
+            } finally {
+                for (Future<Chunk> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        outputStream.write(new byte[] { (byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8),
+                (byte) adler });
+    }
+
+    private static long writeChunk(Chunk chunk, long adler, OutputStream outputStream) throws IOException {
+        chunk.compressed.writeTo(outputStream);
+        return combineAdler32(adler, chunk.adler, chunk.length);
+    }
+
+    private static Chunk getChunk(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while deflating scanlines", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to deflate scanlines", e.getCause());
+        }
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive pieces of data, as zlib
+     * does.
+     *
+     * @param adler1  - checksum of the first piece
+     * @param adler2  - checksum of the second piece
+     * @param length2 - length of the second piece
+     * @return - the checksum of both pieces
+     */
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        sum1 %= ADLER_BASE;
+        sum2 %= ADLER_BASE;
+        return (sum2 << 16) | sum1;
+    }
+
+    /**
+     * Reads the samples of a scanline, in RGB(A) or gray order
+     */
+    private static void readRow(BufferedImage image, int samplesPerPixel, int y, byte[] row, int[] pixels) {
+        Raster raster = image.getRaster();
+        int width = image.getWidth();
+        if (pixels == null) {
+            raster.getDataElements(raster.getMinX(), raster.getMinY() + y, width, 1, row);
+            return;
+        }
+        raster.getDataElements(raster.getMinX(), raster.getMinY() + y, width, 1, pixels);
+        int index = 0;
+        for (int pixel : pixels) {
+            row[index++] = (byte) (pixel >> 16);
+            row[index++] = (byte) (pixel >> 8);
+            row[index++] = (byte) pixel;
+            if (samplesPerPixel == 4) {
+                row[index++] = (byte) (pixel >>> 24);
+            }
+        }
+    }
+
+    /**
+     * Filters a scanline with each PNG filter and keeps the one with the lowest
+     * sum of absolute differences, the heuristic used by libpng.
+     *
+     * @param previous        - samples of the previous scanline, all zero for the
+     *                        first one
+     * @param current         - samples of the scanline
+     * @param bytesPerPixel   - distance to the corresponding sample of the
+     *                        previous pixel
+     * @param candidates      - one buffer per filter type, holding the filter type
+     *                        followed by the filtered samples
+     * @return - the buffer of the chosen filter
+     */
+    static byte[] filterRow(byte[] previous, byte[] current, int bytesPerPixel, byte[][] candidates) {
+        int length = current.length;
+        byte[] none = candidates[0];
+        byte[] sub = candidates[FILTER_SUB];
+        byte[] up = candidates[FILTER_UP];
+        byte[] average = candidates[FILTER_AVERAGE];
+        byte[] paeth = candidates[FILTER_PAETH];
+        long[] sums = new long[FILTER_TYPES];
+        for (int index = 0; index < length; index++) {
+            int sample = current[index] & 0xFF;
+            int left = index >= bytesPerPixel ? current[index - bytesPerPixel] & 0xFF : 0;
+            int above = previous[index] & 0xFF;
+            int aboveLeft = index >= bytesPerPixel ? previous[index - bytesPerPixel] & 0xFF : 0;
+            byte value = (byte) sample;
+            none[index + 1] = value;
+            sums[0] += Math.abs(value);
+            value = (byte) (sample - left);
+            sub[index + 1] = value;
+            sums[FILTER_SUB] += Math.abs(value);
+            value = (byte) (sample - above);
+            up[index + 1] = value;
+            sums[FILTER_UP] += Math.abs(value);
+            value = (byte) (sample - ((left + above) >>> 1));
+            average[index + 1] = value;
+            sums[FILTER_AVERAGE] += Math.abs(value);
+            value = (byte) (sample - paeth(left, above, aboveLeft));
+            paeth[index + 1] = value;
+            sums[FILTER_PAETH] += Math.abs(value);
+        }
+        int best = 0;
+        for (int filter = 1; filter < FILTER_TYPES; filter++) {
+            if (sums[filter] < sums[best]) {
+                best = filter;
+            }
+        }
+        candidates[best][0] = (byte) best;
+        return candidates[best];
+    }
+
+    static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int distanceLeft = Math.abs(estimate - left);
+        int distanceUp = Math.abs(estimate - up);
+        int distanceUpLeft = Math.abs(estimate - upLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+            return left;
+        }
+        return distanceUp <= distanceUpLeft ? up : upLeft;
+    }
+
+    /**
+     * A range of scanlines deflated on its own
+     */
+    private static final class Chunk {
+        private final BufferedImage image;
+        private final int samplesPerPixel;
+        private final int fromRow;
+        private final int toRow;
+        private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        private long adler;
+        private long length;
+
+        Chunk(BufferedImage image, int samplesPerPixel, int fromRow, int toRow) {
+            this.image = image;
+            this.samplesPerPixel = samplesPerPixel;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        /**
+         * Deflates the scanlines of the chunk. The last chunk ends the deflate
+         * stream, the others are flushed to a byte boundary.
+         */
+        Chunk deflate() {
+            int sampleBytes = image.getWidth() * samplesPerPixel;
+            byte[] previous = new byte[sampleBytes];
+            byte[] current = new byte[sampleBytes];
+            int[] pixels = image.getRaster().getDataBuffer().getDataType() == DataBuffer.TYPE_INT
+                    ? new int[image.getWidth()]
+                    : null;
+            byte[][] candidates = new byte[FILTER_TYPES][sampleBytes + 1];
+            byte[] buffer = new byte[DICTIONARY_BYTES];
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            Adler32 checksum = new Adler32();
+            try {
+                // the scanlines preceding the chunk are filtered again to prime the dictionary
+                int dictionaryRows = fromRow == 0 ? 0 : Math.min(fromRow, DICTIONARY_BYTES / (sampleBytes + 1) + 1);
+                int firstRow = fromRow - dictionaryRows;
+                if (firstRow > 0) {
+                    readRow(image, samplesPerPixel, firstRow - 1, previous, pixels);
+                }
+                ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+                for (int y = firstRow; y < toRow; y++) {
+                    readRow(image, samplesPerPixel, y, current, pixels);
+                    byte[] filtered = filterRow(previous, current, samplesPerPixel, candidates);
+                    if (y < fromRow) {
+                        dictionary.write(filtered, 0, filtered.length);
+                    } else {
+                        if (y == fromRow && dictionary.size() > 0) {
+                            byte[] preceding = dictionary.toByteArray();
+                            int dictionaryLength = Math.min(DICTIONARY_BYTES, preceding.length);
+                            deflater.setDictionary(preceding, preceding.length - dictionaryLength, dictionaryLength);
+                        }
+                        checksum.update(filtered);
+                        length += filtered.length;
+                        deflater.setInput(filtered);
+                        while (!deflater.needsInput()) {
+                            compressed.write(buffer, 0, deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH));
+                        }
+                    }
+                    byte[] swap = previous;
+                    previous = current;
+                    current = swap;
+                }
+                if (toRow == image.getHeight()) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        compressed.write(buffer, 0, deflater.deflate(buffer));
+                    }
+                } else {
+                    int written;
+                    do {
+                        written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                        compressed.write(buffer, 0, written);
+                    } while (written == buffer.length);
+                }
+                adler = checksum.getValue();
+                return this;
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -2,7 +2,6 @@
 // SPDX-License-Identifier: Apache-2.0
 package com.builder.lambda.utils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -70,22 +69,26 @@ public class SfnRequestProcessor extends RequestProcessor<SQSEvent> {
                 // Map bounding-boxes by page
                 Map<String, List<BoundingBox>> boundingBoxesByPage = this
                         .getBoundingBoxesByPage(parsedRedactDataMap);
-                Document document = new Document(s3.getFile(s3InputBucketName, s3Key), fileType,
-                        parsedBody.getInput().getDocument().getCaseId(), parsedBody.getInput().getDocument().getId());
-
-                // get the tags
-                List<Tag> tags = s3.getObjectTags(s3InputBucketName, s3Key);
-
-                // redact and upload back to s3
-                Redactor redactor = this.getRedactor(fileType);
-                ByteArrayOutputStream redactedDoc = redactor.processDocument(document, boundingBoxesByPage);
                 String outputKey = String.format("%s/%s/%s-redacted.%s", s3OutputPrefix,
                         parsedBody.getInput().getDocument().getCaseId(),
                         parsedBody.getInput().getDocument().getId(), extension);
-                s3.putFile(s3InputBucketName, outputKey, redactedDoc);
 
-                // copy over the tags
-                s3.setObjectTags(s3InputBucketName, outputKey, tags);
+                if (!copyIfNothingToRedact(boundingBoxesByPage, s3Key, outputKey)) {
+                    InputStream inputFile = s3.getFile(s3InputBucketName, s3Key);
+                    Document document = new Document(inputFile, fileType,
+                            parsedBody.getInput().getDocument().getCaseId(),
+                            parsedBody.getInput().getDocument().getId(), S3Storage.getContentLength(inputFile));
+
+                    // get the tags
+                    List<Tag> tags = s3.getObjectTags(s3InputBucketName, s3Key);
+
+                    // redact and upload back to s3
+                    Redactor redactor = this.getRedactor(fileType, parsedBody.getInput().getQuality());
+                    redactAndUpload(redactor, document, boundingBoxesByPage, outputKey);
+
+                    // copy over the tags
+                    s3.setObjectTags(s3InputBucketName, outputKey, tags);
+                }
 
                 // Sends the payload back to the step function as-is to mark success
                 sfn.sendTaskSuccess(parsedBody.getInput(), taskToken);
@@ -0,0 +1,441 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.util.Matrix;
+
+import com.builder.lambda.model.BoundingBox;
+import com.builder.lambda.model.Document;
+
+import software.amazon.lambda.powertools.logging.Logging;
+
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class redacts pdf files by removing the text and image pixels under the
+ * bounding boxes from the page content, then drawing black boxes on top. The
+ * rest of the page stays vector content, so it remains selectable, searchable
+ * and small. Pages whose content under the bounding boxes can't be removed
+ * safely, and documents with form fields, are redacted by {@link PdfRedactor}
+ * instead.
+ */
+public class VectorPdfRedactor implements Redactor {
+
+    /**
+     * Marked content properties which may hold a copy of the redacted text
+     */
+    private static final List<COSName> TEXT_PROPERTY_KEYS = List.of(
+            COSName.ACTUAL_TEXT, COSName.ALT, COSName.E);
+
+    /**
+     * Catalog entries which may hold a copy of the redacted text, such as the
+     * structure tree, metadata, bookmarks, named destinations, embedded files and
+     * scripts
+     */
+    private static final List<COSName> CATALOG_TEXT_KEYS = List.of(
+            COSName.STRUCT_TREE_ROOT, COSName.MARK_INFO, COSName.METADATA, COSName.OUTLINES, COSName.NAMES,
+            COSName.DESTS, COSName.OPEN_ACTION, COSName.AA);
+
+    Logger log = LogManager.getLogger(VectorPdfRedactor.class);
+
+    private final PdfRedactor rasterRedactor;
+
+    public VectorPdfRedactor() {
+        rasterRedactor = new PdfRedactor();
+    }
+
+    /**
+     * This method applies redaction on a pdf file using bounding-box information
+     *
+     * @param document            - contains input pdf file
+     * @param boundingBoxesByPage - the bounding boxes to be redacted
+     * @param outputStream        - where the redacted pdf file is written to
+     * @throws IOException if it is unable to process the document to redact
+     */
+    @Override
+    @Logging
+    public void processDocument(Document document, Map<String, List<BoundingBox>> boundingBoxesByPage,
+            OutputStream outputStream) throws IOException {
+        PDDocument pddDoc;
+        try {
+            pddDoc = PDDocument.load(document.fileInputStream);
+        } catch (IOException ioException) {
+            log.error("Unable to load pdf file");
+            throw ioException;
+        }
+
+        if (hasFormFields(pddDoc)) {
+            log.info("Pdf file has form fields, redacting it as images");
+            rasterRedactor.redactDocument(pddDoc, boundingBoxesByPage, outputStream);
+            return;
+        }
+
+        try {
+            pddDoc.setAllSecurityToBeRemoved(true);
+            boolean pagesRedacted = false;
+            for (int pageIndex = 0; pageIndex < pddDoc.getNumberOfPages(); pageIndex++) {
+                pagesRedacted |= redactPage(pddDoc, pageIndex, boundingBoxesByPage);
+            }
+            if (pagesRedacted) {
+                removeDocumentText(pddDoc);
+            }
+            pddDoc.save(outputStream);
+        } catch (IOException ioException) {
+            log.error("Unable to redact pdf file");
+            throw ioException;
+        } finally {
+            pddDoc.close();
+        }
+    }
+
+    /**
+     * Redacts a single page, either by removing the content under its bounding
+     * boxes or, when that isn't safe, by replacing the page with an image of it.
+     *
+     * @return true if the page had anything to redact
+     */
+    private boolean redactPage(PDDocument pddDoc, int pageIndex,
+            Map<String, List<BoundingBox>> boundingBoxesByPage) throws IOException {
+        String pageKey = String.valueOf(pageIndex + 1);
+        PDPage page = pddDoc.getPage(pageIndex);
+        List<Rectangle2D> redactionAreas = getRedactionAreas(page, boundingBoxesByPage.get(pageKey));
+        if (redactionAreas.isEmpty()) {
+            return false;
+        }
+
+        String unsafeReason;
+        try {
+            PdfContentAnalyzer analyzer = new PdfContentAnalyzer(page, redactionAreas);
+            analyzer.analyze();
+            unsafeReason = analyzer.getUnsafeReason();
+            if (unsafeReason == null) {
+                rewritePageContent(pddDoc, page, analyzer, redactionAreas);
+            }
+        } catch (IOException ioException) {
+            unsafeReason = ioException.getMessage();
+        }
+
+        if (unsafeReason != null) {
+            log.info("Redacting page {} as an image: {}", pageKey, unsafeReason);
+            rasterRedactor.rasterizePage(pddDoc, pageIndex, boundingBoxesByPage);
+            return true;
+        }
+        rasterRedactor.drawPageRectangles(pddDoc, pageIndex, boundingBoxesByPage);
+        for (COSName key : PdfImageUtils.REDACTED_PAGE_REMOVED_KEYS) {
+            page.getCOSObject().removeItem(key);
+        }
+        return true;
+    }
+
+    /**
+     * Writes a new content stream for the page, where the redacted glyphs are
+     * replaced by an equivalent move of the text position, and replaces images
+     * under the redaction areas by redacted copies in the page resources. The
+     * page is only changed once the whole content stream is rewritten.
+     *
+     * @throws IOException if the content stream can't be parsed or doesn't match
+     *                     the analysis
+     */
+    private void rewritePageContent(PDDocument pddDoc, PDPage page, PdfContentAnalyzer analyzer,
+            List<Rectangle2D> redactionAreas) throws IOException {
+        PDFStreamParser parser = new PDFStreamParser(page);
+        parser.parse();
+        List<Object> tokens = parser.getTokens();
+        List<Object> rewrittenTokens = new ArrayList<>(tokens.size());
+        List<COSBase> operands = new ArrayList<>();
+        PDResources resources = PdfImageUtils.copyPageResources(page);
+        redactImages(pddDoc, resources, tokens, analyzer, redactionAreas);
+
+        int operatorIndex = -1;
+        for (Object token : tokens) {
+            if (!(token instanceof Operator)) {
+                operands.add((COSBase) token);
+                continue;
+            }
+            operatorIndex++;
+            Operator operator = (Operator) token;
+            PdfContentAnalyzer.TextOperation textOperation = analyzer.getTextOperations().get(operatorIndex);
+            if (textOperation != null && textOperation.hasRedactedGlyphs()) {
+                rewriteTextOperator(operator, operands, textOperation, rewrittenTokens);
+            } else {
+                if (OperatorName.BEGIN_MARKED_CONTENT_SEQ.equals(operator.getName())
+                        || OperatorName.MARKED_CONTENT_POINT_WITH_PROPS.equals(operator.getName())) {
+                    removeTextProperties(resources, operands);
+                }
+                rewrittenTokens.addAll(operands);
+                rewrittenTokens.add(operator);
+            }
+            operands.clear();
+        }
+        rewrittenTokens.addAll(operands);
+
+        PDStream content = new PDStream(pddDoc);
+        try (OutputStream outputStream = content.createOutputStream(COSName.FLATE_DECODE)) {
+            new ContentStreamWriter(outputStream).writeTokens(rewrittenTokens);
+        }
+        page.setContents(content);
+        page.setResources(resources);
+    }
+
+    /**
+     * Writes a text showing operator as a TJ operator where every redacted glyph
+     * is replaced by a number moving the text position by the advance of the
+     * glyph, so the glyphs which are kept stay in place.
+     */
+    private static void rewriteTextOperator(Operator operator, List<COSBase> operands,
+            PdfContentAnalyzer.TextOperation textOperation, List<Object> rewrittenTokens) throws IOException {
+        COSBase text;
+        switch (operator.getName()) {
+            case OperatorName.SHOW_TEXT:
+            case OperatorName.SHOW_TEXT_ADJUSTED:
+                text = getOperand(operands, 0);
+                break;
+            case OperatorName.SHOW_TEXT_LINE:
+                rewrittenTokens.add(Operator.getOperator(OperatorName.NEXT_LINE));
+                text = getOperand(operands, 0);
+                break;
+            case OperatorName.SHOW_TEXT_LINE_AND_SPACE:
+                rewrittenTokens.add(getOperand(operands, 0));
+                rewrittenTokens.add(Operator.getOperator(OperatorName.SET_WORD_SPACING));
+                rewrittenTokens.add(getOperand(operands, 1));
+                rewrittenTokens.add(Operator.getOperator(OperatorName.SET_CHAR_SPACING));
+                rewrittenTokens.add(Operator.getOperator(OperatorName.NEXT_LINE));
+                text = getOperand(operands, 2);
+                break;
+            default:
+                throw new IOException("Unexpected text operator " + operator.getName());
+        }
+
+        COSArray elements;
+        if (text instanceof COSArray) {
+            elements = (COSArray) text;
+        } else {
+            elements = new COSArray();
+            elements.add(text);
+        }
+
+        Iterator<Boolean> redactedGlyphs = textOperation.getRedactedGlyphs().iterator();
+        COSArray rewrittenElements = new COSArray();
+        for (COSBase element : elements) {
+            if (element instanceof COSString) {
+                removeRedactedGlyphs((COSString) element, textOperation, redactedGlyphs, rewrittenElements);
+            } else if (element instanceof COSNumber) {
+                appendAdjustment(rewrittenElements, ((COSNumber) element).floatValue());
+            }
+        }
+        if (redactedGlyphs.hasNext()) {
+            throw new IOException("Text operator shows fewer glyphs than analyzed");
+        }
+        rewrittenTokens.add(rewrittenElements);
+        rewrittenTokens.add(Operator.getOperator(OperatorName.SHOW_TEXT_ADJUSTED));
+    }
+
+    /**
+     * Splits a string of a text showing operator into the runs of glyphs which
+     * are kept, separated by the adjustments replacing the redacted glyphs.
+     */
+    private static void removeRedactedGlyphs(COSString string, PdfContentAnalyzer.TextOperation textOperation,
+            Iterator<Boolean> redactedGlyphs, COSArray rewrittenElements) throws IOException {
+        PDFont font = textOperation.getFont();
+        byte[] bytes = string.getBytes();
+        InputStream inputStream = new ByteArrayInputStream(bytes);
+        ByteArrayOutputStream keptBytes = new ByteArrayOutputStream();
+        while (inputStream.available() > 0) {
+            int start = bytes.length - inputStream.available();
+            int code = font.readCode(inputStream);
+            int codeLength = bytes.length - inputStream.available() - start;
+            if (!redactedGlyphs.hasNext()) {
+                throw new IOException("Text operator shows more glyphs than analyzed");
+            }
+            if (!redactedGlyphs.next()) {
+                keptBytes.write(bytes, start, codeLength);
+                continue;
+            }
+
+            if (keptBytes.size() > 0) {
+                rewrittenElements.add(new COSString(keptBytes.toByteArray()));
+                keptBytes.reset();
+            }
+            // same advance as computed by the text showing operators, word spacing only
+            // applies to single byte code 32
+            float advance = font.getDisplacement(code).getX() * textOperation.getFontSize()
+                    + textOperation.getCharacterSpacing();
+            if (codeLength == 1 && code == 32) {
+                advance += textOperation.getWordSpacing();
+            }
+            appendAdjustment(rewrittenElements, -advance * 1000 / textOperation.getFontSize());
+        }
+        if (keptBytes.size() > 0) {
+            rewrittenElements.add(new COSString(keptBytes.toByteArray()));
+        }
+    }
+
+    /**
+     * Appends a position adjustment to a TJ array, merging it with a preceding
+     * adjustment
+     */
+    private static void appendAdjustment(COSArray elements, float adjustment) {
+        int last = elements.size() - 1;
+        if (last >= 0 && elements.get(last) instanceof COSNumber) {
+            float merged = ((COSNumber) elements.get(last)).floatValue() + adjustment;
+            elements.set(last, new COSFloat(merged));
+        } else {
+            elements.add(new COSFloat(adjustment));
+        }
+    }
+
+    /**
+     * Replaces every image drawn over a redaction area by a redacted copy, stored
+     * under the names of the original image in the page resources. The content
+     * stream keeps drawing the image by the same names, so the original image is
+     * no longer part of the page. When the image is drawn several times, the
+     * copy is redacted for each place it is drawn at.
+     *
+     * @throws IOException if an image can't be found or redacted, or is also
+     *                     drawn by a form xobject which still refers to it
+     */
+    private static void redactImages(PDDocument pddDoc, PDResources resources, List<Object> tokens,
+            PdfContentAnalyzer analyzer, List<Rectangle2D> redactionAreas) throws IOException {
+        Map<COSStream, PDImageXObject> images = new LinkedHashMap<>();
+        Map<COSStream, List<Matrix>> imageMatrices = new HashMap<>();
+        List<COSBase> operands = new ArrayList<>();
+        int operatorIndex = -1;
+        for (Object token : tokens) {
+            if (!(token instanceof Operator)) {
+                operands.add((COSBase) token);
+                continue;
+            }
+            operatorIndex++;
+            Matrix imageMatrix = analyzer.getImageOperations().get(operatorIndex);
+            if (imageMatrix != null) {
+                COSBase name = operands.isEmpty() ? null : operands.get(0);
+                PDXObject xObject = name instanceof COSName ? resources.getXObject((COSName) name) : null;
+                if (!(xObject instanceof PDImageXObject)) {
+                    throw new IOException("Image " + name + " is missing from the page resources");
+                }
+                images.put(xObject.getCOSObject(), (PDImageXObject) xObject);
+                imageMatrices.computeIfAbsent(xObject.getCOSObject(), image -> new ArrayList<>()).add(imageMatrix);
+            }
+            operands.clear();
+        }
+
+        COSDictionary xObjects = (COSDictionary) resources.getCOSObject().getDictionaryObject(COSName.XOBJECT);
+        for (Map.Entry<COSStream, PDImageXObject> image : images.entrySet()) {
+            if (analyzer.getNestedImages().contains(image.getKey())) {
+                throw new IOException("a redacted image is also drawn by a form xobject");
+            }
+            PDImageXObject redactedImage = PdfImageUtils.redactImage(pddDoc, image.getValue(),
+                    imageMatrices.get(image.getKey()), redactionAreas);
+            // the same image may be listed under several names
+            for (COSName name : new ArrayList<>(xObjects.keySet())) {
+                if (xObjects.getDictionaryObject(name) == image.getKey()) {
+                    resources.put(name, redactedImage);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the entries which may hold a copy of the redacted text from the
+     * property list of a marked content operator, whether it is written inline
+     * or named in the page resources
+     */
+    private static void removeTextProperties(PDResources resources, List<COSBase> operands) {
+        COSBase properties = operands.size() > 1 ? operands.get(1) : null;
+        if (properties instanceof COSDictionary) {
+            removeTextProperties((COSDictionary) properties);
+        } else if (properties instanceof COSName) {
+            COSBase propertyLists = resources.getCOSObject().getDictionaryObject(COSName.PROPERTIES);
+            if (!(propertyLists instanceof COSDictionary)) {
+                return;
+            }
+            COSBase propertyList = ((COSDictionary) propertyLists).getDictionaryObject((COSName) properties);
+            if (propertyList instanceof COSDictionary
+                    && TEXT_PROPERTY_KEYS.stream().anyMatch(((COSDictionary) propertyList)::containsKey)) {
+                // named property lists may be shared with other pages, or be optional content
+                // groups which must stay the same object, so only those holding text are copied
+                COSDictionary redactedPropertyList = new COSDictionary((COSDictionary) propertyList);
+                removeTextProperties(redactedPropertyList);
+                ((COSDictionary) propertyLists).setItem((COSName) properties, redactedPropertyList);
+            }
+        }
+    }
+
+    private static void removeTextProperties(COSDictionary propertyList) {
+        for (COSName key : TEXT_PROPERTY_KEYS) {
+            propertyList.removeItem(key);
+        }
+    }
+
+    private static COSBase getOperand(List<COSBase> operands, int index) throws IOException {
+        if (operands.size() <= index) {
+            throw new IOException("Text operator is missing operands");
+        }
+        return operands.get(index);
+    }
+
+    private static List<Rectangle2D> getRedactionAreas(PDPage page, List<BoundingBox> boundingBoxes) {
+        List<Rectangle2D> redactionAreas = new ArrayList<>();
+        if (boundingBoxes != null) {
+            for (BoundingBox boundingBox : boundingBoxes) {
+                if (boundingBox != null) {
+                    redactionAreas.add(PdfRedactor.toPdfRectangle(boundingBox, page.getMediaBox()));
+                }
+            }
+        }
+        return redactionAreas;
+    }
+
+    /**
+     * Removes the document information and the catalog entries which may hold a
+     * copy of the redacted text, as the raster redaction writes a new document
+     * without them
+     */
+    private static void removeDocumentText(PDDocument pddDoc) {
+        pddDoc.getDocument().getTrailer().removeItem(COSName.INFO);
+        PDDocumentCatalog catalog = pddDoc.getDocumentCatalog();
+        for (COSName key : CATALOG_TEXT_KEYS) {
+            catalog.getCOSObject().removeItem(key);
+        }
+    }
+
+    private static boolean hasFormFields(PDDocument pddDoc) {
+        PDAcroForm acroForm = pddDoc.getDocumentCatalog().getAcroForm();
+        return acroForm != null && !acroForm.getFields().isEmpty();
+    }
+}
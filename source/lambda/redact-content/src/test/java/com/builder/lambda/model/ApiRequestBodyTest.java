@@ -11,6 +11,7 @@ import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ApiRequestBodyTest {
@@ -29,6 +30,17 @@ class ApiRequestBodyTest {
         assertEquals(apiRequestBody.hashCode(), anotherApiRequestBody.hashCode());
     }
 
+    @Test
+    public void testQuality() {
+        ApiRequestBody apiRequestBody = new Gson().fromJson("{\"phrases\": [], \"entities\": {}}", ApiRequestBody.class);
+        ApiRequestBody archivalRequestBody = new Gson().fromJson("{\"phrases\": [], \"entities\": {}, \"quality\": \"archival\"}",
+                ApiRequestBody.class);
+
+        assertNull(apiRequestBody.getQuality());
+        assertEquals(RedactionQuality.ARCHIVAL, archivalRequestBody.getQuality());
+        assertFalse(apiRequestBody.equals(archivalRequestBody));
+    }
+
     public void testEntities() throws Exception {
         ApiRequestBody apiRequestBody = new ApiRequestBody();
         Path eventBodyFilePath = Path.of("src/test/java/resources/apiRequestBody-entities.json");
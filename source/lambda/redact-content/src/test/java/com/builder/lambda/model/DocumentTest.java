@@ -38,6 +38,13 @@ class DocumentTest {
         Document document = new Document(mockInputStream, FileType.PDF, "fake-case", "fake-doc");
         assertEquals(mockInputStream, document.fileInputStream);
         assertEquals(FileType.PDF, document.fileType);
+        assertEquals(-1, document.contentLength);
+    }
+
+    @Test
+    public void testShouldKeepContentLength() throws FileNotFoundException {
+        Document document = new Document(mockInputStream, FileType.PNG, "fake-case", "fake-doc", 1024);
+        assertEquals(1024, document.contentLength);
     }
 
     @Test
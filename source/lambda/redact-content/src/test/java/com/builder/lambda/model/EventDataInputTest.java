@@ -14,6 +14,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class EventDataInputTest {
     static String eventBody;
@@ -30,6 +31,13 @@ class EventDataInputTest {
         assertEquals("entity", eventDataInput.getStage());
         assertNotNull(eventDataInput.getDocument());
         assertNotNull(eventDataInput.getInferences());
+        assertNull(eventDataInput.getQuality());
+    }
+
+    @Test
+    public void testQuality() {
+        EventDataInput eventDataInput = new Gson().fromJson("{\"quality\": \"fast\"}", EventDataInput.class);
+        assertEquals(RedactionQuality.FAST, eventDataInput.getQuality());
     }
 
     @Test
@@ -6,6 +6,8 @@ package com.builder.lambda.utils;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
 import com.builder.lambda.model.BoundingBox;
 import com.builder.lambda.model.Document;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 
 import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.model.Tag;
@@ -26,20 +28,25 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.matches;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.times;
@@ -69,7 +76,7 @@ public class ApiRequestProcessorTest {
         // mocking required environment variables
         environmentVariables = new EnvironmentVariables("DOCUMENT_BUCKET_NAME", "fake-bucket",
                 "S3_INFERENCE_BUCKET_NAME", "fake-inference-bucket", "S3_UPLOAD_PREFIX", "initial",
-                "S3_REDACTED_PREFIX", "redacted");
+                "S3_REDACTED_PREFIX", "redacted", "S3_DRAFT_PREFIX", "draft");
     }
 
     @AfterAll
@@ -114,7 +121,7 @@ public class ApiRequestProcessorTest {
         when(mockS3.getObjectTags(matches("fake-bucket"), matches(".*\\.(jpg|pdf)"))).thenReturn(tags);
 
         // do nothing when putting files
-        Mockito.doNothing().when(mockS3).putFile(anyString(), anyString(), any(ByteArrayOutputStream.class));
+        Mockito.doNothing().when(mockS3).putFile(anyString(), anyString(), any(Path.class));
         Mockito.doNothing().when(mockS3).setObjectTags(anyString(), anyString(), anyList());
 
         // return some fake file when listing objects
@@ -136,7 +143,11 @@ public class ApiRequestProcessorTest {
                         .forClass(Map.class);
                 ;
                 verify(mockedImageRedactorConstructor.constructed().get(0), times(1))
-                        .processDocument(any(Document.class), redactionBboxMapCapture.capture());
+                        .processDocument(any(Document.class), redactionBboxMapCapture.capture(),
+                                any(OutputStream.class));
+                // the redacted document is written to a file rather than held in a byte array
+                verify(mockedImageRedactorConstructor.constructed().get(0), never())
+                        .processDocument(any(Document.class), anyMap());
 
                 // ensuring we called the redactor with correct bboxes
                 assertEquals(redactionBboxMapCapture.getValue().size(), 2);
@@ -176,7 +187,7 @@ public class ApiRequestProcessorTest {
                 fakeObjects.set(0, S3Object.builder().key("initial/fake-case/fake-doc.pdf").build());
                 requestProcessor.process(event);
                 verify(mockedPdfRedactorConstructor.constructed().get(0), times(1))
-                        .processDocument(any(Document.class), anyMap());
+                        .processDocument(any(Document.class), anyMap(), any(OutputStream.class));
 
                 // ensuring we pulled expected files from s3
                 verify(mockS3, times(1)).getFile("fake-bucket", "initial/fake-case/fake-doc.jpg");
@@ -192,11 +203,13 @@ public class ApiRequestProcessorTest {
                 verify(mockS3, times(2)).getFile("fake-inference-bucket",
                         "fake-case/fake-doc/textract-detectText.json");
 
-                // since redactor is mocked, the file it outputs is null
-                verify(mockS3, times(1)).putFile("fake-bucket", "redacted/fake-case/fake-doc-redacted.jpg", null);
+                // the redacted documents are uploaded from scratch files
+                verify(mockS3, times(1)).putFile(eq("fake-bucket"), eq("redacted/fake-case/fake-doc-redacted.jpg"),
+                        any(Path.class));
                 verify(mockS3, times(1)).setObjectTags("fake-bucket", "redacted/fake-case/fake-doc-redacted.jpg", tags);
 
-                verify(mockS3, times(1)).putFile("fake-bucket", "redacted/fake-case/fake-doc-redacted.pdf", null);
+                verify(mockS3, times(1)).putFile(eq("fake-bucket"), eq("redacted/fake-case/fake-doc-redacted.pdf"),
+                        any(Path.class));
                 verify(mockS3, times(1)).setObjectTags("fake-bucket", "redacted/fake-case/fake-doc-redacted.pdf", tags);
 
                 // run process again and ensure we did not re-construct the redactors
@@ -220,7 +233,8 @@ public class ApiRequestProcessorTest {
                 requestProcessor.process(phrasesEvent);
 
                 // after above executions, we should have run 4 times
-                verify(mockS3, times(4)).putFile("fake-bucket", "redacted/fake-case/fake-doc-redacted.pdf", null);
+                verify(mockS3, times(4)).putFile(eq("fake-bucket"), eq("redacted/fake-case/fake-doc-redacted.pdf"),
+                        any(Path.class));
                 verify(mockS3, times(4)).setObjectTags("fake-bucket", "redacted/fake-case/fake-doc-redacted.pdf", tags);
 
                 mockedImageRedactorConstructor.close();
@@ -300,6 +314,145 @@ public class ApiRequestProcessorTest {
         });
     }
 
+    @Test
+    public void testProcessesRequestCopiesDocumentWithNothingToRedact() throws Exception {
+        EnvironmentVariables copyEnvironmentVariables = new EnvironmentVariables("DOCUMENT_BUCKET_NAME",
+                "fake-bucket", "S3_INFERENCE_BUCKET_NAME", "fake-inference-bucket", "S3_UPLOAD_PREFIX", "initial",
+                "S3_REDACTED_PREFIX", "redacted", "ZERO_REDACTION_COPY", "true");
+        MockedConstruction<PdfRedactor> mockedPdfRedactorConstructor = Mockito
+                .mockConstruction(PdfRedactor.class);
+        try {
+            // we have mocked environment vars inside this scope
+            copyEnvironmentVariables.execute(() -> {
+                ArrayList<S3Object> fakeObjects = new ArrayList<S3Object>();
+                fakeObjects.add(S3Object.builder().key("initial/fake-case/fake-doc.pdf").build());
+                S3Storage mockS3 = mock(S3Storage.class);
+                when(mockS3.listObjects(anyString(), anyString())).thenReturn(fakeObjects);
+                // none of the inferences can be read, so there is nothing to redact
+                when(mockS3.getFile(anyString(), anyString())).thenThrow(new FileNotFoundException());
+
+                ApiRequestProcessor requestProcessor = new ApiRequestProcessor(mockS3);
+                requestProcessor.process(event);
+
+                verify(mockS3, times(1)).copyFile("fake-bucket", "initial/fake-case/fake-doc.pdf",
+                        "redacted/fake-case/fake-doc-redacted.pdf");
+                verify(mockS3, never()).getFile("fake-bucket", "initial/fake-case/fake-doc.pdf");
+                verify(mockS3, never()).putFile(anyString(), anyString(), any(Path.class));
+                assertEquals(0, mockedPdfRedactorConstructor.constructed().size());
+            });
+        } finally {
+            mockedPdfRedactorConstructor.closeOnDemand();
+        }
+    }
+
+    @Test
+    public void testProcessesDraftRequestMarksPdfRedactions() throws Exception {
+        MockedConstruction<DraftPdfRedactor> mockedDraftRedactorConstructor = Mockito
+                .mockConstruction(DraftPdfRedactor.class);
+        MockedConstruction<PdfRedactor> mockedPdfRedactorConstructor = Mockito
+                .mockConstruction(PdfRedactor.class);
+        try {
+            // we have mocked environment vars inside this scope
+            environmentVariables.execute(() -> {
+                JsonObject draftBody = JsonParser.parseString(event.getBody()).getAsJsonObject();
+                draftBody.addProperty("mode", "draft");
+                APIGatewayV2HTTPEvent draftEvent = new APIGatewayV2HTTPEvent();
+                draftEvent.setBody(draftBody.toString());
+                draftEvent.setPathParameters(Map.of("caseId", "fake-case", "documentId", "fake-doc"));
+
+                ArrayList<S3Object> fakeObjects = new ArrayList<S3Object>();
+                fakeObjects.add(S3Object.builder().key("initial/fake-case/fake-doc.pdf").build());
+                S3Storage mockS3 = mock(S3Storage.class);
+                when(mockS3.listObjects(anyString(), anyString())).thenReturn(fakeObjects);
+                when(mockS3.getFile(matches("fake-inference-bucket"), anyString()))
+                        .thenThrow(new FileNotFoundException());
+                when(mockS3.getFile(matches("fake-bucket"), anyString()))
+                        .thenReturn(new ByteArrayInputStream("fake data".getBytes()));
+
+                ApiRequestProcessor requestProcessor = new ApiRequestProcessor(mockS3);
+                requestProcessor.process(draftEvent);
+
+                verify(mockedDraftRedactorConstructor.constructed().get(0), times(1))
+                        .processDocument(any(Document.class), anyMap(), any(OutputStream.class));
+                assertEquals(0, mockedPdfRedactorConstructor.constructed().size());
+                verify(mockS3, times(1)).putFile(eq("fake-bucket"), eq("draft/fake-case/fake-doc-draft.pdf"),
+                        any(Path.class));
+            });
+        } finally {
+            mockedDraftRedactorConstructor.closeOnDemand();
+            mockedPdfRedactorConstructor.closeOnDemand();
+        }
+    }
+
+    @Test
+    public void testProcessesDraftRequestWithoutDraftPrefix() throws Exception {
+        EnvironmentVariables noDraftEnvironmentVariables = new EnvironmentVariables("DOCUMENT_BUCKET_NAME",
+                "fake-bucket", "S3_INFERENCE_BUCKET_NAME", "fake-inference-bucket", "S3_UPLOAD_PREFIX", "initial",
+                "S3_REDACTED_PREFIX", "redacted");
+        noDraftEnvironmentVariables.execute(() -> {
+            JsonObject draftBody = JsonParser.parseString(event.getBody()).getAsJsonObject();
+            draftBody.addProperty("mode", "draft");
+            APIGatewayV2HTTPEvent draftEvent = new APIGatewayV2HTTPEvent();
+            draftEvent.setBody(draftBody.toString());
+            draftEvent.setPathParameters(Map.of("caseId", "fake-case", "documentId", "fake-doc"));
+
+            ArrayList<S3Object> fakeObjects = new ArrayList<S3Object>();
+            fakeObjects.add(S3Object.builder().key("initial/fake-case/fake-doc.pdf").build());
+            S3Storage mockS3 = mock(S3Storage.class);
+            when(mockS3.listObjects(anyString(), anyString())).thenReturn(fakeObjects);
+            when(mockS3.getFile(matches("fake-inference-bucket"), anyString()))
+                    .thenThrow(new FileNotFoundException());
+
+            // a draft is never uploaded under the redacted prefix
+            ApiRequestProcessor requestProcessor = new ApiRequestProcessor(mockS3);
+            assertThrows(IllegalStateException.class, () -> requestProcessor.process(draftEvent));
+            verify(mockS3, never()).putFile(anyString(), anyString(), any(Path.class));
+        });
+    }
+
+    @Test
+    public void testProcessesRequestUploadsRedactedDocumentFromFile() throws Exception {
+        // the redactor writes the redacted document to the stream it is given
+        MockedConstruction<ImageRedactor> mockedImageRedactorConstructor = Mockito.mockConstruction(
+                ImageRedactor.class,
+                (redactor, context) -> Mockito.doAnswer(invocation -> {
+                    invocation.getArgument(2, OutputStream.class).write("redacted data".getBytes());
+                    return null;
+                }).when(redactor).processDocument(any(Document.class), anyMap(), any(OutputStream.class)));
+        List<Path> uploadedFiles = new ArrayList<>();
+        try {
+            // we have mocked environment vars inside this scope
+            environmentVariables.execute(() -> {
+                ArrayList<S3Object> fakeObjects = new ArrayList<S3Object>();
+                fakeObjects.add(S3Object.builder().key("initial/fake-case/fake-doc.jpg").build());
+                S3Storage mockS3 = mock(S3Storage.class);
+                when(mockS3.listObjects(anyString(), anyString())).thenReturn(fakeObjects);
+                when(mockS3.getFile(matches("fake-inference-bucket"), anyString()))
+                        .thenThrow(new FileNotFoundException());
+                when(mockS3.getFile(matches("fake-bucket"), anyString()))
+                        .thenReturn(new ByteArrayInputStream("fake data".getBytes()));
+                Mockito.doAnswer(invocation -> {
+                    Path file = invocation.getArgument(2, Path.class);
+                    assertArrayEquals("redacted data".getBytes(), Files.readAllBytes(file));
+                    uploadedFiles.add(file);
+                    return null;
+                }).when(mockS3).putFile(anyString(), anyString(), any(Path.class));
+
+                ApiRequestProcessor requestProcessor = new ApiRequestProcessor(mockS3);
+                requestProcessor.process(event);
+
+                verify(mockedImageRedactorConstructor.constructed().get(0), never())
+                        .processDocument(any(Document.class), anyMap());
+                verify(mockS3, never()).putFile(anyString(), anyString(), any(ByteArrayOutputStream.class));
+                assertEquals(1, uploadedFiles.size());
+                // the scratch file is deleted once uploaded
+                assertFalse(Files.exists(uploadedFiles.get(0)));
+            });
+        } finally {
+            mockedImageRedactorConstructor.closeOnDemand();
+        }
+    }
+
     @Test
     public void testProcessesRequestFailsOnGetFile() throws Exception {
         // we have mocked environment vars inside this scope
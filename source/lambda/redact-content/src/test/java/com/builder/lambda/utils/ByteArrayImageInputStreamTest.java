@@ -0,0 +1,62 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ByteArrayImageInputStreamTest {
+
+    @Test
+    public void testReadAndSeek() throws IOException {
+        byte[] data = new byte[] { 9, 1, 2, 3, 4, 5, 9 };
+        try (ImageInputStream stream = new ByteArrayImageInputStream(data, 1, 5)) {
+            assertEquals(5, stream.length());
+            assertEquals(1, stream.read());
+
+            byte[] buffer = new byte[8];
+            assertEquals(4, stream.read(buffer, 0, buffer.length));
+            assertEquals(-1, stream.read());
+            assertEquals(-1, stream.read(buffer, 0, buffer.length));
+
+            stream.seek(2);
+            assertEquals(3, stream.read());
+            stream.seek(0);
+            stream.readFully(buffer, 0, 5);
+            assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 0, 0, 0 }, buffer);
+        }
+    }
+
+    @Test
+    public void testReadImage() throws IOException {
+        BufferedImage image = new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(5, 5, 10, 10);
+        graphics.dispose();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+
+        BufferedImage readImage = ImageIO.read(new ByteArrayImageInputStream(outputStream.toByteArray()));
+        assertEquals(30, readImage.getWidth());
+        assertEquals(Color.RED.getRGB(), readImage.getRGB(10, 10));
+        assertEquals(Color.BLACK.getRGB(), readImage.getRGB(20, 10));
+    }
+
+    @Test
+    public void testOutOfBoundsRange() {
+        assertThrows(IndexOutOfBoundsException.class, () -> new ByteArrayImageInputStream(new byte[4], 2, 3));
+    }
+}
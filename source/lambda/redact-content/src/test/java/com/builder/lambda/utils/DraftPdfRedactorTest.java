@@ -0,0 +1,82 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import com.builder.lambda.model.BoundingBox;
+import com.builder.lambda.model.Document;
+import com.builder.lambda.model.FileType;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DraftPdfRedactorTest {
+
+    @Test
+    public void testProcessDocumentMarksRedactionsIncrementally() throws Exception {
+        byte[] pdf = createPdf(2);
+        Map<String, List<BoundingBox>> boundingBoxesByPage = new HashMap<>();
+        boundingBoxesByPage.put("2", Arrays.asList(new BoundingBox(0.5, 0.25, 0.25, 0.5), null));
+
+        ByteArrayOutputStream outputStream = new DraftPdfRedactor().processDocument(
+                new Document(new ByteArrayInputStream(pdf), FileType.PDF, "fake-case", "fake-doc"),
+                boundingBoxesByPage);
+
+        // the original file is kept as is, and the annotations are appended to it
+        byte[] draft = outputStream.toByteArray();
+        assertTrue(draft.length > pdf.length);
+        assertTrue(Arrays.equals(pdf, 0, pdf.length, draft, 0, pdf.length));
+
+        try (PDDocument draftDoc = PDDocument.load(draft)) {
+            assertEquals(0, draftDoc.getPage(0).getAnnotations().size());
+            List<PDAnnotation> annotations = draftDoc.getPage(1).getAnnotations();
+            assertEquals(1, annotations.size());
+            assertEquals("Redact", annotations.get(0).getSubtype());
+            assertNotNull(annotations.get(0).getAppearance());
+            PDRectangle area = annotations.get(0).getRectangle();
+            assertEquals(50, area.getLowerLeftX(), 0.01);
+            assertEquals(50, area.getLowerLeftY(), 0.01);
+            assertEquals(100, area.getWidth(), 0.01);
+            assertEquals(50, area.getHeight(), 0.01);
+
+            // the content under the annotation is still there
+            assertTrue(new PDFTextStripper().getText(draftDoc).contains("Page 2"));
+        }
+    }
+
+    private static byte[] createPdf(int numberOfPages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < numberOfPages; i++) {
+                PDPage page = new PDPage(new PDRectangle(200, 200));
+                doc.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(doc, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(PDType1Font.HELVETICA, 12);
+                    contentStream.newLineAtOffset(60, 100);
+                    contentStream.showText("Page " + (i + 1));
+                    contentStream.endText();
+                }
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            doc.save(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ExifOrientationTest {
+
+    @Test
+    public void testApplyKeepsUnorientedImage() {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB, 5, 3);
+
+        assertSame(image, ExifOrientation.apply(image, 1));
+        assertSame(image, ExifOrientation.apply(image, 0));
+        assertSame(image, ExifOrientation.apply(image, 9));
+    }
+
+    @Test
+    public void testApplyMovesPixels() {
+        int[] types = { BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+                BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_BINARY,
+                BufferedImage.TYPE_USHORT_GRAY };
+        for (int type : types) {
+            BufferedImage image = createImage(type, 7, 4);
+            for (int orientation = 2; orientation <= 8; orientation++) {
+                assertOriented(image, ExifOrientation.apply(image, orientation), orientation);
+            }
+        }
+    }
+
+    @Test
+    public void testApplyOnSubimage() {
+        BufferedImage image = createImage(BufferedImage.TYPE_3BYTE_BGR, 20, 16).getSubimage(3, 5, 9, 6);
+        for (int orientation = 2; orientation <= 8; orientation++) {
+            assertOriented(image, ExifOrientation.apply(image, orientation), orientation);
+        }
+    }
+
+    @Test
+    public void testApplyOnLargeImage() {
+        // large enough to be oriented on several threads
+        BufferedImage image = createImage(BufferedImage.TYPE_3BYTE_BGR, 2500, 1700);
+        assertOriented(image, ExifOrientation.apply(image, 6), 6);
+        assertOriented(image, ExifOrientation.apply(image, 3), 3);
+    }
+
+    private static void assertOriented(BufferedImage image, BufferedImage oriented, int orientation) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swapsSides = orientation >= 5;
+        assertEquals(image.getType(), oriented.getType());
+        assertEquals(swapsSides ? height : width, oriented.getWidth());
+        assertEquals(swapsSides ? width : height, oriented.getHeight());
+        for (int y = 0; y < oriented.getHeight(); y++) {
+            for (int x = 0; x < oriented.getWidth(); x++) {
+                int expected;
+                switch (orientation) {
+                    case 2:
+                        expected = image.getRGB(width - 1 - x, y);
+                        break;
+                    case 3:
+                        expected = image.getRGB(width - 1 - x, height - 1 - y);
+                        break;
+                    case 4:
+                        expected = image.getRGB(x, height - 1 - y);
+                        break;
+                    case 5:
+                        expected = image.getRGB(y, x);
+                        break;
+                    case 6:
+                        expected = image.getRGB(y, height - 1 - x);
+                        break;
+                    case 7:
+                        expected = image.getRGB(width - 1 - y, height - 1 - x);
+                        break;
+                    default:
+                        expected = image.getRGB(width - 1 - y, x);
+                        break;
+                }
+                assertEquals(expected, oriented.getRGB(x, y));
+            }
+        }
+    }
+
+    private static BufferedImage createImage(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
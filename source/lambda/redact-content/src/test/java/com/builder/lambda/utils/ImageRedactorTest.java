@@ -18,11 +18,16 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
+import uk.org.webcompere.systemstubs.environment.EnvironmentVariables;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -35,9 +40,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -82,7 +89,7 @@ public class ImageRedactorTest {
                 exifIFD0Directory.setInt(ExifIFD0Directory.TAG_ORIENTATION, i);
                 fakeMetadata.addDirectory(exifIFD0Directory);
 
-                mockedImageMetadataReader.when(() -> ImageMetadataReader.readMetadata(any(InputStream.class)))
+                mockedImageMetadataReader.when(() -> ImageMetadataReader.readMetadata(any(InputStream.class), anyLong()))
                         .thenReturn(fakeMetadata);
 
                 BufferedImage rotatedImg = imageRedactor.loadImageWithCorrection(imgDoc);
@@ -112,7 +119,7 @@ public class ImageRedactorTest {
                 final InputStream imgStream = new FileInputStream(imgFile);
                 Document imgDoc = new Document(imgStream, FileType.JPG, "fake-case", "fake-doc");
 
-                mockedImageMetadataReader.when(() -> ImageMetadataReader.readMetadata(any(InputStream.class)))
+                mockedImageMetadataReader.when(() -> ImageMetadataReader.readMetadata(any(InputStream.class), anyLong()))
                         .thenThrow(new RuntimeException("fake error"));
 
                 // should have loaded just the image without taking into acount orientation
@@ -123,6 +130,75 @@ public class ImageRedactorTest {
         }
     }
 
+    @Test
+    public void testReadEncodedImage() throws IOException {
+        byte[] file = new byte[] { 1, 2, 3, 4, 5 };
+
+        assertArrayEquals(file, ImageRedactor.readEncodedImage(
+                new Document(new ByteArrayInputStream(file), FileType.PNG, "case-id", "doc-id", 5)));
+        assertArrayEquals(file, ImageRedactor.readEncodedImage(
+                new Document(new ByteArrayInputStream(file), FileType.PNG, "case-id", "doc-id")));
+        assertThrows(EOFException.class, () -> ImageRedactor.readEncodedImage(
+                new Document(new ByteArrayInputStream(file), FileType.PNG, "case-id", "doc-id", 6)));
+    }
+
+    @Test
+    public void testProcessDocumentWithJpegBlockRedaction() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("JPEG_BLOCK_REDACTION", "true");
+        environmentVariables.execute(() -> {
+            ImageRedactor blockRedactor = new ImageRedactor();
+            BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, 320, 240);
+            graphics.dispose();
+            ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", jpeg);
+
+            ByteArrayOutputStream output = blockRedactor.processDocument(
+                    new Document(new ByteArrayInputStream(jpeg.toByteArray()), FileType.JPG, "case-id", "doc-id"),
+                    Map.of("1", List.of(new BoundingBox(0.25, 0.25, 0.5, 0.5))));
+            BufferedImage redactedImage = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+            assertEquals(320, redactedImage.getWidth());
+            assertEquals(Color.BLACK.getRGB(), redactedImage.getRGB(200, 150));
+            assertEquals(Color.WHITE.getRGB(), redactedImage.getRGB(20, 20));
+
+            // the sample is stored rotated, so it is decoded to be oriented and redacted
+            File imgFile = new File("src/test/java/resources/patient_intake_form_sample.jpg");
+            output = blockRedactor.processDocument(
+                    new Document(new FileInputStream(imgFile), FileType.JPG, "case-id", "doc-id"), boundingBoxesByPage);
+            assertEquals(3024, ImageIO.read(new ByteArrayInputStream(output.toByteArray())).getWidth());
+        });
+    }
+
+    @Test
+    public void testProcessDocumentWithPngStreaming() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PNG_STREAMING", "true");
+        environmentVariables.execute(() -> {
+            ImageRedactor streamingRedactor = new ImageRedactor();
+            Map<String, List<BoundingBox>> boxes = Map.of("1", List.of(new BoundingBox(0.25, 0.25, 0.5, 0.5)));
+            for (int type : new int[] { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_BINARY }) {
+                // the bilevel image is decoded to be redacted
+                BufferedImage image = new BufferedImage(320, 240, type);
+                Graphics2D graphics = image.createGraphics();
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, 320, 240);
+                graphics.dispose();
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(image, "png", png);
+
+                ByteArrayOutputStream output = streamingRedactor.processDocument(
+                        new Document(new ByteArrayInputStream(png.toByteArray()), FileType.PNG, "case-id", "doc-id"),
+                        boxes);
+                BufferedImage redactedImage = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+                assertEquals(ImageIO.read(new ByteArrayInputStream(png.toByteArray())).getType(),
+                        redactedImage.getType());
+                assertEquals(Color.BLACK.getRGB(), redactedImage.getRGB(200, 150));
+                assertEquals(Color.WHITE.getRGB(), redactedImage.getRGB(20, 20));
+            }
+        });
+    }
+
     @Test
     public void testProcessDocumentNullFile() {
         assertThrows(FileNotFoundException.class, () -> imageRedactor.processDocument(
@@ -139,10 +215,10 @@ public class ImageRedactorTest {
     @Test
     public void testProcessDocumentShouldPassWithoutError() throws IOException {
         try (MockedStatic<ImageIO> mockedImageIO = Mockito.mockStatic(ImageIO.class, Mockito.CALLS_REAL_METHODS)) {
-            InputStream mockInputStream = mock(InputStream.class);
+            InputStream mockInputStream = new ByteArrayInputStream(new byte[0]);
             BufferedImage bufferedImage = mock(BufferedImage.class);
             Graphics2D graphics = mock(Graphics2D.class);
-            mockedImageIO.when(() -> ImageIO.read(any(InputStream.class))).thenReturn(bufferedImage);
+            mockedImageIO.when(() -> ImageIO.read(any(ImageInputStream.class))).thenReturn(bufferedImage);
             mockedImageIO.when(() -> ImageIO.write(any(), anyString(), any(ByteArrayOutputStream.class)))
                     .thenReturn(true);
             when(bufferedImage.createGraphics()).thenReturn(graphics);
@@ -156,10 +232,10 @@ public class ImageRedactorTest {
     @Test
     public void testProcessDocumentShouldThrowError() {
         try (MockedStatic<ImageIO> mockedImageIO = Mockito.mockStatic(ImageIO.class, Mockito.CALLS_REAL_METHODS)) {
-            InputStream mockInputStream = mock(InputStream.class);
+            InputStream mockInputStream = new ByteArrayInputStream(new byte[0]);
             BufferedImage bufferedImage = mock(BufferedImage.class);
             Graphics2D graphics = mock(Graphics2D.class);
-            mockedImageIO.when(() -> ImageIO.read(any(InputStream.class))).thenThrow(IOException.class);
+            mockedImageIO.when(() -> ImageIO.read(any(ImageInputStream.class))).thenThrow(IOException.class);
             when(bufferedImage.createGraphics()).thenReturn(graphics);
 
             assertThrows(IOException.class, () -> imageRedactor.processDocument(
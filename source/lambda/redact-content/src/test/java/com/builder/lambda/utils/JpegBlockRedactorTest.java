@@ -0,0 +1,229 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import com.builder.lambda.model.BoundingBox;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JpegBlockRedactorTest {
+    private static final List<BoundingBox> BOXES = List.of(new BoundingBox(0.2, 0.25, 0.25, 0.25));
+
+    private final JpegBlockRedactor redactor = new JpegBlockRedactor();
+
+    @Test
+    public void testRedactColorImage() throws IOException {
+        BufferedImage image = createImage(BufferedImage.TYPE_3BYTE_BGR, 200, 120);
+        assertRedacted(encode(image, 0, false, false), 16);
+    }
+
+    @Test
+    public void testRedactGrayImage() throws IOException {
+        BufferedImage image = createImage(BufferedImage.TYPE_BYTE_GRAY, 203, 117);
+        assertRedacted(encode(image, 0, false, false), 8);
+    }
+
+    @Test
+    public void testRedactImageWithOptimizedTables() throws IOException {
+        // the tables only code the symbols of the image, not those of black blocks
+        BufferedImage image = createImage(BufferedImage.TYPE_3BYTE_BGR, 160, 96);
+        assertRedacted(encode(image, 0, true, false), 16);
+    }
+
+    @Test
+    public void testRedactCopiesUnredactedRestartIntervals() throws IOException {
+        byte[] jpeg = encode(createImage(BufferedImage.TYPE_3BYTE_BGR, 200, 120), 4, false, false);
+        byte[] redacted = assertRedacted(jpeg, 16);
+
+        // the first restart interval, before the redacted area, is copied byte for byte
+        int scanStart = indexOf(jpeg, new byte[] { (byte) 0xFF, (byte) 0xDA }, 0);
+        int firstRestart = indexOf(jpeg, new byte[] { (byte) 0xFF, (byte) 0xD0 }, scanStart);
+        int redactedScanStart = indexOf(redacted, new byte[] { (byte) 0xFF, (byte) 0xDA }, 0);
+        assertTrue(firstRestart > scanStart);
+        assertArrayEquals(Arrays.copyOfRange(jpeg, scanStart, firstRestart + 2),
+                Arrays.copyOfRange(redacted, redactedScanStart, redactedScanStart + firstRestart + 2 - scanStart));
+    }
+
+    @Test
+    public void testRedactRemovesMetadata() throws IOException {
+        byte[] jpeg = encode(createImage(BufferedImage.TYPE_3BYTE_BGR, 64, 64), 0, false, false);
+        byte[] exif = "Exif\0\0unredacted thumbnail".getBytes(StandardCharsets.US_ASCII);
+        byte[] withExif = new byte[jpeg.length + 4 + exif.length];
+        System.arraycopy(jpeg, 0, withExif, 0, 2);
+        withExif[2] = (byte) 0xFF;
+        withExif[3] = (byte) 0xE1;
+        withExif[5] = (byte) (exif.length + 2);
+        System.arraycopy(exif, 0, withExif, 6, exif.length);
+        System.arraycopy(jpeg, 2, withExif, 6 + exif.length, jpeg.length - 2);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertTrue(redactor.redact(withExif, BOXES, outputStream));
+        assertEquals(-1, indexOf(outputStream.toByteArray(), exif, 0));
+        assertEquals(64, ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray())).getWidth());
+    }
+
+    @Test
+    public void testRedactWithoutBoxesKeepsImage() throws IOException {
+        byte[] jpeg = encode(createImage(BufferedImage.TYPE_3BYTE_BGR, 64, 48), 0, false, false);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        assertTrue(redactor.redact(jpeg, List.of(), outputStream));
+        int scanStart = indexOf(jpeg, new byte[] { (byte) 0xFF, (byte) 0xDA }, 0);
+        byte[] redacted = outputStream.toByteArray();
+        assertArrayEquals(Arrays.copyOfRange(jpeg, scanStart, jpeg.length),
+                Arrays.copyOfRange(redacted, redacted.length - (jpeg.length - scanStart), redacted.length));
+    }
+
+    @Test
+    public void testRedactUnsupportedFiles() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] progressive = encode(createImage(BufferedImage.TYPE_3BYTE_BGR, 64, 48), 0, false, true);
+        byte[] truncated = Arrays.copyOf(encode(createImage(BufferedImage.TYPE_3BYTE_BGR, 64, 48), 0, false, false),
+                400);
+
+        assertFalse(redactor.redact(progressive, BOXES, outputStream));
+        assertFalse(redactor.redact(truncated, BOXES, outputStream));
+        assertFalse(redactor.redact(new byte[] { (byte) 0x89, 'P', 'N', 'G' }, BOXES, outputStream));
+        assertEquals(0, outputStream.size());
+    }
+
+    @Test
+    public void testCreateOptimalTable() throws IOException {
+        // frequencies of a fibonacci sequence give codes longer than 16 bits before they are limited
+        long[] frequencies = new long[256];
+        long previous = 1;
+        long current = 1;
+        for (int symbol = 0; symbol < 30; symbol++) {
+            frequencies[symbol] = current;
+            current += previous;
+            previous = current - previous;
+        }
+
+        JpegBlockRedactor.HuffmanTable table = JpegBlockRedactor.createOptimalTable(frequencies);
+        double kraftSum = 0;
+        for (int symbol = 0; symbol < 30; symbol++) {
+            assertTrue(table.codeSizes[symbol] > 0 && table.codeSizes[symbol] <= 16);
+            kraftSum += Math.pow(2, -table.codeSizes[symbol]);
+        }
+        assertEquals(0, table.codeSizes[30]);
+        // a code point is left unused, so that no code is made of only 1 bits
+        assertTrue(kraftSum < 1);
+        assertTrue(table.codeSizes[29] <= table.codeSizes[0]);
+    }
+
+    /**
+     * Redacts the JPEG file and checks that the redacted area is black, and that
+     * the image is unchanged away from the MCUs of the redacted area
+     */
+    private byte[] assertRedacted(byte[] jpeg, int mcuSize) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertTrue(redactor.redact(jpeg, BOXES, outputStream));
+        byte[] redacted = outputStream.toByteArray();
+
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(jpeg));
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(redacted));
+        int width = image.getWidth();
+        int height = image.getHeight();
+        assertEquals(original.getWidth(), width);
+        assertEquals(original.getHeight(), height);
+        int left = (int) Math.floor(0.25 * width);
+        int top = (int) Math.floor(0.25 * height);
+        int right = (int) Math.ceil(0.45 * width);
+        int bottom = (int) Math.ceil(0.5 * height);
+        int mcuLeft = left / mcuSize * mcuSize;
+        int mcuTop = top / mcuSize * mcuSize;
+        int mcuRight = (right + mcuSize - 1) / mcuSize * mcuSize;
+        int mcuBottom = (bottom + mcuSize - 1) / mcuSize * mcuSize;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                if (x >= left && x < right && y >= top && y < bottom) {
+                    // chroma may be interpolated from the neighboring blocks near the edges
+                    assertTrue(((rgb >> 16) & 0xFF) < 24 && ((rgb >> 8) & 0xFF) < 24 && (rgb & 0xFF) < 24,
+                            "pixel " + x + "," + y + " isn't black");
+                } else if (x < mcuLeft - mcuSize || x >= mcuRight + mcuSize || y < mcuTop - mcuSize
+                        || y >= mcuBottom + mcuSize) {
+                    assertEquals(original.getRGB(x, y), rgb, "pixel " + x + "," + y + " changed");
+                }
+            }
+        }
+        return redacted;
+    }
+
+    private static BufferedImage createImage(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(7);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = (x * 255 / width + random.nextInt(32)) & 0xFF;
+                int green = (y * 255 / height + random.nextInt(32)) & 0xFF;
+                image.setRGB(x, y, red << 16 | green << 8 | (red + green) / 2);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, int restartInterval, boolean optimizeTables,
+            boolean progressive) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (progressive) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        if (optimizeTables) {
+            ((JPEGImageWriteParam) param).setOptimizeHuffmanTables(true);
+        }
+        IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image),
+                param);
+        if (restartInterval > 0) {
+            String format = "javax_imageio_jpeg_image_1.0";
+            IIOMetadataNode tree = (IIOMetadataNode) metadata.getAsTree(format);
+            IIOMetadataNode markerSequence = (IIOMetadataNode) tree.getElementsByTagName("markerSequence").item(0);
+            IIOMetadataNode dri = new IIOMetadataNode("dri");
+            dri.setAttribute("interval", Integer.toString(restartInterval));
+            markerSequence.insertBefore(dri, markerSequence.getFirstChild());
+            metadata.setFromTree(format, tree);
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        for (int index = from; index <= data.length - pattern.length; index++) {
+            if (Arrays.equals(data, index, index + pattern.length, pattern, 0, pattern.length)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,53 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PageDpiResolverTest {
+    static final PageDpiResolver resolver = new PageDpiResolver(100, 300);
+
+    @Test
+    public void testResolveScannedPage() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            // a 2x2 inch page covered by a 300x300 pixel image is a 150-dpi scan
+            assertEquals(150, resolver.resolve(createPage(doc, 300, 144)));
+        }
+    }
+
+    @Test
+    public void testResolveScannedPageAboveMaximum() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            assertEquals(300, resolver.resolve(createPage(doc, 1200, 144)));
+        }
+    }
+
+    @Test
+    public void testResolvePageWithSmallImage() throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            assertEquals(100, resolver.resolve(createPage(doc, 300, 36)));
+            assertEquals(100, resolver.resolve(new PDPage(new PDRectangle(144, 144))));
+        }
+    }
+
+    private static PDPage createPage(PDDocument doc, int imageSize, float drawnSize) throws IOException {
+        PDPage page = new PDPage(new PDRectangle(144, 144));
+        doc.addPage(page);
+        BufferedImage image = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_BYTE_GRAY);
+        try (PDPageContentStream contentStream = new PDPageContentStream(doc, page)) {
+            contentStream.drawImage(LosslessFactory.createFromImage(doc, image), 0, 0, drawnSize, drawnSize);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,75 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class PageImageDeduplicatorTest {
+
+    @Test
+    public void testEncodeReusesIdenticalImages() throws Exception {
+        PageImageDeduplicator deduplicator = new PageImageDeduplicator();
+        AtomicInteger encodedImages = new AtomicInteger();
+        try (PDDocument doc = new PDDocument()) {
+            PageTileRenderer.TileEncoder encoder = image -> {
+                encodedImages.incrementAndGet();
+                return LosslessFactory.createFromImage(doc, image);
+            };
+            PDImageXObject first = deduplicator.encode(createImage(Color.WHITE), encoder);
+            PDImageXObject second = deduplicator.encode(createImage(Color.WHITE), encoder);
+            PDImageXObject third = deduplicator.encode(createImage(Color.GRAY), encoder);
+
+            assertSame(first, second);
+            assertNotSame(first, third);
+            assertEquals(2, encodedImages.get());
+            assertEquals(1, deduplicator.getReusedImages());
+        }
+    }
+
+    @Test
+    public void testHashCoversTypeSizeAndPixels() {
+        BufferedImage image = createImage(Color.WHITE);
+        String hash = PageImageDeduplicator.hash(image);
+
+        assertEquals(hash, PageImageDeduplicator.hash(createImage(Color.WHITE)));
+        assertNotEquals(hash, PageImageDeduplicator.hash(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB)));
+        assertNotEquals(hash, PageImageDeduplicator.hash(new BufferedImage(40, 20, BufferedImage.TYPE_BYTE_GRAY)));
+        image.setRGB(39, 19, 0);
+        assertNotEquals(hash, PageImageDeduplicator.hash(image));
+    }
+
+    @Test
+    public void testHashOfSubimageOnlyCoversItsPixels() {
+        BufferedImage buffer = new BufferedImage(60, 40, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = buffer.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 40, 20);
+        graphics.dispose();
+
+        assertEquals(PageImageDeduplicator.hash(createImage(Color.WHITE)),
+                PageImageDeduplicator.hash(buffer.getSubimage(0, 0, 40, 20)));
+    }
+
+    private static BufferedImage createImage(Color color) {
+        BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 40, 20);
+        graphics.dispose();
+        return image;
+    }
+}
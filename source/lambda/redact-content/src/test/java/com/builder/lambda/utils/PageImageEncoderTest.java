@@ -0,0 +1,136 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import com.builder.lambda.model.PdfImageCodec;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PageImageEncoderTest {
+
+    @Test
+    public void testIsPhotographic() {
+        assertTrue(PageImageEncoder.isPhotographic(createPhoto()));
+        assertFalse(PageImageEncoder.isPhotographic(createTextPage()));
+        // gray pages have at most 16 distinct colors once quantized
+        assertTrue(PageImageEncoder.isPhotographic(toGray(createPhoto())));
+        assertFalse(PageImageEncoder.isPhotographic(toGray(createTextPage())));
+    }
+
+    @Test
+    public void testEncodeWithJpegCodec() throws IOException {
+        try (PDDocument pdDocument = new PDDocument()) {
+            PDImageXObject image = new PageImageEncoder(PdfImageCodec.JPEG, 0.5f, false, null)
+                    .encode(pdDocument, createTextPage());
+            assertEquals(List.of(COSName.DCT_DECODE), image.getStream().getFilters());
+        }
+    }
+
+    @Test
+    public void testEncodeWithAutoCodec() throws IOException {
+        PageImageEncoder encoder = new PageImageEncoder(PdfImageCodec.AUTO, 0.5f, false, null);
+        try (PDDocument pdDocument = new PDDocument()) {
+            assertEquals(List.of(COSName.DCT_DECODE),
+                    encoder.encode(pdDocument, createPhoto()).getStream().getFilters());
+            assertEquals(List.of(COSName.FLATE_DECODE),
+                    encoder.encode(pdDocument, createTextPage()).getStream().getFilters());
+            assertEquals(List.of(COSName.DCT_DECODE),
+                    encoder.encode(pdDocument, toGray(createPhoto())).getStream().getFilters());
+        }
+    }
+
+    @Test
+    public void testEncodeWithScanlineDeflater() throws IOException {
+        PageImageEncoder encoder = new PageImageEncoder(PdfImageCodec.LOSSLESS, 0.5f, false, new ScanlineDeflater(4));
+        BufferedImage page = createPhoto();
+        try (PDDocument pdDocument = new PDDocument()) {
+            PDImageXObject image = encoder.encode(pdDocument, page);
+            assertEquals(List.of(COSName.FLATE_DECODE), image.getStream().getFilters());
+
+            BufferedImage decoded = image.getImage();
+            for (int y = 0; y < page.getHeight(); y++) {
+                for (int x = 0; x < page.getWidth(); x++) {
+                    assertEquals(page.getRGB(x, y), decoded.getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDetectPageColor() {
+        assertEquals(PageImageEncoder.PageColor.COLOR, PageImageEncoder.detectPageColor(createPhoto()));
+        assertEquals(PageImageEncoder.PageColor.BILEVEL, PageImageEncoder.detectPageColor(createTextPage()));
+
+        BufferedImage gradient = new BufferedImage(256, 10, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < gradient.getWidth(); x++) {
+            for (int y = 0; y < gradient.getHeight(); y++) {
+                gradient.setRGB(x, y, new Color(x, x, x).getRGB());
+            }
+        }
+        assertEquals(PageImageEncoder.PageColor.GRAY, PageImageEncoder.detectPageColor(gradient));
+    }
+
+    @Test
+    public void testEncodeWithColorDetection() throws IOException {
+        PageImageEncoder encoder = new PageImageEncoder(PdfImageCodec.LOSSLESS, 0.5f, true, null);
+        try (PDDocument pdDocument = new PDDocument()) {
+            PDImageXObject image = encoder.encode(pdDocument, createTextPage());
+            assertEquals(List.of(COSName.CCITTFAX_DECODE), image.getStream().getFilters());
+            assertEquals(1, image.getBitsPerComponent());
+
+            PDImageXObject photo = encoder.encode(pdDocument, createPhoto());
+            assertEquals(List.of(COSName.FLATE_DECODE), photo.getStream().getFilters());
+            assertEquals(3, photo.getColorSpace().getNumberOfComponents());
+        }
+    }
+
+    private static BufferedImage createPhoto() {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage toGray(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return gray;
+    }
+
+    private static BufferedImage createTextPage() {
+        BufferedImage image = new BufferedImage(850, 1100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setColor(Color.BLACK);
+        graphics.setFont(new Font(Font.SERIF, Font.PLAIN, 14));
+        for (int line = 0; line < 60; line++) {
+            graphics.drawString("Patient name and date of birth appear on this line " + line, 50, 60 + line * 16);
+        }
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PagePixelBudgetTest {
+    // a letter page rendered at 300-dpi
+    static final long BUDGET = 2550L * 3300L;
+
+    @Test
+    public void testFitPageWithinBudget() {
+        PagePixelBudget budget = new PagePixelBudget(BUDGET);
+        assertEquals(300, budget.fit(new PDPage(PDRectangle.LETTER), 0, 300));
+        assertEquals(0, budget.getDowngradedPages());
+    }
+
+    @Test
+    public void testFitOversizedPage() {
+        PagePixelBudget budget = new PagePixelBudget(BUDGET);
+        PDRectangle a0 = PDRectangle.A0;
+        int dpi = budget.fit(new PDPage(a0), 0, 300);
+
+        // stepped down from 300 to 225, 168, 126, 94 then 70
+        assertEquals(70, dpi);
+        assertTrue(PagePixelBudget.getPixels(a0, dpi) <= BUDGET);
+        assertEquals(1, budget.getDowngradedPages());
+    }
+
+    @Test
+    public void testFitPageLargerThanSteps() {
+        PagePixelBudget budget = new PagePixelBudget(10_000);
+        PDRectangle a0 = PDRectangle.A0;
+        int dpi = budget.fit(new PDPage(a0), 0, 300);
+
+        assertTrue(dpi < 36);
+        assertTrue(PagePixelBudget.getPixels(a0, dpi) <= 10_000);
+    }
+
+    @Test
+    public void testForHeap() {
+        long maxMemoryBytes = 1024L * Constants.BYTES_PER_MB;
+        assertEquals(2 * PagePixelBudget.forHeap(maxMemoryBytes, 4).getMaxPagePixels(),
+                PagePixelBudget.forHeap(maxMemoryBytes, 2).getMaxPagePixels());
+    }
+}
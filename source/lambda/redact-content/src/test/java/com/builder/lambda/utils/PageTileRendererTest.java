@@ -0,0 +1,54 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class PageTileRendererTest {
+
+    @Test
+    public void testRenderTileClearsReusedBuffer() throws IOException {
+        RasterBufferPool pool = new RasterBufferPool(Constants.BYTES_PER_MB);
+        PageTileRenderer tileRenderer = new PageTileRenderer(Long.MAX_VALUE, ImageType.RGB, pool);
+
+        try (PDDocument doc = new PDDocument()) {
+            // a blank page whose crop box isn't a whole number of points
+            PDPage page = new PDPage(new PDRectangle(144.9f, 72.9f));
+            doc.addPage(page);
+            List<Rectangle> tiles = tileRenderer.getTiles(page, 100, false);
+            Rectangle tile = tiles.get(0);
+
+            // a buffer left black by the page of a previous document
+            BufferedImage previous = pool.acquire(tile.width, tile.height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = previous.createGraphics();
+            graphics.setColor(Color.BLACK);
+            graphics.fillRect(0, 0, tile.width, tile.height);
+            graphics.dispose();
+            pool.release(previous);
+
+            BufferedImage image = tileRenderer.renderTile(new PDFRenderer(doc), 0, 100, tile);
+            assertSame(previous, image);
+            for (int y = 0; y < tile.height; y++) {
+                for (int x = 0; x < tile.width; x++) {
+                    assertEquals(Color.WHITE.getRGB(), image.getRGB(x, y), "pixel " + x + "," + y + " isn't white");
+                }
+            }
+        }
+    }
+}
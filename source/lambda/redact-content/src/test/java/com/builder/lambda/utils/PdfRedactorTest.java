@@ -8,28 +8,52 @@ import com.builder.lambda.model.Document;
 import com.builder.lambda.model.EntityDetails;
 import com.builder.lambda.model.EventDataBody;
 import com.builder.lambda.model.FileType;
+import com.builder.lambda.model.RedactionQuality;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.rendering.ImageType;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
+import uk.org.webcompere.systemstubs.environment.EnvironmentVariables;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 
@@ -112,4 +136,424 @@ public class PdfRedactorTest {
             doc.close();
         }
     }
+
+    @Test
+    public void testProcessDocumentToChannel() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(output)) {
+            pdfRedactor.processDocument(new Document(createPdf(2), FileType.PDF, "fake-case", "fake-doc"),
+                    boundingBoxesByPage, channel);
+        }
+
+        try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+            assertEquals(2, redactedDoc.getNumberOfPages());
+        }
+    }
+
+    @Test
+    public void testProcessDocumentStreamingSuccess() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables(
+                "PDF_STREAMING", "true", "PDF_MAX_MAIN_MEMORY_MB", "1");
+        environmentVariables.execute(() -> {
+            PdfRedactor streamingRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = streamingRedactor.processDocument(
+                    new Document(createPdf(3), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                assertEquals(3, redactedDoc.getNumberOfPages());
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentParallelKeepsPageOrder() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_RENDER_WORKERS", "3");
+        environmentVariables.execute(() -> {
+            PdfRedactor parallelRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = parallelRedactor.processDocument(
+                    new Document(createPdf(7), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                assertEquals(7, redactedDoc.getNumberOfPages());
+                // every page of the input is an inch wider than the previous one
+                for (int i = 0; i < redactedDoc.getNumberOfPages(); i++) {
+                    assertEquals(200 + i * 100, redactedDoc.getPage(i).getMediaBox().getWidth(), 1);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentPipelinedKeepsPageOrder() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_PIPELINE", "true");
+        environmentVariables.execute(() -> {
+            PdfRedactor pipelinedRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = pipelinedRedactor.processDocument(
+                    new Document(createPdf(5), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                assertEquals(5, redactedDoc.getNumberOfPages());
+                for (int i = 0; i < redactedDoc.getNumberOfPages(); i++) {
+                    assertEquals(200 + i * 100, redactedDoc.getPage(i).getMediaBox().getWidth(), 1);
+                    assertEquals(1, countImages(redactedDoc.getPage(i)));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentPipelinedTiledAndCopiedPages() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_PIPELINE", "true",
+                "PDF_SELECTIVE_RASTERIZATION", "true", "PDF_TILED_RENDERING", "true", "PDF_MAX_PAGE_PIXELS", "10000");
+        environmentVariables.execute(() -> {
+            PdfRedactor pipelinedRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = pipelinedRedactor.processDocument(
+                    new Document(createPdf(3), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                assertEquals(3, redactedDoc.getNumberOfPages());
+                // the first page is rendered in tiles, the others are copied through
+                assertEquals(144, redactedDoc.getPage(0).getMediaBox().getWidth(), 1);
+                assertTrue(countImages(redactedDoc.getPage(0)) > 1);
+                assertEquals(0, countImages(redactedDoc.getPage(1)));
+                assertEquals(216, redactedDoc.getPage(1).getMediaBox().getWidth(), 1);
+                assertEquals(0, countImages(redactedDoc.getPage(2)));
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentPipelinedUsesPageCache() throws Exception {
+        Path directory = Files.createTempDirectory("page-cache");
+        int[] hits = new int[1];
+        RenderedPageCache pageCache = new RenderedPageCache(Constants.BYTES_PER_MB, Constants.BYTES_PER_MB, directory) {
+            @Override
+            public synchronized PDImageXObject get(String key, PDDocument targetDoc) throws IOException {
+                PDImageXObject image = super.get(key, targetDoc);
+                if (image != null) {
+                    hits[0]++;
+                }
+                return image;
+            }
+        };
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_PIPELINE", "true");
+        environmentVariables.execute(() -> {
+            PdfRedactor pipelinedRedactor = new PdfRedactor();
+            Field pageCacheField = PdfRedactor.class.getDeclaredField("pageCache");
+            pageCacheField.setAccessible(true);
+            pageCacheField.set(pipelinedRedactor, pageCache);
+
+            pipelinedRedactor.processDocument(
+                    new Document(createPdf(3), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+            assertEquals(0, hits[0]);
+            try (Stream<Path> entries = Files.list(directory)) {
+                assertEquals(3, entries.count());
+            }
+
+            ByteArrayOutputStream output = pipelinedRedactor.processDocument(
+                    new Document(createPdf(3), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+            assertEquals(3, hits[0]);
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                assertEquals(3, redactedDoc.getNumberOfPages());
+                for (int i = 0; i < redactedDoc.getNumberOfPages(); i++) {
+                    assertEquals(200 + i * 100, redactedDoc.getPage(i).getMediaBox().getWidth(), 1);
+                    assertEquals(1, countImages(redactedDoc.getPage(i)));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentSelectiveRasterization() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_SELECTIVE_RASTERIZATION", "true");
+        environmentVariables.execute(() -> {
+            PdfRedactor selectiveRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = selectiveRedactor.processDocument(
+                    new Document(createPdf(3), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                assertEquals(3, redactedDoc.getNumberOfPages());
+                // only the first page has bounding boxes, so it is the only rasterized page
+                assertEquals(1, countImages(redactedDoc.getPage(0)));
+                for (int i = 0; i < redactedDoc.getNumberOfPages(); i++) {
+                    assertEquals(144 + i * 72, redactedDoc.getPage(i).getMediaBox().getWidth(), 1);
+                }
+                assertEquals(0, countImages(redactedDoc.getPage(1)));
+                assertEquals(0, countImages(redactedDoc.getPage(2)));
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentDeduplicatesIdenticalPages() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_DEDUPLICATE_IMAGES", "true");
+        environmentVariables.execute(() -> {
+            PdfRedactor deduplicatingRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = deduplicatingRedactor.processDocument(
+                    new Document(createBlankPdf(4), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                assertEquals(4, redactedDoc.getNumberOfPages());
+                // the first page has a black box, the other blank pages share a single image
+                COSBase firstImage = getPageImage(redactedDoc.getPage(0));
+                COSBase secondImage = getPageImage(redactedDoc.getPage(1));
+                assertNotSame(firstImage, secondImage);
+                assertSame(secondImage, getPageImage(redactedDoc.getPage(2)));
+                assertSame(secondImage, getPageImage(redactedDoc.getPage(3)));
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentWithQualityProfile() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_QUALITY", "150");
+        environmentVariables.execute(() -> {
+            ByteArrayOutputStream fastOutput = new PdfRedactor(RedactionQuality.FAST).processDocument(
+                    new Document(createBlankPdf(1), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+            ByteArrayOutputStream archivalOutput = new PdfRedactor(RedactionQuality.ARCHIVAL).processDocument(
+                    new Document(createBlankPdf(1), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+            // the profiles take the place of the resolution and image type of the environment
+            try (PDDocument fastDoc = PDDocument.load(fastOutput.toByteArray());
+                    PDDocument archivalDoc = PDDocument.load(archivalOutput.toByteArray())) {
+                PDPage fastPage = fastDoc.getPage(0);
+                PDImageXObject fastImage = (PDImageXObject) fastPage.getResources()
+                        .getXObject(fastPage.getResources().getXObjectNames().iterator().next());
+                PDPage archivalPage = archivalDoc.getPage(0);
+                PDImageXObject archivalImage = (PDImageXObject) archivalPage.getResources()
+                        .getXObject(archivalPage.getResources().getXObjectNames().iterator().next());
+                assertEquals(144, fastImage.getWidth());
+                assertEquals(1, fastImage.getColorSpace().getNumberOfComponents());
+                assertEquals(600, archivalImage.getWidth());
+                assertEquals(3, archivalImage.getColorSpace().getNumberOfComponents());
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentWithStandardQualityProfile() throws Exception {
+        ByteArrayOutputStream standardOutput = new PdfRedactor(RedactionQuality.STANDARD).processDocument(
+                new Document(createScannedPdf(0.75f), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+        ByteArrayOutputStream defaultOutput = new PdfRedactor().processDocument(
+                new Document(createScannedPdf(0.75f), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+        // the standard profile renders the pages exactly as a deployment without settings
+        try (PDDocument standardDoc = PDDocument.load(standardOutput.toByteArray());
+                PDDocument defaultDoc = PDDocument.load(defaultOutput.toByteArray())) {
+            assertEquals(defaultDoc.getNumberOfPages(), standardDoc.getNumberOfPages());
+            for (int i = 0; i < defaultDoc.getNumberOfPages(); i++) {
+                try (InputStream standard = ((COSStream) getPageImage(standardDoc.getPage(i))).createRawInputStream();
+                        InputStream unprofiled = ((COSStream) getPageImage(defaultDoc.getPage(i)))
+                                .createRawInputStream()) {
+                    assertArrayEquals(unprofiled.readAllBytes(), standard.readAllBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProcessDocumentLinearized() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables(
+                "PDF_LINEARIZED", "true", "PDF_SELECTIVE_RASTERIZATION", "true");
+        environmentVariables.execute(() -> {
+            PdfRedactor linearizedRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = linearizedRedactor.processDocument(
+                    new Document(createPdf(3), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+            byte[] pdf = output.toByteArray();
+
+            // the linearization dictionary is the first object of the file
+            String head = new String(pdf, 0, Math.min(pdf.length, 1024), StandardCharsets.ISO_8859_1);
+            Matcher linearization = Pattern.compile(
+                    "^%PDF-1\\.\\d\\n.*\\n\\d+ 0 obj\\n<</Linearized 1 /L (\\d+) *"
+                            + "/H \\[(\\d+) *(\\d+) *\\] /O (\\d+) /E (\\d+) */N (\\d+) ",
+                    Pattern.DOTALL).matcher(head);
+            assertTrue(linearization.find());
+            assertEquals(pdf.length, Integer.parseInt(linearization.group(1)));
+            assertEquals(3, Integer.parseInt(linearization.group(6)));
+            // the first page object follows the hint stream, and its objects end
+            // before the other pages
+            String content = new String(pdf, StandardCharsets.ISO_8859_1);
+            int hintEnd = Integer.parseInt(linearization.group(2)) + Integer.parseInt(linearization.group(3));
+            assertEquals(hintEnd, content.indexOf(linearization.group(4) + " 0 obj\n"));
+            int firstPageEnd = Integer.parseInt(linearization.group(5));
+            assertTrue(content.indexOf("/Type /Page\n", hintEnd) < firstPageEnd);
+            assertTrue(content.indexOf("/Type /Page\n", firstPageEnd) > firstPageEnd);
+
+            try (PDDocument redactedDoc = PDDocument.load(pdf)) {
+                assertEquals(3, redactedDoc.getNumberOfPages());
+                assertEquals(1, countImages(redactedDoc.getPage(0)));
+                assertEquals(0, countImages(redactedDoc.getPage(1)));
+                assertEquals(288, redactedDoc.getPage(2).getMediaBox().getWidth(), 1);
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentTiledRendering() throws Exception {
+        EnvironmentVariables environmentVariables = new EnvironmentVariables(
+                "PDF_TILED_RENDERING", "true", "PDF_MAX_PAGE_PIXELS", "10000");
+        environmentVariables.execute(() -> {
+            PdfRedactor tiledRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = tiledRedactor.processDocument(
+                    new Document(createPdf(2), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                // pages keep their resolution and are split in tiles of at most 10000 pixels
+                assertEquals(200, redactedDoc.getPage(0).getMediaBox().getWidth(), 1);
+                assertEquals(200, redactedDoc.getPage(0).getMediaBox().getHeight(), 1);
+                assertEquals(4, countImages(redactedDoc.getPage(0)));
+                assertEquals(300, redactedDoc.getPage(1).getMediaBox().getWidth(), 1);
+                assertEquals(7, countImages(redactedDoc.getPage(1)));
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentDirectImageRedaction() throws Exception {
+        Map<String, List<BoundingBox>> scanBoundingBoxes = new HashMap<>();
+        scanBoundingBoxes.put("1", List.of(new BoundingBox(0.5, 0.5, 0, 0)));
+        scanBoundingBoxes.put("2", List.of(new BoundingBox(0.5, 0.5, 0, 0)));
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_DIRECT_IMAGE_REDACTION", "true");
+        environmentVariables.execute(() -> {
+            PdfRedactor directRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = directRedactor.processDocument(
+                    new Document(createScannedPdf(0.75f), FileType.PDF, "fake-case", "fake-doc"), scanBoundingBoxes);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                // the scanned page keeps its size and its jpeg compression
+                PDPage scannedPage = redactedDoc.getPage(0);
+                assertEquals(144, scannedPage.getMediaBox().getWidth(), 1);
+                PDImageXObject scan = (PDImageXObject) scannedPage.getResources()
+                        .getXObject(scannedPage.getResources().getXObjectNames().iterator().next());
+                assertEquals(List.of(COSName.DCT_DECODE), scan.getStream().getFilters());
+                BufferedImage pixels = scan.getImage();
+                assertTrue(new Color(pixels.getRGB(50, 50)).getRed() < 32);
+                assertTrue(new Color(pixels.getRGB(250, 250)).getRed() > 224);
+
+                // the page with text on top of the scan is rasterized
+                assertEquals(144 * 100 / 72, redactedDoc.getPage(1).getMediaBox().getWidth(), 1);
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentDirectImageRedactionKeepsJpegQuality() throws Exception {
+        Map<String, List<BoundingBox>> scanBoundingBoxes = new HashMap<>();
+        scanBoundingBoxes.put("1", List.of(new BoundingBox(0.5, 0.5, 0, 0)));
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_DIRECT_IMAGE_REDACTION", "true");
+        environmentVariables.execute(() -> {
+            PdfRedactor directRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = directRedactor.processDocument(
+                    new Document(createScannedPdf(0.95f), FileType.PDF, "fake-case", "fake-doc"), scanBoundingBoxes);
+
+            try (PDDocument redactedDoc = PDDocument.load(output.toByteArray())) {
+                PDPage scannedPage = redactedDoc.getPage(0);
+                PDImageXObject scan = (PDImageXObject) scannedPage.getResources()
+                        .getXObject(scannedPage.getResources().getXObjectNames().iterator().next());
+                assertEquals(0.95f, PdfImageUtils.getJpegQuality(scan), 0.01f);
+            }
+        });
+    }
+
+    @Test
+    public void testProcessDocumentDirectImageRedactionCopiesPagesWithoutBoxes() throws Exception {
+        byte[] pdf = createScannedPdf(0.75f).readAllBytes();
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("PDF_DIRECT_IMAGE_REDACTION", "true");
+        environmentVariables.execute(() -> {
+            PdfRedactor directRedactor = new PdfRedactor();
+            ByteArrayOutputStream output = directRedactor.processDocument(
+                    new Document(new ByteArrayInputStream(pdf), FileType.PDF, "fake-case", "fake-doc"),
+                    new HashMap<>());
+
+            // the scan is copied as it is instead of being decoded and encoded again
+            try (PDDocument originalDoc = PDDocument.load(pdf);
+                    PDDocument redactedDoc = PDDocument.load(output.toByteArray());
+                    InputStream original = ((COSStream) getPageImage(originalDoc.getPage(0))).createRawInputStream();
+                    InputStream redacted = ((COSStream) getPageImage(redactedDoc.getPage(0))).createRawInputStream()) {
+                assertArrayEquals(original.readAllBytes(), redacted.readAllBytes());
+            }
+        });
+    }
+
+    private static int countImages(PDPage page) throws IOException {
+        int count = 0;
+        if (page.getResources() != null) {
+            for (COSName name : page.getResources().getXObjectNames()) {
+                if (page.getResources().getXObject(name) instanceof PDImageXObject) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates a pdf file with two 2x2 inch pages showing a mostly white 150-dpi
+     * jpeg scan of the given quality, the second page also has text on top of the
+     * scan
+     */
+    private static InputStream createScannedPdf(float quality) throws IOException {
+        BufferedImage scan = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scan.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, scan.getWidth(), scan.getHeight());
+        graphics.dispose();
+        // noise in the top left corner, which encoding the scan again would change
+        Random random = new Random(5);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                scan.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+
+        try (PDDocument doc = new PDDocument()) {
+            PDImageXObject image = JPEGFactory.createFromImage(doc, scan, quality);
+            for (int i = 0; i < 2; i++) {
+                PDPage page = new PDPage(new PDRectangle(144, 144));
+                doc.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(doc, page)) {
+                    contentStream.drawImage(image, 0, 0, 144, 144);
+                    if (i == 1) {
+                        contentStream.beginText();
+                        contentStream.setFont(PDType1Font.HELVETICA, 12);
+                        contentStream.showText("ocr text");
+                        contentStream.endText();
+                    }
+                }
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            doc.save(outputStream);
+            return new ByteArrayInputStream(outputStream.toByteArray());
+        }
+    }
+
+    /**
+     * Creates a pdf file where each page is an inch wider than the previous one
+     */
+    private static COSBase getPageImage(PDPage page) throws IOException {
+        COSName name = page.getResources().getXObjectNames().iterator().next();
+        return page.getResources().getXObject(name).getCOSObject();
+    }
+
+    private static InputStream createBlankPdf(int numberOfPages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < numberOfPages; i++) {
+                doc.addPage(new PDPage(new PDRectangle(144, 144)));
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            doc.save(outputStream);
+            return new ByteArrayInputStream(outputStream.toByteArray());
+        }
+    }
+
+    private static InputStream createPdf(int numberOfPages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < numberOfPages; i++) {
+                doc.addPage(new PDPage(new PDRectangle(144 + i * 72, 144)));
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            doc.save(outputStream);
+            return new ByteArrayInputStream(outputStream.toByteArray());
+        }
+    }
 }
@@ -0,0 +1,77 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PdfRenderingWarmUpTest {
+
+    @Test
+    public void testSeedFontCache() throws Exception {
+        Path directory = Files.createTempDirectory("font-cache");
+        Path prebuiltFontCache = Files.createTempFile("prebuilt", ".cache");
+        Files.writeString(prebuiltFontCache, "prebuilt");
+        String fontCacheProperty = System.getProperty(PdfRenderingWarmUp.FONT_CACHE_PROPERTY);
+        try {
+            PdfRenderingWarmUp.seedFontCache(prebuiltFontCache, directory);
+            Path fontCache = directory.resolve(Constants.PDF_FONT_CACHE_FILE_NAME);
+            assertEquals("prebuilt", Files.readString(fontCache));
+            assertEquals(directory.toString(), System.getProperty(PdfRenderingWarmUp.FONT_CACHE_PROPERTY));
+
+            // a cache PDFBox already updated in a previous invocation is kept
+            Files.writeString(fontCache, "updated");
+            PdfRenderingWarmUp.seedFontCache(prebuiltFontCache, directory);
+            assertEquals("updated", Files.readString(fontCache));
+        } finally {
+            if (fontCacheProperty == null) {
+                System.clearProperty(PdfRenderingWarmUp.FONT_CACHE_PROPERTY);
+            } else {
+                System.setProperty(PdfRenderingWarmUp.FONT_CACHE_PROPERTY, fontCacheProperty);
+            }
+        }
+    }
+
+    @Test
+    public void testLoadingDoesNotBuildFonts() throws Exception {
+        // PDFBox reads the location of its font cache when its font mapper is first
+        // used, which must not happen before the warm-up seeds the cache
+        try (IsolatedClassLoader classLoader = new IsolatedClassLoader()) {
+            assertNotNull(Class.forName(PdfRenderingWarmUp.class.getName(), true, classLoader));
+            assertNull(classLoader.getLoadedClass("org.apache.pdfbox.pdmodel.font.FontMappers"));
+        }
+    }
+
+    /**
+     * Loads the classes of the test classpath again, so that it starts with no
+     * PDFBox class loaded
+     */
+    private static class IsolatedClassLoader extends URLClassLoader {
+        IsolatedClassLoader() throws Exception {
+            super(getClassPath(), ClassLoader.getPlatformClassLoader());
+        }
+
+        Class<?> getLoadedClass(String name) {
+            return findLoadedClass(name);
+        }
+
+        private static URL[] getClassPath() throws Exception {
+            String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+            URL[] urls = new URL[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                urls[i] = Path.of(entries[i]).toUri().toURL();
+            }
+            return urls;
+        }
+    }
+}
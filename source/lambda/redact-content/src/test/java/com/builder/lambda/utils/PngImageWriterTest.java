@@ -0,0 +1,57 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PngImageWriterTest {
+
+    @Test
+    public void testWriteRgbImage() throws IOException {
+        assertPixelsKept(ScanlineDeflaterTest.createImage(BufferedImage.TYPE_3BYTE_BGR, 700, 500), false);
+        assertPixelsKept(ScanlineDeflaterTest.createImage(BufferedImage.TYPE_INT_RGB, 700, 500), false);
+    }
+
+    @Test
+    public void testWriteGrayImage() throws IOException {
+        assertPixelsKept(ScanlineDeflaterTest.createImage(BufferedImage.TYPE_BYTE_GRAY, 640, 480), false);
+    }
+
+    @Test
+    public void testWriteImageWithAlpha() throws IOException {
+        assertPixelsKept(ScanlineDeflaterTest.createImage(BufferedImage.TYPE_4BYTE_ABGR, 320, 240), true);
+        assertPixelsKept(ScanlineDeflaterTest.createImage(BufferedImage.TYPE_INT_ARGB, 320, 240), true);
+    }
+
+    @Test
+    public void testSupports() {
+        assertTrue(PngImageWriter.supports(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB)));
+        assertFalse(PngImageWriter.supports(new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_INDEXED)));
+    }
+
+    private static void assertPixelsKept(BufferedImage image, boolean alpha) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new PngImageWriter(new ScanlineDeflater(4)).write(image, outputStream);
+
+        BufferedImage written = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(image.getWidth(), written.getWidth());
+        assertEquals(image.getHeight(), written.getHeight());
+        assertEquals(alpha, written.getColorModel().hasAlpha());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(image.getRGB(x, y), written.getRGB(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import com.builder.lambda.model.BoundingBox;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PngStreamRedactorTest {
+    private static final List<BoundingBox> BOXES = Arrays.asList(
+            new BoundingBox(0.3, 0.1, 0.2, 0.3),
+            new BoundingBox(0.1, 0.4, 0.333, 0.35),
+            null,
+            new BoundingBox(0.5, 0.05, 0.7, 0.97),
+            new BoundingBox(0.2, 0.2, -0.1, -0.1));
+
+    private final PngStreamRedactor redactor = new PngStreamRedactor();
+
+    @Test
+    public void testRedactLikeDecodedImage() throws IOException {
+        int[] types = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_USHORT_GRAY };
+        for (int type : types) {
+            BufferedImage image = createImage(type, 151, 97);
+            byte[] png = encode(image);
+
+            BufferedImage redacted = ImageIO.read(new ByteArrayInputStream(redact(png, BOXES)));
+            BufferedImage expected = ImageIO.read(new ByteArrayInputStream(png));
+            Graphics2D graphics = expected.createGraphics();
+            graphics.setColor(Color.BLACK);
+            for (BoundingBox box : BOXES) {
+                if (box != null) {
+                    graphics.fill(new Rectangle2D.Double(box.getLeft() * 151, box.getTop() * 97, box.getWidth() * 151,
+                            box.getHeight() * 97));
+                }
+            }
+            graphics.dispose();
+            assertEquals(expected.getType(), redacted.getType());
+            assertArrayEquals(expected.getRaster().getPixels(0, 0, 151, 97, (int[]) null),
+                    redacted.getRaster().getPixels(0, 0, 151, 97, (int[]) null));
+        }
+    }
+
+    @Test
+    public void testRedactImageOfSeveralChunks() throws IOException {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB, 700, 500);
+        byte[] png = encode(image);
+        assertTrue(count(png, "IDAT") > 1);
+
+        BufferedImage redacted = ImageIO.read(new ByteArrayInputStream(redact(png, BOXES)));
+        assertEquals(Color.BLACK.getRGB(), redacted.getRGB(250, 150));
+        assertEquals(Color.BLACK.getRGB(), redacted.getRGB(699, 499));
+        assertEquals(image.getRGB(600, 100), redacted.getRGB(600, 100));
+        assertEquals(image.getRGB(100, 400), redacted.getRGB(100, 400));
+    }
+
+    @Test
+    public void testRedactDropsTextChunks() throws IOException {
+        byte[] png = insertChunk(encode(createImage(BufferedImage.TYPE_INT_RGB, 20, 10)), 33, "tEXt",
+                "Comment\0patient name");
+
+        byte[] redacted = redact(png, BOXES);
+        assertEquals(0, count(redacted, "tEXt"));
+        assertEquals(20, ImageIO.read(new ByteArrayInputStream(redacted)).getWidth());
+    }
+
+    @Test
+    public void testRedactUnsupportedFiles() throws IOException {
+        byte[] palette = encode(createImage(BufferedImage.TYPE_BYTE_INDEXED, 20, 10));
+        byte[] oriented = insertChunk(encode(createImage(BufferedImage.TYPE_INT_RGB, 20, 10)), 33, "eXIf", "MM\0*");
+        for (byte[] file : List.of(palette, oriented, "not a png file".getBytes(StandardCharsets.US_ASCII))) {
+            InputStream inputStream = new ByteArrayInputStream(file);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+            assertFalse(redactor.redact(inputStream, BOXES, outputStream));
+            assertEquals(0, outputStream.size());
+            // the file can be read again from its start
+            assertArrayEquals(file, inputStream.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testRedactCorruptedFile() throws IOException {
+        byte[] png = encode(createImage(BufferedImage.TYPE_INT_RGB, 20, 10));
+        png[png.length - 20] ^= 1;
+
+        assertThrows(IOException.class,
+                () -> redactor.redact(new ByteArrayInputStream(png), BOXES, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testRedactExifAfterImageData() throws IOException {
+        byte[] png = encode(createImage(BufferedImage.TYPE_INT_RGB, 20, 10));
+        // the EXIF chunk is put right before the IEND chunk, the last 12 bytes
+        byte[] oriented = insertChunk(png, png.length - 12, "eXIf", "MM\0*");
+
+        assertThrows(IOException.class,
+                () -> redactor.redact(new ByteArrayInputStream(oriented), BOXES, new ByteArrayOutputStream()));
+    }
+
+    private byte[] redact(byte[] png, List<BoundingBox> boxes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertTrue(redactor.redact(new ByteArrayInputStream(png), boxes, outputStream));
+        return outputStream.toByteArray();
+    }
+
+    private static BufferedImage createImage(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = (x * 255 / width + random.nextInt(16)) & 0xFF;
+                int green = (y * 255 / height + random.nextInt(16)) & 0xFF;
+                image.setRGB(x, y, random.nextInt(256) << 24 | red << 16 | green << 8 | random.nextInt(256));
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Inserts a chunk into a PNG file at the given offset, 33 being right after
+     * the IHDR chunk
+     */
+    private static byte[] insertChunk(byte[] png, int offset, String type, String data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(png, 0, offset);
+        byte[] dataBytes = data.getBytes(StandardCharsets.US_ASCII);
+        PngImageWriter.writeChunk(outputStream, type, dataBytes, dataBytes.length);
+        outputStream.write(png, offset, png.length - offset);
+        return outputStream.toByteArray();
+    }
+
+    private static int count(byte[] data, String type) {
+        byte[] pattern = type.getBytes(StandardCharsets.US_ASCII);
+        int count = 0;
+        for (int index = 0; index <= data.length - pattern.length; index++) {
+            if (Arrays.equals(data, index, index + pattern.length, pattern, 0, pattern.length)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,41 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class RasterBufferPoolTest {
+
+    @Test
+    public void testAcquireReusesReleasedBuffer() {
+        RasterBufferPool pool = new RasterBufferPool(Constants.BYTES_PER_MB);
+        BufferedImage buffer = pool.acquire(100, 50, BufferedImage.TYPE_INT_RGB);
+        pool.release(buffer);
+
+        assertNotSame(buffer, pool.acquire(100, 50, BufferedImage.TYPE_BYTE_GRAY));
+        assertNotSame(buffer, pool.acquire(50, 100, BufferedImage.TYPE_INT_RGB));
+        assertSame(buffer, pool.acquire(100, 50, BufferedImage.TYPE_INT_RGB));
+        assertEquals(3, pool.getAllocatedBuffers());
+        assertEquals(1, pool.getReusedBuffers());
+    }
+
+    @Test
+    public void testReleaseDropsLeastRecentlyUsedSizes() {
+        // room for a single 100x100 rgb buffer
+        RasterBufferPool pool = new RasterBufferPool(100 * 100 * 4);
+        BufferedImage first = pool.acquire(100, 100, BufferedImage.TYPE_INT_RGB);
+        BufferedImage second = pool.acquire(100, 99, BufferedImage.TYPE_INT_RGB);
+        pool.release(first);
+        pool.release(second);
+
+        assertNotSame(first, pool.acquire(100, 100, BufferedImage.TYPE_INT_RGB));
+        assertSame(second, pool.acquire(100, 99, BufferedImage.TYPE_INT_RGB));
+    }
+}
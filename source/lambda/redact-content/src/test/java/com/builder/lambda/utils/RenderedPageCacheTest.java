@@ -0,0 +1,106 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import com.builder.lambda.model.BoundingBox;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RenderedPageCacheTest {
+    static final String SETTINGS = "100|RGB";
+
+    Path cacheDirectory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        cacheDirectory = Files.createTempDirectory("redacted-page-cache");
+    }
+
+    @Test
+    public void testCreateKeyDependsOnContentAndBoxes() throws Exception {
+        BoundingBox first = new BoundingBox(0.1, 0.1, 0.1, 0.1);
+        BoundingBox second = new BoundingBox(0.2, 0.2, 0.5, 0.5);
+        try (PDDocument doc = new PDDocument(); PDDocument otherDoc = new PDDocument()) {
+            String key = RenderedPageCache.createKey(createPage(doc, "Alice"), List.of(first, second), SETTINGS);
+
+            // the same page in another document, with its boxes in another order
+            assertEquals(key,
+                    RenderedPageCache.createKey(createPage(otherDoc, "Alice"), List.of(second, first), SETTINGS));
+            assertNotEquals(key,
+                    RenderedPageCache.createKey(createPage(otherDoc, "Bob"), List.of(first, second), SETTINGS));
+            assertNotEquals(key,
+                    RenderedPageCache.createKey(createPage(otherDoc, "Alice"), List.of(first), SETTINGS));
+            assertNotEquals(key,
+                    RenderedPageCache.createKey(createPage(otherDoc, "Alice"), List.of(first, second), "200|RGB"));
+        }
+    }
+
+    @Test
+    public void testGetReturnsCachedImageFromEitherTier() throws Exception {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(3, 4, Color.RED.getRGB());
+
+        try (PDDocument doc = new PDDocument()) {
+            RenderedPageCache cache = new RenderedPageCache(1024 * 1024, 1024 * 1024, cacheDirectory);
+            assertNull(cache.get("key", doc));
+            cache.put("key", LosslessFactory.createFromImage(doc, image));
+            assertImageEquals(image, cache.get("key", doc));
+
+            // a new cache, as in another invocation, reads the entry back from disk
+            RenderedPageCache diskCache = new RenderedPageCache(1024 * 1024, 1024 * 1024, cacheDirectory);
+            assertImageEquals(image, diskCache.get("key", doc));
+        }
+    }
+
+    @Test
+    public void testPutSkipsEntriesOverTheSizeLimits() throws Exception {
+        try (PDDocument doc = new PDDocument()) {
+            PDImageXObject image = LosslessFactory.createFromImage(doc,
+                    new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB));
+            RenderedPageCache cache = new RenderedPageCache(0, 0, cacheDirectory);
+            cache.put("key", image);
+            assertNull(cache.get("key", doc));
+        }
+    }
+
+    private static void assertImageEquals(BufferedImage expected, PDImageXObject actual) throws IOException {
+        assertNotNull(actual);
+        BufferedImage pixels = actual.getImage();
+        assertEquals(expected.getWidth(), pixels.getWidth());
+        assertEquals(expected.getHeight(), pixels.getHeight());
+        assertEquals(expected.getRGB(3, 4), pixels.getRGB(3, 4));
+    }
+
+    private static PDPage createPage(PDDocument doc, String text) throws IOException {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        doc.addPage(page);
+        try (PDPageContentStream contentStream = new PDPageContentStream(doc, page)) {
+            contentStream.beginText();
+            contentStream.setFont(PDType1Font.HELVETICA, 20);
+            contentStream.newLineAtOffset(100, 700);
+            contentStream.showText(text);
+            contentStream.endText();
+        }
+        return page;
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 
 import com.amazonaws.services.lambda.runtime.Context;
@@ -31,9 +32,12 @@ import software.amazon.awssdk.services.s3.model.Tag;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
@@ -109,6 +113,38 @@ class S3StorageTest {
 
     }
 
+    @Test
+    public void testPutFileUploadsRedactedDocumentStream() throws Exception {
+        RedactedDocumentStream redactedDocument = new RedactedDocumentStream();
+        redactedDocument.write("fake redacted document".getBytes());
+        ArgumentCaptor<RequestBody> requestBodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+        clearInvocations(mockedClient);
+
+        s3Storage.putFile(testBucketName, testKey, redactedDocument);
+        verify(mockedClient, times(1)).putObject(any(PutObjectRequest.class), requestBodyCaptor.capture());
+        try (InputStream uploaded = requestBodyCaptor.getValue().contentStreamProvider().newStream()) {
+            assertArrayEquals("fake redacted document".getBytes(), uploaded.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testPutFileUploadsFile() throws Exception {
+        Path file = Files.createTempFile("redacted-", ".pdf");
+        ArgumentCaptor<RequestBody> requestBodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+        clearInvocations(mockedClient);
+        try {
+            Files.write(file, "fake redacted document".getBytes());
+
+            s3Storage.putFile(testBucketName, testKey, file);
+            verify(mockedClient, times(1)).putObject(any(PutObjectRequest.class), requestBodyCaptor.capture());
+            try (InputStream uploaded = requestBodyCaptor.getValue().contentStreamProvider().newStream()) {
+                assertArrayEquals("fake redacted document".getBytes(), uploaded.readAllBytes());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
     @Test
     public void testPutFileShouldThrowError() throws Exception {
         doThrow(S3Exception.class).when(mockedClient).putObject(any(PutObjectRequest.class), any(RequestBody.class));
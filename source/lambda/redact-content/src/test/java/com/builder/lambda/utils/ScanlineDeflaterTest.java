@@ -0,0 +1,117 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScanlineDeflaterTest {
+
+    @Test
+    public void testCombineAdler32() {
+        byte[] data = new byte[100000];
+        new Random(7).nextBytes(data);
+        Adler32 whole = new Adler32();
+        whole.update(data);
+        Adler32 first = new Adler32();
+        first.update(data, 0, 30000);
+        Adler32 second = new Adler32();
+        second.update(data, 30000, 70000);
+
+        assertEquals(whole.getValue(), ScanlineDeflater.combineAdler32(first.getValue(), second.getValue(), 70000));
+        assertEquals(first.getValue(), ScanlineDeflater.combineAdler32(first.getValue(), 1, 0));
+    }
+
+    @Test
+    public void testParallelDeflateMatchesSequentialDeflate() throws Exception {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB, 600, 400);
+
+        byte[] sequential = inflate(deflate(new ScanlineDeflater(1), image));
+        byte[] parallel = inflate(deflate(new ScanlineDeflater(4), image));
+
+        assertEquals(400 * (600 * 3 + 1), sequential.length);
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testDeflateGrayImage() throws Exception {
+        BufferedImage image = createImage(BufferedImage.TYPE_BYTE_GRAY, 300, 1000);
+
+        byte[] scanlines = inflate(deflate(new ScanlineDeflater(3), image));
+
+        assertEquals(1000 * (300 + 1), scanlines.length);
+        // every scanline starts with a valid filter type
+        for (int row = 0; row < 1000; row++) {
+            assertTrue(scanlines[row * 301] >= 0 && scanlines[row * 301] <= 4);
+        }
+    }
+
+    @Test
+    public void testGetSamplesPerPixel() {
+        assertEquals(1, ScanlineDeflater.getSamplesPerPixel(new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY)));
+        assertEquals(3, ScanlineDeflater.getSamplesPerPixel(new BufferedImage(1, 1, BufferedImage.TYPE_3BYTE_BGR)));
+        assertEquals(4, ScanlineDeflater.getSamplesPerPixel(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB)));
+        assertEquals(0, ScanlineDeflater.getSamplesPerPixel(new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_BINARY)));
+    }
+
+    @Test
+    public void testDeflateUnsupportedImage() {
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_USHORT_GRAY);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new ScanlineDeflater(1).deflate(image, new ByteArrayOutputStream()));
+    }
+
+    static BufferedImage createImage(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // mostly smooth content with some noise, like a scanned page
+                int level = (x + y) % 256;
+                int noise = random.nextInt(16);
+                image.setRGB(x, y, 0x80000000 | (level << 16) | ((255 - level) << 8) | noise);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] deflate(ScanlineDeflater deflater, BufferedImage image) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        deflater.deflate(image, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Inflates a zlib stream, which fails if its checksum doesn't match the
+     * inflated data
+     */
+    private static byte[] inflate(byte[] compressed) throws Exception {
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!inflater.finished()) {
+            int inflated = inflater.inflate(buffer);
+            if (inflated == 0 && inflater.needsInput()) {
+                break;
+            }
+            outputStream.write(buffer, 0, inflated);
+        }
+        assertTrue(inflater.finished());
+        assertEquals(0, inflater.getRemaining());
+        inflater.end();
+        return outputStream.toByteArray();
+    }
+}
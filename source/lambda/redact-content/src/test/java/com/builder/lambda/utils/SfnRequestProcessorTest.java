@@ -10,6 +10,8 @@ import com.builder.lambda.model.Document;
 import com.builder.lambda.model.EventDataBody;
 import com.builder.lambda.model.EventDataInput;
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,6 +27,7 @@ import org.mockito.Mockito;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -33,10 +36,12 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.times;
@@ -65,7 +70,7 @@ public class SfnRequestProcessorTest {
         when(mockS3.getObjectTags(anyString(), anyString())).thenReturn(tags);
 
         // note: this uglier format is required when mocking void methods
-        Mockito.doNothing().when(mockS3).putFile(anyString(), anyString(), any(ByteArrayOutputStream.class));
+        Mockito.doNothing().when(mockS3).putFile(anyString(), anyString(), any(Path.class));
 
         // mocking IOUtils class to convert input-stream to string
         ioUtils = mockStatic(IOUtils.class);
@@ -142,9 +147,14 @@ public class SfnRequestProcessorTest {
             requestProcessor.process(event);
             // each redactor is called once since we have 2 sqs events
             verify(mockedImageRedactorConstructor.constructed().get(0), times(1))
-                    .processDocument(any(Document.class), any());
+                    .processDocument(any(Document.class), anyMap(), any(OutputStream.class));
             verify(mockedPdfRedactorConstructor.constructed().get(0), times(1))
-                    .processDocument(any(Document.class), any());
+                    .processDocument(any(Document.class), anyMap(), any(OutputStream.class));
+            // the redacted documents are written to files rather than held in byte arrays
+            verify(mockedImageRedactorConstructor.constructed().get(0), never())
+                    .processDocument(any(Document.class), anyMap());
+            verify(mockedPdfRedactorConstructor.constructed().get(0), never())
+                    .processDocument(any(Document.class), anyMap());
 
             verify(mockS3, times(1)).getFile("fake-bucket", "fake-prefix/file1.jpg");
             verify(mockS3, times(1)).getObjectTags("fake-bucket", "fake-prefix/file1.jpg");
@@ -155,12 +165,15 @@ public class SfnRequestProcessorTest {
             verify(mockS3, times(2)).getFile("fake-inference-bucket",
                     "fake-user-id/fake-doc-id/textract-detectText-locations.json");
 
-            // since redactor is mocked, the file it outputs is null
-            verify(mockS3, times(1)).putFile("fake-bucket", "redacted/fakeCaseId/fakeDocId1-redacted.jpg", null);
+            // the redacted documents are uploaded from scratch files
+            verify(mockS3, times(1)).putFile(eq("fake-bucket"), eq("redacted/fakeCaseId/fakeDocId1-redacted.jpg"),
+                    any(Path.class));
             verify(mockS3, times(1)).setObjectTags("fake-bucket", "redacted/fakeCaseId/fakeDocId1-redacted.jpg",
                     new ArrayList<>());
 
-            verify(mockS3, times(1)).putFile("fake-bucket", "redacted/fakeCaseId/fakeDocId2-redacted.pdf", null);
+            verify(mockS3, times(1)).putFile(eq("fake-bucket"), eq("redacted/fakeCaseId/fakeDocId2-redacted.pdf"),
+                    any(Path.class));
+            verify(mockS3, never()).putFile(anyString(), anyString(), any(ByteArrayOutputStream.class));
             verify(mockS3, times(1)).setObjectTags("fake-bucket", "redacted/fakeCaseId/fakeDocId2-redacted.pdf",
                     new ArrayList<>());
 
@@ -174,6 +187,40 @@ public class SfnRequestProcessorTest {
         });
     }
 
+    @Test
+    public void testProcessesRequestCopiesDocumentWithNothingToRedact() throws Exception {
+        MockedConstruction<ImageRedactor> mockedImageRedactorConstructor = Mockito
+                .mockConstruction(ImageRedactor.class);
+
+        EnvironmentVariables environmentVariables = new EnvironmentVariables("DOCUMENT_BUCKET_NAME", "fake-bucket",
+                "S3_INFERENCE_BUCKET_NAME", "fake-inference-bucket", "S3_UPLOAD_PREFIX", "initial",
+                "S3_REDACTED_PREFIX", "redacted", "ZERO_REDACTION_COPY", "true");
+        // we have mocked environment vars inside this scope
+        environmentVariables.execute(() -> {
+            // an event without any entity locations inference
+            JsonObject eventBody = JsonParser
+                    .parseString(Files.readString(Path.of("src/test/java/resources/eventBody1.json")))
+                    .getAsJsonObject();
+            eventBody.getAsJsonObject("input").add("inferences", new JsonObject());
+            SQSMessage message = new SQSMessage();
+            message.setBody(eventBody.toString());
+            SQSEvent noRedactionEvent = new SQSEvent();
+            noRedactionEvent.setRecords(List.of(message));
+
+            SfnRequestProcessor requestProcessor = new SfnRequestProcessor(mockSfn, mockS3, mockCWMetrics);
+            requestProcessor.process(noRedactionEvent);
+
+            verify(mockS3, times(1)).copyFile("fake-bucket", "fake-prefix/file1.jpg",
+                    "redacted/fakeCaseId/fakeDocId1-redacted.jpg");
+            verify(mockS3, never()).getFile("fake-bucket", "fake-prefix/file1.jpg");
+            verify(mockS3, never()).putFile(anyString(), anyString(), any(Path.class));
+            verify(mockSfn, times(1)).sendTaskSuccess(any(EventDataInput.class), eq("fakeToken"));
+            assertEquals(0, mockedImageRedactorConstructor.constructed().size());
+
+            mockedImageRedactorConstructor.closeOnDemand();
+        });
+    }
+
     @Test
     public void testProcessesRequestSuccessSendsToSfn() throws Exception {
         // mocking the redactor construction since it happens on the fly based on input
@@ -0,0 +1,263 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.builder.lambda.utils;
+
+import com.builder.lambda.model.BoundingBox;
+import com.builder.lambda.model.Document;
+import com.builder.lambda.model.FileType;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.PDDocumentNameDictionary;
+import org.apache.pdfbox.pdmodel.PDJavascriptNameTreeNode;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDMetadata;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionJavaScript;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VectorPdfRedactorTest {
+    static final float FONT_SIZE = 20;
+    static final float TEXT_X = 100;
+    static final float TEXT_Y = 700;
+    static final float IMAGE_X = 100;
+    static final float IMAGE_Y = 400;
+    static final int IMAGE_SIZE = 200;
+
+    @Test
+    public void testProcessDocumentRemovesRedactedText() throws Exception {
+        float start = TEXT_X + PDType1Font.HELVETICA.getStringWidth("Alice ") / 1000 * FONT_SIZE;
+        float width = PDType1Font.HELVETICA.getStringWidth("Smith") / 1000 * FONT_SIZE;
+        Map<String, List<BoundingBox>> boundingBoxesByPage = new HashMap<>();
+        boundingBoxesByPage.put("1", List.of(toBoundingBox(start, TEXT_Y - 5, width, FONT_SIZE)));
+
+        ByteArrayOutputStream outputStream = new VectorPdfRedactor().processDocument(
+                new Document(createPdf(), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+        try (PDDocument redactedDoc = PDDocument.load(outputStream.toByteArray())) {
+            String text = new PDFTextStripper().getText(redactedDoc);
+            assertFalse(text.contains("Smith"));
+            assertTrue(text.contains("Alice"));
+            assertTrue(text.contains("lives here"));
+            // the page keeps its vector content instead of being rendered
+            assertEquals(PDRectangle.LETTER.getWidth(), redactedDoc.getPage(0).getMediaBox().getWidth());
+        }
+    }
+
+    @Test
+    public void testProcessDocumentRedactsImagePixels() throws Exception {
+        Map<String, List<BoundingBox>> boundingBoxesByPage = new HashMap<>();
+        boundingBoxesByPage.put("1", List.of(toBoundingBox(IMAGE_X, IMAGE_Y + IMAGE_SIZE / 2f,
+                IMAGE_SIZE / 2f, IMAGE_SIZE / 2f)));
+
+        ByteArrayOutputStream outputStream = new VectorPdfRedactor().processDocument(
+                new Document(createPdf(), FileType.PDF, "fake-case", "fake-doc"), boundingBoxesByPage);
+
+        try (PDDocument redactedDoc = PDDocument.load(outputStream.toByteArray())) {
+            // the redacted copy replaces the original image, which isn't kept in the file
+            List<PDImageXObject> images = getImages(redactedDoc.getPage(0));
+            assertEquals(1, images.size());
+            BufferedImage pixels = images.get(0).getImage();
+            // the redacted top left quarter is black, the rest of the image is untouched
+            assertEquals(Color.BLACK.getRGB(), pixels.getRGB(10, 10));
+            assertEquals(Color.RED.getRGB(), pixels.getRGB(IMAGE_SIZE - 10, IMAGE_SIZE - 10));
+            assertTrue(new PDFTextStripper().getText(redactedDoc).contains("Alice Smith"));
+        }
+    }
+
+    @Test
+    public void testProcessDocumentRedactsImageDrawnTwice() throws Exception {
+        Map<String, List<BoundingBox>> boundingBoxesByPage = new HashMap<>();
+        boundingBoxesByPage.put("1", List.of(toBoundingBox(IMAGE_X, IMAGE_Y + IMAGE_SIZE / 2f,
+                IMAGE_SIZE / 2f, IMAGE_SIZE / 2f)));
+
+        ByteArrayOutputStream outputStream = new VectorPdfRedactor().processDocument(
+                new Document(createPdfWithImageDrawnTwice(), FileType.PDF, "fake-case", "fake-doc"),
+                boundingBoxesByPage);
+
+        try (PDDocument redactedDoc = PDDocument.load(outputStream.toByteArray())) {
+            // the copy drawn away from the redaction area shows the redacted pixels as well
+            List<PDImageXObject> images = getImages(redactedDoc.getPage(0));
+            assertEquals(1, images.size());
+            assertEquals(Color.BLACK.getRGB(), images.get(0).getImage().getRGB(10, 10));
+        }
+    }
+
+    @Test
+    public void testProcessDocumentRemovesNamedMarkedContentText() throws Exception {
+        float width = PDType1Font.HELVETICA.getStringWidth("Alice Smith") / 1000 * FONT_SIZE;
+        Map<String, List<BoundingBox>> boundingBoxesByPage = new HashMap<>();
+        boundingBoxesByPage.put("1", List.of(toBoundingBox(TEXT_X, TEXT_Y - 5, width, FONT_SIZE)));
+
+        ByteArrayOutputStream outputStream = new VectorPdfRedactor().processDocument(
+                new Document(createPdfWithNamedActualText(), FileType.PDF, "fake-case", "fake-doc"),
+                boundingBoxesByPage);
+
+        try (PDDocument redactedDoc = PDDocument.load(outputStream.toByteArray())) {
+            PDResources resources = redactedDoc.getPage(0).getResources();
+            COSName name = resources.getPropertiesNames().iterator().next();
+            assertNull(resources.getProperties(name).getCOSObject().getItem(COSName.ACTUAL_TEXT));
+            assertFalse(new String(outputStream.toByteArray(), StandardCharsets.ISO_8859_1).contains("Smith"));
+        }
+    }
+
+    @Test
+    public void testProcessDocumentRemovesDocumentText() throws Exception {
+        float start = TEXT_X + PDType1Font.HELVETICA.getStringWidth("Alice ") / 1000 * FONT_SIZE;
+        float width = PDType1Font.HELVETICA.getStringWidth("Smith") / 1000 * FONT_SIZE;
+        Map<String, List<BoundingBox>> boundingBoxesByPage = new HashMap<>();
+        boundingBoxesByPage.put("1", List.of(toBoundingBox(start, TEXT_Y - 5, width, FONT_SIZE)));
+
+        ByteArrayOutputStream outputStream = new VectorPdfRedactor().processDocument(
+                new Document(createPdfWithDocumentText(), FileType.PDF, "fake-case", "fake-doc"),
+                boundingBoxesByPage);
+
+        try (PDDocument redactedDoc = PDDocument.load(outputStream.toByteArray())) {
+            PDDocumentCatalog catalog = redactedDoc.getDocumentCatalog();
+            assertNull(redactedDoc.getDocumentInformation().getTitle());
+            assertNull(catalog.getMetadata());
+            assertNull(catalog.getDocumentOutline());
+            assertNull(catalog.getNames());
+            assertNull(catalog.getCOSObject().getDictionaryObject(COSName.OPEN_ACTION));
+            assertFalse(new String(outputStream.toByteArray(), StandardCharsets.ISO_8859_1).contains("Smith"));
+        }
+    }
+
+    private static List<PDImageXObject> getImages(PDPage page) throws IOException {
+        List<PDImageXObject> images = new ArrayList<>();
+        for (COSName name : page.getResources().getXObjectNames()) {
+            if (page.getResources().getXObject(name) instanceof PDImageXObject) {
+                images.add((PDImageXObject) page.getResources().getXObject(name));
+            }
+        }
+        return images;
+    }
+
+    private static BoundingBox toBoundingBox(float x, float y, float width, float height) {
+        PDRectangle pageDims = PDRectangle.LETTER;
+        return new BoundingBox(
+                width / pageDims.getWidth(),
+                height / pageDims.getHeight(),
+                x / pageDims.getWidth(),
+                1 - (y + height) / pageDims.getHeight());
+    }
+
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, IMAGE_SIZE, IMAGE_SIZE);
+        graphics.dispose();
+        return image;
+    }
+
+    private static InputStream save(PDDocument pdDocument) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        pdDocument.save(outputStream);
+        return new ByteArrayInputStream(outputStream.toByteArray());
+    }
+
+    private static InputStream createPdfWithImageDrawnTwice() throws IOException {
+        try (PDDocument pdDocument = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            pdDocument.addPage(page);
+            PDImageXObject image = LosslessFactory.createFromImage(pdDocument, createImage());
+            try (PDPageContentStream contentStream = new PDPageContentStream(pdDocument, page)) {
+                contentStream.drawImage(image, IMAGE_X, IMAGE_Y, IMAGE_SIZE, IMAGE_SIZE);
+                contentStream.drawImage(image, IMAGE_X, IMAGE_Y - IMAGE_SIZE - 50, IMAGE_SIZE, IMAGE_SIZE);
+            }
+            return save(pdDocument);
+        }
+    }
+
+    private static InputStream createPdfWithNamedActualText() throws IOException {
+        try (PDDocument pdDocument = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            pdDocument.addPage(page);
+            COSDictionary properties = new COSDictionary();
+            properties.setString(COSName.ACTUAL_TEXT, "Alice Smith");
+            try (PDPageContentStream contentStream = new PDPageContentStream(pdDocument, page,
+                    PDPageContentStream.AppendMode.OVERWRITE, false)) {
+                contentStream.beginMarkedContent(COSName.getPDFName("Span"), PDPropertyList.create(properties));
+                contentStream.beginText();
+                contentStream.setFont(PDType1Font.HELVETICA, FONT_SIZE);
+                contentStream.newLineAtOffset(TEXT_X, TEXT_Y);
+                contentStream.showText("Alice Smith");
+                contentStream.endText();
+                contentStream.endMarkedContent();
+            }
+            return save(pdDocument);
+        }
+    }
+
+    private static InputStream createPdfWithDocumentText() throws IOException {
+        try (PDDocument pdDocument = PDDocument.load(createPdf())) {
+            pdDocument.getDocumentInformation().setTitle("Alice Smith file");
+            PDDocumentCatalog catalog = pdDocument.getDocumentCatalog();
+            catalog.setMetadata(new PDMetadata(pdDocument,
+                    new ByteArrayInputStream("<x:xmpmeta>Alice Smith</x:xmpmeta>".getBytes(StandardCharsets.UTF_8))));
+
+            PDDocumentOutline outline = new PDDocumentOutline();
+            PDOutlineItem bookmark = new PDOutlineItem();
+            bookmark.setTitle("Alice Smith");
+            outline.addLast(bookmark);
+            catalog.setDocumentOutline(outline);
+
+            PDJavascriptNameTreeNode scripts = new PDJavascriptNameTreeNode();
+            scripts.setNames(Map.of("greeting", new PDActionJavaScript("app.alert('Alice Smith');")));
+            PDDocumentNameDictionary names = new PDDocumentNameDictionary(catalog);
+            names.setJavascript(scripts);
+            catalog.setNames(names);
+            catalog.setOpenAction(new PDActionJavaScript("app.alert('Alice Smith');"));
+            return save(pdDocument);
+        }
+    }
+
+    private static InputStream createPdf() throws IOException {
+        BufferedImage image = createImage();
+
+        try (PDDocument pdDocument = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            pdDocument.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(pdDocument, page)) {
+                contentStream.beginText();
+                contentStream.setFont(PDType1Font.HELVETICA, FONT_SIZE);
+                contentStream.newLineAtOffset(TEXT_X, TEXT_Y);
+                contentStream.showText("Alice Smith lives here");
+                contentStream.endText();
+                contentStream.drawImage(LosslessFactory.createFromImage(pdDocument, image),
+                        IMAGE_X, IMAGE_Y, IMAGE_SIZE, IMAGE_SIZE);
+            }
+            return save(pdDocument);
+        }
+    }
+}